@@ -6,7 +6,6 @@ import java.io.File;
 
 import com.tagease.controller.TagController;
 import com.tagease.database.DatabaseConfig;
-import com.tagease.utils.HealthCheck;
 import com.tagease.view.MainView;
 
 import javafx.application.Application;
@@ -40,11 +39,6 @@ public class App extends Application {
         TagController controller = new TagController();
         MainView mainView = new MainView(primaryStage, controller);
         mainView.show();
-        
-        // Run health check after UI is displayed
-        Platform.runLater(() -> {
-            HealthCheck.performHealthCheck(mainView);
-        });
     }
     
     /**
@@ -0,0 +1,475 @@
+package com.tagease.controller;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.TagBitmapIndex;
+import com.tagease.search.TagCompletionService;
+import com.tagease.search.TopK;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the file catalog and tag tables, owned by the TagController.
+ * Each table is loaded from the database on first use and then patched by the controller's
+ * own mutations, so read-only interactions (searching, filtering, sorting, opening dialogs)
+ * never touch SQLite. Cached files are never changed once stored: a mutation replaces the
+ * entry with a patched copy, so the file list handed out is an unmodifiable snapshot that is
+ * shared by every reader until the next mutation, and the files in it have read-only tag
+ * sets. Any failed mutation drops the whole cache so the next read reloads it. Derived
+ * structures (file snapshot, bitmap index, tag completion) are rebuilt only when the catalog
+ * version has changed.
+ */
+public class CatalogCache {
+
+    /**
+     * Loads a table from the database on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long invalidations;
+        private final long version;
+
+        Stats(long hits, long misses, long invalidations, long version) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.version = version;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        /**
+         * Gets the catalog version, which changes on every mutation.
+         *
+         * @return The version number
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String toString() {
+            return "CatalogCache.Stats[hits=" + hits + ", misses=" + misses
+                    + ", invalidations=" + invalidations + ", version=" + version + "]";
+        }
+    }
+
+    // null means "not loaded"
+    private Map<String, TaggedFile> files;
+    private Set<String> tags;
+    private Map<String, Tag> tagColors;
+
+    private List<TaggedFile> snapshot;
+    private long snapshotVersion = -1;
+    private TagBitmapIndex index;
+    private long indexVersion = -1;
+    private TagCompletionService completion;
+    private long completionVersion = -1;
+
+    private long version;
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Gets all files, loading them on the first call. The list is rebuilt only after a
+     * mutation; the files in it must not be changed, so edits start from a copy.
+     *
+     * @param loader Reads the files from the database
+     * @return An unmodifiable snapshot of the files in load order
+     * @throws SQLException If the files have to be loaded and loading fails
+     */
+    public synchronized List<TaggedFile> getFiles(Loader<List<TaggedFile>> loader) throws SQLException {
+        ensureFiles(loader);
+        if (snapshot == null || snapshotVersion != version) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(files.values()));
+            snapshotVersion = version;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks whether the file catalog is loaded, i.e. whether file reads can skip the database.
+     *
+     * @return true if the files are cached
+     */
+    public synchronized boolean hasFiles() {
+        return files != null;
+    }
+
+    /**
+     * Gets the cached tags of one file without loading anything.
+     *
+     * @param filePath The file path
+     * @return A copy of the file's tags, or null if the file or the catalog is not cached
+     */
+    public synchronized Set<String> getCachedTags(String filePath) {
+        if (files == null || !files.containsKey(filePath)) {
+            return null;
+        }
+        return new HashSet<>(files.get(filePath).getTags());
+    }
+
+    /**
+     * Selects the first files of an order from the cached catalog with a bounded heap.
+     *
+     * @param order The order
+     * @param limit The maximum number of files
+     * @return The selected files, or null if the catalog is not loaded
+     */
+    public synchronized List<TaggedFile> selectTopFiles(Comparator<TaggedFile> order, int limit) {
+        if (files == null) {
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(TopK.select(files.values(), order, limit));
+    }
+
+    /**
+     * Gets all tag names, loading them on the first call.
+     *
+     * @param loader Reads the tag names from the database
+     * @return A new set of tag names
+     * @throws SQLException If the tags have to be loaded and loading fails
+     */
+    public synchronized Set<String> getTags(Loader<Set<String>> loader) throws SQLException {
+        if (tags != null) {
+            hits++;
+        } else {
+            misses++;
+            tags = new HashSet<>(loader.load());
+        }
+        return new HashSet<>(tags);
+    }
+
+    /**
+     * Gets all tags with their colors, loading them on the first call.
+     *
+     * @param loader Reads the tags from the database
+     * @return A new map of tag names to Tag copies
+     * @throws SQLException If the tags have to be loaded and loading fails
+     */
+    public synchronized Map<String, Tag> getTagColors(Loader<Map<String, Tag>> loader) throws SQLException {
+        if (tagColors != null) {
+            hits++;
+        } else {
+            misses++;
+            tagColors = new HashMap<>();
+            for (Tag tag : loader.load().values()) {
+                tagColors.put(tag.getName(), tag);
+            }
+        }
+        Map<String, Tag> result = new HashMap<>();
+        for (Tag tag : tagColors.values()) {
+            result.put(tag.getName(), new Tag(tag.getName(), tag.getColorHex()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the bitmap index of the current catalog, rebuilding it only after a mutation.
+     *
+     * @param loader Reads the files from the database if they are not cached
+     * @return The index snapshot
+     * @throws SQLException If the files have to be loaded and loading fails
+     */
+    public synchronized TagBitmapIndex getIndex(Loader<List<TaggedFile>> loader) throws SQLException {
+        if (index != null && indexVersion == version) {
+            hits++;
+            return index;
+        }
+        index = new TagBitmapIndex(getFiles(loader));
+        indexVersion = version;
+        return index;
+    }
+
+    /**
+     * Gets the bitmap index of a file list returned by {@link #getFiles}, without loading
+     * anything, so it can run off the UI thread. A missing index is built outside the lock,
+     * so other readers are not blocked meanwhile, and is kept only if the list is still the
+     * current snapshot.
+     *
+     * @param snapshot The files to index
+     * @return The index of exactly these files
+     */
+    public TagBitmapIndex getIndex(List<TaggedFile> snapshot) {
+        synchronized (this) {
+            if (index != null && indexVersion == version && isCurrent(snapshot)) {
+                hits++;
+                return index;
+            }
+        }
+        TagBitmapIndex built = new TagBitmapIndex(snapshot);
+        synchronized (this) {
+            if (isCurrent(snapshot)) {
+                index = built;
+                indexVersion = version;
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Checks whether a file list returned by {@link #getFiles} still reflects the catalog.
+     *
+     * @param snapshot The file list
+     * @return true if no mutation happened since the list was taken
+     */
+    public synchronized boolean isCurrent(List<TaggedFile> snapshot) {
+        return snapshot == this.snapshot && snapshotVersion == version;
+    }
+
+    /**
+     * Gets the tag completion service, rebuilding it only after a mutation.
+     *
+     * @param tagLoader Reads the tag names from the database if they are not cached
+     * @param fileLoader Reads the files from the database if they are not cached
+     * @return The completion service
+     * @throws SQLException If a table has to be loaded and loading fails
+     */
+    public synchronized TagCompletionService getCompletion(Loader<Set<String>> tagLoader,
+            Loader<List<TaggedFile>> fileLoader) throws SQLException {
+        if (completion != null && completionVersion == version) {
+            hits++;
+            return completion;
+        }
+        completion = new TagCompletionService(getTags(tagLoader), getIndex(fileLoader));
+        completionVersion = version;
+        return completion;
+    }
+
+    /**
+     * Gets a snapshot of the hit, miss and invalidation counters.
+     *
+     * @return The statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, invalidations, version);
+    }
+
+    /**
+     * Records a file that was added to the database.
+     */
+    public synchronized void fileAdded(TaggedFile file) {
+        version++;
+        if (files != null) {
+            files.put(file.getFilePath(), copy(file));
+        }
+        tagsUsed(file.getTags());
+    }
+
+    /**
+     * Records a file whose tags were rewritten; the database also stamps its access time.
+     */
+    public synchronized void fileUpdated(TaggedFile file, LocalDateTime accessedAt) {
+        version++;
+        if (files != null && files.containsKey(file.getFilePath())) {
+            TaggedFile cached = copy(file);
+            cached.setLastAccessedAt(truncate(accessedAt));
+            files.put(file.getFilePath(), cached);
+        }
+        tagsUsed(file.getTags());
+    }
+
+    /**
+     * Records a file that was deleted from the database.
+     */
+    public synchronized void fileDeleted(String filePath) {
+        version++;
+        if (files != null) {
+            files.remove(filePath);
+        }
+    }
+
+    /**
+     * Records a tag that was created or refreshed.
+     */
+    public synchronized void tagAdded(String tagName) {
+        version++;
+        tagsUsed(List.of(tagName));
+        if (tagColors != null && Tag.isSystemTag(tagName)) {
+            // System tags get their colors reset when re-added
+            tagColors = null;
+        }
+    }
+
+    /**
+     * Records a tag that was deleted together with all of its file assignments.
+     */
+    public synchronized void tagDeleted(String tagName) {
+        version++;
+        if (tags != null) {
+            tags.remove(tagName);
+        }
+        if (tagColors != null) {
+            tagColors.remove(tagName);
+        }
+        if (files != null) {
+            for (Map.Entry<String, TaggedFile> entry : files.entrySet()) {
+                if (entry.getValue().getTags().contains(tagName)) {
+                    entry.setValue(withoutTag(entry.getValue(), tagName));
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a tag that was added to one file without touching its access time.
+     */
+    public synchronized void tagAddedToFile(String filePath, String tagName) {
+        version++;
+        if (files != null && files.containsKey(filePath)) {
+            TaggedFile cached = files.get(filePath);
+            Set<String> tags = new HashSet<>(cached.getTags());
+            tags.add(tagName);
+            files.put(filePath, copy(cached, tags));
+        }
+        tagsUsed(List.of(tagName));
+    }
+
+    /**
+     * Records a newly read on-disk fingerprint of a file.
+     */
+    public synchronized void fingerprintUpdated(String filePath, FileFingerprint fingerprint) {
+        version++;
+        if (files != null && files.containsKey(filePath)) {
+            TaggedFile cached = copy(files.get(filePath));
+            cached.setFingerprint(fingerprint);
+            files.put(filePath, cached);
+        }
+    }
+
+    /**
+     * Records re-read file system metadata of one file.
+     */
+    public synchronized void metadataUpdated(String filePath, FileFingerprint fingerprint, String mimeType) {
+        version++;
+        if (files != null && files.containsKey(filePath)) {
+            TaggedFile cached = copy(files.get(filePath));
+            cached.setFingerprint(fingerprint);
+            cached.setMimeType(mimeType);
+            files.put(filePath, cached);
+        }
+    }
+
+    /**
+     * Records a tag that was removed from one file.
+     */
+    public synchronized void tagRemovedFromFile(String filePath, String tagName) {
+        version++;
+        if (files != null && files.containsKey(filePath)) {
+            files.put(filePath, withoutTag(files.get(filePath), tagName));
+        }
+    }
+
+    /**
+     * Records a new tag color.
+     */
+    public synchronized void tagColorUpdated(Tag tag) {
+        version++;
+        if (tagColors != null) {
+            tagColors.put(tag.getName(), new Tag(tag.getName(), tag.getColorHex()));
+        }
+    }
+
+    /**
+     * Drops everything, e.g. after a failed mutation left the database state unknown.
+     */
+    public synchronized void invalidate() {
+        version++;
+        invalidations++;
+        files = null;
+        tags = null;
+        tagColors = null;
+        snapshot = null;
+        index = null;
+        completion = null;
+    }
+
+    private void ensureFiles(Loader<List<TaggedFile>> loader) throws SQLException {
+        if (files != null) {
+            hits++;
+            return;
+        }
+        misses++;
+        Map<String, TaggedFile> loaded = new LinkedHashMap<>();
+        for (TaggedFile file : loader.load()) {
+            loaded.put(file.getFilePath(), copy(file));
+        }
+        files = loaded;
+    }
+
+    private void tagsUsed(Collection<String> tagNames) {
+        for (String tagName : tagNames) {
+            if (tags != null) {
+                tags.add(tagName);
+            }
+            if (tagColors != null && !tagColors.containsKey(tagName)) {
+                // New tags get a generated color we can only learn from the database
+                tagColors = null;
+            }
+        }
+    }
+
+    private static TaggedFile withoutTag(TaggedFile file, String tagName) {
+        Set<String> tags = new HashSet<>(file.getTags());
+        tags.remove(tagName);
+        return copy(file, tags);
+    }
+
+    private static TaggedFile copy(TaggedFile file) {
+        return copy(file, file.getTags());
+    }
+
+    /**
+     * Copies a file for storing in the cache, with a read-only copy of the given tags.
+     */
+    private static TaggedFile copy(TaggedFile file, Set<String> tags) {
+        TaggedFile copy = new TaggedFile(file.getFileName(), file.getFilePath(),
+                Collections.unmodifiableSet(new HashSet<>(tags)));
+        copy.setCreatedAt(truncate(file.getCreatedAt()));
+        copy.setLastAccessedAt(truncate(file.getLastAccessedAt()));
+        copy.setFingerprint(file.getFingerprint());
+        copy.setMimeType(file.getMimeType());
+        return copy;
+    }
+
+    /**
+     * Timestamps round-trip through the database with millisecond precision.
+     */
+    private static LocalDateTime truncate(LocalDateTime time) {
+        return time != null ? time.truncatedTo(ChronoUnit.MILLIS) : null;
+    }
+}
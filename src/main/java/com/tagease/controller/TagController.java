@@ -2,24 +2,85 @@ package com.tagease.controller;
 
 import com.tagease.database.DatabaseConfig;
 import com.tagease.database.TaggedFileDAO;
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.Tag;
 import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+import com.tagease.search.FileSortOrder;
+import com.tagease.search.QueryCompiler;
+import com.tagease.search.QueryNode;
+import com.tagease.search.QueryPlan;
+import com.tagease.search.SimilarFilesIndex;
+import com.tagease.search.TagCooccurrenceMatrix;
+import com.tagease.search.TagBitmapIndex;
+import com.tagease.search.TagCompletionService;
+import com.tagease.search.TrigramIndex;
+import com.tagease.utils.AutoTagEngine;
+import com.tagease.utils.ContentHashJob;
+import com.tagease.utils.FileRelinker;
+import com.tagease.utils.FileWatchTracker;
+import com.tagease.utils.FolderImporter;
+import com.tagease.utils.HealthCheck;
+import com.tagease.utils.MetadataRefresher;
+import com.tagease.utils.MissingFileScanner;
+import com.tagease.utils.PathStatusCache;
+import com.tagease.utils.ProgressListener;
+import com.tagease.utils.XattrTagSync;
 import javafx.scene.control.Alert;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class TagController {
     private Connection connection;
     protected TaggedFileDAO fileDAO;
+    private final QueryCompiler queryCompiler = new QueryCompiler();
+    private final CatalogCache cache = new CatalogCache();
+    private final PathStatusCache pathStatusCache = new PathStatusCache();
+    private final FolderImporter folderImporter = new FolderImporter();
+    private final MetadataRefresher metadataRefresher = new MetadataRefresher();
+    private XattrTagSync xattrTagSync;
+    private AutoTagEngine autoTagEngine;
+    private HealthCheck.HealthCheckResult lastHealthCheck;
+    // Built on the search thread, so it is published and updated under its lock
+    private volatile TrigramIndex fileNameIndex;
+    private final Object fileNameIndexLock = new Object();
+    private SimilarFilesIndex similarFilesIndex;
+    private TagCooccurrenceMatrix cooccurrenceMatrix;
+    private FileWatchTracker fileWatchTracker;
 
+    private static final String LIBRARY_ROOTS_SETTING = "library_roots";
+    private static final String XATTR_SYNC_SETTING = "xattr_sync";
+    private static final int TAG_BATCH_SIZE = 500;
+    private static final int RETAG_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
     private static final int MAX_TAG_LENGTH = 50;
     private static final String TAG_REGEX = "^[a-zA-Z0-9 _-]+$";
 
@@ -49,8 +110,22 @@ public class TagController {
                     validateTag(tag);
                 }
             }
+            if (file.getFingerprint() == null) {
+                file.setFingerprint(readFingerprint(file.getFilePath()));
+            }
+            if (file.getMimeType() == null) {
+                file.setMimeType(probeMimeType(file.getFilePath()));
+            }
+            applyAutoTags(getAutoTagEngine(), file);
             fileDAO.addFile(file, existingTags);
+            cache.fileAdded(file);
+            fileTagsChanged(file.getFilePath(), new HashSet<>(), file.getTags());
+            updateFileNameIndex(index -> index.add(file.getFilePath(), file.getFileName()));
+            if (fileWatchTracker != null) {
+                fileWatchTracker.track(file.getFilePath());
+            }
         } catch (SQLException e) {
+            invalidateCache();
             if (e.getMessage().contains("File already exists")) {
                 showErrorDialog("Duplicate File", "This file has already been added to the system.", "");
             } else {
@@ -67,14 +142,260 @@ public class TagController {
         }
     }
 
+    /**
+     * Adds many files in one transaction, with the tags of matching auto-tag rules. Files that
+     * are already catalogued are skipped.
+     *
+     * @param files The files to add, with their fingerprints
+     * @return The number of files added
+     */
+    public int addFiles(List<TaggedFile> files) {
+        Set<String> existingTags = getAllTags();
+        AutoTagEngine engine = getAutoTagEngine();
+        try {
+            for (TaggedFile file : files) {
+                applyAutoTags(engine, file);
+                for (String tag : file.getTags()) {
+                    if (!existingTags.contains(tag)) {
+                        validateTag(tag);
+                    }
+                }
+            }
+            List<TaggedFile> added = fileDAO.addFiles(files, existingTags);
+            for (TaggedFile file : added) {
+                cache.fileAdded(file);
+                fileTagsChanged(file.getFilePath(), new HashSet<>(), file.getTags());
+                updateFileNameIndex(index -> index.add(file.getFilePath(), file.getFileName()));
+                if (fileWatchTracker != null) {
+                    fileWatchTracker.track(file.getFilePath());
+                }
+            }
+            return added.size();
+        } catch (SQLException e) {
+            invalidateCache();
+            showErrorDialog("Error Adding Files", "Could not add " + files.size() + " files",
+                "Database error: " + e.getMessage() + "\nSQL State: " + e.getSQLState());
+            throw new RuntimeException("Error adding files: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            showErrorDialog("Invalid Tag",
+                "Could not add files due to invalid tags",
+                e.getMessage());
+            throw new RuntimeException("Invalid tag: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Imports a folder tree. The folder is walked on background threads; each batch is
+     * written through {@link #addFiles(List)} on the writer executor, and the walk waits for
+     * it, so the database only ever sees one writer.
+     *
+     * @param root The folder to import
+     * @param filter Selects the files to import
+     * @param tags The tags given to every imported file
+     * @param writer Runs the database writes, e.g. {@code Platform::runLater}
+     * @param listener Receives progress after each batch, or null
+     * @param token Cancels the import; batches already written are kept
+     * @return The import result
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public FolderImporter.Result importFolder(Path root, FolderImporter.Filter filter, Set<String> tags,
+            Executor writer, FolderImporter.Listener listener, CancellationToken token) {
+        FolderImporter.BatchSink sink = batch -> runOn(writer, () -> addFiles(batch));
+        return folderImporter.importFolder(root, filter, tags, sink, listener, token);
+    }
+
+    /**
+     * Runs a write on the writer executor and waits for it.
+     */
+    private static <T> T runOn(Executor writer, Supplier<T> write) {
+        CompletableFuture<T> written = CompletableFuture.supplyAsync(write, writer);
+        try {
+            return written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Write was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Gets the auto-tag rules in the order they were added.
+     *
+     * @return The rules
+     */
+    public List<AutoTagRule> getAutoTagRules() {
+        try {
+            return fileDAO.getAutoTagRules();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error loading auto-tag rules: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds an auto-tag rule. New files get its tag from now on; existing files only after
+     * {@link #retagAll}.
+     *
+     * @param kind What the pattern matches
+     * @param pattern The extension, folder, glob or range
+     * @param tag The tag to give matching files
+     * @return The saved rule
+     */
+    public AutoTagRule addAutoTagRule(AutoTagRule.Kind kind, String pattern, String tag) {
+        AutoTagRule rule = new AutoTagRule(kind, pattern != null ? pattern.trim() : null, tag);
+        try {
+            validateTag(tag);
+            AutoTagEngine.compile(List.of(rule));
+            AutoTagRule saved = fileDAO.addAutoTagRule(rule);
+            autoTagEngine = null;
+            return saved;
+        } catch (IllegalArgumentException e) {
+            showErrorDialog("Invalid Rule", "Could not add the auto-tag rule", e.getMessage());
+            throw new RuntimeException("Invalid auto-tag rule: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            showErrorDialog("Error Saving Rule", "Could not add the auto-tag rule", e.getMessage());
+            throw new RuntimeException("Error adding auto-tag rule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes an auto-tag rule. Tags it already gave files are kept.
+     *
+     * @param ruleId The rule's id
+     */
+    public void deleteAutoTagRule(long ruleId) {
+        try {
+            fileDAO.deleteAutoTagRule(ruleId);
+            autoTagEngine = null;
+        } catch (SQLException e) {
+            showErrorDialog("Error Deleting Rule", "Could not delete the auto-tag rule", e.getMessage());
+            throw new RuntimeException("Error deleting auto-tag rule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the compiled auto-tag rules, compiling them on first use after a change.
+     */
+    private AutoTagEngine getAutoTagEngine() {
+        AutoTagEngine engine = autoTagEngine;
+        if (engine == null) {
+            try {
+                engine = AutoTagEngine.compile(getAutoTagRules());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring auto-tag rules: " + e.getMessage());
+                engine = AutoTagEngine.empty();
+            }
+            autoTagEngine = engine;
+        }
+        return engine;
+    }
+
+    private static void applyAutoTags(AutoTagEngine engine, TaggedFile file) {
+        Set<String> autoTags = engine.tagsFor(file);
+        if (!file.getTags().containsAll(autoTags)) {
+            Set<String> tags = new HashSet<>(file.getTags());
+            tags.addAll(autoTags);
+            file.setTags(tags);
+        }
+    }
+
+    /**
+     * Applies the auto-tag rules to every catalogued file. The rules and the catalog snapshot
+     * are read through the writer executor too, and files are matched in parallel, each
+     * batch of additions being written through the writer as soon as it is matched, so the
+     * database only ever sees one user. Rules only add tags; tags of files that no longer
+     * match are kept.
+     *
+     * @param writer Runs the database writes, e.g. {@code Platform::runLater}
+     * @param listener Receives the number of files matched so far, or null
+     * @param token Cancels the run; batches already written are kept
+     * @return The number of files that gained tags
+     * @throws CancellationException If the token is cancelled
+     */
+    public int retagAll(Executor writer, ProgressListener listener, CancellationToken token) {
+        AutoTagEngine engine = runOn(writer, this::getAutoTagEngine);
+        List<TaggedFile> files = runOn(writer, this::getAllFiles);
+        if (engine.isEmpty() || files.isEmpty()) {
+            return 0;
+        }
+        int total = files.size();
+        AtomicInteger matched = new AtomicInteger();
+        ExecutorService matchers = Executors.newFixedThreadPool(RETAG_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "auto-tag-matcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Map<String, Set<String>>> batches = new ExecutorCompletionService<>(matchers);
+        try {
+            int batchCount = 0;
+            for (int start = 0; start < total; start += TAG_BATCH_SIZE) {
+                List<TaggedFile> batch = files.subList(start, Math.min(total, start + TAG_BATCH_SIZE));
+                batches.submit(() -> {
+                    Map<String, Set<String>> additions = new LinkedHashMap<>();
+                    for (TaggedFile file : batch) {
+                        token.throwIfCancelled();
+                        Set<String> added = engine.tagsFor(file);
+                        added.removeAll(file.getTags());
+                        if (!added.isEmpty()) {
+                            additions.put(file.getFilePath(), added);
+                        }
+                    }
+                    matched.addAndGet(batch.size());
+                    return additions;
+                });
+                batchCount++;
+            }
+
+            int changed = 0;
+            for (int i = 0; i < batchCount; i++) {
+                Map<String, Set<String>> additions = takeBatch(batches);
+                token.throwIfCancelled();
+                if (!additions.isEmpty()) {
+                    changed += runOn(writer, () -> {
+                        try {
+                            addTagsToFiles(additions);
+                            return additions.size();
+                        } catch (SQLException e) {
+                            showErrorDialog("Error Re-tagging Files", "Could not apply auto-tag rules", e.getMessage());
+                            throw new RuntimeException("Error applying auto-tag rules: " + e.getMessage(), e);
+                        }
+                    });
+                }
+                if (listener != null) {
+                    listener.onProgress(matched.get(), total);
+                }
+            }
+            return changed;
+        } finally {
+            matchers.shutdownNow();
+        }
+    }
+
+    private static <T> T takeBatch(CompletionService<T> batches) {
+        try {
+            return batches.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Re-tagging was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
     public void updateFileTags(TaggedFile file) {
         try {
             // Validate tags before updating
             for (String tag : file.getTags()) {
                 validateTag(tag);
             }
+            Set<String> oldTags = cache.getCachedTags(file.getFilePath());
             fileDAO.updateFileTags(file);
+            cache.fileUpdated(file, LocalDateTime.now());
+            fileTagsChanged(file.getFilePath(), oldTags, file.getTags());
         } catch (SQLException e) {
+            invalidateCache();
             showErrorDialog("Error Updating Tags", 
                 "Could not update tags for file: " + file.getFileName(), 
                 "Database error: " + e.getMessage() + "\nSQL State: " + e.getSQLState());
@@ -89,8 +410,25 @@ public class TagController {
 
     public void deleteFile(String filePath) {
         try {
+            Set<String> oldTags = cache.getCachedTags(filePath);
             fileDAO.deleteFile(filePath);
+            cache.fileDeleted(filePath);
+            if (similarFilesIndex != null) {
+                similarFilesIndex.remove(filePath);
+            }
+            if (cooccurrenceMatrix != null) {
+                if (oldTags != null) {
+                    cooccurrenceMatrix.remove(oldTags);
+                } else {
+                    cooccurrenceMatrix = null;
+                }
+            }
+            updateFileNameIndex(index -> index.remove(filePath));
+            if (fileWatchTracker != null) {
+                fileWatchTracker.untrack(filePath);
+            }
         } catch (SQLException e) {
+            invalidateCache();
             showErrorDialog("Error Deleting File", 
                 "Could not delete file: " + filePath, 
                 e.getMessage());
@@ -100,7 +438,7 @@ public class TagController {
 
     public List<TaggedFile> getAllFiles() {
         try {
-            return fileDAO.getAllFiles();
+            return cache.getFiles(fileDAO::getAllFiles);
         } catch (SQLException e) {
             showErrorDialog("Error Loading Files", 
                 "Could not load files from database", 
@@ -111,7 +449,7 @@ public class TagController {
 
     public Set<String> getAllTags() {
         try {
-            return fileDAO.getAllTags();
+            return cache.getTags(fileDAO::getAllTags);
         } catch (SQLException e) {
             showErrorDialog("Database Error", "Failed to retrieve tags", e.getMessage());
             throw new RuntimeException("Failed to retrieve tags: " + e.getMessage(), e);
@@ -121,8 +459,16 @@ public class TagController {
     public void deleteTag(String tagName) {
         try {
             validateTag(tagName);
+            List<TaggedFile> tagged = xattrTagSync != null ? getFilesByTags(Set.of(tagName)) : List.of();
             fileDAO.deleteTag(tagName);
+            cache.tagDeleted(tagName);
+            syncTagDeletion(tagged, tagName);
+            similarFilesIndex = null;
+            if (cooccurrenceMatrix != null) {
+                cooccurrenceMatrix.removeTag(tagName);
+            }
         } catch (SQLException e) {
+            invalidateCache();
             showErrorDialog("Error Deleting Tag", 
                 "Could not delete tag: " + tagName, 
                 "Database error: " + e.getMessage() + "\nSQL State: " + e.getSQLState());
@@ -138,8 +484,19 @@ public class TagController {
     public void deleteTagFromFile(String filePath, String tagName) {
         try {
             validateTag(tagName);
+            Set<String> oldTags = cache.getCachedTags(filePath);
             fileDAO.deleteTagFromFile(filePath, tagName);
+            cache.tagRemovedFromFile(filePath, tagName);
+            if (oldTags != null) {
+                Set<String> newTags = new HashSet<>(oldTags);
+                newTags.remove(tagName);
+                fileTagsChanged(filePath, oldTags, newTags);
+            } else {
+                similarFilesIndex = null;
+                cooccurrenceMatrix = null;
+            }
         } catch (SQLException e) {
+            invalidateCache();
             showErrorDialog("Error Removing Tag", 
                 "Could not remove tag from file", 
                 "Database error: " + e.getMessage() + "\nSQL State: " + e.getSQLState());
@@ -161,20 +518,267 @@ public class TagController {
         }
     }
 
+    /**
+     * Gets the most recently accessed files, newest first.
+     * Served from the cached catalog when it is loaded, otherwise with a LIMIT query.
+     *
+     * @param limit The maximum number of files
+     * @return The files
+     */
+    public List<TaggedFile> getRecentlyAccessedFiles(int limit) {
+        try {
+            List<TaggedFile> cached = cache.selectTopFiles(FileSortOrder.LAST_ACCESSED.comparator(false), limit);
+            return cached != null ? cached : fileDAO.getRecentlyAccessedFiles(limit);
+        } catch (SQLException e) {
+            showErrorDialog("Error Loading Files", 
+                "Could not load recent files from database", 
+                e.getMessage());
+            throw new RuntimeException("Error loading recent files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the most recently added files, newest first.
+     * Served from the cached catalog when it is loaded, otherwise with a LIMIT query.
+     *
+     * @param limit The maximum number of files
+     * @return The files
+     */
+    public List<TaggedFile> getRecentlyAddedFiles(int limit) {
+        try {
+            List<TaggedFile> cached = cache.selectTopFiles(FileSortOrder.CREATED_DATE.comparator(false), limit);
+            return cached != null ? cached : fileDAO.getRecentlyAddedFiles(limit);
+        } catch (SQLException e) {
+            showErrorDialog("Error Loading Files", 
+                "Could not load recent files from database", 
+                e.getMessage());
+            throw new RuntimeException("Error loading recent files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the files whose created or last-accessed date lies in an inclusive range of days,
+     * oldest first. With the catalog cached the range is a binary search over the index's
+     * sorted timestamp column; otherwise a range query on the timestamp index reads only the
+     * matching rows. Combine with tag filters through {@link #getTagIndex()} and
+     * {@link TagBitmapIndex#bitsInRange}, or with a query such as
+     * {@code work AND created:2024-01-01..2024-03-31}.
+     *
+     * @param field The timestamp to filter on
+     * @param from The first day, or null for no lower bound
+     * @param to The last day, or null for no upper bound
+     * @return The matching files
+     */
+    public List<TaggedFile> getFilesInDateRange(QueryNode.DatePredicate.Field field, LocalDate from, LocalDate to) {
+        LocalDateTime[] bounds = QueryNode.DatePredicate.range(field, from, to).bounds(LocalDateTime.now());
+        FileSortOrder order = field == QueryNode.DatePredicate.Field.CREATED
+                ? FileSortOrder.CREATED_DATE
+                : FileSortOrder.LAST_ACCESSED;
+        try {
+            if (cache.hasFiles()) {
+                TagBitmapIndex index = cache.getIndex(fileDAO::getAllFiles);
+                List<TaggedFile> files = index.collect(index.bitsInRange(field, bounds[0], bounds[1]));
+                files.sort(order.comparator(true));
+                return files;
+            }
+            return field == QueryNode.DatePredicate.Field.CREATED
+                    ? fileDAO.getFilesCreatedBetween(bounds[0], bounds[1])
+                    : fileDAO.getFilesAccessedBetween(bounds[0], bounds[1]);
+        } catch (SQLException e) {
+            showErrorDialog("Error Loading Files", 
+                "Could not load files from database", 
+                e.getMessage());
+            throw new RuntimeException("Error loading files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets a bitmap index over the current file catalog.
+     * The index is cached and only rebuilt after the catalog changes.
+     *
+     * @return An immutable index snapshot
+     */
+    public TagBitmapIndex getTagIndex() {
+        try {
+            return cache.getIndex(fileDAO::getAllFiles);
+        } catch (SQLException e) {
+            showErrorDialog("Error Loading Files", 
+                "Could not load files from database", 
+                e.getMessage());
+            throw new RuntimeException("Error loading files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the bitmap index of a file list returned by {@link #getAllFiles}. Never touches the
+     * database or shows dialogs, so a search thread can build the index while the UI thread
+     * keeps working.
+     *
+     * @param files The catalog snapshot
+     * @return An immutable index of exactly these files
+     */
+    public TagBitmapIndex getTagIndex(List<TaggedFile> files) {
+        return cache.getIndex(files);
+    }
+
+    /**
+     * Gets a tag completion service over all known tags.
+     * The service is cached and only rebuilt after the catalog changes.
+     *
+     * @return A completion service ranked by current tag usage
+     */
+    public TagCompletionService getTagCompletionService() {
+        try {
+            return cache.getCompletion(fileDAO::getAllTags, fileDAO::getAllFiles);
+        } catch (SQLException e) {
+            showErrorDialog("Database Error", "Failed to retrieve tags", e.getMessage());
+            throw new RuntimeException("Failed to retrieve tags: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the hit, miss and invalidation counters of the catalog cache.
+     *
+     * @return A snapshot of the cache statistics
+     */
+    public CatalogCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Runs a tag query such as {@code (work OR project-2024) AND NOT archive AND name:*.pdf}.
+     * Parse errors are not shown as dialogs because queries are typed live in the search bar.
+     *
+     * @param query The query text; a blank query matches every file
+     * @return The matching files
+     * @throws com.tagease.search.QueryParseException If the query is malformed
+     */
+    public List<TaggedFile> queryFiles(String query) {
+        TagBitmapIndex index = getTagIndex();
+        return index.collect(queryMatches(query, index));
+    }
+
+    /**
+     * Runs a tag query against an existing index snapshot.
+     *
+     * @param query The query text; a blank query matches every file
+     * @param index The index to run against
+     * @return The ordinals of the matching files
+     * @throws com.tagease.search.QueryParseException If the query is malformed
+     */
+    public BitSet queryMatches(String query, TagBitmapIndex index) {
+        if (query == null || query.trim().isEmpty()) {
+            return index.all();
+        }
+        QueryPlan plan = queryCompiler.compile(query);
+        return plan.match(index, LocalDateTime.now());
+    }
+
+    /**
+     * Searches file names and paths, tolerating typos and missing characters.
+     * The trigram index is built from the snapshot on first use and then kept up to date by
+     * the file mutations. Never touches the database or shows dialogs, so it can run on the
+     * search thread.
+     *
+     * @param term The search term
+     * @param limit The maximum number of matches
+     * @param files The catalog snapshot from {@link #getAllFiles}, indexed on first use
+     * @return Matches ordered best first
+     */
+    public List<TrigramIndex.Match> fuzzySearch(String term, int limit, List<TaggedFile> files) {
+        TrigramIndex index = fileNameIndex;
+        if (index == null) {
+            index = new TrigramIndex();
+            for (TaggedFile file : files) {
+                index.add(file.getFilePath(), file.getFileName());
+            }
+            synchronized (fileNameIndexLock) {
+                // Mutations made while it was built are missing from it, so only an index of
+                // the current catalog is kept; this search still uses it
+                if (fileNameIndex == null && cache.isCurrent(files)) {
+                    fileNameIndex = index;
+                }
+            }
+        }
+        return index.search(term, limit);
+    }
+
+    /**
+     * Applies a mutation to the file name index, if it is built. Runs after the catalog
+     * cache recorded the mutation, so an index built concurrently is either discarded or
+     * published before the update.
+     */
+    private void updateFileNameIndex(Consumer<TrigramIndex> update) {
+        synchronized (fileNameIndexLock) {
+            if (fileNameIndex != null) {
+                update.accept(fileNameIndex);
+            }
+        }
+    }
+
+    /**
+     * Finds the files whose tags are most like the given file's.
+     * The MinHash index is built on first use and then kept up to date by the file mutations.
+     *
+     * @param filePath The file to compare against
+     * @param limit The maximum number of matches
+     * @return Matches ordered by similarity, best first
+     */
+    public List<SimilarFilesIndex.Match> getSimilarFiles(String filePath, int limit) {
+        if (similarFilesIndex == null) {
+            SimilarFilesIndex index = new SimilarFilesIndex();
+            for (TaggedFile file : getAllFiles()) {
+                index.update(file.getFilePath(), file.getTags());
+            }
+            similarFilesIndex = index;
+        }
+        return similarFilesIndex.findSimilar(filePath, limit);
+    }
+
+    /**
+     * Gets the tags that most often appear on the same files as the given tag.
+     * The co-occurrence matrix is built on first use and then kept up to date by the file
+     * and tag mutations.
+     *
+     * @param tagName The tag name
+     * @param limit The maximum number of tags
+     * @return Tag names ranked by the number of files shared with the given tag
+     */
+    public List<String> getCooccurring(String tagName, int limit) {
+        if (cooccurrenceMatrix == null) {
+            TagCooccurrenceMatrix matrix = new TagCooccurrenceMatrix();
+            for (TaggedFile file : getAllFiles()) {
+                matrix.add(file.getTags());
+            }
+            cooccurrenceMatrix = matrix;
+        }
+        return cooccurrenceMatrix.getCooccurring(tagName, limit);
+    }
+
     public void addTag(String tagName) {
         try {
             validateTag(tagName);
             Tag tag = new Tag(tagName);
             fileDAO.addTag(tag);
+            cache.tagAdded(tagName);
         } catch (SQLException e) {
+            invalidateCache();
             throw new RuntimeException("Failed to add tag: " + e.getMessage(), e);
         }
     }
 
     public void removeTag(String tagName) {
         try {
+            List<TaggedFile> tagged = xattrTagSync != null ? getFilesByTags(Set.of(tagName)) : List.of();
             fileDAO.deleteTag(tagName);
+            cache.tagDeleted(tagName);
+            syncTagDeletion(tagged, tagName);
+            similarFilesIndex = null;
+            if (cooccurrenceMatrix != null) {
+                cooccurrenceMatrix.removeTag(tagName);
+            }
         } catch (SQLException e) {
+            invalidateCache();
             throw new RuntimeException("Failed to remove tag: " + e.getMessage(), e);
         }
     }
@@ -187,7 +791,9 @@ public class TagController {
     public void updateTagColor(Tag tag) {
         try {
             fileDAO.updateTagColor(tag);
+            cache.tagColorUpdated(tag);
         } catch (SQLException e) {
+            invalidateCache();
             throw new RuntimeException("Failed to update tag color: " + e.getMessage(), e);
         }
     }
@@ -199,56 +805,709 @@ public class TagController {
      */
     public Map<String, Tag> getAllTagsWithColors() {
         try {
-            return fileDAO.getAllTagsWithColors();
+            return cache.getTagColors(fileDAO::getAllTagsWithColors);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get tags with colors: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Checks all files in the database and adds the "Missing" tag to those that don't exist.
+     * Checks all files in the database and adds the "Missing" tag to those that don't exist,
+     * running a full health check on the calling thread.
      */
     public void checkForMissingFiles() {
         try {
-            List<TaggedFile> allFiles = getAllFiles();
-            boolean changesDetected = false;
-            
-            for (TaggedFile file : allFiles) {
-                File physicalFile = new File(file.getFilePath());
-                
-                // If file doesn't exist and doesn't already have the Missing tag
-                if (!physicalFile.exists() && !file.getTags().contains(Tag.TAG_MISSING)) {
-                    // Add the Missing tag
-                    Set<String> updatedTags = new HashSet<>(file.getTags());
-                    updatedTags.add(Tag.TAG_MISSING);
-                    file.setTags(updatedTags);
-                    
-                    // Update the file in the database
-                    fileDAO.updateFileTags(file);
-                    changesDetected = true;
+            applyHealthCheck(new HealthCheck(pathStatusCache).run(getAllFiles(), null, new CancellationToken()));
+        } catch (RuntimeException e) {
+            System.err.println("Error checking for missing files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a health check over the catalog from a background thread. The catalog snapshot is
+     * taken on the owner executor, since reading it may load from the database or show an
+     * error dialog; the check itself only reads the snapshot and the file system. Pass the
+     * result to {@link #applyHealthCheck} on the owner thread.
+     *
+     * @param healthCheck The check to run
+     * @param owner Runs on the thread that owns the controller, e.g. {@code Platform::runLater}
+     * @param listener Receives scan progress from worker threads, or null
+     * @param token Cancels the check
+     * @return The result
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public HealthCheck.HealthCheckResult runHealthCheck(HealthCheck healthCheck, Executor owner,
+            ProgressListener listener, CancellationToken token) {
+        List<TaggedFile> files = runOn(owner, this::getAllFiles);
+        return healthCheck.run(files, listener, token);
+    }
+
+    /**
+     * Brings the Missing tag in line with a health check's scan, records the fingerprints it
+     * read and keeps the result for {@link #getLastHealthCheck()}. Files the watcher already
+     * updated since the scan are left alone.
+     *
+     * @param result The result of {@link #runHealthCheck}
+     * @return The paths whose Missing tag changed
+     */
+    public List<String> applyHealthCheck(HealthCheck.HealthCheckResult result) {
+        lastHealthCheck = result;
+        try {
+            recordFingerprints(result.getFingerprints());
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+        }
+        MissingFileScanner.Result scan = result.getScan();
+        if (scan == null || !scan.hasChanges()) {
+            return List.of();
+        }
+        return updateMissingStatus(scan.getNewlyMissing(), scan.getRecovered());
+    }
+
+    /**
+     * Gets the result of the last applied health check.
+     *
+     * @return The result, or null if no check has completed yet
+     */
+    public HealthCheck.HealthCheckResult getLastHealthCheck() {
+        return lastHealthCheck;
+    }
+
+    /**
+     * Stores fingerprints read in the background for files that are still catalogued and
+     * still have none.
+     */
+    private void recordFingerprints(Map<String, FileFingerprint> found) {
+        if (found.isEmpty()) {
+            return;
+        }
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        for (TaggedFile file : getAllFiles()) {
+            FileFingerprint fingerprint = found.get(file.getFilePath());
+            if (fingerprint != null && file.getFingerprint() == null) {
+                fingerprints.put(file.getFilePath(), fingerprint);
+            }
+        }
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        try {
+            fileDAO.updateFingerprints(fingerprints);
+        } catch (SQLException e) {
+            invalidateCache();
+            throw new RuntimeException("Error recording file fingerprints: " + e.getMessage(), e);
+        }
+        for (Map.Entry<String, FileFingerprint> entry : fingerprints.entrySet()) {
+            cache.fingerprintUpdated(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the directories searched for moved files.
+     *
+     * @return The configured roots, or the user's home directory if none are configured
+     */
+    public List<Path> getLibraryRoots() {
+        String value;
+        try {
+            value = fileDAO.getSetting(LIBRARY_ROOTS_SETTING);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading library roots: " + e.getMessage(), e);
+        }
+        List<Path> roots = new ArrayList<>();
+        if (value != null) {
+            for (String line : value.split("\n")) {
+                if (!line.isBlank()) {
+                    roots.add(Paths.get(line.trim()));
+                }
+            }
+        }
+        if (roots.isEmpty()) {
+            roots.add(Paths.get(System.getProperty("user.home")));
+        }
+        return roots;
+    }
+
+    /**
+     * Sets the directories searched for moved files.
+     *
+     * @param roots The library roots
+     */
+    public void setLibraryRoots(List<Path> roots) {
+        try {
+            fileDAO.setSetting(LIBRARY_ROOTS_SETTING,
+                    roots.stream().map(Path::toString).collect(Collectors.joining("\n")));
+        } catch (SQLException e) {
+            showErrorDialog("Error Saving Settings", "Could not save library folders", e.getMessage());
+            throw new RuntimeException("Error saving library roots: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds where files tagged Missing were moved to by walking the library roots once.
+     * Reads neither the database nor the cache, so it can run off the UI thread on a
+     * snapshot taken there.
+     *
+     * @param files The catalogued files, taken from {@link #getAllFiles()} on the UI thread
+     * @param roots The directories to search
+     * @param token Cancels the walk
+     * @return The new location for each old path that was identified
+     */
+    public Map<String, TaggedFileDAO.RelinkTarget> findMovedFiles(Collection<TaggedFile> files, Collection<Path> roots,
+                                                                 CancellationToken token) {
+        Set<String> catalogPaths = new HashSet<>();
+        List<TaggedFile> missing = new ArrayList<>();
+        for (TaggedFile file : files) {
+            catalogPaths.add(file.getFilePath());
+            if (file.getTags().contains(Tag.TAG_MISSING)) {
+                missing.add(file);
+            }
+        }
+        return new FileRelinker(roots).findMoves(missing, catalogPaths, token);
+    }
+
+    /**
+     * Points catalogued files at their new locations in one transaction, keeping their tags,
+     * relationships and timestamps and dropping the Missing tag. Moves found in the
+     * background may be stale by the time they are applied, so only moves whose old path
+     * is still catalogued and tagged Missing, and whose new path is not catalogued, are kept.
+     *
+     * @param found The new location for each old path
+     * @return The number of files relinked
+     */
+    public int applyRelinks(Map<String, TaggedFileDAO.RelinkTarget> found) {
+        if (found.isEmpty()) {
+            return 0;
+        }
+        Map<String, TaggedFile> filesByPath = new HashMap<>();
+        for (TaggedFile file : getAllFiles()) {
+            filesByPath.put(file.getFilePath(), file);
+        }
+        Map<String, TaggedFileDAO.RelinkTarget> moves = new HashMap<>();
+        Set<String> claimedPaths = new HashSet<>();
+        for (Map.Entry<String, TaggedFileDAO.RelinkTarget> move : found.entrySet()) {
+            TaggedFile old = filesByPath.get(move.getKey());
+            String newPath = move.getValue().getFilePath();
+            if (old != null && old.getTags().contains(Tag.TAG_MISSING)
+                    && !filesByPath.containsKey(newPath) && claimedPaths.add(newPath)) {
+                moves.put(move.getKey(), move.getValue());
+            }
+        }
+        if (moves.isEmpty()) {
+            return 0;
+        }
+        try {
+            fileDAO.relinkFiles(moves);
+        } catch (SQLException e) {
+            invalidateCache();
+            showErrorDialog("Error Relinking Files", "Could not update moved files", e.getMessage());
+            throw new RuntimeException("Error relinking files: " + e.getMessage(), e);
+        }
+        for (Map.Entry<String, TaggedFileDAO.RelinkTarget> move : moves.entrySet()) {
+            TaggedFile old = filesByPath.get(move.getKey());
+            TaggedFileDAO.RelinkTarget target = move.getValue();
+            Set<String> newTags = new HashSet<>(old.getTags());
+            newTags.remove(Tag.TAG_MISSING);
+            TaggedFile moved = new TaggedFile(target.getFileName(), target.getFilePath(), newTags);
+            moved.setCreatedAt(old.getCreatedAt());
+            moved.setLastAccessedAt(old.getLastAccessedAt());
+            moved.setFingerprint(target.getFingerprint());
+            // The database keeps the row's MIME type, so the cache must too
+            moved.setMimeType(old.getMimeType());
+
+            cache.fileDeleted(old.getFilePath());
+            cache.fileAdded(moved);
+            if (similarFilesIndex != null) {
+                similarFilesIndex.remove(old.getFilePath());
+            }
+            fileTagsChanged(moved.getFilePath(), old.getTags(), newTags);
+            updateFileNameIndex(index -> {
+                index.remove(old.getFilePath());
+                index.add(moved.getFilePath(), moved.getFileName());
+            });
+            if (fileWatchTracker != null) {
+                fileWatchTracker.untrack(old.getFilePath());
+                fileWatchTracker.track(moved.getFilePath());
+            }
+        }
+        System.out.println("Relinked " + moves.size() + " moved files");
+        return moves.size();
+    }
+
+    /**
+     * Finds and relinks moved files in one call.
+     *
+     * @param token Cancels the walk
+     * @return The number of files relinked
+     */
+    public int relinkMissingFiles(CancellationToken token) {
+        return applyRelinks(findMovedFiles(getAllFiles(), getLibraryRoots(), token));
+    }
+
+    /**
+     * Hashes the content of files that are new or changed since they were last hashed.
+     * Only reads the given snapshot, so it can run off the UI thread; take the snapshot with
+     * {@link #getAllFiles()} and pass the result to {@link #saveContentHashes(Map)} on the
+     * thread that owns the controller.
+     *
+     * @param files The catalog snapshot
+     * @param job The hashing job, which sets the parallelism and I/O budget
+     * @param listener Receives progress from the hashing threads, or null
+     * @param token Cancels the job
+     * @return The new fingerprint for each file that was hashed
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public Map<String, FileFingerprint> computeContentHashes(Collection<TaggedFile> files, ContentHashJob job,
+            ProgressListener listener, CancellationToken token) {
+        List<TaggedFile> present = new ArrayList<>();
+        for (TaggedFile file : files) {
+            if (!file.getTags().contains(Tag.TAG_MISSING)) {
+                present.add(file);
+            }
+        }
+        return job.run(present, listener, token);
+    }
+
+    /**
+     * Stores content hashes computed by {@link #computeContentHashes} in one transaction.
+     *
+     * @param fingerprints The new fingerprint for each file
+     * @return The number of files updated
+     */
+    public int saveContentHashes(Map<String, FileFingerprint> fingerprints) {
+        Map<String, FileFingerprint> known = new HashMap<>();
+        Set<String> catalogPaths = new HashSet<>();
+        for (TaggedFile file : getAllFiles()) {
+            catalogPaths.add(file.getFilePath());
+        }
+        // Files deleted while the job ran are dropped
+        for (Map.Entry<String, FileFingerprint> entry : fingerprints.entrySet()) {
+            if (catalogPaths.contains(entry.getKey())) {
+                known.put(entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            fileDAO.updateFingerprints(known);
+        } catch (SQLException e) {
+            invalidateCache();
+            throw new RuntimeException("Error saving content hashes: " + e.getMessage(), e);
+        }
+        for (Map.Entry<String, FileFingerprint> entry : known.entrySet()) {
+            cache.fingerprintUpdated(entry.getKey(), entry.getValue());
+        }
+        return known.size();
+    }
+
+    /**
+     * Groups catalogued files with identical content.
+     *
+     * @return Each group of two or more files sharing a content hash, largest files first
+     */
+    public List<List<TaggedFile>> getDuplicateGroups() {
+        Map<String, List<TaggedFile>> byHash = new LinkedHashMap<>();
+        for (TaggedFile file : getAllFiles()) {
+            FileFingerprint fingerprint = file.getFingerprint();
+            if (fingerprint != null && fingerprint.getContentHash() != null
+                    && !file.getTags().contains(Tag.TAG_MISSING)) {
+                byHash.computeIfAbsent(fingerprint.getContentHash(), h -> new ArrayList<>()).add(file);
+            }
+        }
+        List<List<TaggedFile>> groups = new ArrayList<>();
+        for (List<TaggedFile> group : byHash.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        groups.sort((a, b) -> Long.compare(b.get(0).getFingerprint().getSize(),
+                a.get(0).getFingerprint().getSize()));
+        return groups;
+    }
+
+    /**
+     * Gets the directory modification times recorded by the last metadata refresh.
+     *
+     * @return Epoch millis by directory path
+     */
+    public Map<String, Long> getDirectoryStates() {
+        try {
+            return fileDAO.getDirectoryStates();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading directory states: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Re-reads size, modification time and MIME type of the files in directories that changed
+     * since the last refresh. Only reads the given snapshots, so it can run off the UI thread;
+     * pass the result to {@link #applyMetadataChanges} on the thread that owns the controller.
+     *
+     * @param files The result of {@link #getAllFiles()}
+     * @param knownStates The result of {@link #getDirectoryStates()}
+     * @param token Cancels the refresh
+     * @return The changed files and directory times
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public MetadataRefresher.Result findMetadataChanges(Collection<TaggedFile> files, Map<String, Long> knownStates,
+            CancellationToken token) {
+        return metadataRefresher.refresh(files, knownStates, token);
+    }
+
+    /**
+     * Stores refreshed metadata and directory times.
+     *
+     * @param result The result of {@link #findMetadataChanges}
+     * @return The number of files updated
+     */
+    public int applyMetadataChanges(MetadataRefresher.Result result) {
+        Set<String> catalogPaths = new HashSet<>();
+        for (TaggedFile file : getAllFiles()) {
+            catalogPaths.add(file.getFilePath());
+        }
+        // Files deleted while the refresh ran are dropped
+        List<TaggedFile> changed = result.getChangedFiles().stream()
+                .filter(file -> catalogPaths.contains(file.getFilePath()))
+                .collect(Collectors.toList());
+        try {
+            fileDAO.updateFileMetadata(changed);
+            fileDAO.saveDirectoryStates(result.getDirectoryStates());
+        } catch (SQLException e) {
+            invalidateCache();
+            throw new RuntimeException("Error saving file metadata: " + e.getMessage(), e);
+        }
+        for (TaggedFile file : changed) {
+            cache.metadataUpdated(file.getFilePath(), file.getFingerprint(), file.getMimeType());
+        }
+        return changed.size();
+    }
+
+    private static String probeMimeType(String filePath) {
+        try {
+            return MetadataRefresher.probeMimeType(Paths.get(filePath));
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private FileFingerprint readFingerprint(String filePath) {
+        return pathStatusCache.getFingerprint(filePath);
+    }
+
+    /**
+     * Tells whether a file exists, answering from the shared status cache when the file was
+     * checked in the last few seconds.
+     *
+     * @param filePath The file path
+     * @return true if the file exists
+     */
+    public boolean fileExists(String filePath) {
+        return pathStatusCache.exists(filePath);
+    }
+
+    /**
+     * Gets the status cache shared by everything that checks whether catalogued files exist.
+     */
+    public PathStatusCache getPathStatusCache() {
+        return pathStatusCache;
+    }
+
+    /**
+     * Tells whether tags are mirrored into the files' extended attributes.
+     *
+     * @return true if the sync setting is on
+     */
+    public boolean isXattrSyncEnabled() {
+        try {
+            return Boolean.parseBoolean(fileDAO.getSetting(XATTR_SYNC_SETTING));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading xattr sync setting: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Turns mirroring of tags into extended attributes on or off. Turning it on writes the
+     * current tags of every present file in the background.
+     *
+     * @param enabled Whether to sync
+     */
+    public void setXattrSyncEnabled(boolean enabled) {
+        try {
+            fileDAO.setSetting(XATTR_SYNC_SETTING, Boolean.toString(enabled));
+        } catch (SQLException e) {
+            showErrorDialog("Error Saving Settings", "Could not save the file attribute setting", e.getMessage());
+            throw new RuntimeException("Error saving xattr sync setting: " + e.getMessage(), e);
+        }
+        if (!enabled) {
+            stopXattrSync();
+            return;
+        }
+        startXattrSync();
+        for (TaggedFile file : getAllFiles()) {
+            if (!file.getTags().contains(Tag.TAG_MISSING)) {
+                xattrTagSync.schedule(file.getFilePath(), file.getTags());
+            }
+        }
+    }
+
+    /**
+     * Starts writing tag changes to extended attributes, if it is not running already.
+     */
+    public void startXattrSync() {
+        if (xattrTagSync == null) {
+            xattrTagSync = new XattrTagSync();
+        }
+    }
+
+    /**
+     * Writes pending tag attributes and stops syncing them.
+     */
+    public void stopXattrSync() {
+        if (xattrTagSync != null) {
+            xattrTagSync.close();
+            xattrTagSync = null;
+        }
+    }
+
+    /**
+     * Reads the tag attribute of every present file and merges it with the catalogued tags.
+     * Only reads the given snapshot, so it can run off the UI thread; pass the result to
+     * {@link #applyXattrTags(Map)} on the thread that owns the controller.
+     *
+     * @param files The result of {@link #getAllFiles()}
+     * @param token Cancels the scan
+     * @return The merged tags of each file whose attribute carries tags the catalog lacks
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public Map<String, Set<String>> findXattrTags(Collection<TaggedFile> files, CancellationToken token) {
+        return XattrTagSync.readAll(files, token);
+    }
+
+    /**
+     * Adds tags found in extended attributes to the catalog in batched transactions. Tag names
+     * the catalog does not accept are ignored.
+     *
+     * @param mergedTags The result of {@link #findXattrTags}
+     * @return The number of files that gained tags
+     */
+    public int applyXattrTags(Map<String, Set<String>> mergedTags) {
+        Map<String, Set<String>> current = new HashMap<>();
+        for (TaggedFile file : getAllFiles()) {
+            current.put(file.getFilePath(), file.getTags());
+        }
+        Map<String, Set<String>> additions = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : mergedTags.entrySet()) {
+            Set<String> existing = current.get(entry.getKey());
+            if (existing == null) {
+                continue;
+            }
+            Set<String> added = new HashSet<>();
+            for (String tag : entry.getValue()) {
+                if (!existing.contains(tag) && isValidTag(tag)) {
+                    added.add(tag);
                 }
-                
-                // If file exists but has the Missing tag, remove it
-                if (physicalFile.exists() && file.getTags().contains(Tag.TAG_MISSING)) {
-                    // Remove the Missing tag
-                    Set<String> updatedTags = file.getTags().stream()
-                            .filter(tag -> !tag.equals(Tag.TAG_MISSING))
-                            .collect(Collectors.toSet());
-                    file.setTags(updatedTags);
-                    
-                    // Update the file in the database
-                    fileDAO.updateFileTags(file);
-                    changesDetected = true;
+            }
+            if (!added.isEmpty()) {
+                additions.put(entry.getKey(), added);
+            }
+        }
+        try {
+            addTagsToFiles(additions);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error importing tags from file attributes: " + e.getMessage(), e);
+        }
+        return additions.size();
+    }
+
+    /**
+     * Writes tag additions in batched transactions and patches the cache and indexes.
+     */
+    private void addTagsToFiles(Map<String, Set<String>> additions) throws SQLException {
+        try {
+            fileDAO.addTagsToFiles(additions, TAG_BATCH_SIZE);
+        } catch (SQLException e) {
+            invalidateCache();
+            throw e;
+        }
+        for (Map.Entry<String, Set<String>> entry : additions.entrySet()) {
+            Set<String> oldTags = cache.getCachedTags(entry.getKey());
+            if (oldTags == null) {
+                // Not cached; the next read loads the new tags
+                similarFilesIndex = null;
+                cooccurrenceMatrix = null;
+                continue;
+            }
+            Set<String> newTags = new HashSet<>(oldTags);
+            newTags.addAll(entry.getValue());
+            for (String tag : entry.getValue()) {
+                cache.tagAddedToFile(entry.getKey(), tag);
+            }
+            fileTagsChanged(entry.getKey(), oldTags, newTags);
+        }
+    }
+
+    private boolean isValidTag(String tag) {
+        try {
+            validateTag(tag);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts keeping the Missing tag current from file system events, so files deleted,
+     * moved away or restored while the application runs are noticed without another scan.
+     * Changes made while the application was closed are left to the next health check, which
+     * can run after tracking has started since it skips files the watcher already updated.
+     *
+     * @param callbackExecutor Runs the tag updates, e.g. {@code Platform::runLater}
+     * @param onChange Called after Missing tags changed, on the callback executor
+     */
+    public void startFileTracking(Executor callbackExecutor, Runnable onChange) {
+        stopFileTracking();
+        try {
+            fileWatchTracker = new FileWatchTracker(callbackExecutor, (missing, present) -> {
+                pathStatusCache.invalidate(missing);
+                pathStatusCache.invalidate(present);
+                if (fileStatusChanged(missing, present)) {
+                    onChange.run();
                 }
+            });
+        } catch (IOException e) {
+            System.err.println("File watching is not available: " + e.getMessage());
+            return;
+        }
+        for (TaggedFile file : getAllFiles()) {
+            fileWatchTracker.track(file.getFilePath());
+        }
+        fileWatchTracker.start();
+    }
+
+    /**
+     * Stops the file system watcher if it is running.
+     */
+    public void stopFileTracking() {
+        if (fileWatchTracker != null) {
+            fileWatchTracker.close();
+            fileWatchTracker = null;
+        }
+    }
+
+    /**
+     * Brings the Missing tag in line with files the watcher saw disappear or come back.
+     *
+     * @return true if any tag changed
+     */
+    boolean fileStatusChanged(Set<String> missing, Set<String> present) {
+        return !updateMissingStatus(missing, present).isEmpty();
+    }
+
+    /**
+     * Tags files as Missing or present where the cached tags disagree.
+     *
+     * @return The paths whose tags changed; empty if none did or the write failed
+     */
+    private List<String> updateMissingStatus(Collection<String> missing, Collection<String> present) {
+        if (!cache.hasFiles()) {
+            getAllFiles();
+        }
+        List<String> newlyMissing = new ArrayList<>();
+        List<String> recovered = new ArrayList<>();
+        Map<String, Set<String>> oldTags = new HashMap<>();
+        for (String filePath : missing) {
+            Set<String> tags = cache.getCachedTags(filePath);
+            if (tags != null && !tags.contains(Tag.TAG_MISSING)) {
+                newlyMissing.add(filePath);
+                oldTags.put(filePath, tags);
             }
-            
-            // Return whether any changes were made
-            if (changesDetected) {
-                System.out.println("Updated missing file tags");
+        }
+        for (String filePath : present) {
+            Set<String> tags = cache.getCachedTags(filePath);
+            if (tags != null && tags.contains(Tag.TAG_MISSING)) {
+                recovered.add(filePath);
+                oldTags.put(filePath, tags);
             }
-        } catch (Exception e) {
-            System.err.println("Error checking for missing files: " + e.getMessage());
         }
+        if (newlyMissing.isEmpty() && recovered.isEmpty()) {
+            return List.of();
+        }
+        try {
+            applyMissingTags(newlyMissing, recovered, oldTags);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            return List.of();
+        }
+        List<String> changed = new ArrayList<>(newlyMissing);
+        changed.addAll(recovered);
+        return changed;
+    }
+
+    /**
+     * Writes Missing tag changes in one transaction and patches the cache and derived indexes.
+     */
+    private void applyMissingTags(List<String> newlyMissing, List<String> recovered,
+            Map<String, Set<String>> oldTags) {
+        try {
+            fileDAO.updateMissingTags(newlyMissing, recovered);
+        } catch (SQLException e) {
+            invalidateCache();
+            throw new RuntimeException("Error updating missing file tags: " + e.getMessage(), e);
+        }
+        for (String filePath : newlyMissing) {
+            Set<String> updatedTags = new HashSet<>(oldTags.get(filePath));
+            updatedTags.add(Tag.TAG_MISSING);
+            cache.tagAddedToFile(filePath, Tag.TAG_MISSING);
+            fileTagsChanged(filePath, oldTags.get(filePath), updatedTags);
+        }
+        for (String filePath : recovered) {
+            Set<String> updatedTags = new HashSet<>(oldTags.get(filePath));
+            updatedTags.remove(Tag.TAG_MISSING);
+            cache.tagRemovedFromFile(filePath, Tag.TAG_MISSING);
+            fileTagsChanged(filePath, oldTags.get(filePath), updatedTags);
+        }
+    }
+
+    /**
+     * Patches the derived tag indexes after a file's tags changed.
+     *
+     * @param oldTags The tags before the change, or null if they are unknown
+     */
+    private void fileTagsChanged(String filePath, Set<String> oldTags, Set<String> newTags) {
+        if (similarFilesIndex != null) {
+            similarFilesIndex.update(filePath, newTags);
+        }
+        if (xattrTagSync != null && !withoutMissing(newTags).equals(withoutMissing(oldTags))) {
+            xattrTagSync.schedule(filePath, newTags);
+        }
+        if (cooccurrenceMatrix != null) {
+            if (oldTags != null) {
+                cooccurrenceMatrix.replace(oldTags, newTags);
+            } else {
+                cooccurrenceMatrix = null;
+            }
+        }
+    }
+
+    private void syncTagDeletion(List<TaggedFile> tagged, String tagName) {
+        for (TaggedFile file : tagged) {
+            Set<String> remaining = new HashSet<>(file.getTags());
+            remaining.remove(tagName);
+            xattrTagSync.schedule(file.getFilePath(), remaining);
+        }
+    }
+
+    private static Set<String> withoutMissing(Set<String> tags) {
+        Set<String> userTags = tags != null ? new HashSet<>(tags) : new HashSet<>();
+        userTags.remove(Tag.TAG_MISSING);
+        return userTags;
+    }
+
+    /**
+     * Drops cached data after a failed mutation left the database state unknown.
+     */
+    private void invalidateCache() {
+        cache.invalidate();
+        similarFilesIndex = null;
+        cooccurrenceMatrix = null;
     }
 
     private void validateTag(String tag) throws IllegalArgumentException {
@@ -3,13 +3,22 @@ package com.tagease.database;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
 
 public class DatabaseConfig {
     private static final String DB_NAME = "tagease.db";
     private static final String DB_URL = "jdbc:sqlite:" + DB_NAME;
     private static Connection connection = null;
+    private static final String[][] FINGERPRINT_COLUMNS = {
+        {"file_key", "TEXT"},
+        {"file_size", "INTEGER"},
+        {"modified_at", "INTEGER"},
+        {"content_hash", "TEXT"}
+    };
 
     static {
         try {
@@ -48,6 +57,7 @@ public class DatabaseConfig {
                     System.out.println("Initializing new database...");
                     initializeDatabase();
                 }
+                migrateSchema(connection);
             } catch (SQLException e) {
                 System.err.println("Failed to establish database connection: " + e.getMessage());
                 throw e;
@@ -117,6 +127,74 @@ public class DatabaseConfig {
         }
     }
 
+    /**
+     * Brings an existing database up to the current schema by adding the columns and tables
+     * introduced after its creation. Safe to run on every start.
+     *
+     * @param connection The connection to migrate
+     * @throws SQLException If a migration step fails
+     */
+    public static void migrateSchema(Connection connection) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(files)")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            // File identity fingerprint used to relink moved files
+            for (String[] column : FINGERPRINT_COLUMNS) {
+                if (!columns.contains(column[0])) {
+                    stmt.execute("ALTER TABLE files ADD COLUMN " + column[0] + " " + column[1]);
+                }
+            }
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_file_key ON files(file_key)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_content_hash ON files(content_hash)");
+
+            // Detected MIME type, cached next to size and modification time
+            if (!columns.contains("mime_type")) {
+                stmt.execute("ALTER TABLE files ADD COLUMN mime_type TEXT");
+            }
+
+            // Last seen modification time of each catalogued directory, for incremental re-stats
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS directory_state (
+                    dir_path TEXT PRIMARY KEY,
+                    modified_at INTEGER NOT NULL
+                )
+            """);
+
+            // Rules that tag files automatically when they are added
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS auto_tag_rules (
+                    rule_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    kind TEXT NOT NULL,
+                    pattern TEXT NOT NULL,
+                    tag_name TEXT NOT NULL
+                )
+            """);
+
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS settings (
+                    key TEXT PRIMARY KEY,
+                    value TEXT
+                )
+            """);
+
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error migrating database: " + e.getMessage());
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            throw e;
+        }
+    }
+
     public static void closeConnection() {
         if (connection != null) {
             try {
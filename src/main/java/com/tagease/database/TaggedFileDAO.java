@@ -6,9 +6,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,6 +18,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.Tag;
 import com.tagease.model.TaggedFile;
 
@@ -88,7 +92,8 @@ public class TaggedFileDAO {
     }
 
     public void addFile(TaggedFile file, Set<String> existingTags) throws SQLException {
-        String insertFileSql = "INSERT INTO files (file_path, file_name, created_at, last_accessed_at) VALUES (?, ?, ?, ?)";
+        String insertFileSql = "INSERT INTO files (file_path, file_name, created_at, last_accessed_at, "
+                + "file_key, file_size, modified_at, content_hash, mime_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         String insertTagSql = "INSERT OR IGNORE INTO tags (tag_name, color) VALUES (?, ?)";
         String insertFileTagSql = "INSERT INTO file_tags (file_path, tag_id) SELECT ?, tag_id FROM tags WHERE tag_name = ?";
         String insertRelationshipSql = "INSERT INTO file_relationships (source_file_path, related_file_path) VALUES (?, ?)";
@@ -118,6 +123,8 @@ public class TaggedFileDAO {
                 pstmt.setString(2, file.getFileName());
                 pstmt.setTimestamp(3, Timestamp.valueOf(file.getCreatedAt()));
                 pstmt.setTimestamp(4, Timestamp.valueOf(file.getLastAccessedAt()));
+                setFingerprint(pstmt, 5, file.getFingerprint());
+                pstmt.setString(9, file.getMimeType());
                 pstmt.executeUpdate();
             }
 
@@ -161,6 +168,85 @@ public class TaggedFileDAO {
         }
     }
 
+    /**
+     * Adds many files in one transaction with batched statements. Files whose path is already
+     * catalogued are skipped rather than failing the batch, and each new tag is inserted once.
+     * Relationships are not written; bulk imports have none.
+     *
+     * @param files The files to add
+     * @param existingTags Tags known to exist, which are not validated or inserted again
+     * @return The files that were inserted, in input order
+     * @throws SQLException If a tag is invalid or an error occurs; nothing is written in that case
+     */
+    public List<TaggedFile> addFiles(List<TaggedFile> files, Set<String> existingTags) throws SQLException {
+        String insertFileSql = "INSERT OR IGNORE INTO files (file_path, file_name, created_at, last_accessed_at, "
+                + "file_key, file_size, modified_at, content_hash, mime_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String insertTagSql = "INSERT OR IGNORE INTO tags (tag_name, color) VALUES (?, ?)";
+        String insertFileTagSql = "INSERT OR IGNORE INTO file_tags (file_path, tag_id) "
+                + "SELECT ?, tag_id FROM tags WHERE tag_name = ?";
+
+        List<TaggedFile> inserted = new ArrayList<>();
+        if (files.isEmpty()) {
+            return inserted;
+        }
+        Set<String> newTags = new HashSet<>();
+        for (TaggedFile file : files) {
+            for (String tagName : file.getTags()) {
+                if (!existingTags.contains(tagName) && newTags.add(tagName)) {
+                    validateTag(tagName);
+                }
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement pstmt = connection.prepareStatement(insertFileSql)) {
+                for (TaggedFile file : files) {
+                    pstmt.setString(1, file.getFilePath());
+                    pstmt.setString(2, file.getFileName());
+                    pstmt.setTimestamp(3, Timestamp.valueOf(file.getCreatedAt()));
+                    pstmt.setTimestamp(4, Timestamp.valueOf(file.getLastAccessedAt()));
+                    setFingerprint(pstmt, 5, file.getFingerprint());
+                    pstmt.setString(9, file.getMimeType());
+                    pstmt.addBatch();
+                }
+                int[] counts = pstmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        inserted.add(files.get(i));
+                    }
+                }
+            }
+            if (!newTags.isEmpty()) {
+                try (PreparedStatement pstmt = connection.prepareStatement(insertTagSql)) {
+                    for (String tagName : newTags) {
+                        pstmt.setString(1, tagName);
+                        pstmt.setString(2, new Tag(tagName).getColorHex());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(insertFileTagSql)) {
+                for (TaggedFile file : inserted) {
+                    for (String tagName : file.getTags()) {
+                        pstmt.setString(1, file.getFilePath());
+                        pstmt.setString(2, tagName);
+                        pstmt.addBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return inserted;
+    }
+
     public void updateFileTags(TaggedFile file) throws SQLException {
         String deleteTagsSql = "DELETE FROM file_tags WHERE file_path = ?";
         String insertTagSql = "INSERT OR IGNORE INTO tags (tag_name, color) VALUES (?, ?)";
@@ -223,6 +309,62 @@ public class TaggedFileDAO {
         }
     }
 
+    /**
+     * Adds and removes the Missing tag for many files in one transaction.
+     * Unlike {@link #updateFileTags(TaggedFile)} this leaves the other tags and the
+     * last access time alone, since nobody opened the files.
+     *
+     * @param missingPaths The files to tag as missing
+     * @param recoveredPaths The files to untag
+     * @throws SQLException If an error occurs; nothing is written in that case
+     */
+    public void updateMissingTags(Collection<String> missingPaths, Collection<String> recoveredPaths)
+            throws SQLException {
+        String insertTagSql = "INSERT OR IGNORE INTO tags (tag_name, color) VALUES (?, ?)";
+        String insertFileTagSql = "INSERT OR IGNORE INTO file_tags (file_path, tag_id) "
+                + "SELECT ?, tag_id FROM tags WHERE tag_name = ?";
+        String deleteFileTagSql = "DELETE FROM file_tags WHERE file_path = ? AND tag_id = "
+                + "(SELECT tag_id FROM tags WHERE tag_name = ?)";
+
+        if (missingPaths.isEmpty() && recoveredPaths.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try {
+            if (!missingPaths.isEmpty()) {
+                try (PreparedStatement pstmt = connection.prepareStatement(insertTagSql)) {
+                    pstmt.setString(1, Tag.TAG_MISSING);
+                    pstmt.setString(2, Tag.COLOR_MISSING);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(insertFileTagSql)) {
+                    for (String filePath : missingPaths) {
+                        pstmt.setString(1, filePath);
+                        pstmt.setString(2, Tag.TAG_MISSING);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+            if (!recoveredPaths.isEmpty()) {
+                try (PreparedStatement pstmt = connection.prepareStatement(deleteFileTagSql)) {
+                    for (String filePath : recoveredPaths) {
+                        pstmt.setString(1, filePath);
+                        pstmt.setString(2, Tag.TAG_MISSING);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
     public void deleteFile(String filePath) throws SQLException {
         String deleteFileTagsSql = "DELETE FROM file_tags WHERE file_path = ?";
         String deleteFileRelationshipsSql = "DELETE FROM file_relationships WHERE source_file_path = ? OR related_file_path = ?";
@@ -272,26 +414,519 @@ public class TaggedFileDAO {
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
-                String filePath = rs.getString("file_path");
-                String fileName = rs.getString("file_name");
-                LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
-                LocalDateTime lastAccessedAt = rs.getTimestamp("last_accessed_at").toLocalDateTime();
-                
-                Set<String> tags = new HashSet<>();
-                String tagString = rs.getString("tags");
-                if (tagString != null) {
-                    tags.addAll(Arrays.asList(tagString.split(",")));
+                files.add(mapFile(rs));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Gets the most recently accessed files, newest first.
+     * Only the top rows are read, using the index on last_accessed_at.
+     *
+     * @param limit The maximum number of files
+     * @return The files
+     * @throws SQLException If an error occurs
+     */
+    public List<TaggedFile> getRecentlyAccessedFiles(int limit) throws SQLException {
+        return getTopFiles("last_accessed_at", limit);
+    }
+
+    /**
+     * Gets the most recently added files, newest first.
+     * Only the top rows are read, using the index on created_at.
+     *
+     * @param limit The maximum number of files
+     * @return The files
+     * @throws SQLException If an error occurs
+     */
+    public List<TaggedFile> getRecentlyAddedFiles(int limit) throws SQLException {
+        return getTopFiles("created_at", limit);
+    }
+
+    /**
+     * Reads the first rows by a timestamp column before joining their tags, so the join
+     * only touches the selected files. The column name is never user input.
+     */
+    private List<TaggedFile> getTopFiles(String timestampColumn, int limit) throws SQLException {
+        String sql = "SELECT f.*, GROUP_CONCAT(t.tag_name) as tags "
+                + "FROM (SELECT * FROM files ORDER BY " + timestampColumn + " DESC LIMIT ?) f "
+                + "LEFT JOIN file_tags ft ON f.file_path = ft.file_path "
+                + "LEFT JOIN tags t ON ft.tag_id = t.tag_id "
+                + "GROUP BY f.file_path "
+                + "ORDER BY f." + timestampColumn + " DESC";
+
+        List<TaggedFile> files = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    files.add(mapFile(rs));
                 }
-                
-                TaggedFile file = new TaggedFile(fileName, filePath, tags);
-                file.setCreatedAt(createdAt);
-                file.setLastAccessedAt(lastAccessedAt);
-                files.add(file);
             }
         }
         return files;
     }
 
+    /**
+     * Gets the files created in the half-open range {@code [from, to)}, oldest first.
+     * The range is answered by the index on created_at.
+     *
+     * @param from The inclusive lower bound, or null for no lower bound
+     * @param to The exclusive upper bound, or null for no upper bound
+     * @return The files
+     * @throws SQLException If an error occurs
+     */
+    public List<TaggedFile> getFilesCreatedBetween(LocalDateTime from, LocalDateTime to) throws SQLException {
+        return getFilesBetween("created_at", from, to);
+    }
+
+    /**
+     * Gets the files last accessed in the half-open range {@code [from, to)}, oldest first.
+     * The range is answered by the index on last_accessed_at.
+     *
+     * @param from The inclusive lower bound, or null for no lower bound
+     * @param to The exclusive upper bound, or null for no upper bound
+     * @return The files
+     * @throws SQLException If an error occurs
+     */
+    public List<TaggedFile> getFilesAccessedBetween(LocalDateTime from, LocalDateTime to) throws SQLException {
+        return getFilesBetween("last_accessed_at", from, to);
+    }
+
+    /**
+     * Selects the rows in a timestamp range before joining their tags. The column name is
+     * never user input.
+     */
+    private List<TaggedFile> getFilesBetween(String timestampColumn, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add(timestampColumn + " >= ?");
+        }
+        if (to != null) {
+            conditions.add(timestampColumn + " < ?");
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        String sql = "SELECT f.*, GROUP_CONCAT(t.tag_name) as tags "
+                + "FROM (SELECT * FROM files" + where + ") f "
+                + "LEFT JOIN file_tags ft ON f.file_path = ft.file_path "
+                + "LEFT JOIN tags t ON ft.tag_id = t.tag_id "
+                + "GROUP BY f.file_path "
+                + "ORDER BY f." + timestampColumn;
+
+        List<TaggedFile> files = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            if (from != null) {
+                pstmt.setTimestamp(parameter++, Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                pstmt.setTimestamp(parameter, Timestamp.valueOf(to));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    files.add(mapFile(rs));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Maps a files row joined with its concatenated tag names.
+     */
+    private TaggedFile mapFile(ResultSet rs) throws SQLException {
+        String filePath = rs.getString("file_path");
+        String fileName = rs.getString("file_name");
+        LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+        LocalDateTime lastAccessedAt = rs.getTimestamp("last_accessed_at").toLocalDateTime();
+        
+        Set<String> tags = new HashSet<>();
+        String tagString = rs.getString("tags");
+        if (tagString != null) {
+            tags.addAll(Arrays.asList(tagString.split(",")));
+        }
+        
+        TaggedFile file = new TaggedFile(fileName, filePath, tags);
+        file.setCreatedAt(createdAt);
+        file.setLastAccessedAt(lastAccessedAt);
+        long size = rs.getLong("file_size");
+        if (!rs.wasNull()) {
+            file.setFingerprint(new FileFingerprint(rs.getString("file_key"), size,
+                    rs.getLong("modified_at"), rs.getString("content_hash")));
+        }
+        file.setMimeType(rs.getString("mime_type"));
+        return file;
+    }
+
+    /**
+     * Binds the four fingerprint columns starting at the given parameter index.
+     */
+    private static void setFingerprint(PreparedStatement pstmt, int index, FileFingerprint fingerprint)
+            throws SQLException {
+        if (fingerprint == null) {
+            for (int i = 0; i < 4; i++) {
+                pstmt.setNull(index + i, Types.NULL);
+            }
+            return;
+        }
+        pstmt.setString(index, fingerprint.getFileKey());
+        pstmt.setLong(index + 1, fingerprint.getSize());
+        pstmt.setLong(index + 2, fingerprint.getModifiedMillis());
+        pstmt.setString(index + 3, fingerprint.getContentHash());
+    }
+
+    /**
+     * Records the on-disk fingerprints of files in one transaction.
+     *
+     * @param fingerprints The fingerprints by file path
+     * @throws SQLException If an error occurs; nothing is written in that case
+     */
+    public void updateFingerprints(Map<String, FileFingerprint> fingerprints) throws SQLException {
+        String sql = "UPDATE files SET file_key = ?, file_size = ?, modified_at = ?, content_hash = ? "
+                + "WHERE file_path = ?";
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, FileFingerprint> entry : fingerprints.entrySet()) {
+                setFingerprint(pstmt, 1, entry.getValue());
+                pstmt.setString(5, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Adds tags to many files, committing every {@code batchSize} files so a large import
+     * neither holds one huge transaction nor pays for one per file. Tags a file already has
+     * are left alone and missing tags are created.
+     *
+     * @param tagsByFile The tags to add to each file
+     * @param batchSize The number of files per transaction
+     * @throws SQLException If an error occurs; batches committed before it are kept
+     */
+    public void addTagsToFiles(Map<String, Set<String>> tagsByFile, int batchSize) throws SQLException {
+        String insertTagSql = "INSERT OR IGNORE INTO tags (tag_name, color) VALUES (?, ?)";
+        String insertFileTagSql = "INSERT OR IGNORE INTO file_tags (file_path, tag_id) "
+                + "SELECT ?, tag_id FROM tags WHERE tag_name = ?";
+
+        if (tagsByFile.isEmpty()) {
+            return;
+        }
+        Set<String> allTags = new HashSet<>();
+        for (Set<String> tags : tagsByFile.values()) {
+            for (String tagName : tags) {
+                if (allTags.add(tagName)) {
+                    validateTag(tagName);
+                }
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement tagStmt = connection.prepareStatement(insertTagSql);
+             PreparedStatement fileTagStmt = connection.prepareStatement(insertFileTagSql)) {
+            for (String tagName : allTags) {
+                tagStmt.setString(1, tagName);
+                tagStmt.setString(2, new Tag(tagName).getColorHex());
+                tagStmt.addBatch();
+            }
+            tagStmt.executeBatch();
+
+            int inBatch = 0;
+            for (Map.Entry<String, Set<String>> entry : tagsByFile.entrySet()) {
+                for (String tagName : entry.getValue()) {
+                    fileTagStmt.setString(1, entry.getKey());
+                    fileTagStmt.setString(2, tagName);
+                    fileTagStmt.addBatch();
+                }
+                if (++inBatch == batchSize) {
+                    fileTagStmt.executeBatch();
+                    connection.commit();
+                    inBatch = 0;
+                }
+            }
+            fileTagStmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Records re-read file system metadata (fingerprint and MIME type) of files in one transaction.
+     *
+     * @param files The files with their new metadata
+     * @throws SQLException If an error occurs; nothing is written in that case
+     */
+    public void updateFileMetadata(Collection<TaggedFile> files) throws SQLException {
+        String sql = "UPDATE files SET file_key = ?, file_size = ?, modified_at = ?, content_hash = ?, "
+                + "mime_type = ? WHERE file_path = ?";
+        if (files.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (TaggedFile file : files) {
+                setFingerprint(pstmt, 1, file.getFingerprint());
+                pstmt.setString(5, file.getMimeType());
+                pstmt.setString(6, file.getFilePath());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Gets the auto-tag rules in the order they were added.
+     *
+     * @return The rules
+     * @throws SQLException If an error occurs
+     */
+    public List<AutoTagRule> getAutoTagRules() throws SQLException {
+        List<AutoTagRule> rules = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT rule_id, kind, pattern, tag_name FROM auto_tag_rules ORDER BY rule_id")) {
+            while (rs.next()) {
+                AutoTagRule.Kind kind;
+                try {
+                    kind = AutoTagRule.Kind.valueOf(rs.getString("kind"));
+                } catch (IllegalArgumentException e) {
+                    // Written by a newer version; skip rather than fail every import
+                    continue;
+                }
+                rules.add(new AutoTagRule(rs.getLong("rule_id"), kind, rs.getString("pattern"),
+                        rs.getString("tag_name")));
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Saves a new auto-tag rule.
+     *
+     * @param rule The rule; its id is ignored
+     * @return The saved rule with its id
+     * @throws SQLException If an error occurs
+     */
+    public AutoTagRule addAutoTagRule(AutoTagRule rule) throws SQLException {
+        validateTag(rule.getTag());
+        String sql = "INSERT INTO auto_tag_rules (kind, pattern, tag_name) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, rule.getKind().name());
+            pstmt.setString(2, rule.getPattern());
+            pstmt.setString(3, rule.getTag());
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id returned for the new auto-tag rule");
+                }
+                return new AutoTagRule(keys.getLong(1), rule.getKind(), rule.getPattern(), rule.getTag());
+            }
+        }
+    }
+
+    /**
+     * Deletes an auto-tag rule. Tags it already gave files are kept.
+     *
+     * @param ruleId The rule's id
+     * @throws SQLException If an error occurs
+     */
+    public void deleteAutoTagRule(long ruleId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM auto_tag_rules WHERE rule_id = ?")) {
+            pstmt.setLong(1, ruleId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Gets the last seen modification time of each catalogued directory.
+     *
+     * @return Modification times in epoch millis by directory path
+     * @throws SQLException If an error occurs
+     */
+    public Map<String, Long> getDirectoryStates() throws SQLException {
+        Map<String, Long> states = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT dir_path, modified_at FROM directory_state")) {
+            while (rs.next()) {
+                states.put(rs.getString("dir_path"), rs.getLong("modified_at"));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Records directory modification times in one transaction.
+     *
+     * @param states Modification times in epoch millis by directory path
+     * @throws SQLException If an error occurs; nothing is written in that case
+     */
+    public void saveDirectoryStates(Map<String, Long> states) throws SQLException {
+        String sql = "INSERT INTO directory_state (dir_path, modified_at) VALUES (?, ?) "
+                + "ON CONFLICT(dir_path) DO UPDATE SET modified_at = excluded.modified_at";
+        if (states.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, Long> entry : states.entrySet()) {
+                pstmt.setString(1, entry.getKey());
+                pstmt.setLong(2, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Moves catalogued files to new paths in one transaction. The files row is re-inserted
+     * under the new path, its tags and relationships are repointed, and the Missing tag is
+     * dropped. Access times and other tags are kept.
+     *
+     * @param moves The new path and fingerprint for each old path
+     * @throws SQLException If an error occurs; nothing is written in that case
+     */
+    public void relinkFiles(Map<String, RelinkTarget> moves) throws SQLException {
+        String insertFileSql = "INSERT INTO files (file_path, file_name, created_at, last_accessed_at, "
+                + "file_key, file_size, modified_at, content_hash, mime_type) "
+                + "SELECT ?, ?, created_at, last_accessed_at, ?, ?, ?, ?, mime_type FROM files WHERE file_path = ?";
+        String moveTagsSql = "UPDATE file_tags SET file_path = ? WHERE file_path = ?";
+        String moveSourcesSql = "UPDATE file_relationships SET source_file_path = ? WHERE source_file_path = ?";
+        String moveTargetsSql = "UPDATE file_relationships SET related_file_path = ? WHERE related_file_path = ?";
+        String deleteMissingSql = "DELETE FROM file_tags WHERE file_path = ? AND tag_id = "
+                + "(SELECT tag_id FROM tags WHERE tag_name = ?)";
+        String deleteFileSql = "DELETE FROM files WHERE file_path = ?";
+
+        if (moves.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insertFile = connection.prepareStatement(insertFileSql);
+             PreparedStatement moveTags = connection.prepareStatement(moveTagsSql);
+             PreparedStatement moveSources = connection.prepareStatement(moveSourcesSql);
+             PreparedStatement moveTargets = connection.prepareStatement(moveTargetsSql);
+             PreparedStatement deleteMissing = connection.prepareStatement(deleteMissingSql);
+             PreparedStatement deleteFile = connection.prepareStatement(deleteFileSql)) {
+            for (Map.Entry<String, RelinkTarget> move : moves.entrySet()) {
+                String oldPath = move.getKey();
+                RelinkTarget target = move.getValue();
+
+                insertFile.setString(1, target.getFilePath());
+                insertFile.setString(2, target.getFileName());
+                setFingerprint(insertFile, 3, target.getFingerprint());
+                insertFile.setString(7, oldPath);
+                if (insertFile.executeUpdate() == 0) {
+                    throw new SQLException("File is not in the database: " + oldPath);
+                }
+                for (PreparedStatement repoint : List.of(moveTags, moveSources, moveTargets)) {
+                    repoint.setString(1, target.getFilePath());
+                    repoint.setString(2, oldPath);
+                    repoint.executeUpdate();
+                }
+                deleteMissing.setString(1, target.getFilePath());
+                deleteMissing.setString(2, Tag.TAG_MISSING);
+                deleteMissing.executeUpdate();
+                deleteFile.setString(1, oldPath);
+                deleteFile.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Where a moved file was found.
+     */
+    public static final class RelinkTarget {
+        private final String filePath;
+        private final String fileName;
+        private final FileFingerprint fingerprint;
+
+        public RelinkTarget(String filePath, String fileName, FileFingerprint fingerprint) {
+            this.filePath = filePath;
+            this.fileName = fileName;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public FileFingerprint getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    /**
+     * Reads an application setting.
+     *
+     * @param key The setting name
+     * @return The value, or null if it was never set
+     * @throws SQLException If an error occurs
+     */
+    public String getSetting(String key) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT value FROM settings WHERE key = ?")) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("value") : null;
+            }
+        }
+    }
+
+    /**
+     * Writes an application setting.
+     *
+     * @param key The setting name
+     * @param value The value
+     * @throws SQLException If an error occurs
+     */
+    public void setSetting(String key, String value) throws SQLException {
+        String sql = "INSERT INTO settings (key, value) VALUES (?, ?) "
+                + "ON CONFLICT(key) DO UPDATE SET value = excluded.value";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, value);
+            pstmt.executeUpdate();
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
     public Set<String> getAllTags() throws SQLException {
         Set<String> tags = new HashSet<>();
         String sql = "SELECT tag_name FROM tags";
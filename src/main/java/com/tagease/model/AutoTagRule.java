@@ -0,0 +1,94 @@
+package com.tagease.model;
+
+import java.util.Objects;
+
+/**
+ * A rule that tags files automatically when they are added or re-tagged.
+ */
+public class AutoTagRule {
+
+    /**
+     * What a rule's pattern is matched against.
+     */
+    public enum Kind {
+        /** A file extension such as {@code jpg}, without the dot. */
+        EXTENSION("Extension"),
+        /** A folder; matches every file below it. */
+        PATH_PREFIX("Folder"),
+        /** A glob; without a slash it matches the file name, otherwise the whole path. */
+        GLOB("Glob"),
+        /** An inclusive size range such as {@code 100mb..} or {@code ..10k}. */
+        SIZE("Size"),
+        /** An inclusive modification date range such as {@code 2024-01-01..2024-03-31}. */
+        MODIFIED("Modified");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final long id;
+    private final Kind kind;
+    private final String pattern;
+    private final String tag;
+
+    public AutoTagRule(long id, Kind kind, String pattern, String tag) {
+        this.id = id;
+        this.kind = kind;
+        this.pattern = pattern;
+        this.tag = tag;
+    }
+
+    /**
+     * Creates a rule that has not been saved yet.
+     */
+    public AutoTagRule(Kind kind, String pattern, String tag) {
+        this(0, kind, pattern, tag);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AutoTagRule that = (AutoTagRule) o;
+        return id == that.id && kind == that.kind && Objects.equals(pattern, that.pattern)
+                && Objects.equals(tag, that.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, kind, pattern, tag);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + pattern + " -> " + tag;
+    }
+}
@@ -0,0 +1,101 @@
+package com.tagease.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Identity of a file on disk that survives moves and renames.
+ * The file key (inode and device on Unix) identifies a file moved within one file system;
+ * size and modification time identify one copied or moved across file systems. The optional
+ * content hash settles ties between files with equal size and modification time.
+ */
+public class FileFingerprint {
+    private final String fileKey;
+    private final long size;
+    private final long modifiedMillis;
+    private final String contentHash;
+
+    public FileFingerprint(String fileKey, long size, long modifiedMillis, String contentHash) {
+        this.fileKey = fileKey;
+        this.size = size;
+        this.modifiedMillis = modifiedMillis;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Builds a fingerprint from attributes already read, e.g. during a directory walk.
+     *
+     * @param attributes The file attributes
+     * @return The fingerprint without a content hash
+     */
+    public static FileFingerprint of(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return new FileFingerprint(key != null ? key.toString() : null,
+                attributes.size(), attributes.lastModifiedTime().toMillis(), null);
+    }
+
+    /**
+     * Reads the fingerprint of a file with a single attribute lookup.
+     *
+     * @param path The file
+     * @return The fingerprint without a content hash
+     * @throws IOException If the attributes cannot be read
+     */
+    public static FileFingerprint read(Path path) throws IOException {
+        return of(Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    /**
+     * Returns a copy that carries the given content hash.
+     */
+    public FileFingerprint withContentHash(String hash) {
+        return new FileFingerprint(fileKey, size, modifiedMillis, hash);
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModifiedMillis() {
+        return modifiedMillis;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Gets the key used to look up files with the same size and modification time.
+     *
+     * @return The lookup key
+     */
+    public String getSizeAndTimeKey() {
+        return size + ":" + modifiedMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileFingerprint that = (FileFingerprint) o;
+        return size == that.size && modifiedMillis == that.modifiedMillis
+                && Objects.equals(fileKey, that.fileKey) && Objects.equals(contentHash, that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileKey, size, modifiedMillis, contentHash);
+    }
+
+    @Override
+    public String toString() {
+        return "FileFingerprint[key=" + fileKey + ", size=" + size + ", modified=" + modifiedMillis + "]";
+    }
+}
@@ -11,6 +11,8 @@ public class TaggedFile {
     private LocalDateTime createdAt;
     private LocalDateTime lastAccessedAt;
     private Set<TaggedFile> relatedFiles;
+    private FileFingerprint fingerprint;
+    private String mimeType;
 
     public TaggedFile(String fileName, String filePath) {
         this.fileName = fileName;
@@ -101,6 +103,32 @@ public class TaggedFile {
         }
     }
 
+    /**
+     * Gets the identity of the file on disk, used to find it again after a move.
+     *
+     * @return The fingerprint, or null if none was recorded
+     */
+    public FileFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(FileFingerprint fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Gets the detected content type, such as {@code image/png}.
+     *
+     * @return The MIME type, or null if it is unknown
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
     public void updateLastAccessed() {
         this.lastAccessedAt = LocalDateTime.now();
     }
@@ -0,0 +1,34 @@
+package com.tagease.search;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation flag shared between whoever starts a search and the code running it.
+ * Long-running loops call {@link #throwIfCancelled()} at safe points so that a superseded
+ * search stops early instead of finishing work nobody will look at.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Requests cancellation. Work already finished is not rolled back.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Aborts the current computation if cancellation was requested.
+     *
+     * @throws CancellationException If the token was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Search was cancelled");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Filters and sorts large result sets on a fork/join pool.
+ * Both stages split the work in halves until a slice is below the sequential threshold, so
+ * small libraries never pay for task overhead. Filtering produces a bitset of ordinals and
+ * sorting is a stable merge sort, which makes the output identical to a sequential filter
+ * followed by {@link List#sort}. Every task checks the cancellation token before it starts.
+ */
+public class FileQueryPipeline {
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 4096;
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    public FileQueryPipeline() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param pool The pool to run parallel stages on
+     * @param sequentialThreshold Slices at or below this size are processed sequentially
+     */
+    public FileQueryPipeline(ForkJoinPool pool, int sequentialThreshold) {
+        if (sequentialThreshold < 1) {
+            throw new IllegalArgumentException("Sequential threshold must be positive");
+        }
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Keeps the candidate files that satisfy the predicate.
+     *
+     * @param index The index snapshot the ordinals refer to
+     * @param candidates The ordinals to test
+     * @param predicate The filter; must be safe to call from several threads
+     * @param token Cancels the work
+     * @return A new bitset of the ordinals that passed
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public BitSet filter(TagBitmapIndex index, BitSet candidates, Predicate<TaggedFile> predicate,
+            CancellationToken token) {
+        int[] ordinals = candidates.stream().toArray();
+        FilterTask task = new FilterTask(index, ordinals, 0, ordinals.length, predicate, token);
+        return ordinals.length <= sequentialThreshold ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Sorts files with a stable parallel merge sort.
+     *
+     * @param files The files to sort; not modified
+     * @param comparator The sort order
+     * @param token Cancels the work
+     * @return A new sorted list
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public List<TaggedFile> sort(List<TaggedFile> files, Comparator<TaggedFile> comparator,
+            CancellationToken token) {
+        TaggedFile[] items = files.toArray(new TaggedFile[0]);
+        SortTask task = new SortTask(items, new TaggedFile[items.length], 0, items.length, comparator, token);
+        if (items.length <= sequentialThreshold) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    /**
+     * Filters the candidates and sorts the survivors.
+     *
+     * @param index The index snapshot the ordinals refer to
+     * @param candidates The ordinals to test
+     * @param predicate The filter; must be safe to call from several threads
+     * @param comparator The sort order, or null to keep index order
+     * @param token Cancels the work
+     * @return A new list of matching files
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public List<TaggedFile> run(TagBitmapIndex index, BitSet candidates, Predicate<TaggedFile> predicate,
+            Comparator<TaggedFile> comparator, CancellationToken token) {
+        List<TaggedFile> matches = index.collect(filter(index, candidates, predicate, token));
+        return comparator != null ? sort(matches, comparator, token) : matches;
+    }
+
+    private final class FilterTask extends RecursiveTask<BitSet> {
+        private final TagBitmapIndex index;
+        private final int[] ordinals;
+        private final int from;
+        private final int to;
+        private final Predicate<TaggedFile> predicate;
+        private final CancellationToken token;
+
+        FilterTask(TagBitmapIndex index, int[] ordinals, int from, int to,
+                Predicate<TaggedFile> predicate, CancellationToken token) {
+            this.index = index;
+            this.ordinals = ordinals;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+            this.token = token;
+        }
+
+        @Override
+        protected BitSet compute() {
+            token.throwIfCancelled();
+            if (to - from <= sequentialThreshold) {
+                BitSet result = new BitSet();
+                for (int i = from; i < to; i++) {
+                    if (predicate.test(index.getFile(ordinals[i]))) {
+                        result.set(ordinals[i]);
+                    }
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            FilterTask left = new FilterTask(index, ordinals, from, mid, predicate, token);
+            left.fork();
+            BitSet result = new FilterTask(index, ordinals, mid, to, predicate, token).compute();
+            result.or(left.join());
+            return result;
+        }
+    }
+
+    private final class SortTask extends RecursiveAction {
+        private final TaggedFile[] items;
+        private final TaggedFile[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<TaggedFile> comparator;
+        private final CancellationToken token;
+
+        SortTask(TaggedFile[] items, TaggedFile[] buffer, int from, int to,
+                Comparator<TaggedFile> comparator, CancellationToken token) {
+            this.items = items;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+            this.token = token;
+        }
+
+        @Override
+        protected void compute() {
+            token.throwIfCancelled();
+            if (to - from <= sequentialThreshold) {
+                // Arrays.sort on objects is stable
+                Arrays.sort(items, from, to, comparator);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(items, buffer, from, mid, comparator, token),
+                    new SortTask(items, buffer, mid, to, comparator, token));
+            if (comparator.compare(items[mid - 1], items[mid]) <= 0) {
+                return;
+            }
+            token.throwIfCancelled();
+            merge(mid);
+        }
+
+        private void merge(int mid) {
+            System.arraycopy(items, from, buffer, from, to - from);
+            int left = from;
+            int right = mid;
+            int out = from;
+            while (left < mid && right < to) {
+                // Ties take the left element to keep the sort stable
+                if (comparator.compare(buffer[left], buffer[right]) <= 0) {
+                    items[out++] = buffer[left++];
+                } else {
+                    items[out++] = buffer[right++];
+                }
+            }
+            while (left < mid) {
+                items[out++] = buffer[left++];
+            }
+            while (right < to) {
+                items[out++] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.util.Comparator;
+
+/**
+ * The orders the file list can be sorted in, keyed by the label shown in the sort box.
+ */
+public enum FileSortOrder {
+    FILE_NAME("File Name", Comparator.comparing(TaggedFile::getFileName, String.CASE_INSENSITIVE_ORDER)),
+    CREATED_DATE("Created Date", Comparator.comparing(TaggedFile::getCreatedAt)),
+    LAST_ACCESSED("Last Accessed", Comparator.comparing(TaggedFile::getLastAccessedAt)),
+    SIZE("Size", Comparator.comparingLong(FileSortOrder::sizeOf)),
+    TYPE("Type", Comparator.comparing(TaggedFile::getMimeType, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(TaggedFile::getFileName, String.CASE_INSENSITIVE_ORDER));
+
+    private final String label;
+    private final Comparator<TaggedFile> comparator;
+
+    FileSortOrder(String label, Comparator<TaggedFile> comparator) {
+        this.label = label;
+        this.comparator = comparator;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the comparator for this order.
+     *
+     * @param ascending Whether to sort ascending
+     * @return The comparator
+     */
+    public Comparator<TaggedFile> comparator(boolean ascending) {
+        return ascending ? comparator : comparator.reversed();
+    }
+
+    /**
+     * Gets the cached size of a file; files never stat'ed sort first.
+     */
+    static long sizeOf(TaggedFile file) {
+        return file.getFingerprint() != null ? file.getFingerprint().getSize() : -1;
+    }
+
+    /**
+     * Finds the order with the given label, falling back to sorting by file name.
+     *
+     * @param label The label shown in the sort box
+     * @return The matching order
+     */
+    public static FileSortOrder fromLabel(String label) {
+        for (FileSortOrder order : values()) {
+            if (order.label.equals(label)) {
+                return order;
+            }
+        }
+        return FILE_NAME;
+    }
+}
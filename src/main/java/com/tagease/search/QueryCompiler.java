@@ -0,0 +1,86 @@
+package com.tagease.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles query text into {@link QueryPlan}s and keeps recently used plans.
+ * Plans are cached by normalized text: matching is case-insensitive, so the text is
+ * lowercased and runs of whitespace outside quotes are collapsed before the lookup. The
+ * parser always sees the text as typed, so quoted values keep their spacing and error
+ * positions point into the user's text.
+ */
+public class QueryCompiler {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<String, QueryPlan> cache;
+
+    public QueryCompiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public QueryCompiler(int capacity) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the plan for a query, parsing it only if it is not cached.
+     *
+     * @param query The query text
+     * @return The compiled plan
+     * @throws QueryParseException If the query is malformed
+     */
+    public synchronized QueryPlan compile(String query) {
+        String key = normalize(query);
+        QueryPlan plan = cache.get(key);
+        if (plan == null) {
+            plan = new QueryPlan(TagQueryParser.parse(query == null ? "" : query));
+            cache.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Gets the number of cached plans.
+     *
+     * @return The cache size
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Normalizes query text into its cache key.
+     *
+     * @param query The query text
+     * @return The lowercased, trimmed text with whitespace outside quotes collapsed
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(query.length());
+        boolean quoted = false;
+        boolean pendingSpace = false;
+        for (char c : query.trim().toCharArray()) {
+            if (!quoted && Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                key.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            key.append(Character.toLowerCase(c));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,573 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A node of a parsed tag query.
+ * Nodes can always be evaluated row by row; nodes that only depend on tags can also be
+ * evaluated against a {@link TagBitmapIndex}, which is how the query plan pushes them down.
+ */
+public abstract class QueryNode {
+
+    /**
+     * Relative evaluation cost of a predicate, cheapest first.
+     */
+    public enum Cost {
+        TAG,
+        COLUMN,
+        STRING
+    }
+
+    /**
+     * Evaluates the node against a single file.
+     *
+     * @param file The file to test
+     * @param now The reference time for relative date predicates
+     * @return true if the file matches
+     */
+    public abstract boolean matches(TaggedFile file, LocalDateTime now);
+
+    /**
+     * Gets the most expensive predicate cost found in this subtree.
+     *
+     * @return The cost class
+     */
+    public abstract Cost cost();
+
+    /**
+     * Checks whether this subtree can be answered from the bitmap index alone.
+     *
+     * @return true if {@link #evaluate(TagBitmapIndex, LocalDateTime)} is supported
+     */
+    public boolean isIndexable() {
+        return false;
+    }
+
+    /**
+     * Evaluates the node against every file of the index at once.
+     *
+     * @param index The bitmap index
+     * @param now The reference time for relative date predicates
+     * @return A new bitset of matching ordinals
+     */
+    public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+        throw new UnsupportedOperationException(this + " cannot be evaluated from the index");
+    }
+
+    /**
+     * Converts a glob pattern using {@code *} and {@code ?} into a regex.
+     */
+    static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    static boolean isGlob(String value) {
+        return value.indexOf('*') >= 0 || value.indexOf('?') >= 0;
+    }
+
+    /**
+     * Conjunction of child nodes; children are ordered cheapest first for short-circuiting.
+     */
+    public static final class And extends QueryNode {
+        private final List<QueryNode> children;
+
+        public And(List<QueryNode> children) {
+            this.children = new ArrayList<>(children);
+            this.children.sort(Comparator.comparing(QueryNode::cost));
+        }
+
+        public List<QueryNode> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            for (QueryNode child : children) {
+                if (!child.matches(file, now)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Cost cost() {
+            return children.get(children.size() - 1).cost();
+        }
+
+        @Override
+        public boolean isIndexable() {
+            return children.stream().allMatch(QueryNode::isIndexable);
+        }
+
+        @Override
+        public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+            BitSet result = children.get(0).evaluate(index, now);
+            for (int i = 1; i < children.size() && !result.isEmpty(); i++) {
+                result.and(children.get(i).evaluate(index, now));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(QueryNode::toString).collect(Collectors.joining(" AND ", "(", ")"));
+        }
+    }
+
+    /**
+     * Disjunction of child nodes; children are ordered cheapest first for short-circuiting.
+     */
+    public static final class Or extends QueryNode {
+        private final List<QueryNode> children;
+
+        public Or(List<QueryNode> children) {
+            this.children = new ArrayList<>(children);
+            this.children.sort(Comparator.comparing(QueryNode::cost));
+        }
+
+        public List<QueryNode> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            for (QueryNode child : children) {
+                if (child.matches(file, now)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Cost cost() {
+            return children.get(children.size() - 1).cost();
+        }
+
+        @Override
+        public boolean isIndexable() {
+            return children.stream().allMatch(QueryNode::isIndexable);
+        }
+
+        @Override
+        public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+            BitSet result = children.get(0).evaluate(index, now);
+            for (int i = 1; i < children.size(); i++) {
+                result.or(children.get(i).evaluate(index, now));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(QueryNode::toString).collect(Collectors.joining(" OR ", "(", ")"));
+        }
+    }
+
+    /**
+     * Negation of a child node.
+     */
+    public static final class Not extends QueryNode {
+        private final QueryNode child;
+
+        public Not(QueryNode child) {
+            this.child = child;
+        }
+
+        public QueryNode getChild() {
+            return child;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            return !child.matches(file, now);
+        }
+
+        @Override
+        public Cost cost() {
+            return child.cost();
+        }
+
+        @Override
+        public boolean isIndexable() {
+            return child.isIndexable();
+        }
+
+        @Override
+        public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+            BitSet result = index.all();
+            result.andNot(child.evaluate(index, now));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+
+    /**
+     * Matches files carrying a tag, ignoring case. Supports {@code *} and {@code ?} wildcards.
+     */
+    public static final class TagPredicate extends QueryNode {
+        private final String tag;
+        private final Pattern pattern;
+
+        public TagPredicate(String tag) {
+            this.tag = tag.toLowerCase();
+            this.pattern = isGlob(this.tag) ? globToPattern(this.tag) : null;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            for (String fileTag : file.getTags()) {
+                String lower = fileTag.toLowerCase();
+                if (pattern != null ? pattern.matcher(lower).matches() : lower.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Cost cost() {
+            return Cost.TAG;
+        }
+
+        @Override
+        public boolean isIndexable() {
+            return true;
+        }
+
+        @Override
+        public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+            if (pattern == null) {
+                return index.bitsForIgnoreCase(tag);
+            }
+            return index.bitsMatching(name -> pattern.matcher(name).matches());
+        }
+
+        @Override
+        public String toString() {
+            return "tag:\"" + tag + "\"";
+        }
+    }
+
+    /**
+     * Matches the file name or path, ignoring case. A value with wildcards must match the
+     * whole field; a plain value matches as a substring.
+     */
+    public static final class TextPredicate extends QueryNode {
+        /**
+         * The text column a predicate applies to.
+         */
+        public enum Field {
+            NAME,
+            PATH
+        }
+
+        private final Field field;
+        private final String value;
+        private final Pattern pattern;
+
+        public TextPredicate(Field field, String value) {
+            this.field = field;
+            this.value = value.toLowerCase();
+            this.pattern = isGlob(this.value) ? globToPattern(this.value) : null;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            String text = field == Field.NAME ? file.getFileName() : file.getFilePath();
+            if (text == null) {
+                return false;
+            }
+            String lower = text.toLowerCase();
+            return pattern != null ? pattern.matcher(lower).matches() : lower.contains(value);
+        }
+
+        @Override
+        public Cost cost() {
+            return Cost.STRING;
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase() + ":\"" + value + "\"";
+        }
+    }
+
+    /**
+     * Compares the cached file size with a number of bytes. Files that were never stat'ed
+     * do not match.
+     */
+    public static final class SizePredicate extends QueryNode {
+        private final String operator;
+        private final long bytes;
+        private final String literal;
+
+        public SizePredicate(String operator, long bytes, String literal) {
+            this.operator = operator;
+            this.bytes = bytes;
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            if (file.getFingerprint() == null) {
+                return false;
+            }
+            long size = file.getFingerprint().getSize();
+            switch (operator) {
+                case ">":
+                    return size > bytes;
+                case ">=":
+                    return size >= bytes;
+                case "<":
+                    return size < bytes;
+                case "<=":
+                    return size <= bytes;
+                default:
+                    return size == bytes;
+            }
+        }
+
+        @Override
+        public Cost cost() {
+            return Cost.COLUMN;
+        }
+
+        @Override
+        public String toString() {
+            return "size:" + operator + literal;
+        }
+    }
+
+    /**
+     * Matches the cached MIME type. A value with a slash matches the whole type and may use
+     * wildcards ({@code image/*}); a plain value matches either half, so {@code image} finds
+     * all images and {@code pdf} finds {@code application/pdf}.
+     */
+    public static final class TypePredicate extends QueryNode {
+        private final String value;
+        private final Pattern pattern;
+
+        public TypePredicate(String value) {
+            this.value = value.toLowerCase();
+            this.pattern = isGlob(this.value) ? globToPattern(this.value) : null;
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            String mimeType = file.getMimeType();
+            if (mimeType == null) {
+                return false;
+            }
+            String lower = mimeType.toLowerCase();
+            if (pattern != null) {
+                return pattern.matcher(lower).matches();
+            }
+            if (value.indexOf('/') >= 0) {
+                return lower.equals(value);
+            }
+            int slash = lower.indexOf('/');
+            return slash < 0 ? lower.equals(value)
+                    : lower.substring(0, slash).equals(value) || lower.substring(slash + 1).equals(value);
+        }
+
+        @Override
+        public Cost cost() {
+            return Cost.COLUMN;
+        }
+
+        @Override
+        public String toString() {
+            return "type:\"" + value + "\"";
+        }
+    }
+
+    /**
+     * Matches the created or last-accessed timestamp against a half-open interval
+     * {@code [from, to)} that is resolved relative to the evaluation time.
+     */
+    public static final class DatePredicate extends QueryNode {
+        /**
+         * The timestamp column a predicate applies to.
+         */
+        public enum Field {
+            CREATED,
+            ACCESSED
+        }
+
+        private final Field field;
+        private final String operator;
+        private final String literal;
+        private final LocalDate date;
+        private final LocalDate endDate;
+        private final long amount;
+        private final char unit;
+
+        private DatePredicate(Field field, String operator, String literal, LocalDate date, LocalDate endDate,
+                long amount, char unit) {
+            this.field = field;
+            this.operator = operator;
+            this.literal = literal;
+            this.date = date;
+            this.endDate = endDate;
+            this.amount = amount;
+            this.unit = unit;
+        }
+
+        /**
+         * Creates a predicate on an absolute date such as {@code >=2024-01-01}.
+         */
+        public static DatePredicate absolute(Field field, String operator, LocalDate date) {
+            return new DatePredicate(field, operator, date.toString(), date, null, 0, ' ');
+        }
+
+        /**
+         * Creates a predicate on an inclusive range of days such as {@code 2024-01-01..2024-03-31}.
+         * Either end may be null to leave that side open.
+         */
+        public static DatePredicate range(Field field, LocalDate from, LocalDate to) {
+            String literal = (from != null ? from.toString() : "") + ".." + (to != null ? to.toString() : "");
+            return new DatePredicate(field, "..", literal, from, to, 0, ' ');
+        }
+
+        /**
+         * Creates a predicate on an age such as {@code >30d} ("more than 30 days ago").
+         * Units are h(ours), d(ays), w(eeks), m(onths) and y(ears).
+         */
+        public static DatePredicate relative(Field field, String operator, long amount, char unit) {
+            return new DatePredicate(field, operator, amount + String.valueOf(unit), null, null, amount, unit);
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * Resolves the predicate to a half-open interval.
+         *
+         * @param now The reference time
+         * @return {from, to}; either bound may be null when open
+         */
+        public LocalDateTime[] bounds(LocalDateTime now) {
+            if ("..".equals(operator)) {
+                return new LocalDateTime[] {
+                    date != null ? date.atStartOfDay() : null,
+                    endDate != null ? endDate.plusDays(1).atStartOfDay() : null
+                };
+            }
+            if (date != null) {
+                LocalDateTime dayStart = date.atStartOfDay();
+                LocalDateTime nextDay = dayStart.plusDays(1);
+                switch (operator) {
+                    case ">":
+                        return new LocalDateTime[] {nextDay, null};
+                    case ">=":
+                        return new LocalDateTime[] {dayStart, null};
+                    case "<":
+                        return new LocalDateTime[] {null, dayStart};
+                    case "<=":
+                        return new LocalDateTime[] {null, nextDay};
+                    default:
+                        return new LocalDateTime[] {dayStart, nextDay};
+                }
+            }
+
+            // For ages the comparison is on the age, so ">30d" means older than the cutoff.
+            // Timestamps are stored to the millisecond, so the strict and inclusive forms
+            // differ by one millisecond at the cutoff
+            LocalDateTime cutoff = minus(now).truncatedTo(ChronoUnit.MILLIS);
+            LocalDateTime afterCutoff = cutoff.plus(1, ChronoUnit.MILLIS);
+            switch (operator) {
+                case ">":
+                    return new LocalDateTime[] {null, cutoff};
+                case ">=":
+                    return new LocalDateTime[] {null, afterCutoff};
+                case "<":
+                    return new LocalDateTime[] {afterCutoff, null};
+                default:
+                    // "<=" and "=": at most that old
+                    return new LocalDateTime[] {cutoff, null};
+            }
+        }
+
+        private LocalDateTime minus(LocalDateTime now) {
+            switch (unit) {
+                case 'h':
+                    return now.minusHours(amount);
+                case 'w':
+                    return now.minusWeeks(amount);
+                case 'm':
+                    return now.minusMonths(amount);
+                case 'y':
+                    return now.minusYears(amount);
+                default:
+                    return now.minusDays(amount);
+            }
+        }
+
+        LocalDateTime valueOf(TaggedFile file) {
+            return field == Field.CREATED ? file.getCreatedAt() : file.getLastAccessedAt();
+        }
+
+        @Override
+        public boolean matches(TaggedFile file, LocalDateTime now) {
+            LocalDateTime value = valueOf(file);
+            if (value == null) {
+                return false;
+            }
+            LocalDateTime[] bounds = bounds(now);
+            return (bounds[0] == null || !value.isBefore(bounds[0]))
+                    && (bounds[1] == null || value.isBefore(bounds[1]));
+        }
+
+        @Override
+        public Cost cost() {
+            return Cost.COLUMN;
+        }
+
+        @Override
+        public boolean isIndexable() {
+            return true;
+        }
+
+        @Override
+        public BitSet evaluate(TagBitmapIndex index, LocalDateTime now) {
+            LocalDateTime[] bounds = bounds(now);
+            return index.bitsInRange(field, bounds[0], bounds[1]);
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase() + ":" + ("..".equals(operator) ? literal : operator + literal);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.tagease.search;
+
+/**
+ * Thrown when a tag query cannot be parsed.
+ */
+public class QueryParseException extends IllegalArgumentException {
+    private final int position;
+
+    public QueryParseException(String message, int position) {
+        super(message + " (at position " + position + ")");
+        this.position = position;
+    }
+
+    /**
+     * Gets the character offset in the query where the problem was found.
+     *
+     * @return The zero-based position
+     */
+    public int getPosition() {
+        return position;
+    }
+}
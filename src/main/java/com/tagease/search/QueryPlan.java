@@ -0,0 +1,127 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Executable form of a parsed query.
+ * The top-level conjunction is split into stages: conjuncts that the bitmap index can answer
+ * are intersected first, then the remaining conjuncts run per candidate in cost order
+ * (timestamp columns before string matching), so expensive predicates only see files that
+ * survived the cheap ones.
+ */
+public final class QueryPlan {
+    private final QueryNode root;
+    private final List<QueryNode> indexedStage;
+    private final List<QueryNode> rowStage;
+
+    public QueryPlan(QueryNode root) {
+        this.root = root;
+        this.indexedStage = new ArrayList<>();
+        this.rowStage = new ArrayList<>();
+
+        List<QueryNode> conjuncts = root instanceof QueryNode.And
+                ? ((QueryNode.And) root).getChildren()
+                : List.of(root);
+        for (QueryNode conjunct : conjuncts) {
+            if (conjunct.isIndexable()) {
+                indexedStage.add(conjunct);
+            } else {
+                rowStage.add(conjunct);
+            }
+        }
+        rowStage.sort(Comparator.comparing(QueryNode::cost));
+    }
+
+    /**
+     * Gets the parsed query tree.
+     *
+     * @return The root node
+     */
+    public QueryNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the conjuncts answered from the bitmap index.
+     *
+     * @return An unmodifiable list of nodes
+     */
+    public List<QueryNode> getIndexedStage() {
+        return Collections.unmodifiableList(indexedStage);
+    }
+
+    /**
+     * Gets the conjuncts evaluated per candidate file, cheapest first.
+     *
+     * @return An unmodifiable list of nodes
+     */
+    public List<QueryNode> getRowStage() {
+        return Collections.unmodifiableList(rowStage);
+    }
+
+    /**
+     * Runs the plan against an index snapshot.
+     *
+     * @param index The bitmap index of the catalog
+     * @return The matching files in index order
+     */
+    public List<TaggedFile> execute(TagBitmapIndex index) {
+        return execute(index, LocalDateTime.now());
+    }
+
+    /**
+     * Runs the plan against an index snapshot with a fixed reference time.
+     *
+     * @param index The bitmap index of the catalog
+     * @param now The reference time for relative date predicates
+     * @return The matching files in index order
+     */
+    public List<TaggedFile> execute(TagBitmapIndex index, LocalDateTime now) {
+        return index.collect(match(index, now));
+    }
+
+    /**
+     * Runs the plan against an index snapshot and returns the matching ordinals.
+     *
+     * @param index The bitmap index of the catalog
+     * @param now The reference time for relative date predicates
+     * @return A new bitset of matching ordinals
+     */
+    public BitSet match(TagBitmapIndex index, LocalDateTime now) {
+        BitSet candidates = index.all();
+        for (QueryNode node : indexedStage) {
+            if (candidates.isEmpty()) {
+                break;
+            }
+            candidates.and(node.evaluate(index, now));
+        }
+
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (!matchesRowStage(index.getFile(i), now)) {
+                candidates.clear(i);
+            }
+        }
+        return candidates;
+    }
+
+    private boolean matchesRowStage(TaggedFile file, LocalDateTime now) {
+        for (QueryNode node : rowStage) {
+            if (!node.matches(file, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan[indexed=" + indexedStage + ", row=" + rowStage + "]";
+    }
+}
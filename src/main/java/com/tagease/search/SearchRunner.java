@@ -0,0 +1,100 @@
+package com.tagease.search;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs searches on one background thread so that only the newest one counts.
+ * Submitting a search cancels the previous one, whether it is still waiting out its delay or
+ * already running, and only the newest search's result reaches the callback. A short delay
+ * debounces typing: a burst of keystrokes runs one search for the final text instead of one
+ * per key. All searches run on the same thread, so stateful helpers such as a
+ * {@link SearchSession} need no locking as long as nothing else uses them.
+ */
+public class SearchRunner implements AutoCloseable {
+
+    private final ScheduledExecutorService executor;
+    private final Executor resultExecutor;
+    private CancellationToken current = new CancellationToken();
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Creates a runner.
+     *
+     * @param resultExecutor Runs the result callbacks, e.g. {@code Platform::runLater}
+     */
+    public SearchRunner(Executor resultExecutor) {
+        this.resultExecutor = resultExecutor;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a search after a delay, superseding any earlier search. The result is passed to
+     * the callback on the result executor unless a newer search was submitted in the
+     * meantime. The callback should run on the thread that submits searches, so that a newer
+     * submission always cancels the token before a stale result could be applied.
+     *
+     * @param delayMillis How long to wait before searching; 0 searches right away
+     * @param search Computes the result; should check the token at safe points
+     * @param onResult Receives the result
+     */
+    public synchronized <T> void submit(long delayMillis, Function<CancellationToken, T> search, Consumer<T> onResult) {
+        cancel();
+        CancellationToken token = new CancellationToken();
+        current = token;
+        pending = executor.schedule(() -> run(token, search, onResult), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the current search, if any.
+     */
+    public synchronized void cancel() {
+        current.cancel();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Stops the background thread; pending searches are dropped.
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private <T> void run(CancellationToken token, Function<CancellationToken, T> search, Consumer<T> onResult) {
+        if (token.isCancelled()) {
+            return;
+        }
+        T result;
+        try {
+            result = search.apply(token);
+        } catch (CancellationException e) {
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Error searching files: " + e.getMessage());
+            return;
+        }
+        if (token.isCancelled()) {
+            return;
+        }
+        resultExecutor.execute(() -> {
+            if (!token.isCancelled()) {
+                onResult.accept(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.util.BitSet;
+
+/**
+ * Remembers the last plain-text search so that typing more characters narrows the previous
+ * result instead of rescanning the whole catalog.
+ * Matching is a case-insensitive substring test, so when the new term contains the old one
+ * every new match is also an old match and only the previous matches need to be re-checked.
+ * Deleting characters, switching the field or searching a different index snapshot falls back
+ * to a full scan. Both kinds of scan run through the {@link FileQueryPipeline}.
+ */
+public class SearchSession {
+
+    /**
+     * The file attribute a term is matched against.
+     */
+    public enum Field {
+        FILE_NAME, TAGS, PATH
+    }
+
+    private final FileQueryPipeline pipeline;
+    private TagBitmapIndex lastIndex;
+    private Field lastField;
+    private String lastTerm;
+    private BitSet lastMatches;
+    private int fullScans;
+    private int refinements;
+
+    public SearchSession() {
+        this(new FileQueryPipeline());
+    }
+
+    public SearchSession(FileQueryPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Finds the files whose field contains the term, ignoring case.
+     *
+     * @param index The index snapshot to search
+     * @param field The field to match
+     * @param term The search term; blank matches every file
+     * @return A new bitset of matching ordinals
+     */
+    public BitSet search(TagBitmapIndex index, Field field, String term) {
+        return search(index, field, term, new CancellationToken());
+    }
+
+    /**
+     * Finds the files whose field contains the term, ignoring case.
+     * A cancelled search leaves the previous result in place.
+     *
+     * @param index The index snapshot to search
+     * @param field The field to match
+     * @param term The search term; blank matches every file
+     * @param token Cancels the scan
+     * @return A new bitset of matching ordinals
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public BitSet search(TagBitmapIndex index, Field field, String term, CancellationToken token) {
+        String lowerTerm = term == null ? "" : term.toLowerCase();
+        if (lowerTerm.isEmpty()) {
+            reset();
+            return index.all();
+        }
+
+        BitSet candidates;
+        if (index == lastIndex && field == lastField && lowerTerm.contains(lastTerm)) {
+            if (lowerTerm.equals(lastTerm)) {
+                return (BitSet) lastMatches.clone();
+            }
+            refinements++;
+            candidates = lastMatches;
+        } else {
+            fullScans++;
+            candidates = index.all();
+        }
+        BitSet matches = pipeline.filter(index, candidates, file -> matches(file, field, lowerTerm), token);
+
+        lastIndex = index;
+        lastField = field;
+        lastTerm = lowerTerm;
+        lastMatches = matches;
+        return (BitSet) matches.clone();
+    }
+
+    /**
+     * Forgets the previous result so the next search scans everything.
+     */
+    public void reset() {
+        lastIndex = null;
+        lastField = null;
+        lastTerm = null;
+        lastMatches = null;
+    }
+
+    public int getFullScans() {
+        return fullScans;
+    }
+
+    public int getRefinements() {
+        return refinements;
+    }
+
+    /**
+     * Checks a single file against a lowercase term.
+     *
+     * @param file The file to check
+     * @param field The field to match
+     * @param lowerTerm The lowercase search term
+     * @return true if the field contains the term
+     */
+    public static boolean matches(TaggedFile file, Field field, String lowerTerm) {
+        switch (field) {
+            case FILE_NAME:
+                return file.getFileName().toLowerCase().contains(lowerTerm);
+            case TAGS:
+                for (String tag : file.getTags()) {
+                    if (tag.toLowerCase().contains(lowerTerm)) {
+                        return true;
+                    }
+                }
+                return false;
+            case PATH:
+                return file.getFilePath().toLowerCase().contains(lowerTerm);
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.tagease.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds files with similar tag sets using MinHash signatures and locality-sensitive hashing.
+ * Each file's tag set is summarised by 64 min-hashes, and the signature is cut into 32 bands of
+ * 2 rows. Files sharing any band land in the same bucket, so the candidates for "files like this
+ * one" come from a handful of bucket lookups instead of comparing against the whole library.
+ * Only those candidates are ranked by exact Jaccard similarity. A pair with similarity s shares
+ * a band with probability 1 - (1 - s^2)^32: practically always at 0.5, about 0.95 at 0.3 and
+ * 0.73 at 0.2. The extra weak candidates this lets through are dropped by the exact ranking.
+ */
+public class SimilarFilesIndex {
+    public static final int NUM_HASHES = 64;
+    public static final int BANDS = 32;
+    public static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+
+    // Caps the work for very common tag sets whose buckets hold much of the library
+    private static final int MAX_CANDIDATES = 2000;
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, Set<String>> buckets = new HashMap<>();
+
+    /**
+     * A file similar to the one asked about.
+     */
+    public static final class Match {
+        private final String filePath;
+        private final double similarity;
+
+        Match(String filePath, double similarity) {
+            this.filePath = filePath;
+            this.similarity = similarity;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * Gets the Jaccard similarity of the two tag sets.
+         *
+         * @return A value between 0 (exclusive) and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return filePath + " (" + String.format("%.2f", similarity) + ")";
+        }
+    }
+
+    private static final class Entry {
+        final Set<String> tags;
+        final long[] bandKeys;
+
+        Entry(Set<String> tags, long[] bandKeys) {
+            this.tags = tags;
+            this.bandKeys = bandKeys;
+        }
+    }
+
+    /**
+     * Adds a file or replaces its tag set. Files without tags are not indexed.
+     *
+     * @param filePath The file path
+     * @param tags The file's tags
+     */
+    public synchronized void update(String filePath, Collection<String> tags) {
+        remove(filePath);
+        if (tags.isEmpty()) {
+            return;
+        }
+        Set<String> tagSet = new HashSet<>(tags);
+        long[] bandKeys = bandKeys(signature(tagSet));
+        entries.put(filePath, new Entry(tagSet, bandKeys));
+        for (long key : bandKeys) {
+            buckets.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(filePath);
+        }
+    }
+
+    /**
+     * Removes a file if it is indexed.
+     *
+     * @param filePath The file path
+     */
+    public synchronized void remove(String filePath) {
+        Entry entry = entries.remove(filePath);
+        if (entry == null) {
+            return;
+        }
+        for (long key : entry.bandKeys) {
+            Set<String> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(filePath);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of indexed files.
+     *
+     * @return The file count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the files whose tag sets are most like the given file's.
+     *
+     * @param filePath The file to compare against
+     * @param limit The maximum number of matches
+     * @return Matches ordered by similarity, best first; empty if the file is not indexed
+     */
+    public synchronized List<Match> findSimilar(String filePath, int limit) {
+        Entry entry = entries.get(filePath);
+        if (entry == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Set<String> candidates = new LinkedHashSet<>();
+        for (long key : entry.bandKeys) {
+            for (String candidate : buckets.get(key)) {
+                if (candidates.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+                if (!candidate.equals(filePath)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            double similarity = jaccard(entry.tags, entries.get(candidate).tags);
+            if (similarity > 0) {
+                matches.add(new Match(candidate, similarity));
+            }
+        }
+        Comparator<Match> order = Comparator.comparingDouble(Match::getSimilarity).reversed()
+                .thenComparing(Match::getFilePath);
+        return TopK.select(matches, order, limit);
+    }
+
+    /**
+     * Computes the MinHash signature of a tag set.
+     */
+    static long[] signature(Set<String> tags) {
+        long[] signature = new long[NUM_HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String tag : tags) {
+            long base = hashTag(tag);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long hash = mix(base ^ SEEDS[i]);
+                if (Long.compareUnsigned(hash, signature[i]) < 0) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long[] bandKeys(long[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String tag : smaller) {
+            if (larger.contains(tag)) {
+                intersection++;
+            }
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static long hashTag(String tag) {
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < tag.length(); i++) {
+            hash ^= tag.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 finaliser; turns one 64-bit value into a well-distributed hash.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,257 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of the file catalog with one bitset per tag.
+ * Each file gets an ordinal (its position in the snapshot) and every tag maps to
+ * the set of ordinals carrying it, so tag predicates reduce to bitset operations.
+ * Timestamp ranges are answered by binary search over a sorted copy of each timestamp
+ * column, built the first time the column is queried.
+ */
+public final class TagBitmapIndex {
+    private final List<TaggedFile> files;
+    private final Map<String, BitSet> tagBits;
+    private final Map<String, List<String>> namesByLowercase;
+    private final Map<String, Integer> ordinalsByPath;
+    private final TimestampColumn[] timestampColumns = new TimestampColumn[QueryNode.DatePredicate.Field.values().length];
+
+    public TagBitmapIndex(Collection<TaggedFile> catalog) {
+        this.files = Collections.unmodifiableList(new ArrayList<>(catalog));
+        this.tagBits = new HashMap<>();
+        this.namesByLowercase = new HashMap<>();
+        this.ordinalsByPath = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < files.size(); ordinal++) {
+            ordinalsByPath.put(files.get(ordinal).getFilePath(), ordinal);
+            for (String tag : files.get(ordinal).getTags()) {
+                tagBits.computeIfAbsent(tag, t -> {
+                    namesByLowercase.computeIfAbsent(t.toLowerCase(), k -> new ArrayList<>()).add(t);
+                    return new BitSet(files.size());
+                }).set(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of files in the snapshot.
+     *
+     * @return The file count
+     */
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Gets the file with the given ordinal.
+     *
+     * @param ordinal The ordinal of the file
+     * @return The file
+     */
+    public TaggedFile getFile(int ordinal) {
+        return files.get(ordinal);
+    }
+
+    /**
+     * Gets the ordinal of the file with the given path.
+     *
+     * @param filePath The file path
+     * @return The ordinal, or -1 if the file is not in the snapshot
+     */
+    public int indexOf(String filePath) {
+        Integer ordinal = ordinalsByPath.get(filePath);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Gets all files of the snapshot in ordinal order.
+     *
+     * @return An unmodifiable list of files
+     */
+    public List<TaggedFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * Gets the names of all tags used by at least one file.
+     *
+     * @return An unmodifiable set of tag names
+     */
+    public Set<String> getTagNames() {
+        return Collections.unmodifiableSet(tagBits.keySet());
+    }
+
+    /**
+     * Creates a bitset with every file of the snapshot set.
+     *
+     * @return A new bitset
+     */
+    public BitSet all() {
+        BitSet bits = new BitSet(files.size());
+        bits.set(0, files.size());
+        return bits;
+    }
+
+    /**
+     * Gets the files carrying the given tag (exact name).
+     *
+     * @param tagName The tag name
+     * @return A new bitset, empty if the tag is unused
+     */
+    public BitSet bitsFor(String tagName) {
+        BitSet bits = tagBits.get(tagName);
+        return bits != null ? (BitSet) bits.clone() : new BitSet();
+    }
+
+    /**
+     * Gets the files carrying any tag whose name equals the given one, ignoring case.
+     *
+     * @param tagName The tag name
+     * @return A new bitset
+     */
+    public BitSet bitsForIgnoreCase(String tagName) {
+        BitSet result = new BitSet();
+        List<String> names = namesByLowercase.get(tagName.toLowerCase());
+        if (names != null) {
+            for (String name : names) {
+                result.or(tagBits.get(name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the files carrying any tag whose lowercase name satisfies the predicate.
+     *
+     * @param lowercaseNameMatcher Predicate applied to lowercase tag names
+     * @return A new bitset
+     */
+    public BitSet bitsMatching(Predicate<String> lowercaseNameMatcher) {
+        BitSet result = new BitSet();
+        for (Map.Entry<String, List<String>> entry : namesByLowercase.entrySet()) {
+            if (lowercaseNameMatcher.test(entry.getKey())) {
+                for (String name : entry.getValue()) {
+                    result.or(tagBits.get(name));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the files carrying the given tag.
+     *
+     * @param tagName The tag name
+     * @return The number of files
+     */
+    public int count(String tagName) {
+        BitSet bits = tagBits.get(tagName);
+        return bits != null ? bits.cardinality() : 0;
+    }
+
+    /**
+     * Collects the files whose ordinals are set, in ordinal order.
+     *
+     * @param ordinals The ordinals to collect
+     * @return A new list of files
+     */
+    public List<TaggedFile> collect(BitSet ordinals) {
+        List<TaggedFile> result = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0 && i < files.size(); i = ordinals.nextSetBit(i + 1)) {
+            result.add(files.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the files whose timestamp lies in the half-open range {@code [from, to)}.
+     *
+     * @param field The timestamp column
+     * @param from The inclusive lower bound, or null for no lower bound
+     * @param to The exclusive upper bound, or null for no upper bound
+     * @return A new bitset of matching ordinals
+     */
+    public BitSet bitsInRange(QueryNode.DatePredicate.Field field, LocalDateTime from, LocalDateTime to) {
+        TimestampColumn column = timestampColumn(field);
+        int start = from != null ? column.lowerBound(toMillis(from)) : 0;
+        int end = to != null ? column.lowerBound(toMillis(to)) : column.millis.length;
+        BitSet result = new BitSet(files.size());
+        for (int i = start; i < end; i++) {
+            result.set(column.ordinals[i]);
+        }
+        return result;
+    }
+
+    private synchronized TimestampColumn timestampColumn(QueryNode.DatePredicate.Field field) {
+        TimestampColumn column = timestampColumns[field.ordinal()];
+        if (column == null) {
+            column = new TimestampColumn(field);
+            timestampColumns[field.ordinal()] = column;
+        }
+        return column;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Ordinals sorted by one timestamp column; files without a timestamp are left out.
+     */
+    private final class TimestampColumn {
+        final long[] millis;
+        final int[] ordinals;
+
+        TimestampColumn(QueryNode.DatePredicate.Field field) {
+            List<long[]> entries = new ArrayList<>(files.size());
+            for (int ordinal = 0; ordinal < files.size(); ordinal++) {
+                TaggedFile file = files.get(ordinal);
+                LocalDateTime value = field == QueryNode.DatePredicate.Field.CREATED
+                        ? file.getCreatedAt()
+                        : file.getLastAccessedAt();
+                if (value != null) {
+                    entries.add(new long[] {toMillis(value), ordinal});
+                }
+            }
+            entries.sort((a, b) -> Long.compare(a[0], b[0]));
+            millis = new long[entries.size()];
+            ordinals = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                millis[i] = entries.get(i)[0];
+                ordinals[i] = (int) entries.get(i)[1];
+            }
+        }
+
+        int lowerBound(long key) {
+            int index = Arrays.binarySearch(millis, key);
+            if (index < 0) {
+                return -index - 1;
+            }
+            // Step back over equal timestamps to the first one
+            while (index > 0 && millis[index - 1] == key) {
+                index--;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Gives package members direct read access to a tag's bitset without copying.
+     */
+    BitSet rawBits(String tagName) {
+        return tagBits.get(tagName);
+    }
+}
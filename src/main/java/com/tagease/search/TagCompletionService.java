@@ -0,0 +1,164 @@
+package com.tagease.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Prefix completion over tag names for the tag entry dialogs.
+ * Every tag is indexed under its full lowercase name and under each word inside it, in a
+ * sorted array, so a prefix lookup is a binary search for the matching range. Candidates in
+ * the range are ranked by how many files use them and how often they appear together with
+ * the tags already entered, and only the top K are kept in a bounded heap.
+ */
+public class TagCompletionService {
+    private static final int COOCCURRENCE_WEIGHT = 4;
+
+    private final String[] keys;
+    private final int[] tagIds;
+    private final String[] tagNames;
+    private final String[] lowerNames;
+    private final int[] usage;
+    private final Map<String, Integer> idsByLowercase;
+    private final TagBitmapIndex index;
+
+    /**
+     * Creates a completion service.
+     *
+     * @param vocabulary All known tag names, including unused ones
+     * @param index Bitmap index of the catalog used for usage and co-occurrence counts
+     */
+    public TagCompletionService(Collection<String> vocabulary, TagBitmapIndex index) {
+        this.index = index;
+
+        Set<String> names = new LinkedHashSet<>(vocabulary);
+        names.addAll(index.getTagNames());
+        this.tagNames = names.toArray(new String[0]);
+        this.lowerNames = new String[tagNames.length];
+        this.usage = new int[tagNames.length];
+        this.idsByLowercase = new HashMap<>();
+
+        List<String[]> entries = new ArrayList<>();
+        for (int id = 0; id < tagNames.length; id++) {
+            String lower = tagNames[id].toLowerCase().intern();
+            lowerNames[id] = lower;
+            usage[id] = index.count(tagNames[id]);
+            idsByLowercase.putIfAbsent(lower, id);
+            entries.add(new String[] {lower, String.valueOf(id)});
+            for (int i = 1; i < lower.length(); i++) {
+                if (isWordBoundary(lower.charAt(i - 1)) && !isWordBoundary(lower.charAt(i))) {
+                    entries.add(new String[] {lower.substring(i), String.valueOf(id)});
+                }
+            }
+        }
+        entries.sort((a, b) -> a[0].compareTo(b[0]));
+
+        this.keys = new String[entries.size()];
+        this.tagIds = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i)[0];
+            tagIds[i] = Integer.parseInt(entries.get(i)[1]);
+        }
+    }
+
+    private static boolean isWordBoundary(char c) {
+        return c == ' ' || c == '-' || c == '_';
+    }
+
+    /**
+     * Gets the number of distinct tags known to the service.
+     *
+     * @return The vocabulary size
+     */
+    public int size() {
+        return tagNames.length;
+    }
+
+    /**
+     * Suggests tags starting with the given prefix (or with a word starting with it).
+     *
+     * @param prefix The text typed so far; blank returns the best tags overall
+     * @param enteredTags Tags already entered, which are excluded and used for co-occurrence
+     * @param limit The maximum number of suggestions
+     * @return Tag names, best first
+     */
+    public List<String> suggest(String prefix, Collection<String> enteredTags, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        String lowerPrefix = prefix == null ? "" : prefix.trim().toLowerCase();
+
+        Set<Integer> excluded = new HashSet<>();
+        BitSet enteredFiles = new BitSet();
+        for (String entered : enteredTags) {
+            Integer id = idsByLowercase.get(entered.toLowerCase());
+            if (id != null) {
+                excluded.add(id);
+            }
+            BitSet bits = index.rawBits(entered);
+            if (bits != null) {
+                enteredFiles.or(bits);
+            }
+        }
+
+        int from = lowerBound(lowerPrefix);
+        int to = lowerPrefix.isEmpty() ? keys.length : lowerBound(lowerPrefix + Character.MAX_VALUE);
+
+        // Min-heap of {score, id}; the weakest candidate sits on top and is evicted first
+        PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1,
+                (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+        Set<Integer> seen = new HashSet<>();
+        BitSet scratch = new BitSet();
+        for (int i = from; i < to; i++) {
+            int id = tagIds[i];
+            if (excluded.contains(id) || !seen.add(id)) {
+                continue;
+            }
+            long score = usage[id];
+            if (!enteredFiles.isEmpty()) {
+                BitSet bits = index.rawBits(tagNames[id]);
+                if (bits != null) {
+                    scratch.clear();
+                    scratch.or(bits);
+                    scratch.and(enteredFiles);
+                    score += (long) COOCCURRENCE_WEIGHT * scratch.cardinality();
+                }
+            }
+            // Exact prefixes of the full name outrank matches on an inner word
+            score = score * 2 + (lowerNames[id].startsWith(lowerPrefix) ? 1 : 0);
+            heap.add(new long[] {score, id});
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        String[] result = new String[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = tagNames[(int) heap.poll()[1]];
+        }
+        return Arrays.asList(result);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
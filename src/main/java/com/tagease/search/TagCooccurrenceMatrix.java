@@ -0,0 +1,150 @@
+package com.tagease.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse, symmetric count of how many files carry each pair of tags.
+ * Only pairs that occur together are stored, one row per tag. The matrix is updated from the
+ * old and new tag sets of a single file, so a change costs O(t²) for the t tags of that file
+ * instead of a self-join over every file_tags row.
+ */
+public class TagCooccurrenceMatrix {
+    private final Map<String, Map<String, Integer>> rows = new HashMap<>();
+    private final Map<String, Integer> tagCounts = new HashMap<>();
+
+    /**
+     * Counts a file with the given tags.
+     *
+     * @param tags The file's tags
+     */
+    public synchronized void add(Collection<String> tags) {
+        apply(tags, 1);
+    }
+
+    /**
+     * Stops counting a file with the given tags.
+     *
+     * @param tags The file's tags before it was removed
+     */
+    public synchronized void remove(Collection<String> tags) {
+        apply(tags, -1);
+    }
+
+    /**
+     * Moves a file from one tag set to another.
+     *
+     * @param oldTags The tags before the change
+     * @param newTags The tags after the change
+     */
+    public synchronized void replace(Collection<String> oldTags, Collection<String> newTags) {
+        apply(oldTags, -1);
+        apply(newTags, 1);
+    }
+
+    /**
+     * Forgets a tag that was deleted from every file.
+     *
+     * @param tag The tag name
+     */
+    public synchronized void removeTag(String tag) {
+        tagCounts.remove(tag);
+        Map<String, Integer> row = rows.remove(tag);
+        if (row == null) {
+            return;
+        }
+        for (String other : row.keySet()) {
+            Map<String, Integer> otherRow = rows.get(other);
+            if (otherRow != null) {
+                otherRow.remove(tag);
+                if (otherRow.isEmpty()) {
+                    rows.remove(other);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of files carrying both tags.
+     *
+     * @param a The first tag
+     * @param b The second tag
+     * @return The number of files, or the tag's own file count if both are the same
+     */
+    public synchronized int count(String a, String b) {
+        if (a.equals(b)) {
+            return tagCounts.getOrDefault(a, 0);
+        }
+        Map<String, Integer> row = rows.get(a);
+        return row != null ? row.getOrDefault(b, 0) : 0;
+    }
+
+    /**
+     * Gets the tags that most often appear together with the given one.
+     *
+     * @param tag The tag name
+     * @param limit The maximum number of tags
+     * @return Tag names ranked by shared file count, then by name
+     */
+    public synchronized List<String> getCooccurring(String tag, int limit) {
+        Map<String, Integer> row = rows.get(tag);
+        if (row == null) {
+            return new ArrayList<>();
+        }
+        Comparator<Map.Entry<String, Integer>> order = Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : TopK.select(row.entrySet(), order, limit)) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of stored (ordered) pairs, a measure of the matrix's memory use.
+     *
+     * @return The number of non-zero cells
+     */
+    public synchronized int nonZeroCount() {
+        int count = 0;
+        for (Map<String, Integer> row : rows.values()) {
+            count += row.size();
+        }
+        return count;
+    }
+
+    private void apply(Collection<String> tags, int delta) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(tags));
+        for (String tag : distinct) {
+            adjust(tagCounts, tag, delta);
+        }
+        for (int i = 0; i < distinct.size(); i++) {
+            for (int j = i + 1; j < distinct.size(); j++) {
+                adjustPair(distinct.get(i), distinct.get(j), delta);
+                adjustPair(distinct.get(j), distinct.get(i), delta);
+            }
+        }
+    }
+
+    private void adjustPair(String a, String b, int delta) {
+        Map<String, Integer> row = rows.computeIfAbsent(a, k -> new HashMap<>());
+        adjust(row, b, delta);
+        if (row.isEmpty()) {
+            rows.remove(a);
+        }
+    }
+
+    private static void adjust(Map<String, Integer> counts, String key, int delta) {
+        int value = counts.getOrDefault(key, 0) + delta;
+        if (value > 0) {
+            counts.put(key, value);
+        } else {
+            counts.remove(key);
+        }
+    }
+}
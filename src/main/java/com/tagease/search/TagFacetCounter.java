@@ -0,0 +1,97 @@
+package com.tagease.search;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes per-tag facet counts for the tag filter sidebar.
+ * The count of an unchecked tag is the size of the result set if that tag were checked too;
+ * the count of a checked tag is the number of current results carrying it. Counts come from
+ * bitset intersections, and {@link #update} only reports the tags whose count changed so the
+ * view can patch labels instead of rebuilding the list.
+ */
+public class TagFacetCounter {
+    private Map<String, Integer> counts = new HashMap<>();
+
+    /**
+     * Recomputes the counts and returns those that differ from the previous call.
+     *
+     * @param index The bitmap index of the catalog
+     * @param searchMatches Ordinals of files matching the search term, before tag filters
+     * @param selectedTags The checked tags (files must carry any of them)
+     * @return Changed counts keyed by tag name, including tags that disappeared (count 0)
+     */
+    public Map<String, Integer> update(TagBitmapIndex index, BitSet searchMatches, Set<String> selectedTags) {
+        Map<String, Integer> fresh = compute(index, searchMatches, selectedTags);
+
+        Map<String, Integer> changed = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : fresh.entrySet()) {
+            if (!Objects.equals(counts.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String previous : counts.keySet()) {
+            if (!fresh.containsKey(previous)) {
+                changed.put(previous, 0);
+            }
+        }
+        counts = fresh;
+        return changed;
+    }
+
+    /**
+     * Gets the counts computed by the last update.
+     *
+     * @param tagName The tag name
+     * @return The count, or 0 if the tag had no files
+     */
+    public int getCount(String tagName) {
+        return counts.getOrDefault(tagName, 0);
+    }
+
+    /**
+     * Forgets previous counts so the next update reports every tag.
+     */
+    public void reset() {
+        counts = new HashMap<>();
+    }
+
+    /**
+     * Computes the facet count of every tag in the index.
+     *
+     * @param index The bitmap index of the catalog
+     * @param searchMatches Ordinals of files matching the search term, before tag filters
+     * @param selectedTags The checked tags
+     * @return Counts keyed by tag name
+     */
+    public static Map<String, Integer> compute(TagBitmapIndex index, BitSet searchMatches, Set<String> selectedTags) {
+        // Files already in the result because they carry a checked tag
+        BitSet selectedMatches = new BitSet();
+        for (String tag : selectedTags) {
+            BitSet bits = index.rawBits(tag);
+            if (bits != null) {
+                selectedMatches.or(bits);
+            }
+        }
+        selectedMatches.and(searchMatches);
+        int selectedCount = selectedMatches.cardinality();
+
+        Map<String, Integer> result = new HashMap<>();
+        BitSet scratch = new BitSet(index.size());
+        for (String tag : index.getTagNames()) {
+            scratch.clear();
+            scratch.or(index.rawBits(tag));
+            scratch.and(searchMatches);
+            if (selectedTags.isEmpty() || selectedTags.contains(tag)) {
+                result.put(tag, scratch.cardinality());
+            } else {
+                scratch.andNot(selectedMatches);
+                result.put(tag, selectedCount + scratch.cardinality());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,304 @@
+package com.tagease.search;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive-descent parser for the tag query language.
+ *
+ * <pre>
+ * query   := or
+ * or      := and ("OR" and)*
+ * and     := unary (["AND"] unary)*
+ * unary   := "NOT" unary | primary
+ * primary := "(" or ")" | term
+ * term    := tag | "quoted tag" | field ":" value
+ * </pre>
+ *
+ * Fields are {@code tag}, {@code name}, {@code path}, {@code created}, {@code accessed},
+ * {@code size} (e.g. {@code >10mb}) and {@code type} (e.g. {@code image} or {@code application/pdf}).
+ * Keywords are case-insensitive, and two terms next to each other are joined with AND.
+ * Example: {@code (project-2024 OR work) AND NOT archive AND name:*.pdf AND accessed:>30d}
+ */
+public class TagQueryParser {
+    private static final Pattern RELATIVE_DATE = Pattern.compile("(<=|>=|<|>|=)?(\\d+)([hdwmy])");
+    private static final Pattern ABSOLUTE_DATE = Pattern.compile("(<=|>=|<|>|=)?(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern SIZE = Pattern.compile("(<=|>=|<|>|=)?(\\d+(?:\\.\\d+)?)\\s*([kmgt]?)i?b?");
+    private static final Pattern DATE_RANGE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})?\\.\\.(\\d{4}-\\d{2}-\\d{2})?");
+
+    private enum TokenType {
+        LPAREN,
+        RPAREN,
+        AND,
+        OR,
+        NOT,
+        TERM,
+        EOF
+    }
+
+    private static final class Token {
+        final TokenType type;
+        final String field;
+        final String value;
+        final int position;
+
+        Token(TokenType type, String field, String value, int position) {
+            this.type = type;
+            this.field = field;
+            this.value = value;
+            this.position = position;
+        }
+    }
+
+    private final List<Token> tokens;
+    private int current;
+
+    private TagQueryParser(String query) {
+        this.tokens = tokenize(query);
+        this.current = 0;
+    }
+
+    /**
+     * Parses a query into a tree of nodes.
+     *
+     * @param query The query text
+     * @return The root node
+     * @throws QueryParseException If the query is empty or malformed
+     */
+    public static QueryNode parse(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new QueryParseException("Query is empty", 0);
+        }
+        TagQueryParser parser = new TagQueryParser(query);
+        QueryNode root = parser.parseOr();
+        Token trailing = parser.peek();
+        if (trailing.type != TokenType.EOF) {
+            throw new QueryParseException("Unexpected " + describe(trailing), trailing.position);
+        }
+        return root;
+    }
+
+    private QueryNode parseOr() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (peek().type == TokenType.OR) {
+            current++;
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.Or(children);
+    }
+
+    private QueryNode parseAnd() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseUnary());
+        while (true) {
+            TokenType next = peek().type;
+            if (next == TokenType.AND) {
+                current++;
+                children.add(parseUnary());
+            } else if (next == TokenType.TERM || next == TokenType.NOT || next == TokenType.LPAREN) {
+                children.add(parseUnary());
+            } else {
+                break;
+            }
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.And(children);
+    }
+
+    private QueryNode parseUnary() {
+        if (peek().type == TokenType.NOT) {
+            current++;
+            return new QueryNode.Not(parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private QueryNode parsePrimary() {
+        Token token = next();
+        switch (token.type) {
+            case LPAREN:
+                QueryNode inner = parseOr();
+                Token closing = next();
+                if (closing.type != TokenType.RPAREN) {
+                    throw new QueryParseException("Expected ')' but found " + describe(closing), closing.position);
+                }
+                return inner;
+            case TERM:
+                return toPredicate(token);
+            default:
+                throw new QueryParseException("Expected a term but found " + describe(token), token.position);
+        }
+    }
+
+    private QueryNode toPredicate(Token token) {
+        if (token.value.isEmpty()) {
+            throw new QueryParseException("Missing value for '" + token.field + ":'", token.position);
+        }
+        if (token.field == null) {
+            return new QueryNode.TagPredicate(token.value);
+        }
+        switch (token.field.toLowerCase()) {
+            case "tag":
+                return new QueryNode.TagPredicate(token.value);
+            case "name":
+                return new QueryNode.TextPredicate(QueryNode.TextPredicate.Field.NAME, token.value);
+            case "path":
+                return new QueryNode.TextPredicate(QueryNode.TextPredicate.Field.PATH, token.value);
+            case "created":
+                return toDatePredicate(QueryNode.DatePredicate.Field.CREATED, token);
+            case "accessed":
+                return toDatePredicate(QueryNode.DatePredicate.Field.ACCESSED, token);
+            case "size":
+                return toSizePredicate(token);
+            case "type":
+                return new QueryNode.TypePredicate(token.value);
+            default:
+                throw new QueryParseException("Unknown field '" + token.field + "'", token.position);
+        }
+    }
+
+    private QueryNode toDatePredicate(QueryNode.DatePredicate.Field field, Token token) {
+        String value = token.value.toLowerCase();
+        Matcher relative = RELATIVE_DATE.matcher(value);
+        if (relative.matches()) {
+            String operator = relative.group(1) != null ? relative.group(1) : "<";
+            return QueryNode.DatePredicate.relative(field, operator,
+                    Long.parseLong(relative.group(2)), relative.group(3).charAt(0));
+        }
+        Matcher range = DATE_RANGE.matcher(value);
+        if (range.matches() && (range.group(1) != null || range.group(2) != null)) {
+            LocalDate from = parseDate(range.group(1), token);
+            LocalDate to = parseDate(range.group(2), token);
+            if (from != null && to != null && to.isBefore(from)) {
+                throw new QueryParseException("Date range ends before it starts", token.position);
+            }
+            return QueryNode.DatePredicate.range(field, from, to);
+        }
+        Matcher absolute = ABSOLUTE_DATE.matcher(value);
+        if (absolute.matches()) {
+            try {
+                String operator = absolute.group(1) != null ? absolute.group(1) : "=";
+                return QueryNode.DatePredicate.absolute(field, operator, LocalDate.parse(absolute.group(2)));
+            } catch (DateTimeParseException e) {
+                throw new QueryParseException("Invalid date '" + absolute.group(2) + "'", token.position);
+            }
+        }
+        throw new QueryParseException("Invalid date value '" + token.value
+                + "' (use e.g. >30d, <7d, >=2024-01-01 or 2024-01-01..2024-03-31)", token.position);
+    }
+
+    private QueryNode toSizePredicate(Token token) {
+        Matcher size = SIZE.matcher(token.value.toLowerCase());
+        if (!size.matches()) {
+            throw new QueryParseException("Invalid size value '" + token.value
+                    + "' (use e.g. >10mb, <500k or >=1g)", token.position);
+        }
+        String operator = size.group(1) != null ? size.group(1) : "=";
+        String unit = size.group(3);
+        long multiplier = unit.isEmpty() ? 1 : 1L << (10 * ("kmgt".indexOf(unit) + 1));
+        long bytes = (long) (Double.parseDouble(size.group(2)) * multiplier);
+        return new QueryNode.SizePredicate(operator, bytes, size.group(2) + unit);
+    }
+
+    private static LocalDate parseDate(String text, Token token) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new QueryParseException("Invalid date '" + text + "'", token.position);
+        }
+    }
+
+    private Token peek() {
+        return tokens.get(current);
+    }
+
+    private Token next() {
+        Token token = tokens.get(current);
+        if (token.type != TokenType.EOF) {
+            current++;
+        }
+        return token;
+    }
+
+    private static String describe(Token token) {
+        switch (token.type) {
+            case EOF:
+                return "end of query";
+            case TERM:
+                return "'" + (token.field != null ? token.field + ":" : "") + token.value + "'";
+            default:
+                return token.type.name();
+        }
+    }
+
+    private static List<Token> tokenize(String query) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = query.length();
+        while (i < length) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LPAREN, null, "(", i++));
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RPAREN, null, ")", i++));
+            } else if (c == '"') {
+                int end = closingQuote(query, i);
+                tokens.add(new Token(TokenType.TERM, null, query.substring(i + 1, end), i));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < length && !isDelimiter(query.charAt(i)) && query.charAt(i) != ':') {
+                    i++;
+                }
+                String word = query.substring(start, i);
+                if (i < length && query.charAt(i) == ':') {
+                    i++;
+                    String value;
+                    if (i < length && query.charAt(i) == '"') {
+                        int end = closingQuote(query, i);
+                        value = query.substring(i + 1, end);
+                        i = end + 1;
+                    } else {
+                        int valueStart = i;
+                        while (i < length && !isDelimiter(query.charAt(i))) {
+                            i++;
+                        }
+                        value = query.substring(valueStart, i);
+                    }
+                    tokens.add(new Token(TokenType.TERM, word, value, start));
+                } else if (word.equalsIgnoreCase("AND")) {
+                    tokens.add(new Token(TokenType.AND, null, word, start));
+                } else if (word.equalsIgnoreCase("OR")) {
+                    tokens.add(new Token(TokenType.OR, null, word, start));
+                } else if (word.equalsIgnoreCase("NOT")) {
+                    tokens.add(new Token(TokenType.NOT, null, word, start));
+                } else {
+                    tokens.add(new Token(TokenType.TERM, null, word, start));
+                }
+            }
+        }
+        tokens.add(new Token(TokenType.EOF, null, "", length));
+        return tokens;
+    }
+
+    private static int closingQuote(String query, int openingQuote) {
+        int end = query.indexOf('"', openingQuote + 1);
+        if (end < 0) {
+            throw new QueryParseException("Unterminated quote", openingQuote);
+        }
+        return end;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '(' || c == ')' || c == '"';
+    }
+}
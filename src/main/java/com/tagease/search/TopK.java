@@ -0,0 +1,66 @@
+package com.tagease.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the first K items of an order without sorting everything.
+ * A bounded heap keeps the K best items seen so far with the weakest on top, so selection
+ * costs O(n log k). Ties are broken by encounter order, which makes the result identical to
+ * the first K elements of a stable sort.
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * Selects the first items of the given order.
+     *
+     * @param items The items to select from
+     * @param order The order; the first items of this order are kept
+     * @param k The maximum number of items
+     * @return A new list of at most k items, in order
+     */
+    public static <T> List<T> select(Iterable<? extends T> items, Comparator<? super T> order, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Entry<T>> better = (a, b) -> {
+            int cmp = order.compare(a.item, b.item);
+            return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+        };
+        PriorityQueue<Entry<T>> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, better.reversed());
+
+        long sequence = 0;
+        for (T item : items) {
+            Entry<T> entry = new Entry<>(item, sequence++);
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (better.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().item);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long sequence;
+
+        Entry(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.tagease.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typo-tolerant file name search backed by in-memory n-gram indexes.
+ * Every file name is split into overlapping two-character grams and every file path into
+ * three-character grams, each of which keeps a posting list of document ids. A search counts
+ * shared grams to find candidates (a string within k edits of the term loses at most 2k of
+ * its bigrams and 3k of its trigrams) and never looks at a document that shares none. Short
+ * terms have too few grams for that bound to filter anything, so at least one shared gram
+ * is required: a typo that destroys every gram of a short term is not found. Names are
+ * scored first, with a bounded approximate-substring edit distance falling back to a
+ * subsequence match, and whole paths only while the names have not already filled the
+ * result. Each pass scores at most {@value #MAX_CANDIDATES} candidates, those sharing the
+ * most grams. Files are added and removed incrementally; removed ids are tombstoned and the
+ * postings are compacted once tombstones pile up.
+ */
+public class TrigramIndex {
+    static final int MAX_CANDIDATES = 4096;
+
+    private final Map<String, Integer> idsByPath = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private final List<String> lowerNames = new ArrayList<>();
+    private final List<String> lowerPaths = new ArrayList<>();
+    // Bigrams of the lowercase names and trigrams of the lowercase paths
+    private final Map<Long, IntList> namePostings = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+    private int[] counters = new int[0];
+
+    /**
+     * A scored search hit.
+     */
+    public static final class Match {
+        // Best first: fewest edits, name before path, shortest name
+        private static final Comparator<Match> ORDER = Comparator.comparingInt(Match::getDistance)
+                .thenComparing(m -> !m.isNameMatch())
+                .thenComparingInt(m -> m.nameLength)
+                .thenComparing(Match::getFilePath);
+
+        private final String filePath;
+        private final int distance;
+        private final boolean nameMatch;
+        private final int nameLength;
+
+        Match(String filePath, int distance, boolean nameMatch, int nameLength) {
+            this.filePath = filePath;
+            this.distance = distance;
+            this.nameMatch = nameMatch;
+            this.nameLength = nameLength;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * Gets the number of edits needed to find the term in the file name or path.
+         * Exact substring hits have distance 0; subsequence-only hits rank after all others.
+         *
+         * @return The edit distance
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * Checks whether the match was found in the file name rather than the directory part.
+         *
+         * @return true for file name matches
+         */
+        public boolean isNameMatch() {
+            return nameMatch;
+        }
+
+        @Override
+        public String toString() {
+            return filePath + " (distance " + distance + ")";
+        }
+    }
+
+    /**
+     * Adds or replaces a file.
+     *
+     * @param filePath The file path
+     * @param fileName The file name
+     */
+    public synchronized void add(String filePath, String fileName) {
+        remove(filePath);
+
+        int id = paths.size();
+        String lowerName = fileName.toLowerCase();
+        String lowerPath = filePath.toLowerCase();
+        paths.add(filePath);
+        lowerNames.add(lowerName);
+        lowerPaths.add(lowerPath);
+        idsByPath.put(filePath, id);
+
+        for (long gram : bigrams(lowerName)) {
+            namePostings.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+        for (long gram : trigrams(lowerPath)) {
+            postings.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+    }
+
+    /**
+     * Removes a file if it is indexed.
+     *
+     * @param filePath The file path
+     */
+    public synchronized void remove(String filePath) {
+        Integer id = idsByPath.remove(filePath);
+        if (id == null) {
+            return;
+        }
+        removed.set(id);
+        removedCount++;
+        if (removedCount > 64 && removedCount > idsByPath.size() / 4) {
+            compact();
+        }
+    }
+
+    /**
+     * Gets the number of indexed files.
+     *
+     * @return The live document count
+     */
+    public synchronized int size() {
+        return idsByPath.size();
+    }
+
+    /**
+     * Searches file names and paths, tolerating typos.
+     *
+     * @param term The search term
+     * @param limit The maximum number of matches
+     * @return Matches ordered best first
+     */
+    public synchronized List<Match> search(String term, int limit) {
+        String needle = term == null ? "" : term.trim().toLowerCase();
+        if (needle.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int maxEdits = maxEditsFor(needle.length());
+
+        List<Match> matches = new ArrayList<>();
+        BitSet matched = new BitSet();
+        Map<Integer, Match> subsequences = new HashMap<>();
+        int[] nameDistances = new int[maxEdits + 1];
+        for (int id : nameCandidates(needle)) {
+            String name = lowerNames.get(id);
+            int distance = substringDistance(needle, name, maxEdits);
+            if (distance <= maxEdits) {
+                matches.add(new Match(paths.get(id), distance, true, name.length()));
+                matched.set(id);
+                nameDistances[distance]++;
+            } else if (isSubsequence(needle, name)) {
+                // Ranks after every edit match, so a closer path match replaces it
+                subsequences.put(id, new Match(paths.get(id), maxEdits + 1, true, name.length()));
+            }
+        }
+        // A path match only outranks name matches with more edits, so once the names fill the
+        // result the paths are searched with fewer edits, or not at all
+        int pathEdits = maxEdits;
+        for (int distance = 0, found = 0; distance <= maxEdits; distance++) {
+            found += nameDistances[distance];
+            if (found >= limit) {
+                pathEdits = distance - 1;
+                break;
+            }
+        }
+        if (pathEdits >= 0) {
+            for (int id : candidates(trigrams(needle), postings, 3 * pathEdits, lowerPaths,
+                    needle.length() - pathEdits)) {
+                if (matched.get(id)) {
+                    continue;
+                }
+                int distance = substringDistance(needle, lowerPaths.get(id), pathEdits);
+                if (distance <= pathEdits) {
+                    matches.add(new Match(paths.get(id), distance, false, lowerNames.get(id).length()));
+                    matched.set(id);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Match> entry : subsequences.entrySet()) {
+            if (!matched.get(entry.getKey())) {
+                matches.add(entry.getValue());
+            }
+        }
+
+        return TopK.select(matches, Match.ORDER, limit);
+    }
+
+    /**
+     * Allows one typo in short terms and more as the term gets longer.
+     */
+    static int maxEditsFor(int length) {
+        if (length <= 4) {
+            return 1;
+        }
+        return length <= 8 ? 2 : 3;
+    }
+
+    /**
+     * Finds the documents whose names share enough bigrams with a term to be worth scoring.
+     */
+    int[] nameCandidates(String needle) {
+        int maxEdits = maxEditsFor(needle.length());
+        return candidates(bigrams(needle), namePostings, 2 * maxEdits, lowerNames, needle.length() - maxEdits);
+    }
+
+    /**
+     * Counts the grams each document shares with the term through the posting lists.
+     *
+     * @param grams The term's grams
+     * @param index The posting lists to count in
+     * @param maxLost How many grams the allowed edits can destroy
+     * @param texts The indexed texts, for the length filter
+     * @param minLength The shortest text that can still match
+     * @return The live documents sharing the most grams, at most {@link #MAX_CANDIDATES}
+     */
+    private int[] candidates(Set<Long> grams, Map<Long, IntList> index, int maxLost, List<String> texts,
+            int minLength) {
+        if (grams.isEmpty()) {
+            return new int[0];
+        }
+        int minShared = Math.max(1, grams.size() - maxLost);
+        if (counters.length < paths.size()) {
+            counters = new int[Math.max(paths.size(), counters.length * 2)];
+        }
+        IntList touched = new IntList();
+        for (long gram : grams) {
+            IntList posting = index.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.size; i++) {
+                int id = posting.values[i];
+                if (counters[id]++ == 0) {
+                    touched.add(id);
+                }
+            }
+        }
+        // Drop documents that cannot match and count how many share each number of grams
+        int[] sharing = new int[grams.size() + 1];
+        int total = 0;
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.values[i];
+            if (counters[id] < minShared || removed.get(id) || texts.get(id).length() < minLength) {
+                counters[id] = 0;
+            } else {
+                sharing[counters[id]]++;
+                total++;
+            }
+        }
+        // Keep the documents sharing the most grams; the last bucket taken may only partly fit
+        int cutoff = minShared;
+        if (total > MAX_CANDIDATES) {
+            cutoff = grams.size();
+            int kept = sharing[cutoff];
+            while (kept < MAX_CANDIDATES) {
+                cutoff--;
+                kept += sharing[cutoff];
+            }
+        }
+        IntList result = new IntList();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < touched.size && result.size < MAX_CANDIDATES; i++) {
+                int count = counters[touched.values[i]];
+                if (pass == 0 ? count > cutoff : count == cutoff) {
+                    result.add(touched.values[i]);
+                }
+            }
+        }
+        for (int i = 0; i < touched.size; i++) {
+            counters[touched.values[i]] = 0;
+        }
+        return Arrays.copyOf(result.values, result.size);
+    }
+
+    /**
+     * Computes the smallest edit distance between the needle and any substring of the text.
+     *
+     * @return The distance, capped at {@code maxEdits + 1}
+     */
+    static int substringDistance(String needle, String text, int maxEdits) {
+        if (text.contains(needle)) {
+            return 0;
+        }
+        int m = needle.length();
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            previous[i] = i;
+        }
+        // A free first row lets the match start anywhere in the text
+        int best = previous[m];
+        for (int j = 1; j <= text.length() && best > 1; j++) {
+            current[0] = 0;
+            char c = text.charAt(j - 1);
+            for (int i = 1; i <= m; i++) {
+                int cost = needle.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            }
+            best = Math.min(best, current[m]);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(best, maxEdits + 1);
+    }
+
+    static boolean isSubsequence(String needle, String text) {
+        int i = 0;
+        for (int j = 0; j < text.length() && i < needle.length(); j++) {
+            if (needle.charAt(i) == text.charAt(j)) {
+                i++;
+            }
+        }
+        return i == needle.length();
+    }
+
+    private static Set<Long> bigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 16) | text.charAt(i + 1));
+        }
+        return grams;
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private void compact() {
+        List<String> livePaths = new ArrayList<>();
+        List<String> liveNames = new ArrayList<>();
+        for (int id = 0; id < paths.size(); id++) {
+            if (!removed.get(id)) {
+                livePaths.add(paths.get(id));
+                liveNames.add(lowerNames.get(id));
+            }
+        }
+        idsByPath.clear();
+        paths.clear();
+        lowerNames.clear();
+        lowerPaths.clear();
+        namePostings.clear();
+        postings.clear();
+        removed.clear();
+        removedCount = 0;
+        for (int i = 0; i < livePaths.size(); i++) {
+            add(livePaths.get(i), liveNames.get(i));
+        }
+    }
+
+    /**
+     * Growable array of document ids in insertion (ascending) order.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
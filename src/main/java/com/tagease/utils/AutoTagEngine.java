@@ -0,0 +1,267 @@
+package com.tagease.utils;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+
+/**
+ * Decides which tags a file gets from the auto-tag rules.
+ * Rules are compiled once: extensions into a hash map, folders into a trie of path segments,
+ * globs into {@link PathMatcher}s and size and date ranges into numeric bounds, so matching a
+ * file costs one map lookup, one walk down its path and a pass over the globs and ranges,
+ * however many extension and folder rules there are. Compiled engines are immutable and can be
+ * shared between threads.
+ */
+public class AutoTagEngine {
+
+    private static final Pattern SIZE = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*([kmgt]?)i?b?");
+
+    private final Map<String, Set<String>> byExtension = new HashMap<>();
+    private final PrefixNode prefixes = new PrefixNode();
+    private final List<GlobRule> globs = new ArrayList<>();
+    private final List<RangeRule> sizeRanges = new ArrayList<>();
+    private final List<RangeRule> modifiedRanges = new ArrayList<>();
+    private final int ruleCount;
+
+    private static final class PrefixNode {
+        private final Map<String, PrefixNode> children = new HashMap<>();
+        private final Set<String> tags = new HashSet<>();
+    }
+
+    private static final class GlobRule {
+        private final PathMatcher matcher;
+        private final boolean nameOnly;
+        private final String tag;
+
+        GlobRule(PathMatcher matcher, boolean nameOnly, String tag) {
+            this.matcher = matcher;
+            this.nameOnly = nameOnly;
+            this.tag = tag;
+        }
+    }
+
+    private static final class RangeRule {
+        private final long min;
+        private final long max;
+        private final String tag;
+
+        RangeRule(long min, long max, String tag) {
+            this.min = min;
+            this.max = max;
+            this.tag = tag;
+        }
+    }
+
+    private AutoTagEngine(int ruleCount) {
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Compiles rules into an engine.
+     *
+     * @param rules The rules
+     * @return The compiled engine
+     * @throws IllegalArgumentException If a rule's pattern is invalid
+     */
+    public static AutoTagEngine compile(Collection<AutoTagRule> rules) {
+        AutoTagEngine engine = new AutoTagEngine(rules.size());
+        FileSystem fileSystem = FileSystems.getDefault();
+        for (AutoTagRule rule : rules) {
+            String pattern = rule.getPattern() != null ? rule.getPattern().trim() : "";
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Auto-tag rule for '" + rule.getTag() + "' has no pattern");
+            }
+            switch (rule.getKind()) {
+                case EXTENSION:
+                    String extension = pattern.startsWith(".") ? pattern.substring(1) : pattern;
+                    engine.byExtension.computeIfAbsent(extension.toLowerCase(Locale.ROOT), e -> new HashSet<>())
+                            .add(rule.getTag());
+                    break;
+                case PATH_PREFIX:
+                    PrefixNode node = engine.prefixes;
+                    for (String segment : segments(toPath(pattern))) {
+                        node = node.children.computeIfAbsent(segment, s -> new PrefixNode());
+                    }
+                    node.tags.add(rule.getTag());
+                    break;
+                case GLOB:
+                    try {
+                        engine.globs.add(new GlobRule(fileSystem.getPathMatcher("glob:" + pattern),
+                                !pattern.contains("/"), rule.getTag()));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid glob '" + pattern + "': " + e.getMessage(), e);
+                    }
+                    break;
+                case SIZE:
+                    long[] sizes = parseRange(pattern, AutoTagEngine::parseSize);
+                    engine.sizeRanges.add(new RangeRule(sizes[0], sizes[1], rule.getTag()));
+                    break;
+                case MODIFIED:
+                    long[] dates = parseRange(pattern, AutoTagEngine::parseDay);
+                    // The end date is inclusive, so the range runs to the last millisecond of that day
+                    long end = dates[1] == Long.MAX_VALUE ? Long.MAX_VALUE : dates[1] + 24L * 60 * 60 * 1000 - 1;
+                    engine.modifiedRanges.add(new RangeRule(dates[0], end, rule.getTag()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown rule kind " + rule.getKind());
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Creates an engine without rules.
+     */
+    public static AutoTagEngine empty() {
+        return new AutoTagEngine(0);
+    }
+
+    public boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    /**
+     * Gets the tags the rules give a file. Size and date rules only apply to files with a
+     * fingerprint.
+     *
+     * @param file The file
+     * @return The matching tags; empty if no rule matches
+     */
+    public Set<String> tagsFor(TaggedFile file) {
+        Set<String> tags = new HashSet<>();
+        if (ruleCount == 0) {
+            return tags;
+        }
+        Path path;
+        try {
+            path = Paths.get(file.getFilePath());
+        } catch (InvalidPathException e) {
+            return tags;
+        }
+
+        String name = file.getFileName() != null ? file.getFileName() : String.valueOf(path.getFileName());
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0 && dot < name.length() - 1) {
+            Set<String> extensionTags = byExtension.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+            if (extensionTags != null) {
+                tags.addAll(extensionTags);
+            }
+        }
+
+        PrefixNode node = prefixes;
+        for (String segment : segments(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+            tags.addAll(node.tags);
+        }
+
+        Path fileName = path.getFileName();
+        for (GlobRule glob : globs) {
+            Path target = glob.nameOnly ? fileName : path;
+            if (target != null && glob.matcher.matches(target)) {
+                tags.add(glob.tag);
+            }
+        }
+
+        FileFingerprint fingerprint = file.getFingerprint();
+        if (fingerprint != null) {
+            addMatching(sizeRanges, fingerprint.getSize(), tags);
+            addMatching(modifiedRanges, fingerprint.getModifiedMillis(), tags);
+        }
+        return tags;
+    }
+
+    private static void addMatching(List<RangeRule> ranges, long value, Set<String> tags) {
+        for (RangeRule range : ranges) {
+            if (value >= range.min && value <= range.max) {
+                tags.add(range.tag);
+            }
+        }
+    }
+
+    private static Path toPath(String pattern) {
+        try {
+            return Paths.get(pattern).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid folder '" + pattern + "'", e);
+        }
+    }
+
+    private static List<String> segments(Path path) {
+        List<String> segments = new ArrayList<>();
+        if (path.getRoot() != null) {
+            segments.add(path.getRoot().toString());
+        }
+        for (Path name : path) {
+            segments.add(name.toString());
+        }
+        return segments;
+    }
+
+    /**
+     * Parses {@code min..max}, where either end may be left open, or a single value.
+     */
+    private static long[] parseRange(String pattern, ValueParser parser) {
+        int separator = pattern.indexOf("..");
+        if (separator < 0) {
+            long value = parser.parse(pattern);
+            return new long[] {value, value};
+        }
+        String from = pattern.substring(0, separator).trim();
+        String to = pattern.substring(separator + 2).trim();
+        if (from.isEmpty() && to.isEmpty()) {
+            throw new IllegalArgumentException("Range '" + pattern + "' has no bounds");
+        }
+        long min = from.isEmpty() ? Long.MIN_VALUE : parser.parse(from);
+        long max = to.isEmpty() ? Long.MAX_VALUE : parser.parse(to);
+        if (max < min) {
+            throw new IllegalArgumentException("Range '" + pattern + "' ends before it starts");
+        }
+        return new long[] {min, max};
+    }
+
+    @FunctionalInterface
+    private interface ValueParser {
+        long parse(String text);
+    }
+
+    private static long parseSize(String text) {
+        Matcher size = SIZE.matcher(text.toLowerCase(Locale.ROOT));
+        if (!size.matches()) {
+            throw new IllegalArgumentException("Invalid size '" + text + "' (use e.g. 500k, 10mb or 1g)");
+        }
+        String unit = size.group(2);
+        long multiplier = unit.isEmpty() ? 1 : 1L << (10 * ("kmgt".indexOf(unit) + 1));
+        return (long) (Double.parseDouble(size.group(1)) * multiplier);
+    }
+
+    private static long parseDay(String text) {
+        try {
+            return LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + text + "' (use e.g. 2024-01-31)", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Computes content hashes for catalogued files in the background.
+ * A file is only read when it has no hash yet or its size or modification time changed since
+ * the recorded fingerprint, so repeated runs over an unchanged library cost one attribute read
+ * per file. Hashing runs on at most {@code parallelism} threads and reads no faster than the
+ * hasher's {@link IoBudget} allows.
+ */
+public class ContentHashJob {
+
+    private final ContentHasher hasher;
+    private final int parallelism;
+
+    public ContentHashJob(ContentHasher hasher, int parallelism) {
+        this.hasher = hasher;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Hashes the files whose content may have changed.
+     *
+     * @param files The files to consider
+     * @param listener Receives progress from worker threads, or null
+     * @param token Cancels the job
+     * @return The new fingerprint, including the content hash, for each file that was hashed
+     * @throws CancellationException If the token is cancelled
+     */
+    public Map<String, FileFingerprint> run(Collection<TaggedFile> files, ProgressListener listener,
+            CancellationToken token) {
+        Map<String, FileFingerprint> hashed = new ConcurrentHashMap<>();
+        if (files.isEmpty()) {
+            return hashed;
+        }
+        int total = files.size();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, total), runnable -> {
+            Thread thread = new Thread(runnable, "content-hasher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(total);
+            for (TaggedFile file : files) {
+                futures.add(executor.submit(() -> {
+                    token.throwIfCancelled();
+                    FileFingerprint fingerprint = hashIfChanged(file);
+                    if (fingerprint != null) {
+                        hashed.put(file.getFilePath(), fingerprint);
+                    }
+                    if (listener != null) {
+                        listener.onProgress(done.incrementAndGet(), total);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        token.throwIfCancelled();
+        return hashed;
+    }
+
+    /**
+     * Hashes one file unless its recorded hash is still current.
+     *
+     * @return The new fingerprint, or null if the file was skipped or cannot be read
+     */
+    private FileFingerprint hashIfChanged(TaggedFile file) throws InterruptedException {
+        FileFingerprint current;
+        Path path;
+        try {
+            path = Paths.get(file.getFilePath());
+            current = FileFingerprint.read(path);
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+        FileFingerprint recorded = file.getFingerprint();
+        if (recorded != null && recorded.getContentHash() != null
+                && recorded.getSize() == current.getSize()
+                && recorded.getModifiedMillis() == current.getModifiedMillis()) {
+            return null;
+        }
+        try {
+            return current.withContentHash(hasher.hash(path));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Content hashing was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw new CancellationException("Content hashing was interrupted");
+            }
+            throw new IllegalStateException("Content hashing failed", e.getCause());
+        }
+    }
+}
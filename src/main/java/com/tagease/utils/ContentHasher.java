@@ -0,0 +1,175 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes file contents for duplicate detection and relinking.
+ * Files of at least {@value #MAP_THRESHOLD} bytes are read through {@link FileChannel#map}
+ * in windows of up to {@value #MAP_WINDOW} bytes, so the page cache is hashed in place;
+ * smaller files are streamed through a per-thread direct buffer, which avoids the setup cost
+ * of a mapping. XXH64 is the default; SHA-256 is available when a cryptographic hash is
+ * wanted. Results carry their algorithm as a prefix (e.g. {@code xxh64:...}) so stored
+ * hashes stay comparable when the default changes. An optional {@link IoBudget} limits how
+ * fast the hasher reads.
+ */
+public class ContentHasher {
+    static final int MAP_THRESHOLD = 1 << 20;
+    static final int MAP_WINDOW = 64 << 20;
+    private static final int STREAM_BUFFER_SIZE = 64 << 10;
+
+    private static final ThreadLocal<ByteBuffer> STREAM_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE));
+
+    /**
+     * Supported hash functions.
+     */
+    public enum Algorithm {
+        XXH64("xxh64"),
+        SHA256("sha256");
+
+        private final String prefix;
+
+        Algorithm(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        /**
+         * Finds the algorithm that produced a stored hash.
+         *
+         * @param hash A hash returned by {@link ContentHasher#hash(Path)}
+         * @return The algorithm, or null if the prefix is unknown
+         */
+        public static Algorithm of(String hash) {
+            for (Algorithm algorithm : values()) {
+                if (hash != null && hash.startsWith(algorithm.prefix + ":")) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Algorithm algorithm;
+    private final IoBudget budget;
+
+    public ContentHasher() {
+        this(Algorithm.XXH64, IoBudget.unlimited());
+    }
+
+    public ContentHasher(Algorithm algorithm, IoBudget budget) {
+        this.algorithm = algorithm;
+        this.budget = budget;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Hashes a file's content.
+     *
+     * @param path The file
+     * @return The prefixed hex hash
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If interrupted while waiting for the I/O budget
+     */
+    public String hash(Path path) throws IOException, InterruptedException {
+        Sink sink = algorithm == Algorithm.SHA256 ? new Sha256Sink() : new XxhSink();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+                    long length = Math.min(MAP_WINDOW, size - offset);
+                    budget.acquire(length);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                    sink.update(window);
+                }
+            } else {
+                ByteBuffer buffer = STREAM_BUFFER.get();
+                buffer.clear();
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    budget.acquire(buffer.remaining());
+                    sink.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return algorithm.prefix + ":" + sink.hex();
+    }
+
+    /**
+     * Checks whether a file's content matches a stored hash, using the stored hash's algorithm.
+     *
+     * @param path The file
+     * @param storedHash A prefixed hash
+     * @return true if the hashes are equal
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If interrupted while waiting for the I/O budget
+     */
+    public boolean matches(Path path, String storedHash) throws IOException, InterruptedException {
+        Algorithm stored = Algorithm.of(storedHash);
+        if (stored == null) {
+            return false;
+        }
+        ContentHasher hasher = stored == algorithm ? this : new ContentHasher(stored, budget);
+        return storedHash.equals(hasher.hash(path));
+    }
+
+    private interface Sink {
+        void update(ByteBuffer buffer);
+
+        String hex();
+    }
+
+    private static final class XxhSink implements Sink {
+        private final XXHash64 hash = new XXHash64();
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            hash.update(buffer);
+        }
+
+        @Override
+        public String hex() {
+            return String.format("%016x", hash.getValue());
+        }
+    }
+
+    private static final class Sha256Sink implements Sink {
+        private final MessageDigest digest;
+
+        Sha256Sink() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            digest.update(buffer);
+        }
+
+        @Override
+        public String hex() {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import com.tagease.database.TaggedFileDAO.RelinkTarget;
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Finds where missing files were moved or renamed to.
+ * The library roots are walked once; the walk already yields each file's attributes, so
+ * every candidate is fingerprinted without extra system calls and put into two hash maps,
+ * one by file key (same file system moves) and one by size and modification time (moves
+ * across file systems). Each missing file is then matched with O(1) lookups. Only files
+ * whose size matches some missing file are indexed, which keeps the maps small. When size
+ * and time match several candidates the recorded content hash picks the right one; without
+ * a hash an ambiguous match is left alone rather than guessed.
+ */
+public class FileRelinker {
+
+    private final List<Path> roots;
+    private final ContentHasher hasher;
+
+    public FileRelinker(Collection<Path> roots) {
+        this(roots, new ContentHasher());
+    }
+
+    public FileRelinker(Collection<Path> roots, ContentHasher hasher) {
+        this.roots = new ArrayList<>(roots);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Finds the new location of each missing file that can be identified.
+     *
+     * @param missingFiles The files tagged missing, with their recorded fingerprints
+     * @param catalogPaths Every catalogued path; files already in the catalog are never targets
+     * @param token Cancels the walk
+     * @return The new location for each old path that was found
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public Map<String, RelinkTarget> findMoves(Collection<TaggedFile> missingFiles, Set<String> catalogPaths,
+            CancellationToken token) {
+        Set<Long> sizes = new HashSet<>();
+        for (TaggedFile file : missingFiles) {
+            if (file.getFingerprint() != null) {
+                sizes.add(file.getFingerprint().getSize());
+            }
+        }
+        Map<String, RelinkTarget> moves = new LinkedHashMap<>();
+        if (sizes.isEmpty()) {
+            return moves;
+        }
+
+        Map<String, RelinkTarget> byFileKey = new HashMap<>();
+        Map<String, List<RelinkTarget>> bySizeAndTime = new HashMap<>();
+        for (Path root : roots) {
+            walk(root, sizes, catalogPaths, byFileKey, bySizeAndTime, token);
+        }
+
+        Set<String> claimed = new HashSet<>();
+        for (TaggedFile file : missingFiles) {
+            FileFingerprint recorded = file.getFingerprint();
+            if (recorded == null) {
+                continue;
+            }
+            RelinkTarget target = match(recorded, byFileKey, bySizeAndTime);
+            if (target != null && claimed.add(target.getFilePath())) {
+                moves.put(file.getFilePath(), target);
+            }
+        }
+        return moves;
+    }
+
+    private RelinkTarget match(FileFingerprint recorded, Map<String, RelinkTarget> byFileKey,
+            Map<String, List<RelinkTarget>> bySizeAndTime) {
+        if (recorded.getFileKey() != null) {
+            RelinkTarget sameFile = byFileKey.get(recorded.getFileKey());
+            // File keys are recycled after deletion, so the size must agree as well
+            if (sameFile != null && sameFile.getFingerprint().getSize() == recorded.getSize()) {
+                return withHash(sameFile, recorded.getContentHash());
+            }
+        }
+        List<RelinkTarget> candidates = bySizeAndTime.get(recorded.getSizeAndTimeKey());
+        if (candidates == null) {
+            return null;
+        }
+        if (recorded.getContentHash() == null) {
+            return candidates.size() == 1 ? candidates.get(0) : null;
+        }
+        for (RelinkTarget candidate : candidates) {
+            try {
+                // Hashed with the recorded hash's algorithm, whatever the current default is
+                if (hasher.matches(Paths.get(candidate.getFilePath()), recorded.getContentHash())) {
+                    return withHash(candidate, recorded.getContentHash());
+                }
+            } catch (IOException e) {
+                // Unreadable candidate; try the next one
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Relink was interrupted");
+            }
+        }
+        return null;
+    }
+
+    private static RelinkTarget withHash(RelinkTarget target, String hash) {
+        if (hash == null) {
+            return target;
+        }
+        return new RelinkTarget(target.getFilePath(), target.getFileName(),
+                target.getFingerprint().withContentHash(hash));
+    }
+
+    private static void walk(Path root, Set<Long> sizes, Set<String> catalogPaths,
+            Map<String, RelinkTarget> byFileKey, Map<String, List<RelinkTarget>> bySizeAndTime,
+            CancellationToken token) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    token.throwIfCancelled();
+                    if (!attrs.isRegularFile() || !sizes.contains(attrs.size())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String path = file.toString();
+                    if (catalogPaths.contains(path)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    FileFingerprint fingerprint = FileFingerprint.of(attrs);
+                    RelinkTarget target = new RelinkTarget(path, file.getFileName().toString(), fingerprint);
+                    if (fingerprint.getFileKey() != null) {
+                        byFileKey.put(fingerprint.getFileKey(), target);
+                    }
+                    bySizeAndTime.computeIfAbsent(fingerprint.getSizeAndTimeKey(), k -> new ArrayList<>()).add(target);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Unreadable entries are skipped, not fatal
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error walking " + root + ": " + e.getMessage());
+        }
+    }
+}
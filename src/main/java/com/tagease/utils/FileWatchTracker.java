@@ -0,0 +1,318 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the missing/present state of tagged files up to date while the application runs.
+ * One watch key is registered per distinct parent directory, and delete, create and modify
+ * events for tracked names are turned into status changes. When events were dropped
+ * (OVERFLOW) only the affected directory is re-checked. A directory that disappears marks
+ * all of its files missing and the nearest existing ancestor is watched instead, so the
+ * files are picked up again when the directory comes back; that stand-in key is dropped once
+ * no missing directory below it needs it.
+ */
+public class FileWatchTracker implements AutoCloseable {
+
+    /**
+     * Receives status changes on the callback executor.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called with the files whose existence changed since the last call.
+         *
+         * @param missing Tracked files that no longer exist
+         * @param present Tracked files that exist again or were modified
+         */
+        void filesChanged(Set<String> missing, Set<String> present);
+    }
+
+    private final WatchService watchService;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+
+    private final Map<Path, Set<String>> trackedNames = new HashMap<>();
+    private final Map<Path, WatchKey> keysByDirectory = new HashMap<>();
+    private final Map<WatchKey, Path> directoriesByKey = new HashMap<>();
+    // Tracked directories that do not exist right now
+    private final Set<Path> unwatched = new HashSet<>();
+    // Watched directories without tracked files, kept only for missing directories below them
+    private final Set<Path> standIns = new HashSet<>();
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param callbackExecutor Runs listener calls, e.g. {@code Platform::runLater}
+     * @param listener Receives status changes
+     * @throws IOException If the file system does not support watching
+     */
+    public FileWatchTracker(Executor callbackExecutor, Listener listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching a file's directory if it is not watched yet.
+     *
+     * @param filePath The file path
+     */
+    public synchronized void track(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        Path directory = path.getParent();
+        if (directory == null) {
+            return;
+        }
+        trackedNames.computeIfAbsent(directory, d -> new HashSet<>()).add(path.getFileName().toString());
+        standIns.remove(directory);
+        if (!keysByDirectory.containsKey(directory) && !unwatched.contains(directory)) {
+            watch(directory);
+        }
+    }
+
+    /**
+     * Stops tracking a file, dropping its directory's watch key when nothing else needs it.
+     *
+     * @param filePath The file path
+     */
+    public synchronized void untrack(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        Path directory = path.getParent();
+        Set<String> names = directory != null ? trackedNames.get(directory) : null;
+        if (names == null) {
+            return;
+        }
+        names.remove(path.getFileName().toString());
+        if (names.isEmpty()) {
+            trackedNames.remove(directory);
+            unwatched.remove(directory);
+            if (isAncestorOfUnwatched(directory)) {
+                standIns.add(directory);
+            } else {
+                cancel(directory);
+            }
+            releaseStandIns();
+        }
+    }
+
+    /**
+     * Gets the number of directories with a live watch key.
+     *
+     * @return The directory count
+     */
+    public synchronized int getWatchedDirectoryCount() {
+        return keysByDirectory.size();
+    }
+
+    /**
+     * Starts the background thread that waits for events.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::processEvents, "file-watch-tracker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread and releases all watch keys.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file watcher: " + e.getMessage());
+        }
+    }
+
+    private void processEvents() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Map<String, Boolean> changes = new LinkedHashMap<>();
+            synchronized (this) {
+                Path directory = directoriesByKey.get(key);
+                if (directory != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        handle(directory, event, changes);
+                    }
+                    if (!key.reset()) {
+                        directoryGone(directory, changes);
+                    }
+                    releaseStandIns();
+                }
+            }
+            publish(changes);
+        }
+    }
+
+    private void handle(Path directory, WatchEvent<?> event, Map<String, Boolean> changes) {
+        WatchEvent.Kind<?> kind = event.kind();
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            rescan(directory, changes);
+            return;
+        }
+        Path child = directory.resolve((Path) event.context());
+        Set<String> names = trackedNames.get(directory);
+        if (names != null && names.contains(child.getFileName().toString())) {
+            changes.put(child.toString(), kind != StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            reattach(child, changes);
+        }
+    }
+
+    /**
+     * Re-checks every tracked file of one directory after events were lost.
+     */
+    private void rescan(Path directory, Map<String, Boolean> changes) {
+        Set<String> names = trackedNames.get(directory);
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            Path path = directory.resolve(name);
+            changes.put(path.toString(), Files.exists(path));
+        }
+    }
+
+    private void directoryGone(Path directory, Map<String, Boolean> changes) {
+        cancel(directory);
+        Set<String> names = trackedNames.get(directory);
+        if (names != null) {
+            for (String name : names) {
+                changes.put(directory.resolve(name).toString(), false);
+            }
+            unwatched.add(directory);
+            watchAncestor(directory);
+            if (Files.isDirectory(directory)) {
+                // Recreated before the ancestor was watched, so no create event will come
+                unwatched.remove(directory);
+                watch(directory);
+                rescan(directory, changes);
+            }
+        }
+        // Directories that were waiting on this one need a new ancestor too
+        for (Path waiting : new HashSet<>(unwatched)) {
+            if (waiting.startsWith(directory)) {
+                watchAncestor(waiting);
+            }
+        }
+    }
+
+    /**
+     * Resumes watching tracked directories at or below a newly created path.
+     */
+    private void reattach(Path created, Map<String, Boolean> changes) {
+        for (Path waiting : new HashSet<>(unwatched)) {
+            if (waiting.startsWith(created) && Files.isDirectory(waiting)) {
+                unwatched.remove(waiting);
+                watch(waiting);
+                rescan(waiting, changes);
+            } else if (waiting.startsWith(created)) {
+                watchAncestor(waiting);
+            }
+        }
+    }
+
+    private void watch(Path directory) {
+        try {
+            WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            keysByDirectory.put(directory, key);
+            directoriesByKey.put(key, directory);
+        } catch (IOException e) {
+            unwatched.add(directory);
+            watchAncestor(directory);
+        } catch (ClosedWatchServiceException e) {
+            // Closed while tracking; nothing left to watch
+        }
+    }
+
+    private void watchAncestor(Path directory) {
+        for (Path ancestor = directory.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (keysByDirectory.containsKey(ancestor)) {
+                return;
+            }
+            if (Files.isDirectory(ancestor)) {
+                watch(ancestor);
+                if (!trackedNames.containsKey(ancestor)) {
+                    standIns.add(ancestor);
+                }
+                return;
+            }
+        }
+    }
+
+    private void cancel(Path directory) {
+        standIns.remove(directory);
+        WatchKey key = keysByDirectory.remove(directory);
+        if (key != null) {
+            directoriesByKey.remove(key);
+            key.cancel();
+        }
+    }
+
+    /**
+     * Cancels the stand-in keys that no missing directory depends on any more.
+     */
+    private void releaseStandIns() {
+        for (Path standIn : new HashSet<>(standIns)) {
+            if (!isAncestorOfUnwatched(standIn)) {
+                cancel(standIn);
+            }
+        }
+    }
+
+    private boolean isAncestorOfUnwatched(Path directory) {
+        for (Path waiting : unwatched) {
+            if (waiting.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(Map<String, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<String> missing = new LinkedHashSet<>();
+        Set<String> present = new LinkedHashSet<>();
+        for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+            (change.getValue() ? present : missing).add(change.getKey());
+        }
+        callbackExecutor.execute(() -> listener.filesChanged(missing, present));
+    }
+}
@@ -0,0 +1,402 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Imports a folder tree into the catalog.
+ * The root's subdirectories are walked in parallel with {@link Files#walkFileTree}, each walk
+ * reusing the attributes it already read to fingerprint the file. Walkers put files into a
+ * bounded queue and block when it is full, so a fast disk cannot run ahead of the database;
+ * the calling thread drains the queue in batches and hands each batch to a {@link BatchSink},
+ * which writes it in one transaction.
+ */
+public class FolderImporter {
+
+    private static final int DEFAULT_WALKERS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long POLL_MILLIS = 100;
+    private static final long WALKER_STOP_MILLIS = 1_000;
+
+    // Marks the end of the walk in the queue
+    private static final TaggedFile END = new TaggedFile("", "");
+
+    private final int walkers;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    /**
+     * Writes one batch of files.
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        /**
+         * @param batch The files to write
+         * @return The number of files actually added; the rest were already catalogued
+         */
+        int write(List<TaggedFile> batch);
+    }
+
+    /**
+     * Receives progress from the importing thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Snapshot of a running or finished import.
+     */
+    public static final class Progress {
+        private final int discovered;
+        private final int imported;
+        private final int skipped;
+        private final int queued;
+        private final int queueCapacity;
+
+        Progress(int discovered, int imported, int skipped, int queued, int queueCapacity) {
+            this.discovered = discovered;
+            this.imported = imported;
+            this.skipped = skipped;
+            this.queued = queued;
+            this.queueCapacity = queueCapacity;
+        }
+
+        /** Gets the number of files found by the walk that passed the filters. */
+        public int getDiscovered() {
+            return discovered;
+        }
+
+        /** Gets the number of files added to the catalog. */
+        public int getImported() {
+            return imported;
+        }
+
+        /** Gets the number of files that were already catalogued. */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /** Gets the number of files waiting to be written. */
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /** Tells whether the walk is waiting for the database to catch up. */
+        public boolean isThrottled() {
+            return queued >= queueCapacity;
+        }
+    }
+
+    /**
+     * Include and exclude globs, matched against paths relative to the imported folder.
+     * Globs without a slash, like {@code *.pdf} or {@code node_modules}, match a file or
+     * directory name at any depth. Excluded directories are not walked at all.
+     */
+    public static final class Filter {
+        private final List<PathMatcher> includes = new ArrayList<>();
+        private final List<PathMatcher> excludes = new ArrayList<>();
+
+        public Filter(Collection<String> includeGlobs, Collection<String> excludeGlobs) {
+            FileSystem fileSystem = FileSystems.getDefault();
+            for (String glob : includeGlobs) {
+                includes.add(matcher(fileSystem, glob));
+            }
+            for (String glob : excludeGlobs) {
+                excludes.add(matcher(fileSystem, glob));
+            }
+        }
+
+        /**
+         * Creates a filter that accepts everything.
+         */
+        public static Filter all() {
+            return new Filter(List.of(), List.of());
+        }
+
+        private static PathMatcher matcher(FileSystem fileSystem, String glob) {
+            String pattern = glob.trim();
+            PathMatcher exact = fileSystem.getPathMatcher("glob:" + pattern);
+            if (pattern.contains("/")) {
+                return exact;
+            }
+            return path -> path.getFileName() != null && exact.matches(path.getFileName());
+        }
+
+        boolean isExcluded(Path relative) {
+            for (PathMatcher matcher : excludes) {
+                if (matcher.matches(relative)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean accepts(Path relative) {
+            if (isExcluded(relative)) {
+                return false;
+            }
+            if (includes.isEmpty()) {
+                return true;
+            }
+            for (PathMatcher matcher : includes) {
+                if (matcher.matches(relative)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static final class Result {
+        private final int discovered;
+        private final int imported;
+        private final int skipped;
+
+        Result(int discovered, int imported, int skipped) {
+            this.discovered = discovered;
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+
+        public int getDiscovered() {
+            return discovered;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+    }
+
+    public FolderImporter() {
+        this(DEFAULT_WALKERS, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public FolderImporter(int walkers, int queueCapacity, int batchSize) {
+        this.walkers = Math.max(1, walkers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports every accepted regular file under a folder. Files are written as they are found,
+     * so a cancelled import keeps the batches written before it stopped.
+     *
+     * @param root The folder to import
+     * @param filter Selects the files to import
+     * @param tags The tags given to every imported file
+     * @param sink Writes each batch, on the calling thread
+     * @param listener Receives progress after each batch, or null
+     * @param token Cancels the import
+     * @return The import result
+     * @throws CancellationException If the token is cancelled
+     */
+    public Result importFolder(Path root, Filter filter, Set<String> tags, BatchSink sink, Listener listener,
+            CancellationToken token) {
+        BlockingQueue<TaggedFile> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger discovered = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(walkers, runnable -> {
+            Thread thread = new Thread(runnable, "folder-import-walker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger pendingWalks = new AtomicInteger(1);
+        try {
+            // Files directly in the root are walked alongside the subdirectory walks
+            executor.execute(() -> {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attributes = readAttributes(entry);
+                        if (attributes == null) {
+                            continue;
+                        }
+                        if (attributes.isDirectory()) {
+                            if (!filter.isExcluded(root.relativize(entry))) {
+                                token.throwIfCancelled();
+                                pendingWalks.incrementAndGet();
+                                try {
+                                    executor.execute(() -> walk(root, entry, filter, tags, queue, discovered,
+                                            token, pendingWalks));
+                                } catch (RejectedExecutionException e) {
+                                    // The import already stopped, e.g. because the sink failed
+                                    pendingWalks.decrementAndGet();
+                                    throw new CancellationException("Folder import has stopped");
+                                }
+                            }
+                        } else {
+                            offer(root, entry, attributes, filter, tags, queue, discovered, token);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error listing " + root + ": " + e.getMessage());
+                } catch (CancellationException | InterruptedException e) {
+                    // The consumer notices the cancellation itself
+                } finally {
+                    finishWalk(pendingWalks, queue);
+                }
+            });
+
+            return consume(queue, sink, listener, discovered, token);
+        } finally {
+            executor.shutdownNow();
+            awaitWalkers(executor);
+        }
+    }
+
+    // Walkers stop at their next cancellation check or blocking call, so none outlive the import
+    private static void awaitWalkers(ExecutorService executor) {
+        try {
+            executor.awaitTermination(WALKER_STOP_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result consume(BlockingQueue<TaggedFile> queue, BatchSink sink, Listener listener,
+            AtomicInteger discovered, CancellationToken token) {
+        int written = 0;
+        int imported = 0;
+        List<TaggedFile> batch = new ArrayList<>(batchSize);
+        boolean done = false;
+        while (!done) {
+            token.throwIfCancelled();
+            TaggedFile next;
+            try {
+                next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Folder import was interrupted");
+            }
+            if (next == END) {
+                done = true;
+            } else if (next != null) {
+                batch.add(next);
+                queue.drainTo(batch, batchSize - batch.size());
+                done = batch.remove(END);
+            }
+            // A poll that timed out means the walk is slow; write what has arrived instead of
+            // waiting for a full batch
+            boolean flush = batch.size() >= batchSize || ((done || next == null) && !batch.isEmpty());
+            if (flush) {
+                written += batch.size();
+                imported += sink.write(batch);
+                batch = new ArrayList<>(batchSize);
+                if (listener != null) {
+                    listener.onProgress(new Progress(discovered.get(), imported, written - imported,
+                            queue.size(), queueCapacity));
+                }
+            }
+        }
+        return new Result(discovered.get(), imported, written - imported);
+    }
+
+    private static void walk(Path root, Path directory, Filter filter, Set<String> tags,
+            BlockingQueue<TaggedFile> queue, AtomicInteger discovered, CancellationToken token,
+            AtomicInteger pendingWalks) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    token.throwIfCancelled();
+                    return filter.isExcluded(root.relativize(dir)) ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    try {
+                        offer(root, file, attrs, filter, tags, queue, discovered, token);
+                    } catch (InterruptedException e) {
+                        throw new CancellationException("Folder import was interrupted");
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Unreadable entries are skipped, not fatal
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error walking " + directory + ": " + e.getMessage());
+        } catch (CancellationException e) {
+            // The consumer notices the cancellation itself
+        } finally {
+            finishWalk(pendingWalks, queue);
+        }
+    }
+
+    private static void offer(Path root, Path file, BasicFileAttributes attributes, Filter filter, Set<String> tags,
+            BlockingQueue<TaggedFile> queue, AtomicInteger discovered, CancellationToken token)
+            throws InterruptedException {
+        if (!attributes.isRegularFile() || !filter.accepts(root.relativize(file))) {
+            return;
+        }
+        TaggedFile taggedFile = new TaggedFile(file.getFileName().toString(), file.toAbsolutePath().toString(),
+                new HashSet<>(tags));
+        taggedFile.setFingerprint(FileFingerprint.of(attributes));
+        taggedFile.setMimeType(MetadataRefresher.probeMimeType(file));
+        // Blocks while the queue is full; this is the backpressure on the walkers
+        while (!queue.offer(taggedFile, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            token.throwIfCancelled();
+        }
+        discovered.incrementAndGet();
+    }
+
+    private static void finishWalk(AtomicInteger pendingWalks, BlockingQueue<TaggedFile> queue) {
+        if (pendingWalks.decrementAndGet() == 0) {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
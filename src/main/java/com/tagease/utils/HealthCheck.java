@@ -1,28 +1,38 @@
 package com.tagease.utils;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.tagease.database.DatabaseConfig;
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.TaggedFile;
-import com.tagease.view.MainView;
-
-import javafx.scene.control.Alert;
-import javafx.scene.control.Alert.AlertType;
+import com.tagease.search.CancellationToken;
 
 /**
- * Utility class for performing health checks on the application.
- * Checks database existence, file path integrity, and other system health aspects.
+ * Background health check of the catalog and the machine it runs on.
+ * One run scans every catalogued file with a {@link MissingFileScanner} on a couple of threads,
+ * so the same scan keeps the Missing tag current and reports missing files. Present files that
+ * have no fingerprint yet get one, so they can be found again if they are moved later; memory
+ * and disk space are checked once per run. Nothing here touches the UI or the database: the caller runs
+ * it off the UI thread and applies the result through the controller.
  */
 public class HealthCheck {
-    
+
     private static final String DB_NAME = "tagease.db";
-    
+    // Two scanner threads keep the check from competing with the UI and other jobs for the disk
+    private static final int DEFAULT_THREADS = 2;
+    private static final long LOW_MEMORY_MB = 50;
+    private static final long LOW_DISK_SPACE_MB = 100;
+
+    private final MissingFileScanner scanner;
+
     /**
      * Result class for health check operations
      */
@@ -30,42 +40,76 @@ public class HealthCheck {
         private boolean success;
         private String message;
         private final Map<String, List<FilePathStatus>> filePathIssues;
-        
+        private MissingFileScanner.Result scan;
+        private final Map<String, FileFingerprint> fingerprints;
+        private final LocalDateTime completedAt;
+
         public HealthCheckResult() {
             this.success = true;
             this.message = "Health check completed successfully.";
             this.filePathIssues = new HashMap<>();
+            this.fingerprints = new HashMap<>();
+            this.completedAt = LocalDateTime.now();
         }
-        
+
         public boolean isSuccess() {
             return success;
         }
-        
+
         public void setSuccess(boolean success) {
             this.success = success;
         }
-        
+
         public String getMessage() {
             return message;
         }
-        
+
         public void setMessage(String message) {
             this.message = message;
         }
-        
+
         public Map<String, List<FilePathStatus>> getFilePathIssues() {
             return filePathIssues;
         }
-        
+
         public void addFilePathIssue(String category, FilePathStatus status) {
             filePathIssues.computeIfAbsent(category, k -> new ArrayList<>()).add(status);
         }
-        
+
         public boolean hasFilePathIssues() {
             return !filePathIssues.isEmpty();
         }
+
+        /**
+         * Gets the file scan behind this result, for bringing the Missing tag up to date.
+         *
+         * @return The scan, or null if the files were not scanned
+         */
+        public MissingFileScanner.Result getScan() {
+            return scan;
+        }
+
+        /**
+         * Gets the fingerprints read for present files that had none.
+         *
+         * @return The fingerprint of each such file, by path
+         */
+        public Map<String, FileFingerprint> getFingerprints() {
+            return fingerprints;
+        }
+
+        public LocalDateTime getCompletedAt() {
+            return completedAt;
+        }
+
+        /**
+         * Gets the number of catalogued files that were not found on disk.
+         */
+        public int getMissingCount() {
+            return scan != null ? scan.getMissing().size() : 0;
+        }
     }
-    
+
     /**
      * Status class for file path issues
      */
@@ -73,215 +117,148 @@ public class HealthCheck {
         private final String filePath;
         private final String fileName;
         private final FileStatus status;
-        
+
         public FilePathStatus(String filePath, String fileName, FileStatus status) {
             this.filePath = filePath;
             this.fileName = fileName;
             this.status = status;
         }
-        
+
         public String getFilePath() {
             return filePath;
         }
-        
+
         public String getFileName() {
             return fileName;
         }
-        
+
         public FileStatus getStatus() {
             return status;
         }
     }
-    
+
     /**
      * Enum representing the status of a file
      */
     public enum FileStatus {
         MISSING("File is missing", "yellow"),
         OK("File is accessible", "green");
-        
+
         private final String description;
         private final String color;
-        
+
         FileStatus(String description, String color) {
             this.description = description;
             this.color = color;
         }
-        
+
         public String getDescription() {
             return description;
         }
-        
+
         public String getColor() {
             return color;
         }
     }
-    
+
+    public HealthCheck() {
+        this(new MissingFileScanner(DEFAULT_THREADS));
+    }
+
+    /**
+     * Creates a check whose scan fills and trusts the shared path status cache.
+     *
+     * @param statusCache The cache shared with the rest of the application
+     */
+    public HealthCheck(PathStatusCache statusCache) {
+        this(new MissingFileScanner(DEFAULT_THREADS, statusCache));
+    }
+
+    public HealthCheck(MissingFileScanner scanner) {
+        this.scanner = scanner;
+    }
+
     /**
-     * Performs a comprehensive health check on the application.
-     * 
-     * @param mainView The main view of the application to update UI elements
+     * Performs a health check.
+     *
+     * @param files The catalogued files, with their current tags
+     * @param listener Receives scan progress from worker threads, or null
+     * @param token Cancels the check
+     * @return The result
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
      */
-    public static void performHealthCheck(MainView mainView) {
+    public HealthCheckResult run(Collection<TaggedFile> files, ProgressListener listener, CancellationToken token) {
         HealthCheckResult result = new HealthCheckResult();
-        
-        // Check database existence
-        checkDatabaseExistence(result);
-        
-        // Check file paths integrity if database exists
-        if (result.isSuccess()) {
-            checkFilePathsIntegrity(result);
-        }
-        
-        // Check system resources
+        checkFilePathsIntegrity(files, result, listener, token);
+        readMissingFingerprints(files, result, token);
         checkSystemResources(result);
-        
-        // Update UI with missing files highlighted
-        updateUIWithMissingFiles(mainView, result);
-        
-        // Show notification if database was newly created
-        if (!result.isSuccess() && result.getMessage().contains("New database initialized")) {
-            showDatabaseInitializedNotification();
-        }
+        return result;
     }
-    
+
     /**
-     * Checks if the database exists and is accessible.
-     * If not, initializes a new database.
-     * 
+     * Checks which catalogued files still exist. Directories with several catalogued files are
+     * listed once instead of checking every path.
+     *
      * @param result The health check result to update
      */
-    private static void checkDatabaseExistence(HealthCheckResult result) {
-        File dbFile = new File(DB_NAME);
-        
-        if (!dbFile.exists()) {
-            result.setSuccess(false);
-            result.setMessage("Database file not found. A new database will be initialized.");
-            
-            // Try to initialize the database
-            try {
-                Connection conn = DatabaseConfig.getConnection();
-                if (conn != null && !conn.isClosed()) {
-                    result.setSuccess(true);
-                    result.setMessage("New database initialized successfully.");
-                }
-            } catch (SQLException e) {
-                result.setSuccess(false);
-                result.setMessage("Failed to initialize database: " + e.getMessage());
-            }
-        } else {
-            try {
-                Connection conn = DatabaseConfig.getConnection();
-                if (conn != null && !conn.isClosed()) {
-                    result.setSuccess(true);
-                    result.setMessage("Database connection successful.");
-                }
-            } catch (SQLException e) {
-                result.setSuccess(false);
-                result.setMessage("Database exists but connection failed: " + e.getMessage());
+    private void checkFilePathsIntegrity(Collection<TaggedFile> files, HealthCheckResult result,
+            ProgressListener listener, CancellationToken token) {
+        MissingFileScanner.Result scan = scanner.scan(files, listener, token);
+        result.scan = scan;
+        for (TaggedFile file : files) {
+            if (scan.getMissing().contains(file.getFilePath())) {
+                // File is missing (either deleted or moved)
+                result.addFilePathIssue("missing",
+                    new FilePathStatus(file.getFilePath(), file.getFileName(), FileStatus.MISSING));
             }
         }
     }
-    
+
     /**
-     * Checks the integrity of file paths stored in the database.
-     * Identifies missing files.
-     * 
+     * Reads fingerprints for present files that do not have one yet. Each file costs one
+     * attribute read, once.
+     *
      * @param result The health check result to update
      */
-    private static void checkFilePathsIntegrity(HealthCheckResult result) {
-        try {
-            Connection conn = DatabaseConfig.getConnection();
-            List<TaggedFile> files = new com.tagease.database.TaggedFileDAO(conn).getAllFiles();
-            
-            for (TaggedFile file : files) {
-                File physicalFile = new File(file.getFilePath());
-                
-                if (!physicalFile.exists()) {
-                    // File is missing (either deleted or moved)
-                    result.addFilePathIssue("missing", 
-                        new FilePathStatus(file.getFilePath(), file.getFileName(), FileStatus.MISSING));
-                }
+    private static void readMissingFingerprints(Collection<TaggedFile> files, HealthCheckResult result,
+            CancellationToken token) {
+        for (TaggedFile file : files) {
+            if (file.getFingerprint() != null || result.scan.getMissing().contains(file.getFilePath())) {
+                continue;
+            }
+            token.throwIfCancelled();
+            try {
+                result.fingerprints.put(file.getFilePath(), FileFingerprint.read(Paths.get(file.getFilePath())));
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                // Unreadable now; the next check tries again
             }
-        } catch (SQLException e) {
-            result.setSuccess(false);
-            result.setMessage("Failed to check file paths due to database error: " + e.getMessage());
-        } catch (Exception e) {
-            result.setSuccess(false);
-            result.setMessage("Failed to check file paths: " + e.getMessage());
         }
     }
-    
+
     /**
      * Checks system resources like available memory and disk space.
-     * 
+     *
      * @param result The health check result to update
      */
     private static void checkSystemResources(HealthCheckResult result) {
         // Check available memory
         long freeMemory = Runtime.getRuntime().freeMemory() / (1024 * 1024);
         long totalMemory = Runtime.getRuntime().totalMemory() / (1024 * 1024);
-        
-        if (freeMemory < 50) { // Less than 50MB free
+
+        if (freeMemory < LOW_MEMORY_MB) {
             result.setSuccess(false);
             result.setMessage(result.getMessage() + " Low memory available: " + freeMemory + "MB out of " + totalMemory + "MB.");
         }
-        
+
         // Check disk space where the database is stored
-        File dbFile = new File(DB_NAME);
-        // Get absolute file to ensure we have a valid path
-        File absoluteDbFile = dbFile.getAbsoluteFile();
-        // Get the directory containing the database file
-        File dbDirectory = absoluteDbFile.getParentFile();
-        
-        if (dbDirectory != null) {
-            long freeSpace = dbDirectory.getFreeSpace() / (1024 * 1024);
-            
-            if (freeSpace < 100) { // Less than 100MB free
-                result.setSuccess(false);
-                result.setMessage(result.getMessage() + " Low disk space: " + freeSpace + "MB free.");
-            }
-        } else {
-            // If we can't determine the parent directory, use the current directory
-            File currentDir = new File(".");
-            long freeSpace = currentDir.getFreeSpace() / (1024 * 1024);
-            
-            if (freeSpace < 100) { // Less than 100MB free
-                result.setSuccess(false);
-                result.setMessage(result.getMessage() + " Low disk space: " + freeSpace + "MB free.");
-            }
+        File dbDirectory = new File(DB_NAME).getAbsoluteFile().getParentFile();
+        if (dbDirectory == null) {
+            dbDirectory = new File(".");
         }
-    }
-    
-    /**
-     * Updates the UI to highlight missing files in yellow.
-     * 
-     * @param mainView The main view to update
-     * @param result The health check result containing missing files
-     */
-    private static void updateUIWithMissingFiles(MainView mainView, HealthCheckResult result) {
-        if (result.hasFilePathIssues() && result.getFilePathIssues().containsKey("missing")) {
-            List<FilePathStatus> missingFiles = result.getFilePathIssues().get("missing");
-            
-            // Get the file paths of all missing files
-            List<String> missingFilePaths = new ArrayList<>();
-            for (FilePathStatus status : missingFiles) {
-                missingFilePaths.add(status.getFilePath());
-            }
-            
-            // Update the UI to highlight these files
-            mainView.highlightMissingFiles(missingFilePaths);
+        long freeSpace = dbDirectory.getFreeSpace() / (1024 * 1024);
+        if (freeSpace < LOW_DISK_SPACE_MB) {
+            result.setSuccess(false);
+            result.setMessage(result.getMessage() + " Low disk space: " + freeSpace + "MB free.");
         }
     }
-    
-    /**
-     * Shows a notification that a new database was initialized.
-     */
-    private static void showDatabaseInitializedNotification() {
-        Alert alert = new Alert(AlertType.INFORMATION);
-        alert.setTitle("Database Initialized");
-        alert.setHeaderText("New Database Created");
-        alert.setContentText("A new database has been initialized. You can now start adding files and tags.");
-        alert.show();
-    }
 }
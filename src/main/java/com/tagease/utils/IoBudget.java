@@ -0,0 +1,67 @@
+package com.tagease.utils;
+
+/**
+ * Token bucket that limits how many bytes per second background jobs read, shared by all of
+ * their threads, so hashing a large library does not starve the rest of the system of disk
+ * bandwidth. Up to one second of budget can be saved up for bursts.
+ */
+public final class IoBudget {
+    private final long bytesPerSecond;
+    private double available;
+    private long lastRefill;
+
+    private IoBudget(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = bytesPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Creates a budget.
+     *
+     * @param bytesPerSecond The sustained read rate
+     * @return The budget
+     */
+    public static IoBudget perSecond(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + bytesPerSecond);
+        }
+        return new IoBudget(bytesPerSecond);
+    }
+
+    /**
+     * Creates a budget that never waits.
+     *
+     * @return The budget
+     */
+    public static IoBudget unlimited() {
+        return new IoBudget(Long.MAX_VALUE);
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Takes bytes from the budget, sleeping until they are covered.
+     *
+     * @param bytes The number of bytes about to be read
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        if (bytesPerSecond == Long.MAX_VALUE) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            available = Math.min(bytesPerSecond, available + (now - lastRefill) * (bytesPerSecond / 1e9));
+            lastRefill = now;
+            available -= bytes;
+            waitNanos = available < 0 ? (long) (-available / bytesPerSecond * 1e9) : 0;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.tagease.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Patches a displayed list into a new ordered list with as few operations as possible.
+ * Items are matched by key. Items whose key disappeared are removed; of the items that stay,
+ * the longest run already in the right relative order (a longest increasing subsequence of
+ * their new positions) is left in place and only the others are moved; new keys are
+ * inserted; and kept items whose content changed are replaced in place. Contiguous removals
+ * and insertions are applied as one range each, so an observable list fires few events and
+ * a list view only rebinds the rows that actually changed. When most items would move, the
+ * list is replaced outright instead.
+ */
+public final class ListReconciler {
+
+    private ListReconciler() {
+    }
+
+    /**
+     * What a reconciliation changed.
+     */
+    public static final class Result {
+        private int removed;
+        private int moved;
+        private int inserted;
+        private int updated;
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public int getMoved() {
+            return moved;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        /**
+         * Tells whether the list was left untouched.
+         */
+        public boolean isEmpty() {
+            return removed + moved + inserted + updated == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "removed=" + removed + ", moved=" + moved + ", inserted=" + inserted + ", updated=" + updated;
+        }
+    }
+
+    /**
+     * Makes a list equal to a new list, keeping items that did not change.
+     *
+     * @param target The list to patch, e.g. the items of a list view
+     * @param next The new items in display order; keys must be unique
+     * @param key Extracts the key items are matched by
+     * @param unchanged Tells whether the old item can stay in place of the new one with the same key
+     * @return What was changed
+     */
+    public static <T, K> Result reconcile(List<T> target, List<T> next, Function<T, K> key,
+            BiPredicate<T, T> unchanged) {
+        Result result = new Result();
+        Map<K, Integer> nextPositions = new HashMap<>(next.size() * 2);
+        for (int i = 0; i < next.size(); i++) {
+            nextPositions.put(key.apply(next.get(i)), i);
+        }
+
+        // Remove items that are gone, from the end so earlier indexes stay valid
+        for (int end = target.size(); end > 0; ) {
+            if (nextPositions.containsKey(key.apply(target.get(end - 1)))) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !nextPositions.containsKey(key.apply(target.get(start - 1)))) {
+                start--;
+            }
+            target.subList(start, end).clear();
+            result.removed += end - start;
+            end = start;
+        }
+
+        // Keep the longest run already in order; every other kept item is moved
+        int[] positions = new int[target.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = nextPositions.get(key.apply(target.get(i)));
+        }
+        boolean[] stays = longestIncreasingSubsequence(positions);
+        int movers = 0;
+        for (boolean stay : stays) {
+            movers += stay ? 0 : 1;
+        }
+        if (movers > positions.length / 2) {
+            // Most items move, e.g. the sort order was flipped: one clear and one insert
+            // cost less than moving the items one by one
+            target.clear();
+            target.addAll(next);
+            result.moved = movers;
+            result.inserted = next.size() - positions.length;
+            return result;
+        }
+        for (int i = positions.length - 1; i >= 0; i--) {
+            if (!stays[i]) {
+                target.remove(i);
+                result.moved++;
+            }
+        }
+
+        // What is left is in order, so one pass inserts the missing items and updates the rest
+        int i = 0;
+        while (i < next.size()) {
+            T item = next.get(i);
+            if (i < target.size() && key.apply(target.get(i)).equals(key.apply(item))) {
+                if (!unchanged.test(target.get(i), item)) {
+                    target.set(i, item);
+                    result.updated++;
+                }
+                i++;
+                continue;
+            }
+            int start = i;
+            K expected = i < target.size() ? key.apply(target.get(i)) : null;
+            List<T> run = new ArrayList<>();
+            while (i < next.size() && (expected == null || !key.apply(next.get(i)).equals(expected))) {
+                run.add(next.get(i));
+                i++;
+            }
+            target.addAll(start, run);
+            result.inserted += run.size();
+        }
+        // Moved items were counted when they were taken out
+        result.inserted -= result.moved;
+        return result;
+    }
+
+    /**
+     * Marks the members of one longest strictly increasing subsequence, in O(n log n).
+     */
+    static boolean[] longestIncreasingSubsequence(int[] values) {
+        int n = values.length;
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] members = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            members[i] = true;
+        }
+        return members;
+    }
+}
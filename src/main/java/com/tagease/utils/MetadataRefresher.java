@@ -0,0 +1,174 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Keeps the cached size, modification time and MIME type of catalogued files current.
+ * Creating, deleting or replacing a file updates its directory's modification time, so each
+ * catalogued directory is stat'ed once and only the files of directories whose time changed
+ * since the last refresh (or that were never seen) are read again. Files without any cached
+ * metadata are always read. A file rewritten in place does not touch its directory; its new
+ * size and time are picked up by the content hash job, which stats every file anyway.
+ */
+public class MetadataRefresher {
+
+    /**
+     * Outcome of a refresh.
+     */
+    public static final class Result {
+        private final List<TaggedFile> changedFiles;
+        private final Map<String, Long> directoryStates;
+        private final int directoriesRescanned;
+
+        Result(List<TaggedFile> changedFiles, Map<String, Long> directoryStates, int directoriesRescanned) {
+            this.changedFiles = changedFiles;
+            this.directoryStates = directoryStates;
+            this.directoriesRescanned = directoriesRescanned;
+        }
+
+        /**
+         * Gets copies of the files whose metadata changed, carrying the new metadata.
+         *
+         * @return An unmodifiable list
+         */
+        public List<TaggedFile> getChangedFiles() {
+            return Collections.unmodifiableList(changedFiles);
+        }
+
+        /**
+         * Gets the new modification times of the directories that were rescanned.
+         *
+         * @return An unmodifiable map of epoch millis by directory path
+         */
+        public Map<String, Long> getDirectoryStates() {
+            return Collections.unmodifiableMap(directoryStates);
+        }
+
+        public int getDirectoriesRescanned() {
+            return directoriesRescanned;
+        }
+    }
+
+    /**
+     * Detects a file's content type from its name and, where the platform supports it, its content.
+     *
+     * @param path The file
+     * @return The MIME type, or null if it cannot be determined
+     */
+    public static String probeMimeType(Path path) {
+        try {
+            return Files.probeContentType(path);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Re-reads metadata of files in changed directories.
+     *
+     * @param files The catalogued files with their cached metadata
+     * @param knownStates The directory modification times recorded by the previous refresh
+     * @param token Cancels the refresh
+     * @return The changed files and the directory times to record
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public Result refresh(Collection<TaggedFile> files, Map<String, Long> knownStates, CancellationToken token) {
+        Map<Path, List<TaggedFile>> byDirectory = new LinkedHashMap<>();
+        for (TaggedFile file : files) {
+            if (file.getTags().contains(Tag.TAG_MISSING)) {
+                continue;
+            }
+            try {
+                Path parent = Paths.get(file.getFilePath()).getParent();
+                if (parent != null) {
+                    byDirectory.computeIfAbsent(parent, d -> new ArrayList<>()).add(file);
+                }
+            } catch (InvalidPathException e) {
+                // Not a path on this platform; nothing to stat
+            }
+        }
+
+        List<TaggedFile> changed = new ArrayList<>();
+        Map<String, Long> newStates = new HashMap<>();
+        int rescanned = 0;
+        for (Map.Entry<Path, List<TaggedFile>> entry : byDirectory.entrySet()) {
+            token.throwIfCancelled();
+            String directory = entry.getKey().toString();
+            Long modified = directoryModified(entry.getKey());
+            if (modified == null) {
+                continue;
+            }
+            boolean directoryChanged = !modified.equals(knownStates.get(directory));
+            if (directoryChanged) {
+                rescanned++;
+                newStates.put(directory, modified);
+            }
+            for (TaggedFile file : entry.getValue()) {
+                if (directoryChanged || file.getFingerprint() == null) {
+                    TaggedFile updated = restat(file);
+                    if (updated != null) {
+                        changed.add(updated);
+                    }
+                }
+            }
+        }
+        return new Result(changed, newStates, rescanned);
+    }
+
+    /**
+     * Reads one file's metadata again.
+     *
+     * @return A copy with the new metadata, or null if nothing changed or the file cannot be read
+     */
+    private static TaggedFile restat(TaggedFile file) {
+        Path path = Paths.get(file.getFilePath());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        FileFingerprint recorded = file.getFingerprint();
+        FileFingerprint current = FileFingerprint.of(attributes);
+        boolean contentUnchanged = recorded != null && recorded.getSize() == current.getSize()
+                && recorded.getModifiedMillis() == current.getModifiedMillis();
+        if (contentUnchanged) {
+            // Keep the content hash; it is still valid
+            current = current.withContentHash(recorded.getContentHash());
+        }
+        String mimeType = contentUnchanged && file.getMimeType() != null ? file.getMimeType() : probeMimeType(path);
+        if (current.equals(recorded) && Objects.equals(mimeType, file.getMimeType())) {
+            return null;
+        }
+        TaggedFile updated = new TaggedFile(file.getFileName(), file.getFilePath(), file.getTags());
+        updated.setFingerprint(current);
+        updated.setMimeType(mimeType);
+        return updated;
+    }
+
+    private static Long directoryModified(Path directory) {
+        try {
+            return Files.getLastModifiedTime(directory).toMillis();
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Finds catalogued files that disappeared from disk and missing files that came back, in one pass.
+ * Paths are grouped by parent directory and each directory with several catalogued files is
+ * listed once, so a folder of a thousand files costs one directory read instead of a thousand
+ * stat calls. Directories are checked in parallel on a small fixed pool because the cost is
+ * I/O latency (network home directories) rather than CPU.
+ */
+public class MissingFileScanner {
+
+    // Below this many files per directory a stat per file is cheaper than listing the directory
+    private static final int LISTING_THRESHOLD = 4;
+    private static final int DEFAULT_THREADS = 8;
+
+    private final int threads;
+    private final PathStatusCache statusCache;
+
+    /**
+     * Outcome of a scan.
+     */
+    public static final class Result {
+        private final Set<String> missing;
+        private final List<String> newlyMissing;
+        private final List<String> recovered;
+        private final int checked;
+
+        Result(Set<String> missing, List<String> newlyMissing, List<String> recovered, int checked) {
+            this.missing = missing;
+            this.newlyMissing = newlyMissing;
+            this.recovered = recovered;
+            this.checked = checked;
+        }
+
+        /**
+         * Gets every file that does not exist on disk.
+         *
+         * @return An unmodifiable set of paths
+         */
+        public Set<String> getMissing() {
+            return Collections.unmodifiableSet(missing);
+        }
+
+        /**
+         * Gets the missing files that do not carry the Missing tag yet.
+         *
+         * @return An unmodifiable list of paths
+         */
+        public List<String> getNewlyMissing() {
+            return Collections.unmodifiableList(newlyMissing);
+        }
+
+        /**
+         * Gets the files tagged Missing that exist again.
+         *
+         * @return An unmodifiable list of paths
+         */
+        public List<String> getRecovered() {
+            return Collections.unmodifiableList(recovered);
+        }
+
+        public int getChecked() {
+            return checked;
+        }
+
+        public boolean hasChanges() {
+            return !newlyMissing.isEmpty() || !recovered.isEmpty();
+        }
+    }
+
+    public MissingFileScanner() {
+        this(DEFAULT_THREADS);
+    }
+
+    public MissingFileScanner(int threads) {
+        this(threads, null);
+    }
+
+    public MissingFileScanner(PathStatusCache statusCache) {
+        this(DEFAULT_THREADS, statusCache);
+    }
+
+    /**
+     * Creates a scanner that shares what it learns with other users of the status cache and
+     * trusts its fresh entries instead of checking those files again.
+     *
+     * @param threads The number of directories checked at once
+     * @param statusCache The shared cache, or null
+     */
+    public MissingFileScanner(int threads, PathStatusCache statusCache) {
+        this.threads = Math.max(1, threads);
+        this.statusCache = statusCache;
+    }
+
+    /**
+     * Checks which files exist.
+     *
+     * @param files The files to check
+     * @return The scan result
+     */
+    public Result scan(Collection<TaggedFile> files) {
+        return scan(files, null, new CancellationToken());
+    }
+
+    /**
+     * Checks which files exist, reporting progress as directories complete.
+     *
+     * @param files The files to check
+     * @param listener Receives progress from worker threads, or null
+     * @param token Cancels the scan
+     * @return The scan result
+     * @throws CancellationException If the token is cancelled
+     */
+    public Result scan(Collection<TaggedFile> files, ProgressListener listener, CancellationToken token) {
+        Map<Path, List<TaggedFile>> byDirectory = new LinkedHashMap<>();
+        Set<String> missing = ConcurrentHashMap.newKeySet();
+        for (TaggedFile file : files) {
+            Path path = toPath(file.getFilePath());
+            if (path == null || path.getFileName() == null) {
+                missing.add(file.getFilePath());
+                continue;
+            }
+            byDirectory.computeIfAbsent(path.getParent(), d -> new ArrayList<>()).add(file);
+        }
+
+        int total = files.size();
+        AtomicInteger checked = new AtomicInteger(missing.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, byDirectory.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "missing-file-scanner");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<Future<?>> futures = new ArrayList<>(byDirectory.size());
+            for (Map.Entry<Path, List<TaggedFile>> entry : byDirectory.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    token.throwIfCancelled();
+                    checkDirectory(entry.getKey(), entry.getValue(), missing, statusCache);
+                    int done = checked.addAndGet(entry.getValue().size());
+                    if (listener != null) {
+                        listener.onProgress(done, total);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        token.throwIfCancelled();
+
+        List<String> newlyMissing = new ArrayList<>();
+        List<String> recovered = new ArrayList<>();
+        for (TaggedFile file : files) {
+            boolean tagged = file.getTags().contains(Tag.TAG_MISSING);
+            boolean isMissing = missing.contains(file.getFilePath());
+            if (isMissing && !tagged) {
+                newlyMissing.add(file.getFilePath());
+            } else if (!isMissing && tagged) {
+                recovered.add(file.getFilePath());
+            }
+        }
+        return new Result(missing, newlyMissing, recovered, checked.get());
+    }
+
+    private static void checkDirectory(Path directory, List<TaggedFile> files, Set<String> missing,
+            PathStatusCache statusCache) {
+        List<TaggedFile> unknown = files;
+        if (statusCache != null) {
+            unknown = new ArrayList<>();
+            for (TaggedFile file : files) {
+                Boolean exists = statusCache.peek(file.getFilePath());
+                if (exists == null) {
+                    unknown.add(file);
+                } else if (!exists) {
+                    missing.add(file.getFilePath());
+                }
+            }
+            if (unknown.isEmpty()) {
+                return;
+            }
+        }
+        Set<String> names = unknown.size() >= LISTING_THRESHOLD && directory != null ? list(directory) : null;
+        if (names != null && names.isEmpty()) {
+            // The directory itself is gone
+            for (TaggedFile file : unknown) {
+                missing.add(file.getFilePath());
+                record(statusCache, file.getFilePath(), false);
+            }
+            return;
+        }
+        for (TaggedFile file : unknown) {
+            Path path = Paths.get(file.getFilePath());
+            boolean listed = names != null && names.contains(path.getFileName().toString());
+            // Unlisted names get a stat too, which covers case-insensitive file systems
+            boolean exists = listed || Files.exists(path);
+            if (!exists) {
+                missing.add(file.getFilePath());
+            }
+            record(statusCache, file.getFilePath(), exists);
+        }
+    }
+
+    private static void record(PathStatusCache statusCache, String filePath, boolean exists) {
+        if (statusCache != null) {
+            statusCache.put(filePath, exists);
+        }
+    }
+
+    /**
+     * Lists a directory's entry names.
+     *
+     * @return The names, an empty set if the directory does not exist, or null if it cannot be read
+     */
+    private static Set<String> list(Path directory) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                names.add(entry.getFileName().toString());
+            }
+            if (names.isEmpty()) {
+                // An empty listing would read as "directory gone"; let the per-file check decide
+                return null;
+            }
+            return names;
+        } catch (NoSuchFileException e) {
+            return names;
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static Path toPath(String filePath) {
+        try {
+            return Paths.get(filePath);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Missing file scan was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            throw new IllegalStateException("Missing file scan failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import com.tagease.model.FileFingerprint;
+
+/**
+ * Short-lived cache of whether files exist and of their attributes, shared by the list view,
+ * the health check and file opening so the same path is not stat'ed again within a few
+ * seconds. Every entry expires after the time to live; the watcher invalidates entries
+ * sooner when it sees a file change. The cache holds at most a fixed number of entries and
+ * evicts the least recently used one first, so a huge library cannot grow it without bound.
+ * Directory listings can fill it in bulk through {@link #put(String, boolean)}.
+ */
+public class PathStatusCache {
+
+    private static final long DEFAULT_TTL_MILLIS = 5_000;
+    private static final int DEFAULT_MAX_ENTRIES = 20_000;
+
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    private static final class Entry {
+        private final boolean exists;
+        // Null when the entry came from a directory listing
+        private final FileFingerprint fingerprint;
+        private final long expiresAt;
+
+        Entry(boolean exists, FileFingerprint fingerprint, long expiresAt) {
+            this.exists = exists;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public PathStatusCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES, System::nanoTime);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param ttlMillis How long an entry is trusted
+     * @param maxEntries The number of entries kept at most
+     * @param nanoClock Supplies the current time in nanoseconds
+     */
+    public PathStatusCache(long ttlMillis, int maxEntries, LongSupplier nanoClock) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Tells whether a file exists, reading the file system only if no fresh entry is cached.
+     *
+     * @param filePath The file path
+     * @return true if the file exists
+     */
+    public boolean exists(String filePath) {
+        Entry entry = lookup(filePath);
+        return entry != null ? entry.exists : stat(filePath).exists;
+    }
+
+    /**
+     * Gets a file's fingerprint, reading it only if no fresh entry carries one.
+     *
+     * @param filePath The file path
+     * @return The fingerprint, or null if the file does not exist or cannot be read
+     */
+    public FileFingerprint getFingerprint(String filePath) {
+        Entry entry = lookup(filePath);
+        if (entry != null && (!entry.exists || entry.fingerprint != null)) {
+            return entry.fingerprint;
+        }
+        return stat(filePath).fingerprint;
+    }
+
+    /**
+     * Gets the cached existence of a file without touching the file system.
+     *
+     * @param filePath The file path
+     * @return Whether the file exists, or null if no fresh entry is cached
+     */
+    public Boolean peek(String filePath) {
+        Entry entry = lookup(filePath);
+        return entry != null ? entry.exists : null;
+    }
+
+    /**
+     * Records the existence of a file learned elsewhere, e.g. from a directory listing.
+     *
+     * @param filePath The file path
+     * @param exists Whether it exists
+     */
+    public synchronized void put(String filePath, boolean exists) {
+        entries.put(filePath, new Entry(exists, null, nanoClock.getAsLong() + ttlNanos));
+    }
+
+    /**
+     * Drops the entries of files that changed.
+     *
+     * @param filePaths The file paths
+     */
+    public synchronized void invalidate(Collection<String> filePaths) {
+        for (String filePath : filePaths) {
+            entries.remove(filePath);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private synchronized Entry lookup(String filePath) {
+        Entry entry = entries.get(filePath);
+        if (entry != null && entry.expiresAt - nanoClock.getAsLong() > 0) {
+            hits++;
+            return entry;
+        }
+        if (entry != null) {
+            entries.remove(filePath);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Reads a file's attributes outside the lock and caches the outcome.
+     */
+    private Entry stat(String filePath) {
+        boolean exists;
+        FileFingerprint fingerprint = null;
+        try {
+            Path path = Paths.get(filePath);
+            try {
+                fingerprint = FileFingerprint.read(path);
+                exists = true;
+            } catch (NoSuchFileException e) {
+                exists = false;
+            } catch (IOException | SecurityException e) {
+                // Unreadable attributes do not mean the file is gone
+                exists = Files.exists(path);
+            }
+        } catch (InvalidPathException e) {
+            exists = false;
+        }
+        Entry entry = new Entry(exists, fingerprint, nanoClock.getAsLong() + ttlNanos);
+        synchronized (this) {
+            entries.put(filePath, entry);
+        }
+        return entry;
+    }
+}
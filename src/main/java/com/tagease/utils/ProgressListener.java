@@ -0,0 +1,9 @@
+package com.tagease.utils;
+
+/**
+ * Receives progress updates from background jobs, possibly from worker threads.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    void onProgress(int done, int total);
+}
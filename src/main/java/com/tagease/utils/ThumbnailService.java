@@ -0,0 +1,332 @@
+package com.tagease.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Generates small previews of image files on a background pool.
+ * Images are downscaled while they are decoded (JavaFX requested-size loading), so a large
+ * photo never exists in memory at full resolution. Finished thumbnails are kept in a memory
+ * cache bounded by bytes and written to a disk cache keyed by path, size and modification
+ * time, so a file that changes gets a new thumbnail and an unchanged one is never decoded
+ * twice. The pool takes the newest request first: while scrolling, the rows now in view are
+ * served before the ones already scrolled past.
+ */
+public class ThumbnailService implements AutoCloseable {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    private static final int DEFAULT_SIZE = 64;
+    private static final long DEFAULT_MEMORY_BYTES = 32L << 20;
+    private static final long DEFAULT_DISK_BYTES = 128L << 20;
+    private static final int DEFAULT_THREADS = 2;
+    private static final String SUFFIX = ".thumb";
+
+    private final Path cacheDirectory;
+    private final int size;
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Executor callbackExecutor;
+    private final ThreadPoolExecutor pool;
+
+    private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, List<Consumer<Image>>> inFlight = new HashMap<>();
+    private long memoryBytes;
+    private long diskBytes = -1;
+
+    /**
+     * Takes the newest task first.
+     */
+    private static final class LifoQueue extends LinkedBlockingDeque<Runnable> {
+        @Override
+        public boolean offer(Runnable task) {
+            return offerFirst(task);
+        }
+    }
+
+    /**
+     * Creates a service with the default size and budgets.
+     *
+     * @param cacheDirectory Where thumbnails are stored
+     * @param callbackExecutor Runs the callbacks, e.g. {@code Platform::runLater}
+     */
+    public ThumbnailService(Path cacheDirectory, Executor callbackExecutor) {
+        this(cacheDirectory, DEFAULT_SIZE, DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES, DEFAULT_THREADS, callbackExecutor);
+    }
+
+    /**
+     * Creates a service.
+     *
+     * @param cacheDirectory Where thumbnails are stored
+     * @param size The largest width and height of a thumbnail in pixels
+     * @param memoryBudget The number of pixel bytes kept in memory at most
+     * @param diskBudget The number of bytes kept on disk at most
+     * @param threads The number of images decoded at once
+     * @param callbackExecutor Runs the callbacks, e.g. {@code Platform::runLater}
+     */
+    public ThumbnailService(Path cacheDirectory, int size, long memoryBudget, long diskBudget, int threads,
+            Executor callbackExecutor) {
+        this.cacheDirectory = cacheDirectory;
+        this.size = size;
+        this.memoryBudget = memoryBudget;
+        this.diskBudget = diskBudget;
+        this.callbackExecutor = callbackExecutor;
+        int poolSize = Math.max(1, threads);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LifoQueue(), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-loader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Tells whether a file is an image this service can preview.
+     *
+     * @param fileName The file name
+     * @return true for supported image extensions
+     */
+    public static boolean isSupported(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets a thumbnail from memory without loading anything.
+     *
+     * @param file The image file
+     * @return The thumbnail, or null if it is not in memory
+     */
+    public synchronized Image getCached(TaggedFile file) {
+        return memory.get(key(file));
+    }
+
+    /**
+     * Delivers a file's thumbnail to a callback. A thumbnail in memory is delivered right away
+     * on the calling thread; otherwise it is loaded from the disk cache or decoded in the
+     * background and delivered on the callback executor. Files that cannot be decoded get no
+     * callback.
+     *
+     * @param file The image file, with its fingerprint if known
+     * @param onReady Receives the thumbnail
+     */
+    public void request(TaggedFile file, Consumer<Image> onReady) {
+        String key = key(file);
+        synchronized (this) {
+            Image cached = memory.get(key);
+            if (cached != null) {
+                onReady.accept(cached);
+                return;
+            }
+            List<Consumer<Image>> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(onReady);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(onReady);
+            inFlight.put(key, waiting);
+        }
+        pool.execute(() -> {
+            Image image = load(file, key);
+            List<Consumer<Image>> callbacks;
+            synchronized (this) {
+                callbacks = inFlight.remove(key);
+                if (image != null) {
+                    remember(key, image);
+                }
+            }
+            if (image != null) {
+                callbackExecutor.execute(() -> callbacks.forEach(callback -> callback.accept(image)));
+            }
+        });
+    }
+
+    /**
+     * Gets the number of pixel bytes held in memory.
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Stops the background pool; queued requests are dropped.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private Image load(TaggedFile file, String key) {
+        Path cached = cacheDirectory.resolve(key + SUFFIX);
+        Image image = readCached(cached);
+        if (image != null) {
+            return image;
+        }
+        Path source = Paths.get(file.getFilePath());
+        if (!Files.isRegularFile(source)) {
+            return null;
+        }
+        // Decoded straight to the requested size on this thread
+        Image decoded = new Image(source.toUri().toString(), size, size, true, true, false);
+        if (decoded.isError() || decoded.getWidth() <= 0) {
+            return null;
+        }
+        writeCached(cached, decoded);
+        return decoded;
+    }
+
+    private void remember(String key, Image image) {
+        memory.put(key, image);
+        memoryBytes += bytes(image);
+        // The map is in access order, so the eldest entry is the least recently shown
+        while (memoryBytes > memoryBudget && memory.size() > 1) {
+            Map.Entry<String, Image> eldest = memory.entrySet().iterator().next();
+            memoryBytes -= bytes(eldest.getValue());
+            memory.remove(eldest.getKey());
+        }
+    }
+
+    private static long bytes(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    /**
+     * Builds the cache key from the path and, when known, the size and modification time,
+     * so an edited file does not show a stale thumbnail.
+     */
+    static String key(TaggedFile file) {
+        FileFingerprint fingerprint = file.getFingerprint();
+        String identity = file.getFilePath() + (fingerprint != null
+                ? "|" + fingerprint.getSize() + "|" + fingerprint.getModifiedMillis() : "");
+        return String.format("%016x", XXHash64.hash(identity.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads a thumbnail stored as width, height and deflated ARGB pixels.
+     */
+    private static Image readCached(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(path);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)))) {
+            int width = data.readInt();
+            int height = data.readInt();
+            int[] pixels = new int[width * height];
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = data.readInt();
+            }
+            WritableImage image = new WritableImage(width, height);
+            image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+            // Reading refreshes the time the disk cache evicts by
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return image;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void writeCached(Path path, Image image) {
+        PixelReader reader = image.getPixelReader();
+        if (reader == null) {
+            return;
+        }
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path temp = Files.createTempFile(cacheDirectory, "thumb", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(out)))) {
+                data.writeInt(width);
+                data.writeInt(height);
+                for (int pixel : pixels) {
+                    data.writeInt(pixel);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trimDisk(Files.size(path));
+        } catch (IOException e) {
+            System.err.println("Could not cache thumbnail: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the least recently used thumbnails once the disk cache outgrows its budget,
+     * down to three quarters of it so the directory is not listed on every write.
+     */
+    private synchronized void trimDisk(long added) throws IOException {
+        if (diskBytes < 0) {
+            diskBytes = 0;
+            for (Path entry : listCached()) {
+                diskBytes += Files.size(entry);
+            }
+        } else {
+            diskBytes += added;
+        }
+        if (diskBytes <= diskBudget) {
+            return;
+        }
+        List<Path> entries = listCached();
+        Map<Path, FileTime> times = new HashMap<>();
+        for (Path entry : entries) {
+            times.put(entry, Files.getLastModifiedTime(entry));
+        }
+        entries.sort((a, b) -> times.get(a).compareTo(times.get(b)));
+        for (Path entry : entries) {
+            if (diskBytes <= diskBudget * 3 / 4) {
+                break;
+            }
+            long entrySize = Files.size(entry);
+            if (Files.deleteIfExists(entry)) {
+                diskBytes -= entrySize;
+            }
+        }
+    }
+
+    private List<Path> listCached() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, "*" + SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
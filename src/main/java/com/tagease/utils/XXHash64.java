@@ -0,0 +1,137 @@
+package com.tagease.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming XXH64, a fast non-cryptographic 64-bit hash.
+ * Input is consumed in 32-byte stripes across four accumulators; a partial stripe is kept
+ * between {@link #update(ByteBuffer)} calls, so feeding a file in chunks of any size gives
+ * the same result as hashing it in one piece.
+ */
+public final class XXHash64 {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+    private final ByteBuffer pending = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+
+    public XXHash64() {
+        this(0);
+    }
+
+    public XXHash64(long seed) {
+        this.seed = seed;
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+    }
+
+    /**
+     * Hashes a byte array in one call.
+     *
+     * @param data The input
+     * @return The 64-bit hash
+     */
+    public static long hash(byte[] data) {
+        XXHash64 hash = new XXHash64();
+        hash.update(ByteBuffer.wrap(data));
+        return hash.getValue();
+    }
+
+    /**
+     * Consumes the remaining bytes of a buffer. The buffer's position is advanced to its limit.
+     *
+     * @param buffer The input
+     */
+    public void update(ByteBuffer buffer) {
+        ByteBuffer in = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(buffer.limit());
+        totalLength += in.remaining();
+
+        if (pending.position() > 0) {
+            while (pending.hasRemaining() && in.hasRemaining()) {
+                pending.put(in.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            pending.flip();
+            stripe(pending);
+            pending.clear();
+        }
+        while (in.remaining() >= 32) {
+            stripe(in);
+        }
+        while (in.hasRemaining()) {
+            pending.put(in.get());
+        }
+    }
+
+    /**
+     * Gets the hash of everything consumed so far. More input may still be added afterwards.
+     *
+     * @return The 64-bit hash
+     */
+    public long getValue() {
+        long h;
+        if (totalLength >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+        h += totalLength;
+
+        ByteBuffer tail = pending.duplicate().flip().order(ByteOrder.LITTLE_ENDIAN);
+        while (tail.remaining() >= 8) {
+            h ^= round(0, tail.getLong());
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (tail.remaining() >= 4) {
+            h ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+        }
+        while (tail.hasRemaining()) {
+            h ^= (tail.get() & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private void stripe(ByteBuffer in) {
+        v1 = round(v1, in.getLong());
+        v2 = round(v2, in.getLong());
+        v3 = round(v3, in.getLong());
+        v4 = round(v4, in.getLong());
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long merge(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+}
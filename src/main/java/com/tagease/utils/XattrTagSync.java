@@ -0,0 +1,223 @@
+package com.tagease.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+/**
+ * Mirrors file tags into an extended attribute so other tools and other TagEase catalogs can
+ * read them without the database. On Linux the attribute appears as {@code user.tagease.tags}
+ * and holds the tag names, sorted and comma-separated, in UTF-8. The Missing tag describes
+ * the catalog's view of the file, not the file, and is never written.
+ * Writes are coalesced: {@link #schedule} only records the latest tags of a file, and a single
+ * background thread writes everything pending once no new change arrived for the delay, so a
+ * burst of tag edits costs one write per file.
+ */
+public class XattrTagSync implements AutoCloseable {
+
+    /** The attribute name inside the user namespace. */
+    public static final String ATTRIBUTE = "tagease.tags";
+
+    private static final long DEFAULT_DELAY_MILLIS = 500;
+
+    private final long delayMillis;
+    private final Map<String, Set<String>> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService writer;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public XattrTagSync() {
+        this(DEFAULT_DELAY_MILLIS);
+    }
+
+    public XattrTagSync(long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xattr-tag-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether the file system holding a path supports user-defined attributes.
+     *
+     * @param path A file or directory
+     * @return true if tags can be synced there
+     */
+    public static boolean isSupported(Path path) {
+        try {
+            return Files.getFileStore(path).supportsFileAttributeView(UserDefinedFileAttributeView.class);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the tags stored on a file.
+     *
+     * @param path The file
+     * @return The tags, or null if the file has no tag attribute or it cannot be read
+     */
+    public static Set<String> read(Path path) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return null;
+        }
+        try {
+            if (!view.list().contains(ATTRIBUTE)) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(view.size(ATTRIBUTE));
+            view.read(ATTRIBUTE, buffer);
+            buffer.flip();
+            return decode(StandardCharsets.UTF_8.decode(buffer).toString());
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the tags of a file immediately; an empty tag set removes the attribute.
+     *
+     * @param path The file
+     * @param tags The tags to store
+     * @return true if the attribute was written
+     */
+    public static boolean write(Path path, Set<String> tags) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return false;
+        }
+        String value = encode(tags);
+        try {
+            if (value.isEmpty()) {
+                if (view.list().contains(ATTRIBUTE)) {
+                    view.delete(ATTRIBUTE);
+                }
+            } else {
+                view.write(ATTRIBUTE, StandardCharsets.UTF_8.encode(value));
+            }
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the tag attribute of many files and merges it with their catalogued tags.
+     * Tags are only ever added from either side, so a tag removed in one catalog comes back
+     * if the file still carries it; this keeps the sync free of lost updates.
+     *
+     * @param files The catalogued files
+     * @param token Cancels the scan
+     * @return The merged tags of each file whose attribute has tags the catalog lacks
+     * @throws java.util.concurrent.CancellationException If the token is cancelled
+     */
+    public static Map<String, Set<String>> readAll(Collection<TaggedFile> files, CancellationToken token) {
+        Map<String, Set<String>> merged = new HashMap<>();
+        for (TaggedFile file : files) {
+            token.throwIfCancelled();
+            if (file.getTags().contains(Tag.TAG_MISSING)) {
+                continue;
+            }
+            Set<String> stored;
+            try {
+                stored = read(Paths.get(file.getFilePath()));
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            if (stored != null && !file.getTags().containsAll(stored)) {
+                Set<String> tags = new TreeSet<>(file.getTags());
+                tags.addAll(stored);
+                merged.put(file.getFilePath(), tags);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Queues the latest tags of a file to be written once edits pause.
+     *
+     * @param filePath The file
+     * @param tags Its current tags
+     */
+    public synchronized void schedule(String filePath, Set<String> tags) {
+        pending.put(filePath, new TreeSet<>(tags));
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = writer.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every queued change now.
+     *
+     * @return The number of files written
+     */
+    public int flush() {
+        Map<String, Set<String>> batch;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        int written = 0;
+        for (Map.Entry<String, Set<String>> entry : batch.entrySet()) {
+            try {
+                if (write(Paths.get(entry.getKey()), entry.getValue())) {
+                    written++;
+                }
+            } catch (InvalidPathException e) {
+                // Not a path on this platform; nothing to write
+            }
+        }
+        return written;
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes what is still queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        writer.shutdownNow();
+        flush();
+    }
+
+    static String encode(Set<String> tags) {
+        Set<String> sorted = new TreeSet<>(tags);
+        sorted.remove(Tag.TAG_MISSING);
+        return String.join(",", sorted);
+    }
+
+    static Set<String> decode(String value) {
+        Set<String> tags = new TreeSet<>();
+        for (String tag : value.split(",")) {
+            if (!tag.isBlank() && !Tag.TAG_MISSING.equals(tag.trim())) {
+                tags.add(tag.trim());
+            }
+        }
+        return tags;
+    }
+}
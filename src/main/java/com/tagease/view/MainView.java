@@ -1,10 +1,36 @@
 package com.tagease.view;
 
 import com.tagease.controller.TagController;
+import com.tagease.database.TaggedFileDAO;
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.Tag;
 import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+import com.tagease.search.FileQueryPipeline;
+import com.tagease.search.FileSortOrder;
+import com.tagease.search.QueryNode;
+import com.tagease.search.QueryParseException;
+import com.tagease.search.SearchRunner;
+import com.tagease.search.SearchSession;
+import com.tagease.search.SimilarFilesIndex;
+import com.tagease.search.TagBitmapIndex;
+import com.tagease.search.TagCompletionService;
+import com.tagease.search.TagFacetCounter;
+import com.tagease.search.TrigramIndex;
+import com.tagease.utils.ContentHashJob;
+import com.tagease.utils.ContentHasher;
+import com.tagease.utils.FolderImporter;
+import com.tagease.utils.HealthCheck;
+import com.tagease.utils.IoBudget;
+import com.tagease.utils.ListReconciler;
+import com.tagease.utils.MetadataRefresher;
+import com.tagease.utils.ProgressListener;
+import com.tagease.utils.ThumbnailService;
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -17,6 +43,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -29,8 +56,16 @@ import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class MainView {
@@ -39,8 +74,14 @@ public class MainView {
     private TagController controller;
     private Set<String> selectedTags = new HashSet<>();
     private FlowPane selectedTagsPane;
-    private VBox fileListContainer;
+    private ListView<TaggedFile> fileListView;
+    private final ObservableList<TaggedFile> displayedFiles = FXCollections.observableArrayList();
+    private final Set<String> expandedFiles = new HashSet<>();
+    private Label didYouMeanLabel;
     private ListView<Object> tagFilterBox;
+    private VBox recentFilesBox;
+    private String recentMode = RECENT_ACCESSED;
+    private TextField searchField;
     private String searchTerm = "";
     private String searchOption = "File Name";
 
@@ -49,6 +90,24 @@ public class MainView {
         "New", "Reference", "15m Test", "Midterm Exam", "Final Exam", "Done", "In Progress"
     );
     private static final String DEFAULT_TAG = "New";
+    private static final int MAX_TAG_SUGGESTIONS = 8;
+    private static final int MAX_FUZZY_RESULTS = 50;
+    private static final int MAX_RECENT_FILES = 8;
+    private static final int MAX_SIMILAR_FILES = 5;
+    private static final String RECENT_ACCESSED = "Accessed";
+    private static final String RECENT_ADDED = "Added";
+    private static final String QUERY_SEARCH_OPTION = "Query";
+    private static final String ANY_TIME = "Any Time";
+    private static final String ANY_TYPE = "Any Type";
+    private static final Map<String, QueryNode.DatePredicate> DATE_FILTERS = dateFilters();
+    private static final Map<String, QueryNode.TypePredicate> TYPE_FILTERS = typeFilters();
+    private static final String QUERY_PROMPT = "e.g. (work OR project-2024) AND NOT archive AND name:*.pdf AND accessed:>30d";
+    private static final Map<AutoTagRule.Kind, String> AUTO_TAG_PATTERN_HINTS = Map.of(
+            AutoTagRule.Kind.EXTENSION, "jpg",
+            AutoTagRule.Kind.PATH_PREFIX, "/home/me/Documents/Invoices",
+            AutoTagRule.Kind.GLOB, "*report*.pdf or **/drafts/**",
+            AutoTagRule.Kind.SIZE, "100mb.. or ..10k",
+            AutoTagRule.Kind.MODIFIED, "2024-01-01..2024-12-31");
     private ObservableList<TaggedFile> filesList;
 
     // Add a field to track the current sort settings
@@ -60,6 +119,48 @@ public class MainView {
     
     // Map to store tag colors
     private Map<String, Tag> tagColorMap = new HashMap<>();
+    
+    // Facet counts shown next to each tag in the filter sidebar
+    private final TagFacetCounter facetCounter = new TagFacetCounter();
+    private final Map<String, Label> facetLabels = new HashMap<>();
+    
+    // Keeps the last plain-text search so typing more characters only narrows it
+    private final FileQueryPipeline queryPipeline = new FileQueryPipeline();
+    private final SearchSession searchSession = new SearchSession(queryPipeline);
+    
+    // Searches run in the background; typing waits this long for the next key before searching
+    private static final long SEARCH_DEBOUNCE_MILLIS = Long.getLong("tagease.searchDebounceMillis", 100);
+    private final SearchRunner searchRunner = new SearchRunner(Platform::runLater);
+    
+    private final CancellationToken relinkToken = new CancellationToken();
+    private final CancellationToken maintenanceToken = new CancellationToken();
+    
+    // Background content hashing stays on two threads and 32 MiB/s so the UI and disk stay responsive
+    private static final int HASH_THREADS = 2;
+    private static final long HASH_BYTES_PER_SECOND = 32L << 20;
+    
+    // The watcher keeps the Missing tag current between health checks, so they can be rare
+    private static final long HEALTH_CHECK_INTERVAL_MINUTES = 30;
+    private static final int MAX_LISTED_MISSING_FILES = 20;
+    private final ScheduledExecutorService healthCheckScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "health-check");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private Label healthStatusLabel;
+    
+    // Image previews are decoded in the background, and only for the cells in view
+    private static final String THUMBNAIL_DIRECTORY = "thumbnails";
+    private static final int THUMBNAIL_SLOT_SIZE = 32;
+    private final ThumbnailService thumbnailService =
+            new ThumbnailService(Paths.get(THUMBNAIL_DIRECTORY), Platform::runLater);
+    
+    // Date range applied on top of the search and tag filters; null means any time
+    private QueryNode.DatePredicate dateFilter;
+    
+    // MIME type category checked against the cached type column; null means any type
+    private QueryNode.TypePredicate typeFilter;
 
     public MainView(Stage stage, TagController controller) {
         this.stage = stage;
@@ -75,8 +176,24 @@ public class MainView {
         // Load tag colors
         loadTagColors();
         
-        // Check for missing files and update tags accordingly
-        controller.checkForMissingFiles();
+        // Keep the Missing tag current from file system events; the scheduled health check
+        // catches up on files that went missing while the application was closed, then
+        // relinking and metadata refresh follow
+        controller.startFileTracking(Platform::runLater, this::refreshTable);
+        scheduleHealthChecks();
+        if (controller.isXattrSyncEnabled()) {
+            controller.startXattrSync();
+            importXattrTags();
+        }
+        stage.setOnHidden(e -> {
+            relinkToken.cancel();
+            maintenanceToken.cancel();
+            healthCheckScheduler.shutdownNow();
+            controller.stopFileTracking();
+            controller.stopXattrSync();
+            thumbnailService.close();
+            searchRunner.close();
+        });
         
         BorderPane root = new BorderPane();
         root.getStyleClass().add("root");
@@ -245,6 +362,20 @@ public class MainView {
         });
         removeTagBox.getChildren().addAll(tagSelector, removeTagButton);
 
+        // Mirror tags into extended attributes so other tools can read them
+        CheckBox xattrSyncBox = new CheckBox("Sync tags to file attributes (user.tagease.tags)");
+        xattrSyncBox.setSelected(controller.isXattrSyncEnabled());
+        xattrSyncBox.setOnAction(e -> {
+            try {
+                controller.setXattrSyncEnabled(xattrSyncBox.isSelected());
+                if (xattrSyncBox.isSelected()) {
+                    importXattrTags();
+                }
+            } catch (RuntimeException ex) {
+                xattrSyncBox.setSelected(!xattrSyncBox.isSelected());
+            }
+        });
+
         // Close button at the bottom
         Button closeButton = new Button("Close");
         closeButton.setPrefWidth(100);
@@ -257,10 +388,11 @@ public class MainView {
             titleLabel,
             addTagLabel, addTagBox,
             removeTagLabel, removeTagBox,
+            xattrSyncBox,
             buttonBox
         );
 
-        Scene scene = new Scene(layout, 450, 300);
+        Scene scene = new Scene(layout, 450, 330);
         scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
         tagWindow.setScene(scene);
         tagWindow.showAndWait();
@@ -278,13 +410,23 @@ public class MainView {
             
             // Create a new list to hold the items
             ObservableList<Object> newItems = FXCollections.observableArrayList();
-            Set<String> allTags = tagColorMap.keySet();
+            List<String> allTags = new ArrayList<>(tagColorMap.keySet());
+            allTags.sort(String.CASE_INSENSITIVE_ORDER);
+            facetLabels.clear();
             
             // Create all the items first before adding them to the list
             for (String tagName : allTags) {
                 CheckBox checkBox = new CheckBox(tagName);
                 checkBox.setSelected(selectedTags.contains(tagName));
                 
+                // Facet count, patched in place by updateFacetCounts
+                Label countLabel = new Label();
+                countLabel.getStyleClass().add("facet-count");
+                setFacetCount(countLabel, facetCounter.getCount(tagName));
+                facetLabels.put(tagName, countLabel);
+                Region spacer = new Region();
+                HBox.setHgrow(spacer, Priority.ALWAYS);
+                
                 // Get tag color
                 Tag tag = tagColorMap.get(tagName);
                 Object itemToAdd;
@@ -298,13 +440,15 @@ public class MainView {
                     colorRect.setArcWidth(4);
                     colorRect.setArcHeight(4);
                     
-                    // Create an HBox with the color and checkbox
-                    HBox tagItem = new HBox(5, colorRect, checkBox);
+                    // Create an HBox with the color, checkbox and count
+                    HBox tagItem = new HBox(5, colorRect, checkBox, spacer, countLabel);
                     tagItem.setAlignment(Pos.CENTER_LEFT);
                     itemToAdd = tagItem;
                 } else {
                     // Fallback if no color is found
-                    itemToAdd = checkBox;
+                    HBox tagItem = new HBox(5, checkBox, spacer, countLabel);
+                    tagItem.setAlignment(Pos.CENTER_LEFT);
+                    itemToAdd = tagItem;
                 }
                 
                 // Add event handler to the checkbox
@@ -386,6 +530,44 @@ public class MainView {
         }
     }
 
+    /**
+     * Refreshes the facet counts of the tag filter sidebar for the current search matches.
+     * Only labels whose count changed are touched, so this stays cheap on every refresh.
+     * 
+     * @param index The index snapshot the matches refer to
+     * @param searchMatches Ordinals of files matching the search term before tag filters
+     */
+    private void updateFacetCounts(TagBitmapIndex index, BitSet searchMatches) {
+        Map<String, Integer> changed = facetCounter.update(index, searchMatches, selectedTags);
+        if (tagFilterBox == null) {
+            return;
+        }
+        
+        // A tag without a row was created since the list was built
+        if (!facetLabels.keySet().containsAll(index.getTagNames())) {
+            updateTagFilterBox();
+            return;
+        }
+        
+        for (Map.Entry<String, Integer> entry : changed.entrySet()) {
+            Label countLabel = facetLabels.get(entry.getKey());
+            if (countLabel != null) {
+                setFacetCount(countLabel, entry.getValue());
+            }
+        }
+    }
+    
+    private void setFacetCount(Label countLabel, int count) {
+        countLabel.setText(String.valueOf(count));
+        if (count == 0) {
+            if (!countLabel.getStyleClass().contains("facet-count-empty")) {
+                countLabel.getStyleClass().add("facet-count-empty");
+            }
+        } else {
+            countLabel.getStyleClass().remove("facet-count-empty");
+        }
+    }
+
     private void updateSelectedTagsDisplay() {
         selectedTagsPane.getChildren().clear();
         
@@ -445,13 +627,13 @@ public class MainView {
         }
         searchLabel.getStyleClass().add("section-label");
         
-        TextField searchField = new TextField();
+        searchField = new TextField();
         searchField.setPromptText("Search by file name...");
         searchField.getStyleClass().add("search-box");
         HBox.setHgrow(searchField, Priority.ALWAYS);
         
         ComboBox<String> searchOptions = new ComboBox<>();
-        searchOptions.getItems().addAll("File Name", "Tags", "Path");
+        searchOptions.getItems().addAll("File Name", "Tags", "Path", QUERY_SEARCH_OPTION);
         searchOptions.setValue("File Name");
         searchOptions.getStyleClass().add("combo-box");
         
@@ -492,9 +674,39 @@ public class MainView {
         Set<String> allTags = controller.getAllTags();
         tagComboBox.setItems(FXCollections.observableArrayList(allTags));
         
+        Label dateLabel = new Label("Date:");
+        dateLabel.getStyleClass().add("field-label");
+        
+        ComboBox<String> dateComboBox = new ComboBox<>();
+        dateComboBox.getItems().add(ANY_TIME);
+        dateComboBox.getItems().addAll(DATE_FILTERS.keySet());
+        dateComboBox.setValue(ANY_TIME);
+        dateComboBox.getStyleClass().add("combo-box");
+        dateComboBox.setOnAction(e -> {
+            dateFilter = DATE_FILTERS.get(dateComboBox.getValue());
+            refreshTable();
+        });
+        
+        Label typeLabel = new Label("Type:");
+        typeLabel.getStyleClass().add("field-label");
+        
+        ComboBox<String> typeComboBox = new ComboBox<>();
+        typeComboBox.getItems().add(ANY_TYPE);
+        typeComboBox.getItems().addAll(TYPE_FILTERS.keySet());
+        typeComboBox.setValue(ANY_TYPE);
+        typeComboBox.getStyleClass().add("combo-box");
+        typeComboBox.setOnAction(e -> {
+            typeFilter = TYPE_FILTERS.get(typeComboBox.getValue());
+            refreshTable();
+        });
+        
         Button clearAllButton = new Button("Clear All");
         clearAllButton.getStyleClass().add("clear-button");
         clearAllButton.setOnAction(e -> {
+            dateFilter = null;
+            dateComboBox.setValue(ANY_TIME);
+            typeFilter = null;
+            typeComboBox.setValue(ANY_TYPE);
             selectedTags.clear();
             refreshTable();
             updateSelectedTagsDisplay();
@@ -511,7 +723,8 @@ public class MainView {
             }
         });
         
-        filterBox.getChildren().addAll(filterLabel, tagLabel, tagComboBox, clearAllButton);
+        filterBox.getChildren().addAll(filterLabel, tagLabel, tagComboBox, dateLabel, dateComboBox,
+                typeLabel, typeComboBox, clearAllButton);
         
         // ---- SORT SECTION ----
         HBox sortBox = new HBox(10);
@@ -533,8 +746,10 @@ public class MainView {
         
         // Sort options
         ComboBox<String> sortOptions = new ComboBox<>();
-        sortOptions.getItems().addAll("File Name", "Created Date", "Last Accessed");
-        sortOptions.setValue("File Name");
+        for (FileSortOrder order : FileSortOrder.values()) {
+            sortOptions.getItems().add(order.getLabel());
+        }
+        sortOptions.setValue(FileSortOrder.FILE_NAME.getLabel());
         sortOptions.getStyleClass().add("combo-box");
         
         // Sort direction toggle
@@ -567,12 +782,15 @@ public class MainView {
         // Search field listener
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
             searchTerm = newValue;
-            refreshTable();
+            scheduleSearch(SEARCH_DEBOUNCE_MILLIS);
         });
         
         // Search option listener
         searchOptions.valueProperty().addListener((observable, oldValue, newValue) -> {
             searchOption = newValue;
+            searchField.setPromptText(QUERY_SEARCH_OPTION.equals(newValue)
+                    ? QUERY_PROMPT
+                    : "Search by " + newValue.toLowerCase() + "...");
             refreshTable();
         });
         
@@ -612,6 +830,7 @@ public class MainView {
         if (file != null) {
             // Get existing tags before showing dialog
             Set<String> existingTags = controller.getAllTags();
+            TagCompletionService completion = controller.getTagCompletionService();
             
             Dialog<TaggedFile> dialog = new Dialog<>();
             dialog.setTitle("Add File");
@@ -643,29 +862,21 @@ public class MainView {
             tagSuggestions.setVgap(8);
             tagSuggestions.setPadding(new Insets(5));
             
-            // Add predefined tags
-            for (String tag : PREDEFINED_TAGS) {
-                Button tagButton = new Button(tag);
-                tagButton.getStyleClass().add("tag-button");
-                tagButton.setOnAction(e -> {
-                    String currentTags = tagsField.getText();
-                    tagsField.setText(currentTags.isEmpty() ? tag : currentTags + ", " + tag);
+            // Suggest completions for the tag currently being typed (after the last comma)
+            Runnable updateSuggestions = () -> {
+                String text = tagsField.getText();
+                int lastComma = text.lastIndexOf(',');
+                String prefix = text.substring(lastComma + 1);
+                Set<String> enteredTags = parseTagList(text.substring(0, Math.max(lastComma, 0)));
+                renderTagSuggestions(tagSuggestions, suggestTags(completion, prefix, enteredTags), tag -> {
+                    String head = lastComma >= 0 ? text.substring(0, lastComma + 1) + " " : "";
+                    tagsField.setText(head + tag + ", ");
+                    tagsField.requestFocus();
+                    tagsField.end();
                 });
-                tagSuggestions.getChildren().add(tagButton);
-            }
-            
-            // Add existing tags
-            for (String tag : existingTags) {
-                if (!PREDEFINED_TAGS.contains(tag)) {
-                    Button tagButton = new Button(tag);
-                    tagButton.getStyleClass().add("tag-button");
-                    tagButton.setOnAction(e -> {
-                        String currentTags = tagsField.getText();
-                        tagsField.setText(currentTags.isEmpty() ? tag : currentTags + ", " + tag);
-                    });
-                    tagSuggestions.getChildren().add(tagButton);
-                }
-            }
+            };
+            tagsField.textProperty().addListener((obs, oldText, newText) -> updateSuggestions.run());
+            updateSuggestions.run();
             
             content.getChildren().addAll(tagsLabel, tagsField, suggestionsLabel, tagSuggestions);
             dialogPane.setContent(content);
@@ -685,17 +896,9 @@ public class MainView {
             // Set the result converter
             dialog.setResultConverter(buttonType -> {
                 if (buttonType == addButton) {
-                    Set<String> tags = new HashSet<>();
-                    String inputTags = tagsField.getText();
-                    if (inputTags.trim().isEmpty()) {
+                    Set<String> tags = parseTagList(tagsField.getText());
+                    if (tags.isEmpty()) {
                         tags.add(DEFAULT_TAG);
-                    } else {
-                        for (String tag : inputTags.split(",")) {
-                            String trimmedTag = tag.trim();
-                            if (!trimmedTag.isEmpty()) {
-                                tags.add(trimmedTag);
-                            }
-                        }
                     }
                     return new TaggedFile(file.getName(), file.getAbsolutePath(), tags);
                 }
@@ -714,6 +917,132 @@ public class MainView {
         }
     }
 
+    /**
+     * Asks for a folder, filters and tags, then imports the folder tree on a background thread
+     * while a progress window shows how far the walk and the database writes have got.
+     */
+    private void importFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Folder to Import");
+        File folder = directoryChooser.showDialog(stage);
+        if (folder == null) {
+            return;
+        }
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Import Folder");
+        dialog.setHeaderText("Import files from " + folder.getName());
+        DialogPane dialogPane = dialog.getDialogPane();
+        dialogPane.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        dialogPane.getStyleClass().add("dialog-pane");
+
+        VBox content = new VBox(10);
+        content.setPadding(new Insets(20));
+        content.getStyleClass().add("custom-dialog");
+        Label includeLabel = new Label("Include (comma-separated globs, empty for all):");
+        includeLabel.getStyleClass().add("section-label");
+        TextField includeField = new TextField();
+        includeField.setPromptText("*.pdf, *.docx");
+        Label excludeLabel = new Label("Exclude (comma-separated globs):");
+        excludeLabel.getStyleClass().add("section-label");
+        TextField excludeField = new TextField(".*, node_modules, target");
+        Label tagsLabel = new Label("Tags (comma-separated):");
+        tagsLabel.getStyleClass().add("section-label");
+        TextField tagsField = new TextField();
+        content.getChildren().addAll(includeLabel, includeField, excludeLabel, excludeField, tagsLabel, tagsField);
+        dialogPane.setContent(content);
+
+        ButtonType importButton = new ButtonType("Import", ButtonBar.ButtonData.OK_DONE);
+        ButtonType cancelButton = new ButtonType("Cancel", ButtonBar.ButtonData.CANCEL_CLOSE);
+        dialogPane.getButtonTypes().addAll(importButton, cancelButton);
+        ((Button) dialogPane.lookupButton(importButton)).getStyleClass().add("ok-button");
+        ((Button) dialogPane.lookupButton(cancelButton)).getStyleClass().add("cancel-button");
+
+        if (dialog.showAndWait().filter(importButton::equals).isEmpty()) {
+            return;
+        }
+        Set<String> tags = parseTagList(tagsField.getText());
+        if (tags.isEmpty()) {
+            tags.add(DEFAULT_TAG);
+        }
+        FolderImporter.Filter filter = new FolderImporter.Filter(
+                splitGlobs(includeField.getText()), splitGlobs(excludeField.getText()));
+        runFolderImport(folder.toPath(), filter, tags);
+    }
+
+    private static List<String> splitGlobs(String text) {
+        return Arrays.stream(text.split(","))
+                .map(String::trim)
+                .filter(glob -> !glob.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private void runFolderImport(Path root, FolderImporter.Filter filter, Set<String> tags) {
+        Stage progressWindow = new Stage();
+        progressWindow.setTitle("Importing " + root.getFileName());
+        progressWindow.initModality(Modality.APPLICATION_MODAL);
+
+        VBox layout = new VBox(15);
+        layout.setPadding(new Insets(20));
+        layout.getStyleClass().add("custom-dialog");
+        ProgressBar progressBar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        Label statusLabel = new Label("Scanning...");
+        statusLabel.getStyleClass().add("file-metadata");
+        Button actionButton = new Button("Cancel");
+        actionButton.setPrefWidth(100);
+        HBox buttonBox = new HBox(actionButton);
+        buttonBox.setAlignment(Pos.CENTER_RIGHT);
+        layout.getChildren().addAll(progressBar, statusLabel, buttonBox);
+
+        CancellationToken token = new CancellationToken();
+        actionButton.setOnAction(e -> {
+            token.cancel();
+            progressWindow.close();
+        });
+        progressWindow.setOnHidden(e -> token.cancel());
+
+        FolderImporter.Listener listener = progress -> Platform.runLater(() -> statusLabel.setText(
+                String.format("Found %,d files, imported %,d, %,d already in TagEase%s",
+                        progress.getDiscovered(), progress.getImported(), progress.getSkipped(),
+                        progress.isThrottled() ? " (waiting for the database)" : "")));
+        Thread importer = new Thread(() -> {
+            String summary;
+            try {
+                FolderImporter.Result result = controller.importFolder(root, filter, tags, Platform::runLater,
+                        listener, token);
+                summary = String.format("Imported %,d files, %,d were already in TagEase",
+                        result.getImported(), result.getSkipped());
+            } catch (CancellationException e) {
+                summary = null;
+            } catch (RuntimeException e) {
+                summary = "Import stopped: " + e.getMessage();
+            }
+            String finalSummary = summary;
+            Platform.runLater(() -> {
+                refreshTable();
+                if (tagFilterBox != null) {
+                    updateTagFilterBox();
+                }
+                if (controller.isXattrSyncEnabled()) {
+                    importXattrTags();
+                }
+                if (finalSummary != null) {
+                    progressBar.setProgress(1);
+                    statusLabel.setText(finalSummary);
+                    actionButton.setText("Close");
+                }
+            });
+        }, "folder-import");
+        importer.setDaemon(true);
+        importer.start();
+
+        Scene scene = new Scene(layout, 450, 150);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        progressWindow.setScene(scene);
+        progressWindow.show();
+    }
+
     private void editFileTags(TaggedFile file) {
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Edit Tags");
@@ -793,6 +1122,7 @@ public class MainView {
         // Create the updater and initialize the display
         final TagsUpdater tagsUpdater = new TagsUpdater();
         tagsUpdater.updateCurrentTagsDisplay();
+        TagCompletionService completion = controller.getTagCompletionService();
 
         // Add new tags section
         Label addTagsLabel = new Label("Add New Tags:");
@@ -802,6 +1132,29 @@ public class MainView {
         newTagField.setPromptText("Type a new tag and press Enter");
         newTagField.setPrefHeight(35);
         
+        // Available tags section
+        Label availableTagsLabel = new Label("Suggested Tags:");
+        availableTagsLabel.getStyleClass().add("section-label");
+
+        FlowPane availableTagsPane = new FlowPane();
+        availableTagsPane.setHgap(8);
+        availableTagsPane.setVgap(8);
+        availableTagsPane.setPadding(new Insets(5));
+
+        // Show only the best completions for what is typed, ranked against the current tags
+        Runnable updateSuggestions = () -> renderTagSuggestions(availableTagsPane,
+                suggestTags(completion, newTagField.getText(), fileTags), tagToAdd -> {
+                    // Add the tag if it's not already in the file tags
+                    if (!fileTags.contains(tagToAdd)) {
+                        fileTags.add(tagToAdd);
+                        newTagField.clear();
+                        tagsUpdater.updateCurrentTagsDisplay();
+                    }
+                });
+        newTagField.textProperty().addListener((obs, oldText, newText) -> updateSuggestions.run());
+        currentTagsPane.getChildren().addListener((ListChangeListener<Node>) change -> updateSuggestions.run());
+        updateSuggestions.run();
+
         // Handle adding new tags with Enter key
         newTagField.setOnAction(e -> {
             String newTag = newTagField.getText().trim();
@@ -812,40 +1165,6 @@ public class MainView {
             }
         });
 
-        // Available tags section
-        Label availableTagsLabel = new Label("Available Tags:");
-        availableTagsLabel.getStyleClass().add("section-label");
-
-        FlowPane availableTagsPane = new FlowPane();
-        availableTagsPane.setHgap(8);
-        availableTagsPane.setVgap(8);
-        availableTagsPane.setPadding(new Insets(5));
-
-        // Add all available tags
-        Set<String> allTagNames = tagColorMap.keySet();
-        for (String tagName : allTagNames) {
-            // Get tag color
-            Tag tag = tagColorMap.get(tagName);
-            String colorHex = (tag != null) ? tag.getColorHex() : "#2196F3"; // Default blue
-            
-            Button tagButton = new Button(tagName);
-            tagButton.getStyleClass().add("tag-button");
-            
-            // Apply the tag's specific color
-            tagButton.setStyle("-fx-text-fill: " + colorHex + "; -fx-border-color: " + colorHex + ";");
-            
-            // Use a final variable for the tag name to use in lambda
-            final String tagToAdd = tagName;
-            tagButton.setOnAction(e -> {
-                // Add the tag if it's not already in the file tags
-                if (!fileTags.contains(tagToAdd)) {
-                    fileTags.add(tagToAdd);
-                    tagsUpdater.updateCurrentTagsDisplay();
-                }
-            });
-            availableTagsPane.getChildren().add(tagButton);
-        }
-
         content.getChildren().addAll(
             currentTagsLabel, currentTagsPane,
             addTagsLabel, newTagField,
@@ -869,9 +1188,8 @@ public class MainView {
         // Set the result converter
         dialog.setResultConverter(buttonType -> {
             if (buttonType == saveButton) {
-                // Update the file's tags with the modified set
-                file.setTags(fileTags);
-                controller.updateFileTags(file);
+                // Save a copy; the displayed file must keep what the list shows until it is refreshed
+                controller.updateFileTags(copyWithTags(file, fileTags));
                 refreshTable();
             }
             return buttonType;
@@ -881,292 +1199,981 @@ public class MainView {
         dialog.showAndWait();
     }
 
+    /**
+     * Gets the top tag suggestions for a prefix, topped up with predefined tags if the
+     * catalog has fewer matches than the dialog shows.
+     */
+    private List<String> suggestTags(TagCompletionService completion, String prefix, Set<String> enteredTags) {
+        List<String> suggestions = new ArrayList<>(completion.suggest(prefix, enteredTags, MAX_TAG_SUGGESTIONS));
+        String lowerPrefix = prefix.trim().toLowerCase();
+        for (String tag : PREDEFINED_TAGS) {
+            if (suggestions.size() >= MAX_TAG_SUGGESTIONS) {
+                break;
+            }
+            if (!suggestions.contains(tag) && !enteredTags.contains(tag) && tag.toLowerCase().startsWith(lowerPrefix)) {
+                suggestions.add(tag);
+            }
+        }
+        return suggestions;
+    }
+    
+    /**
+     * Replaces the contents of a pane with one colored button per suggested tag.
+     */
+    private void renderTagSuggestions(FlowPane pane, List<String> suggestions, Consumer<String> onPick) {
+        List<Node> buttons = new ArrayList<>(suggestions.size());
+        for (String tagName : suggestions) {
+            Tag tag = tagColorMap.get(tagName);
+            Button tagButton = new Button(tagName);
+            tagButton.getStyleClass().add("tag-button");
+            if (tag != null) {
+                tagButton.setStyle("-fx-text-fill: " + tag.getColorHex() + "; -fx-border-color: " + tag.getColorHex() + ";");
+            }
+            tagButton.setOnAction(e -> onPick.accept(tagName));
+            buttons.add(tagButton);
+        }
+        pane.getChildren().setAll(buttons);
+    }
+    
+    /**
+     * Splits comma-separated tag input into trimmed, non-empty tag names.
+     */
+    private static Set<String> parseTagList(String input) {
+        Set<String> tags = new HashSet<>();
+        for (String tag : input.split(",")) {
+            String trimmedTag = tag.trim();
+            if (!trimmedTag.isEmpty()) {
+                tags.add(trimmedTag);
+            }
+        }
+        return tags;
+    }
+
     private void refreshTable() {
         // Skip if still initializing
-        if (isInitializing && fileListContainer == null) {
+        if (isInitializing && fileListView == null) {
             return;
         }
         
-        // Get all files from the controller
-        List<TaggedFile> allFiles = controller.getAllFiles();
+        // The list itself is filled when the background search finishes
+        scheduleSearch(0);
         
-        // Create a temporary list for filtering
-        List<TaggedFile> filteredFiles = new ArrayList<>();
+        // Make sure to update the selected tags display
+        updateSelectedTagsDisplay();
         
-        // Filter files based on search term and selected tags
-        for (TaggedFile file : allFiles) {
-            if (matchesSearchCriteria(file) && isFileMatchingFilters(file)) {
-                filteredFiles.add(file);
+        updateRecentFiles();
+    }
+    
+    /**
+     * Refills the "Recent" sidebar section with the newest files by access or add time.
+     */
+    private void updateRecentFiles() {
+        if (recentFilesBox == null) {
+            return;
+        }
+        List<TaggedFile> recentFiles = RECENT_ADDED.equals(recentMode)
+                ? controller.getRecentlyAddedFiles(MAX_RECENT_FILES)
+                : controller.getRecentlyAccessedFiles(MAX_RECENT_FILES);
+        
+        recentFilesBox.getChildren().clear();
+        if (recentFiles.isEmpty()) {
+            Label emptyLabel = new Label("No files yet");
+            emptyLabel.getStyleClass().add("facet-count-empty");
+            recentFilesBox.getChildren().add(emptyLabel);
+            return;
+        }
+        for (TaggedFile file : recentFiles) {
+            Hyperlink link = new Hyperlink(file.getFileName());
+            link.getStyleClass().add("recent-file-link");
+            link.setTooltip(new Tooltip(file.getFilePath()));
+            link.setOnAction(e -> {
+                openFile(file);
+                refreshTable();
+            });
+            recentFilesBox.getChildren().add(link);
+        }
+    }
+    
+    /**
+     * Searches for the files to list in the background, superseding any search still pending
+     * or running. The search sees a snapshot of the current catalog, search term and filters;
+     * the result is shown by {@link #showSearchResult} only if no newer search was started.
+     * The catalog snapshot is taken here because loading it may touch the database, but the
+     * index over it is built on the search thread.
+     * 
+     * @param delayMillis How long to wait first, so a burst of keystrokes runs one search
+     */
+    private void scheduleSearch(long delayMillis) {
+        if (fileListView == null) {
+            return;
+        }
+        List<TaggedFile> catalog = controller.getAllFiles();
+        String term = searchTerm;
+        String option = searchOption;
+        Set<String> tags = new HashSet<>(selectedTags);
+        QueryNode.DatePredicate date = dateFilter;
+        QueryNode.TypePredicate type = typeFilter;
+        Comparator<TaggedFile> order = FileSortOrder.fromLabel(currentSortOption).comparator(currentSortAscending);
+        searchRunner.submit(delayMillis,
+                token -> findFiles(catalog, term, option, tags, date, type, order, token),
+                this::showSearchResult);
+    }
+    
+    /**
+     * What a background search found.
+     */
+    private static final class SearchResult {
+        private final TagBitmapIndex index;
+        // Matches of the search term, date and type filters, before the tag filters; the facets count these
+        private final BitSet searchMatches;
+        // Files left after the tag filters, in display order
+        private final List<TaggedFile> files;
+        // Set instead of the matches when the query is malformed
+        private final String error;
+        // Set when nothing matched and the matches are ranked "did you mean" matches instead
+        private final boolean fuzzy;
+        
+        SearchResult(TagBitmapIndex index, BitSet searchMatches, List<TaggedFile> files, String error,
+                boolean fuzzy) {
+            this.index = index;
+            this.searchMatches = searchMatches;
+            this.files = files;
+            this.error = error;
+            this.fuzzy = fuzzy;
+        }
+    }
+    
+    /**
+     * Finds the files matching the search term, the date filter and the selected tag filters,
+     * sorted for display. In query mode the search term is compiled and run by the controller.
+     * The date filter is a binary search over the index's sorted timestamp column. When a
+     * file name or path search finds nothing, the closest names from the controller's fuzzy
+     * index are returned instead, best first.
+     * Runs on the search thread, which is the only user of the search session.
+     * 
+     * @return The matches, or the parse error of a malformed query
+     */
+    private SearchResult findFiles(List<TaggedFile> catalog, String term, String option, Set<String> tags,
+            QueryNode.DatePredicate date, QueryNode.TypePredicate type, Comparator<TaggedFile> order,
+            CancellationToken token) {
+        TagBitmapIndex index = controller.getTagIndex(catalog);
+        token.throwIfCancelled();
+        BitSet searchMatches;
+        if (isQuerySearch(option, term)) {
+            try {
+                searchMatches = controller.queryMatches(term, index);
+            } catch (QueryParseException e) {
+                return new SearchResult(index, null, null, e.getMessage(), false);
             }
+        } else {
+            SearchSession.Field field = toSearchField(option);
+            searchMatches = field != null
+                    ? searchSession.search(index, field, term, token)
+                    : index.all();
         }
+        applyDateAndTypeFilters(index, searchMatches, date, type);
+        token.throwIfCancelled();
         
-        // Apply current sort
-        sortFileList(filteredFiles, currentSortOption, currentSortAscending);
-        
-        // Update the UI
-        updateFileListDisplay(filteredFiles);
+        if (searchMatches.isEmpty() && isFuzzySearchEligible(option, term)) {
+            return findFuzzyFiles(catalog, index, term, tags, date, type, token);
+        }
         
-        // Make sure to update the selected tags display
-        updateSelectedTagsDisplay();
+        // Apply the selected tag filters to the search matches
+        List<TaggedFile> files = index.collect(
+                queryPipeline.filter(index, searchMatches, file -> isFileMatchingFilters(file, tags), token));
+        return new SearchResult(index, searchMatches, queryPipeline.sort(files, order, token), null, false);
     }
     
-    private void updateFileListDisplay(List<TaggedFile> filesToDisplay) {
-        // Run on JavaFX thread to avoid concurrency issues
-        Platform.runLater(() -> {
-            fileListContainer.getChildren().clear();
-            
-            if (filesToDisplay.isEmpty()) {
-                Label noFilesLabel = new Label("No files found.");
-                noFilesLabel.getStyleClass().add("no-files-label");
-                fileListContainer.getChildren().add(noFilesLabel);
-            } else {
-                for (TaggedFile file : filesToDisplay) {
-                    TitledPane filePanel = createFilePanel(file);
-                    fileListContainer.getChildren().add(filePanel);
-                }
+    /**
+     * Finds ranked typo-tolerant matches, best first, with the same filters applied.
+     */
+    private SearchResult findFuzzyFiles(List<TaggedFile> catalog, TagBitmapIndex index, String term,
+            Set<String> tags, QueryNode.DatePredicate date, QueryNode.TypePredicate type, CancellationToken token) {
+        BitSet searchMatches = new BitSet();
+        List<Integer> fuzzyOrder = new ArrayList<>();
+        for (TrigramIndex.Match match : controller.fuzzySearch(term, MAX_FUZZY_RESULTS, catalog)) {
+            int ordinal = index.indexOf(match.getFilePath());
+            if (ordinal >= 0) {
+                searchMatches.set(ordinal);
+                fuzzyOrder.add(ordinal);
             }
-        });
+        }
+        token.throwIfCancelled();
+        applyDateAndTypeFilters(index, searchMatches, date, type);
+        List<TaggedFile> files = new ArrayList<>();
+        for (int ordinal : fuzzyOrder) {
+            TaggedFile file = index.getFile(ordinal);
+            if (searchMatches.get(ordinal) && isFileMatchingFilters(file, tags)) {
+                files.add(file);
+            }
+        }
+        return new SearchResult(index, searchMatches, files, null, true);
     }
     
-    private void sortFiles(String sortOption, boolean ascending) {
-        // Update current sort settings
-        this.currentSortOption = sortOption;
-        this.currentSortAscending = ascending;
-        
-        // Get all files from the controller
-        List<TaggedFile> allFiles = controller.getAllFiles();
-        
-        // Create a temporary list for filtering
-        List<TaggedFile> filteredFiles = new ArrayList<>();
-        
-        // Filter files based on search term and selected tags
-        for (TaggedFile file : allFiles) {
-            if (matchesSearchCriteria(file) && isFileMatchingFilters(file)) {
-                filteredFiles.add(file);
+    private static void applyDateAndTypeFilters(TagBitmapIndex index, BitSet matches,
+            QueryNode.DatePredicate date, QueryNode.TypePredicate type) {
+        LocalDateTime now = LocalDateTime.now();
+        if (date != null) {
+            matches.and(date.evaluate(index, now));
+        }
+        if (type != null) {
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                if (!type.matches(index.getFile(ordinal), now)) {
+                    matches.clear(ordinal);
+                }
             }
         }
-        
-        // Apply sort
-        sortFileList(filteredFiles, sortOption, ascending);
-        
-        // Update the UI
-        updateFileListDisplay(filteredFiles);
     }
     
-    private void sortFileList(List<TaggedFile> files, String sortOption, boolean ascending) {
-        if (files == null || files.isEmpty()) {
+    /**
+     * Shows the newest search result.
+     * 
+     * @param result The result; a malformed query leaves the list as is
+     */
+    private void showSearchResult(SearchResult result) {
+        if (result.error != null) {
+            markSearchError(result.error);
             return;
         }
-        
-        Comparator<TaggedFile> comparator = null;
-        
-        switch (sortOption) {
-            case "File Name":
-                comparator = Comparator.comparing(TaggedFile::getFileName, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "Created Date":
-                comparator = Comparator.comparing(TaggedFile::getCreatedAt);
-                break;
-            case "Last Accessed":
-                comparator = Comparator.comparing(TaggedFile::getLastAccessedAt);
-                break;
-            default:
-                comparator = Comparator.comparing(TaggedFile::getFileName, String.CASE_INSENSITIVE_ORDER);
-        }
-        
-        if (!ascending) {
-            comparator = comparator.reversed();
+        markSearchError(null);
+        updateFacetCounts(result.index, result.searchMatches);
+        updateFileListDisplay(result.files, result.fuzzy);
+    }
+    
+    private static Map<String, QueryNode.DatePredicate> dateFilters() {
+        Map<String, QueryNode.DatePredicate> filters = new LinkedHashMap<>();
+        filters.put("Added Last 7 Days", QueryNode.DatePredicate.relative(QueryNode.DatePredicate.Field.CREATED, "<", 7, 'd'));
+        filters.put("Added Last 30 Days", QueryNode.DatePredicate.relative(QueryNode.DatePredicate.Field.CREATED, "<", 30, 'd'));
+        filters.put("Accessed Last 7 Days", QueryNode.DatePredicate.relative(QueryNode.DatePredicate.Field.ACCESSED, "<", 7, 'd'));
+        filters.put("Accessed Last 30 Days", QueryNode.DatePredicate.relative(QueryNode.DatePredicate.Field.ACCESSED, "<", 30, 'd'));
+        filters.put("Not Accessed in 90 Days", QueryNode.DatePredicate.relative(QueryNode.DatePredicate.Field.ACCESSED, ">", 90, 'd'));
+        return filters;
+    }
+    
+    private static Map<String, QueryNode.TypePredicate> typeFilters() {
+        Map<String, QueryNode.TypePredicate> filters = new LinkedHashMap<>();
+        filters.put("Images", new QueryNode.TypePredicate("image"));
+        filters.put("Videos", new QueryNode.TypePredicate("video"));
+        filters.put("Audio", new QueryNode.TypePredicate("audio"));
+        filters.put("Text", new QueryNode.TypePredicate("text"));
+        filters.put("PDF", new QueryNode.TypePredicate("application/pdf"));
+        return filters;
+    }
+    
+    /**
+     * Refreshes cached size, modification time and MIME type of files in directories that
+     * changed since the last run, reading on a background thread and saving on the UI thread.
+     * Content hashing starts afterwards so the two jobs never write the same fingerprint.
+     */
+    private void refreshFileMetadata() {
+        List<TaggedFile> files = controller.getAllFiles();
+        Map<String, Long> directoryStates = controller.getDirectoryStates();
+        Thread refresher = new Thread(() -> {
+            try {
+                MetadataRefresher.Result result = controller.findMetadataChanges(files, directoryStates,
+                        maintenanceToken);
+                Platform.runLater(() -> {
+                    try {
+                        if (controller.applyMetadataChanges(result) > 0) {
+                            refreshTable();
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.println(e.getMessage());
+                    }
+                    hashFileContents();
+                });
+            } catch (CancellationException e) {
+                // Window closed while refreshing
+            } catch (RuntimeException e) {
+                System.err.println("Error refreshing file metadata: " + e.getMessage());
+                Platform.runLater(this::hashFileContents);
+            }
+        }, "metadata-refresher");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+    
+    /**
+     * Reads tags other tools or catalogs stored in the files' extended attributes on a
+     * background thread and adds the ones the catalog lacks on the UI thread.
+     */
+    private void importXattrTags() {
+        List<TaggedFile> files = controller.getAllFiles();
+        Thread importer = new Thread(() -> {
+            try {
+                Map<String, Set<String>> found = controller.findXattrTags(files, maintenanceToken);
+                if (!found.isEmpty()) {
+                    Platform.runLater(() -> {
+                        try {
+                            if (controller.applyXattrTags(found) > 0) {
+                                refreshTable();
+                                if (tagFilterBox != null) {
+                                    updateTagFilterBox();
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            System.err.println(e.getMessage());
+                        }
+                    });
+                }
+            } catch (CancellationException e) {
+                // Window closed while reading
+            }
+        }, "xattr-tag-import");
+        importer.setDaemon(true);
+        importer.start();
+    }
+    
+    /**
+     * Looks for missing files in the library folders on a background thread and relinks
+     * the ones it can identify on the UI thread.
+     */
+    private void relinkMovedFiles() {
+        List<TaggedFile> files = controller.getAllFiles();
+        boolean anyMissing = files.stream()
+                .anyMatch(file -> file.getTags().contains(Tag.TAG_MISSING));
+        if (!anyMissing) {
+            return;
         }
-        
-        // Sort the list
-        files.sort(comparator);
+        List<Path> roots = controller.getLibraryRoots();
+        Thread relinker = new Thread(() -> {
+            try {
+                Map<String, TaggedFileDAO.RelinkTarget> moves = controller.findMovedFiles(files, roots, relinkToken);
+                if (!moves.isEmpty()) {
+                    Platform.runLater(() -> {
+                        try {
+                            controller.applyRelinks(moves);
+                        } catch (RuntimeException e) {
+                            // The controller has already reported the failure
+                            System.err.println("Error relinking moved files: " + e.getMessage());
+                        }
+                        refreshTable();
+                    });
+                }
+            } catch (CancellationException e) {
+                // Window closed while searching
+            }
+        }, "file-relinker");
+        relinker.setDaemon(true);
+        relinker.start();
+    }
+    
+    /**
+     * Hashes the content of new and changed files on background threads and stores the
+     * hashes on the UI thread, so duplicates can be found without reading every file again.
+     */
+    private void hashFileContents() {
+        ContentHashJob job = new ContentHashJob(
+                new ContentHasher(ContentHasher.Algorithm.XXH64, IoBudget.perSecond(HASH_BYTES_PER_SECOND)),
+                HASH_THREADS);
+        List<TaggedFile> files = controller.getAllFiles();
+        Thread hasher = new Thread(() -> {
+            try {
+                Map<String, FileFingerprint> hashes = controller.computeContentHashes(files, job, null,
+                        maintenanceToken);
+                if (!hashes.isEmpty()) {
+                    Platform.runLater(() -> controller.saveContentHashes(hashes));
+                }
+            } catch (CancellationException e) {
+                // Window closed while hashing
+            } catch (RuntimeException e) {
+                System.err.println("Error hashing file contents: " + e.getMessage());
+            }
+        }, "content-hash-job");
+        hasher.setDaemon(true);
+        hasher.start();
     }
+    
+    private void showAutoTagRulesWindow() {
+        Stage rulesWindow = new Stage();
+        rulesWindow.setTitle("Auto-Tag Rules");
+        rulesWindow.initModality(Modality.APPLICATION_MODAL);
 
-    private TitledPane createFilePanel(TaggedFile file) {
-        // Create the main content for the collapsed state
-        HBox header = new HBox();
-        header.setAlignment(Pos.CENTER_LEFT);
-        header.setPadding(new Insets(10, 15, 10, 15)); // Increased padding for better spacing
-        header.setPrefWidth(Control.USE_COMPUTED_SIZE); // Make panel fit window width
-        header.setMaxWidth(Double.MAX_VALUE); // Allow expansion to full width
-        header.setSpacing(15); // Add spacing between elements for better readability
-        
-        // Action buttons with icons - on the left side
-        HBox actionButtons = new HBox(10);  // Spacing between buttons
-        actionButtons.setAlignment(Pos.CENTER_LEFT);
-        
-        // Edit tags button with icon
-        Button editTagsButton = new Button();
-        editTagsButton.getStyleClass().addAll("icon-button", "edit-button");
-        editTagsButton.setPrefSize(30, 30);
-        editTagsButton.setMinSize(30, 30);
-        editTagsButton.setMaxSize(30, 30);
-        ImageView editIcon = createIcon("/Image/pencil_505210.png", 16);
-        if (editIcon != null) {
-            editTagsButton.setGraphic(editIcon);
-        } else {
-            editTagsButton.setText("✏️");
-        }
-        editTagsButton.setTooltip(new Tooltip("Edit Tags"));
-        editTagsButton.setOnAction(e -> editFileTags(file));
-        
-        // Open file button with icon
-        Button openFileButton = new Button();
-        openFileButton.getStyleClass().addAll("icon-button", "open-button");
-        openFileButton.setPrefSize(30, 30);
-        openFileButton.setMinSize(30, 30);
-        openFileButton.setMaxSize(30, 30);
-        ImageView openIcon = createIcon("/Image/folder_3767084.png", 16);
-        if (openIcon != null) {
-            openFileButton.setGraphic(openIcon);
-        } else {
-            openFileButton.setText("📁");
-        }
-        openFileButton.setTooltip(new Tooltip("Open File"));
-        openFileButton.setOnAction(e -> openFile(file));
-        
-        // Delete button with icon
-        Button deleteFileButton = new Button();
-        deleteFileButton.getStyleClass().addAll("icon-button", "delete-button");
-        deleteFileButton.setPrefSize(30, 30);
-        deleteFileButton.setMinSize(30, 30);
-        deleteFileButton.setMaxSize(30, 30);
-        ImageView deleteIcon = createIcon("/Image/trash_1161747.png", 16);
-        if (deleteIcon != null) {
-            deleteFileButton.setGraphic(deleteIcon);
-        } else {
-            deleteFileButton.setText("🗑️");
-        }
-        deleteFileButton.setTooltip(new Tooltip("Remove"));
-        deleteFileButton.setOnAction(e -> {
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-            alert.setTitle("Remove File");
-            alert.setHeaderText("Remove " + file.getFileName());
-            alert.setContentText("Are you sure you want to remove this file from the system?");
-            
-            Optional<ButtonType> result = alert.showAndWait();
-            if (result.isPresent() && result.get() == ButtonType.OK) {
-                controller.deleteFile(file.getFilePath());
-                refreshTable();
+        VBox layout = new VBox(15);
+        layout.setPadding(new Insets(20));
+        layout.getStyleClass().add("custom-dialog");
+
+        Label titleLabel = new Label("Auto-Tag Rules");
+        titleLabel.getStyleClass().add("title-label");
+        Label hintLabel = new Label("New and imported files get the tag of every rule they match.");
+        hintLabel.getStyleClass().add("file-metadata");
+
+        ListView<AutoTagRule> rulesList = new ListView<>(FXCollections.observableArrayList(controller.getAutoTagRules()));
+        VBox.setVgrow(rulesList, Priority.ALWAYS);
+
+        // New rule: kind, pattern and tag
+        ComboBox<AutoTagRule.Kind> kindBox = new ComboBox<>(FXCollections.observableArrayList(AutoTagRule.Kind.values()));
+        kindBox.setValue(AutoTagRule.Kind.EXTENSION);
+        TextField patternField = new TextField();
+        patternField.setPromptText("jpg");
+        kindBox.valueProperty().addListener((observable, oldValue, newValue) -> patternField.setPromptText(
+                AUTO_TAG_PATTERN_HINTS.getOrDefault(newValue, "")));
+        HBox.setHgrow(patternField, Priority.ALWAYS);
+        TextField tagField = new TextField();
+        tagField.setPromptText("Tag");
+        tagField.setPrefWidth(120);
+        Button addRuleButton = new Button("Add Rule");
+        addRuleButton.getStyleClass().add("ok-button");
+        addRuleButton.setOnAction(e -> {
+            try {
+                AutoTagRule rule = controller.addAutoTagRule(kindBox.getValue(), patternField.getText(),
+                        tagField.getText().trim());
+                rulesList.getItems().add(rule);
+                patternField.clear();
+            } catch (RuntimeException ex) {
+                // The controller has already shown the error
             }
         });
-        
-        actionButtons.getChildren().addAll(editTagsButton, openFileButton, deleteFileButton);
-        
-        // File name label with larger font
-        Label fileNameLabel = new Label(file.getFileName());
-        fileNameLabel.getStyleClass().add("file-name");
-        fileNameLabel.setPrefWidth(300);
-        fileNameLabel.setMinWidth(200);
-        
-        // Status indicator based on tags - moved to the right of file name
-        Region statusIndicator = new Region();
-        statusIndicator.getStyleClass().addAll("status-indicator");
-        statusIndicator.setMinSize(8, 16);
-        statusIndicator.setPrefSize(8, 16);
-        statusIndicator.setMaxSize(8, 16);
-        
-        // Check if file exists
-        File fileObj = new File(file.getFilePath());
-        if (!fileObj.exists()) {
-            // Missing file - red indicator
-            statusIndicator.getStyleClass().add("status-missing");
-            // We'll add the missing-file class to the file panel later
-        } else if (file.getTags().contains("Done")) {
-            statusIndicator.getStyleClass().add("status-done");
-        } else if (file.getTags().contains("In Progress")) {
-            statusIndicator.getStyleClass().add("status-in-progress");
-        } else {
-            statusIndicator.getStyleClass().add("status-new");
+        HBox addRuleBox = new HBox(10, kindBox, patternField, tagField, addRuleButton);
+        addRuleBox.setAlignment(Pos.CENTER_LEFT);
+
+        Button deleteRuleButton = new Button("Delete Rule");
+        deleteRuleButton.getStyleClass().add("cancel-button");
+        deleteRuleButton.disableProperty().bind(rulesList.getSelectionModel().selectedItemProperty().isNull());
+        deleteRuleButton.setOnAction(e -> {
+            AutoTagRule selected = rulesList.getSelectionModel().getSelectedItem();
+            try {
+                controller.deleteAutoTagRule(selected.getId());
+                rulesList.getItems().remove(selected);
+            } catch (RuntimeException ex) {
+                // The controller has already shown the error
+            }
+        });
+        Button retagButton = new Button("Re-tag All Files");
+        retagButton.disableProperty().bind(Bindings.isEmpty(rulesList.getItems()));
+        retagButton.setOnAction(e -> runRetagAll());
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        Button closeButton = new Button("Close");
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> rulesWindow.close());
+        HBox buttonBox = new HBox(10, deleteRuleButton, retagButton, spacer, closeButton);
+        buttonBox.setAlignment(Pos.CENTER_LEFT);
+
+        layout.getChildren().addAll(titleLabel, hintLabel, rulesList, addRuleBox, buttonBox);
+
+        Scene scene = new Scene(layout, 620, 420);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        rulesWindow.setScene(scene);
+        rulesWindow.showAndWait();
+    }
+
+    /**
+     * Applies the auto-tag rules to the whole catalog, matching on background threads and
+     * writing each batch on the UI thread as it is ready.
+     */
+    private void runRetagAll() {
+        Stage progressWindow = new Stage();
+        progressWindow.setTitle("Re-tagging Files");
+        progressWindow.initModality(Modality.APPLICATION_MODAL);
+
+        VBox layout = new VBox(15);
+        layout.setPadding(new Insets(20));
+        layout.getStyleClass().add("custom-dialog");
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        Label statusLabel = new Label("Matching rules...");
+        statusLabel.getStyleClass().add("file-metadata");
+        Button actionButton = new Button("Cancel");
+        actionButton.setPrefWidth(100);
+        HBox buttonBox = new HBox(actionButton);
+        buttonBox.setAlignment(Pos.CENTER_RIGHT);
+        layout.getChildren().addAll(progressBar, statusLabel, buttonBox);
+
+        CancellationToken token = new CancellationToken();
+        actionButton.setOnAction(e -> {
+            token.cancel();
+            progressWindow.close();
+        });
+        progressWindow.setOnHidden(e -> token.cancel());
+
+        ProgressListener listener = (done, total) -> Platform.runLater(() -> {
+            progressBar.setProgress((double) done / total);
+            statusLabel.setText(String.format("Matched %,d of %,d files", done, total));
+        });
+        Thread retagger = new Thread(() -> {
+            String summary;
+            try {
+                int changed = controller.retagAll(Platform::runLater, listener, token);
+                summary = String.format("Added tags to %,d files", changed);
+            } catch (CancellationException e) {
+                summary = null;
+            } catch (RuntimeException e) {
+                summary = "Re-tagging stopped: " + e.getMessage();
+            }
+            String finalSummary = summary;
+            Platform.runLater(() -> {
+                refreshTable();
+                if (tagFilterBox != null) {
+                    updateTagFilterBox();
+                }
+                if (finalSummary != null) {
+                    progressBar.setProgress(1);
+                    statusLabel.setText(finalSummary);
+                    actionButton.setText("Close");
+                }
+            });
+        }, "auto-tag-retag");
+        retagger.setDaemon(true);
+        retagger.start();
+
+        Scene scene = new Scene(layout, 450, 150);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        progressWindow.setScene(scene);
+        progressWindow.show();
+    }
+
+    private void showDuplicatesWindow() {
+        Stage duplicatesWindow = new Stage();
+        duplicatesWindow.setTitle("Duplicate Files");
+        duplicatesWindow.initModality(Modality.APPLICATION_MODAL);
+
+        VBox layout = new VBox(15);
+        layout.setPadding(new Insets(20));
+        layout.getStyleClass().add("custom-dialog");
+
+        Label titleLabel = new Label("Duplicate Files");
+        titleLabel.getStyleClass().add("title-label");
+
+        VBox groupsBox = new VBox(10);
+        List<List<TaggedFile>> groups = controller.getDuplicateGroups();
+        for (List<TaggedFile> group : groups) {
+            FileFingerprint fingerprint = group.get(0).getFingerprint();
+            Label groupLabel = new Label(group.size() + " copies, " + formatFileSize(fingerprint.getSize()) + " each");
+            groupLabel.getStyleClass().add("section-label");
+            VBox groupBox = new VBox(2, groupLabel);
+            for (TaggedFile file : group) {
+                Hyperlink link = new Hyperlink(file.getFilePath());
+                link.getStyleClass().add("recent-file-link");
+                link.setOnAction(e -> {
+                    openFile(file);
+                    refreshTable();
+                });
+                groupBox.getChildren().add(link);
+            }
+            groupsBox.getChildren().add(groupBox);
         }
+        if (groups.isEmpty()) {
+            Label noneLabel = new Label("No duplicates found among the hashed files.");
+            noneLabel.getStyleClass().add("file-metadata");
+            groupsBox.getChildren().add(noneLabel);
+        }
+        ScrollPane scrollPane = new ScrollPane(groupsBox);
+        scrollPane.setFitToWidth(true);
+        VBox.setVgrow(scrollPane, Priority.ALWAYS);
+
+        Button closeButton = new Button("Close");
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> duplicatesWindow.close());
+        HBox buttonBox = new HBox(closeButton);
+        buttonBox.setAlignment(Pos.CENTER_RIGHT);
+
+        layout.getChildren().addAll(titleLabel, scrollPane, buttonBox);
+
+        Scene scene = new Scene(layout, 600, 450);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        duplicatesWindow.setScene(scene);
+        duplicatesWindow.showAndWait();
+    }
+    
+    private static boolean isFuzzySearchEligible(String option, String term) {
+        return ("File Name".equals(option) || "Path".equals(option))
+                && term != null && term.trim().length() >= 3;
+    }
+    
+    private static boolean isQuerySearch(String option, String term) {
+        return QUERY_SEARCH_OPTION.equals(option) && term != null && !term.trim().isEmpty();
+    }
+    
+    private void markSearchError(String message) {
+        if (searchField == null) {
+            return;
+        }
+        searchField.getStyleClass().remove("search-error");
+        searchField.setTooltip(null);
+        if (message != null) {
+            searchField.getStyleClass().add("search-error");
+            searchField.setTooltip(new Tooltip(message));
+        }
+    }
+    
+    /**
+     * Shows a list of files. Must run on the UI thread, so that a newer search result can
+     * never be overtaken by an older one.
+     * 
+     * @param filesToDisplay The files in display order
+     * @param fuzzy Whether the files are ranked "did you mean" matches
+     */
+    private void updateFileListDisplay(List<TaggedFile> filesToDisplay, boolean fuzzy) {
+        boolean showHint = fuzzy && !filesToDisplay.isEmpty();
+        didYouMeanLabel.setVisible(showHint);
+        didYouMeanLabel.setManaged(showHint);
+        
+        // Patch the list instead of replacing it: only rows that were added, moved or
+        // changed are touched, and only the cells in view are ever bound
+        ListReconciler.reconcile(displayedFiles, filesToDisplay, TaggedFile::getFilePath, MainView::isDisplayedAlike);
+        expandedFiles.retainAll(filesToDisplay.stream().map(TaggedFile::getFilePath).collect(Collectors.toSet()));
+    }
+    
+    private void sortFiles(String sortOption, boolean ascending) {
+        // Update current sort settings
+        this.currentSortOption = sortOption;
+        this.currentSortAscending = ascending;
         
-        // Tags flow pane - horizontal layout
-        FlowPane tagsPane = new FlowPane();
-        tagsPane.setHgap(8); // Increased gap for better visuals
-        tagsPane.setVgap(8);
-        tagsPane.setPadding(new Insets(2)); // Small padding around tags
-        HBox.setHgrow(tagsPane, Priority.ALWAYS); // Allow tags pane to take available horizontal space
-        
-        for (String tagName : file.getTags()) {
-            // Get tag color
-            Tag tag = tagColorMap.get(tagName);
-            String colorHex = (tag != null) ? tag.getColorHex() : "#2196F3"; // Default blue
+        // Search again with the new order; fuzzy matches stay in rank order
+        scheduleSearch(0);
+    }
+
+    /**
+     * Shows one file of the list. The list only creates cells for the rows in view and reuses
+     * them while scrolling, so each cell builds its nodes once and {@link #updateItem} rebinds
+     * them to whichever file the row now shows.
+     */
+    private final class FileCell extends ListCell<TaggedFile> {
+        private final TitledPane filePanel = new TitledPane();
+        private final ImageView thumbnail = new ImageView();
+        private final Label fileNameLabel = new Label();
+        private final Region statusIndicator = new Region();
+        private final FlowPane tagsPane = new FlowPane();
+        private final Label pathLabel = new Label();
+        private final Label sizeLabel = new Label();
+        private final Label modifiedLabel = new Label();
+        private final Label typeLabel = new Label();
+        private final FlowPane similarFilesPane = new FlowPane(10, 4);
+        private final Image fileIcon;
+        // Set while the panel is rebound, so restoring a row's expansion is not taken as a click
+        private boolean binding = false;
+        // Copy of the file the nodes currently show
+        private TaggedFile boundFile;
+        private boolean boundExists;
+        private Map<String, String> boundTagColors;
+
+        FileCell() {
+            getStyleClass().add("file-cell");
             
-            Label tagLabel = new Label(tagName);
-            tagLabel.getStyleClass().add("tag-pill");
+            // Create the main content for the collapsed state
+            HBox header = new HBox();
+            header.setAlignment(Pos.CENTER_LEFT);
+            header.setPadding(new Insets(10, 15, 10, 15)); // Increased padding for better spacing
+            header.setPrefWidth(Control.USE_COMPUTED_SIZE); // Make panel fit window width
+            header.setMaxWidth(Double.MAX_VALUE); // Allow expansion to full width
+            header.setSpacing(15); // Add spacing between elements for better readability
+            
+            // Action buttons with icons - on the left side
+            HBox actionButtons = new HBox(10);  // Spacing between buttons
+            actionButtons.setAlignment(Pos.CENTER_LEFT);
+            
+            // Edit tags button with icon
+            Button editTagsButton = createActionButton("edit-button", "/Image/pencil_505210.png", "✏️", "Edit Tags");
+            editTagsButton.setOnAction(e -> editFileTags(getItem()));
+            
+            // Open file button with icon
+            Button openFileButton = createActionButton("open-button", "/Image/folder_3767084.png", "📁", "Open File");
+            openFileButton.setOnAction(e -> openFile(getItem()));
+            
+            // Delete button with icon
+            Button deleteFileButton = createActionButton("delete-button", "/Image/trash_1161747.png", "🗑️", "Remove");
+            deleteFileButton.setOnAction(e -> {
+                TaggedFile file = getItem();
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setTitle("Remove File");
+                alert.setHeaderText("Remove " + file.getFileName());
+                alert.setContentText("Are you sure you want to remove this file from the system?");
+                
+                Optional<ButtonType> result = alert.showAndWait();
+                if (result.isPresent() && result.get() == ButtonType.OK) {
+                    controller.deleteFile(file.getFilePath());
+                    refreshTable();
+                }
+            });
+            
+            actionButtons.getChildren().addAll(editTagsButton, openFileButton, deleteFileButton);
+            
+            // Image previews replace the generic file icon once they are loaded
+            ImageView icon = createIcon("/Image/file_338043.png", 24);
+            fileIcon = icon != null ? icon.getImage() : null;
+            thumbnail.setPreserveRatio(true);
+            thumbnail.setSmooth(true);
+            StackPane thumbnailSlot = new StackPane(thumbnail);
+            thumbnailSlot.setMinSize(THUMBNAIL_SLOT_SIZE, THUMBNAIL_SLOT_SIZE);
+            thumbnailSlot.setPrefSize(THUMBNAIL_SLOT_SIZE, THUMBNAIL_SLOT_SIZE);
+            thumbnailSlot.setMaxSize(THUMBNAIL_SLOT_SIZE, THUMBNAIL_SLOT_SIZE);
+            
+            // File name label with larger font
+            fileNameLabel.getStyleClass().add("file-name");
+            fileNameLabel.setPrefWidth(300);
+            fileNameLabel.setMinWidth(200);
+            
+            // Status indicator based on tags - to the right of file name
+            statusIndicator.setMinSize(8, 16);
+            statusIndicator.setPrefSize(8, 16);
+            statusIndicator.setMaxSize(8, 16);
+            
+            // Tags flow pane - horizontal layout
+            tagsPane.setHgap(8); // Increased gap for better visuals
+            tagsPane.setVgap(8);
+            tagsPane.setPadding(new Insets(2)); // Small padding around tags
+            HBox.setHgrow(tagsPane, Priority.ALWAYS); // Allow tags pane to take available horizontal space
+            
+            // Add all components to header in the correct order
+            header.getChildren().addAll(actionButtons, thumbnailSlot, fileNameLabel, statusIndicator, tagsPane);
             
-            // Apply the tag's specific color
-            tagLabel.setStyle("-fx-background-color: " + colorHex + ";");
+            // Titled pane with the header; cells change height when it expands, so it is not animated
+            filePanel.setGraphic(header);
+            filePanel.setText(null); // No text in the title bar, using custom header
+            filePanel.setAnimated(false);
+            filePanel.getStyleClass().add("file-panel");
             
-            // For dark colors, use white text; for light colors, use dark text
-            if (tag != null && isColorDark(tag.getColor())) {
-                tagLabel.setTextFill(javafx.scene.paint.Color.WHITE);
+            // Content for expanded state: path, then size, modification time and type from the cached metadata
+            pathLabel.getStyleClass().add("file-metadata");
+            sizeLabel.getStyleClass().add("file-metadata");
+            modifiedLabel.getStyleClass().add("file-metadata");
+            typeLabel.getStyleClass().add("file-metadata");
+            
+            // Similar files, looked up when the panel is expanded
+            Label similarLabel = new Label("Similar files:");
+            similarLabel.getStyleClass().add("file-metadata");
+            HBox similarRow = new HBox(10, similarLabel, similarFilesPane);
+            similarRow.setAlignment(Pos.CENTER_LEFT);
+            
+            VBox expandedContent = new VBox(10, pathLabel, sizeLabel, modifiedLabel, typeLabel, similarRow);
+            expandedContent.setPadding(new Insets(10, 15, 15, 15));
+            filePanel.setContent(expandedContent);
+            
+            // Expansion belongs to the file, not to the cell that happens to show it
+            filePanel.expandedProperty().addListener((observable, wasExpanded, isExpanded) -> {
+                if (binding || getItem() == null) {
+                    return;
+                }
+                if (isExpanded) {
+                    expandedFiles.add(getItem().getFilePath());
+                    similarFilesPane.getChildren().clear();
+                    showSimilarFiles(getItem(), similarFilesPane);
+                } else {
+                    expandedFiles.remove(getItem().getFilePath());
+                }
+            });
+            
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+
+        /**
+         * Files are equal by path, so a file whose tags changed would count as the same item;
+         * {@link #updateItem} decides itself whether anything needs rebinding.
+         */
+        @Override
+        protected boolean isItemChanged(TaggedFile oldItem, TaggedFile newItem) {
+            return true;
+        }
+
+        @Override
+        protected void updateItem(TaggedFile file, boolean empty) {
+            super.updateItem(file, empty);
+            if (empty || file == null) {
+                boundFile = null;
+                setGraphic(null);
+                thumbnail.setImage(null);
+                return;
+            }
+            // The health check and the watcher keep the Missing tag current, so a render never stats the file
+            boolean exists = !file.getTags().contains(Tag.TAG_MISSING);
+            Map<String, String> tagColors = tagColorsOf(file);
+            // The list rebinds every visible cell on any change; only a cell whose file looks different rebuilds
+            if (boundFile == null || !boundFile.getFilePath().equals(file.getFilePath())
+                    || !isDisplayedAlike(boundFile, file) || boundExists != exists || !tagColors.equals(boundTagColors)) {
+                bind(file, exists);
+                boundFile = copyWithTags(file, file.getTags());
+                boundExists = exists;
+                boundTagColors = tagColors;
+            }
+            setGraphic(filePanel);
+        }
+
+        private Map<String, String> tagColorsOf(TaggedFile file) {
+            Map<String, String> colors = new HashMap<>();
+            for (String tagName : file.getTags()) {
+                Tag tag = tagColorMap.get(tagName);
+                colors.put(tagName, tag != null ? tag.getColorHex() : null);
+            }
+            return colors;
+        }
+
+        private void bind(TaggedFile file, boolean exists) {
+            fileNameLabel.setText(file.getFileName());
+            
+            statusIndicator.getStyleClass().setAll("status-indicator");
+            if (!exists) {
+                // Missing file - red indicator
+                statusIndicator.getStyleClass().add("status-missing");
+            } else if (file.getTags().contains("Done")) {
+                statusIndicator.getStyleClass().add("status-done");
+            } else if (file.getTags().contains("In Progress")) {
+                statusIndicator.getStyleClass().add("status-in-progress");
             } else {
-                tagLabel.setTextFill(javafx.scene.paint.Color.rgb(33, 33, 33));
+                statusIndicator.getStyleClass().add("status-new");
+            }
+            filePanel.getStyleClass().remove("missing-file");
+            if (!exists) {
+                filePanel.getStyleClass().add("missing-file");
             }
             
-            tagsPane.getChildren().add(tagLabel);
+            tagsPane.getChildren().clear();
+            for (String tagName : file.getTags()) {
+                tagsPane.getChildren().add(createTagPill(tagName));
+            }
+            
+            bindThumbnail(file, exists);
+            
+            pathLabel.setText("Path: " + file.getFilePath());
+            FileFingerprint fingerprint = file.getFingerprint();
+            String fileSize = "Unknown";
+            String lastModified = "Unknown";
+            if (fingerprint != null) {
+                fileSize = formatFileSize(fingerprint.getSize());
+                lastModified = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
+                        .format(new java.util.Date(fingerprint.getModifiedMillis()));
+            }
+            sizeLabel.setText("Size: " + fileSize);
+            modifiedLabel.setText("Last Modified: " + lastModified);
+            typeLabel.setText("Type: " + (file.getMimeType() != null ? file.getMimeType() : "Unknown"));
+            
+            binding = true;
+            boolean expanded = expandedFiles.contains(file.getFilePath());
+            filePanel.setExpanded(expanded);
+            binding = false;
+            similarFilesPane.getChildren().clear();
+            if (expanded) {
+                showSimilarFiles(file, similarFilesPane);
+            }
         }
-        
-        // Add all components to header in the correct order
-        header.getChildren().addAll(actionButtons, fileNameLabel, statusIndicator, tagsPane);
-        
-        // Create titled pane with the header
-        TitledPane filePanel = new TitledPane();
-        filePanel.setGraphic(header);
-        filePanel.setText(null); // No text in the title bar, using custom header
-        filePanel.setExpanded(false);
-        filePanel.setAnimated(true);
-        filePanel.getStyleClass().add("file-panel");
-        
-        // Add missing-file class to the file panel if the file doesn't exist
-        if (!fileObj.exists()) {
-            filePanel.getStyleClass().add("missing-file");
+
+        /**
+         * Shows the file's thumbnail, or the generic icon while it loads. A thumbnail that
+         * arrives after the cell moved on to another file is dropped.
+         */
+        private void bindThumbnail(TaggedFile file, boolean exists) {
+            Image cached = exists && ThumbnailService.isSupported(file.getFileName())
+                    ? thumbnailService.getCached(file) : null;
+            if (cached != null) {
+                showThumbnail(cached);
+                return;
+            }
+            thumbnail.setImage(fileIcon);
+            thumbnail.setFitWidth(24);
+            thumbnail.setFitHeight(24);
+            if (exists && ThumbnailService.isSupported(file.getFileName())) {
+                thumbnailService.request(file, image -> {
+                    if (getItem() != null && getItem().getFilePath().equals(file.getFilePath())) {
+                        showThumbnail(image);
+                    }
+                });
+            }
+        }
+
+        private void showThumbnail(Image image) {
+            thumbnail.setFitWidth(THUMBNAIL_SLOT_SIZE);
+            thumbnail.setFitHeight(THUMBNAIL_SLOT_SIZE);
+            thumbnail.setImage(image);
         }
+    }
+
+    /**
+     * Copies a file with another set of tags, keeping its other fields.
+     */
+    private static TaggedFile copyWithTags(TaggedFile file, Set<String> tags) {
+        TaggedFile copy = new TaggedFile(file.getFileName(), file.getFilePath(), new HashSet<>(tags));
+        copy.setCreatedAt(file.getCreatedAt());
+        copy.setLastAccessedAt(file.getLastAccessedAt());
+        copy.setFingerprint(file.getFingerprint());
+        copy.setMimeType(file.getMimeType());
+        return copy;
+    }
+
+    /**
+     * Tells whether two versions of a file look the same in the list.
+     */
+    private static boolean isDisplayedAlike(TaggedFile a, TaggedFile b) {
+        return Objects.equals(a.getFileName(), b.getFileName())
+                && a.getTags().equals(b.getTags())
+                && Objects.equals(a.getFingerprint(), b.getFingerprint())
+                && Objects.equals(a.getMimeType(), b.getMimeType());
+    }
+
+    private Button createActionButton(String styleClass, String iconPath, String fallbackText, String tooltip) {
+        Button button = new Button();
+        button.getStyleClass().addAll("icon-button", styleClass);
+        button.setPrefSize(30, 30);
+        button.setMinSize(30, 30);
+        button.setMaxSize(30, 30);
+        ImageView icon = createIcon(iconPath, 16);
+        if (icon != null) {
+            button.setGraphic(icon);
+        } else {
+            button.setText(fallbackText);
+        }
+        button.setTooltip(new Tooltip(tooltip));
+        return button;
+    }
+
+    private Label createTagPill(String tagName) {
+        // Get tag color
+        Tag tag = tagColorMap.get(tagName);
+        String colorHex = (tag != null) ? tag.getColorHex() : "#2196F3"; // Default blue
         
-        // Create content for expanded state
-        VBox expandedContent = new VBox(10);
-        expandedContent.setPadding(new Insets(10, 15, 15, 15));
+        Label tagLabel = new Label(tagName);
+        tagLabel.getStyleClass().add("tag-pill");
         
-        // File path
-        Label pathLabel = new Label("Path: " + file.getFilePath());
-        pathLabel.getStyleClass().add("file-metadata");
+        // Apply the tag's specific color
+        tagLabel.setStyle("-fx-background-color: " + colorHex + ";");
         
-        // File size
-        String fileSize = "Unknown";
-        if (fileObj.exists()) {
-            long size = fileObj.length();
-            if (size < 1024) {
-                fileSize = size + " B";
-            } else if (size < 1024 * 1024) {
-                fileSize = String.format("%.2f KB", size / 1024.0);
-            } else {
-                fileSize = String.format("%.2f MB", size / (1024.0 * 1024.0));
+        // For dark colors, use white text; for light colors, use dark text
+        if (tag != null && isColorDark(tag.getColor())) {
+            tagLabel.setTextFill(javafx.scene.paint.Color.WHITE);
+        } else {
+            tagLabel.setTextFill(javafx.scene.paint.Color.rgb(33, 33, 33));
+        }
+        return tagLabel;
+    }
+
+    private static String formatFileSize(long size) {
+        if (size < 1024) {
+            return size + " B";
+        } else if (size < 1024 * 1024) {
+            return String.format("%.2f KB", size / 1024.0);
+        }
+        return String.format("%.2f MB", size / (1024.0 * 1024.0));
+    }
+
+    private void showSimilarFiles(TaggedFile file, FlowPane pane) {
+        TagBitmapIndex index = controller.getTagIndex();
+        for (SimilarFilesIndex.Match match : controller.getSimilarFiles(file.getFilePath(), MAX_SIMILAR_FILES)) {
+            int ordinal = index.indexOf(match.getFilePath());
+            if (ordinal < 0) {
+                continue;
             }
+            TaggedFile similarFile = index.getFile(ordinal);
+            Hyperlink link = new Hyperlink(similarFile.getFileName());
+            link.getStyleClass().add("recent-file-link");
+            link.setTooltip(new Tooltip(similarFile.getFilePath() + "\n"
+                    + Math.round(match.getSimilarity() * 100) + "% of tags in common"));
+            link.setOnAction(e -> {
+                openFile(similarFile);
+                refreshTable();
+            });
+            pane.getChildren().add(link);
         }
-        Label sizeLabel = new Label("Size: " + fileSize);
-        sizeLabel.getStyleClass().add("file-metadata");
-        
-        // Last modified
-        String lastModified = "Unknown";
-        if (fileObj.exists()) {
-            lastModified = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.util.Date(fileObj.lastModified()));
+        if (pane.getChildren().isEmpty()) {
+            Label noneLabel = new Label("None");
+            noneLabel.getStyleClass().add("file-metadata");
+            pane.getChildren().add(noneLabel);
         }
-        Label modifiedLabel = new Label("Last Modified: " + lastModified);
-        modifiedLabel.getStyleClass().add("file-metadata");
-        
-        expandedContent.getChildren().addAll(pathLabel, sizeLabel, modifiedLabel);
-        filePanel.setContent(expandedContent);
-        
-        return filePanel;
     }
 
     private void openFile(TaggedFile file) {
         try {
             File fileToOpen = new File(file.getFilePath());
-            if (fileToOpen.exists()) {
-                // Update last accessed time
-                file.updateLastAccessed();
+            if (controller.fileExists(file.getFilePath())) {
+                // Rewriting the tags stamps the last accessed time
                 controller.updateFileTags(file);
                 
                 // Open the file with the default system application
@@ -1210,7 +2217,7 @@ public class MainView {
         alert.showAndWait();
     }
 
-    private boolean isFileMatchingFilters(TaggedFile file) {
+    private static boolean isFileMatchingFilters(TaggedFile file, Set<String> selectedTags) {
         if (selectedTags.isEmpty()) {
             return true;
         }
@@ -1224,70 +2231,155 @@ public class MainView {
         return false;
     }
 
-    private boolean matchesSearchCriteria(TaggedFile file) {
-        if (searchTerm == null || searchTerm.isEmpty()) {
-            return true;
+    private static SearchSession.Field toSearchField(String option) {
+        switch (option) {
+            case "File Name":
+                return SearchSession.Field.FILE_NAME;
+            case "Tags":
+                return SearchSession.Field.TAGS;
+            case "Path":
+                return SearchSession.Field.PATH;
+            default:
+                return null;
         }
-        
-        String term = searchTerm.toLowerCase();
-        if (searchOption.equals("File Name")) {
-            return file.getFileName().toLowerCase().contains(term);
-        } else if (searchOption.equals("Tags")) {
-            return file.getTags().stream()
-                    .anyMatch(tag -> tag.toLowerCase().contains(term));
-        } else if (searchOption.equals("Path")) {
-            return file.getFilePath().toLowerCase().contains(term);
+    }
+
+    /**
+     * Runs the health check now and then every {@link #HEALTH_CHECK_INTERVAL_MINUTES} minutes on
+     * a low-priority background thread. The first run is the startup scan for missing files;
+     * relinking and the metadata refresh start once it has been applied.
+     */
+    private void scheduleHealthChecks() {
+        HealthCheck healthCheck = new HealthCheck(controller.getPathStatusCache());
+        AtomicBoolean startup = new AtomicBoolean(true);
+        healthCheckScheduler.scheduleWithFixedDelay(() -> {
+            boolean first = startup.getAndSet(false);
+            AtomicInteger shownPercent = new AtomicInteger(-1);
+            ProgressListener listener = (done, total) -> {
+                int percent = total > 0 ? done * 100 / total : 100;
+                // Only a changed percentage is worth a trip to the UI thread
+                if (shownPercent.getAndSet(percent) != percent) {
+                    Platform.runLater(() -> setHealthStatus("Checking files... " + percent + "%", false));
+                }
+            };
+            try {
+                HealthCheck.HealthCheckResult result = controller.runHealthCheck(healthCheck, Platform::runLater,
+                        listener, maintenanceToken);
+                Platform.runLater(() -> showHealthCheck(result, first));
+            } catch (CancellationException e) {
+                // Window closed while checking
+            } catch (RuntimeException e) {
+                System.err.println("Error running health check: " + e.getMessage());
+                if (first) {
+                    Platform.runLater(() -> {
+                        relinkMovedFiles();
+                        refreshFileMetadata();
+                    });
+                }
+            }
+        }, 0, HEALTH_CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Applies a health check and patches only the panels of files whose Missing tag changed.
+     *
+     * @param result The completed check
+     * @param startup Whether this is the first check since the application started
+     */
+    private void showHealthCheck(HealthCheck.HealthCheckResult result, boolean startup) {
+        List<String> changed = controller.applyHealthCheck(result);
+        int missingCount = result.getMissingCount();
+        setHealthStatus(missingCount == 0 ? "All files present" : String.format("%,d files missing", missingCount),
+                missingCount > 0 || !result.isSuccess());
+        if (healthStatusLabel != null) {
+            healthStatusLabel.setTooltip(new Tooltip(result.getMessage() + "\nChecked "
+                    + result.getCompletedAt().format(DateTimeFormatter.ofPattern("HH:mm"))));
+        }
+
+        if (!changed.isEmpty()) {
+            updateFilePanels(new HashSet<>(changed));
+            if (tagFilterBox != null) {
+                updateTagFilterBox();
+            }
+            List<String> newlyMissing = result.getScan().getNewlyMissing().stream()
+                    .filter(changed::contains)
+                    .collect(Collectors.toList());
+            if (!newlyMissing.isEmpty()) {
+                showMissingFilesAlert(newlyMissing);
+            }
+        }
+        if (startup) {
+            relinkMovedFiles();
+            refreshFileMetadata();
+        }
+    }
+
+    private void setHealthStatus(String text, boolean warning) {
+        if (healthStatusLabel == null) {
+            return;
+        }
+        healthStatusLabel.setText(text);
+        healthStatusLabel.getStyleClass().remove("health-status-warning");
+        if (warning) {
+            healthStatusLabel.getStyleClass().add("health-status-warning");
         }
-        return false;
     }
 
     /**
-     * Highlights files in the table that are missing from the file system.
-     * Missing files will be highlighted in yellow.
-     * 
-     * @param missingFilePaths List of file paths that are missing
+     * Replaces the given files in the list with their current state; only the cells showing
+     * them are rebound, and expansion is kept. When tag filters or a search are active the
+     * change may move files in or out of the list, so it is refreshed instead.
+     *
+     * @param filePaths The files that changed
      */
-    public void highlightMissingFiles(List<String> missingFilePaths) {
-        if (missingFilePaths == null || missingFilePaths.isEmpty()) {
+    private void updateFilePanels(Set<String> filePaths) {
+        if (fileListView == null) {
             return;
         }
-        
-        // Refresh the file list to apply the highlighting
-        refreshTable();
-        
-        // Apply highlighting to missing files
-        for (Node node : fileListContainer.getChildren()) {
-            if (node instanceof TitledPane) {
-                TitledPane filePanel = (TitledPane) node;
-                if (filePanel.getUserData() instanceof TaggedFile) {
-                    TaggedFile file = (TaggedFile) filePanel.getUserData();
-                    if (missingFilePaths.contains(file.getFilePath())) {
-                        // File is missing - apply missing file CSS class
-                        filePanel.getStyleClass().add("missing-file-panel");
-                    }
-                }
+        if (!selectedTags.isEmpty() || (searchTerm != null && !searchTerm.isEmpty())) {
+            refreshTable();
+            return;
+        }
+        // Look the files up in the catalog snapshot; building an index here would stall the UI
+        Map<String, TaggedFile> changed = new HashMap<>();
+        for (TaggedFile file : controller.getAllFiles()) {
+            if (filePaths.contains(file.getFilePath())) {
+                changed.put(file.getFilePath(), file);
             }
         }
-        
-        // Show a notification about missing files that includes the filenames
-        if (!missingFilePaths.isEmpty()) {
-            Alert alert = new Alert(Alert.AlertType.WARNING);
-            alert.setTitle("Missing Files");
-            alert.setHeaderText("Some files are missing");
-            
-            // Build a list of missing filenames to display
-            StringBuilder missingFilesText = new StringBuilder("The following files are missing:\n\n");
-            for (String filePath : missingFilePaths) {
-                File file = new File(filePath);
-                missingFilesText.append("• ").append(file.getName()).append("\n");
+        for (int i = 0; i < displayedFiles.size(); i++) {
+            TaggedFile file = changed.get(displayedFiles.get(i).getFilePath());
+            if (file != null) {
+                displayedFiles.set(i, file);
             }
-            missingFilesText.append("\nThey may have been moved, renamed, or deleted.");
-            
-            alert.setContentText(missingFilesText.toString());
-            alert.show();
         }
     }
 
+    /**
+     * Lists files that went missing since the last check.
+     *
+     * @param missingFilePaths The paths of the newly missing files
+     */
+    private void showMissingFilesAlert(List<String> missingFilePaths) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Missing Files");
+        alert.setHeaderText("Some files are missing");
+
+        // Build a list of missing filenames to display
+        StringBuilder missingFilesText = new StringBuilder("The following files are missing:\n\n");
+        for (String filePath : missingFilePaths.subList(0, Math.min(MAX_LISTED_MISSING_FILES, missingFilePaths.size()))) {
+            missingFilesText.append("• ").append(new File(filePath).getName()).append("\n");
+        }
+        if (missingFilePaths.size() > MAX_LISTED_MISSING_FILES) {
+            missingFilesText.append(String.format("...and %,d more\n",
+                    missingFilePaths.size() - MAX_LISTED_MISSING_FILES));
+        }
+        missingFilesText.append("\nThey may have been moved, renamed, or deleted.");
+
+        alert.setContentText(missingFilesText.toString());
+        alert.show();
+    }
+
     public void show() {
         stage.show();
     }
@@ -1340,24 +2432,27 @@ public class MainView {
         centerContent.setPadding(new Insets(10));
         centerContent.setFillWidth(true);
         
-        // Create file list container
-        fileListContainer = new VBox(5);
-        fileListContainer.setPadding(new Insets(10));
-        fileListContainer.setFillWidth(true);
+        // Shown above ranked fuzzy matches when an exact search finds nothing
+        didYouMeanLabel = new Label("No exact matches. Did you mean:");
+        didYouMeanLabel.getStyleClass().add("did-you-mean-label");
+        didYouMeanLabel.setVisible(false);
+        didYouMeanLabel.setManaged(false);
         
-        // Create scroll pane to contain the file list
-        ScrollPane fileListScrollPane = new ScrollPane(fileListContainer);
-        fileListScrollPane.setFitToWidth(true);
-        fileListScrollPane.setFitToHeight(true); // Make it fill available height
-        fileListScrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        fileListScrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        fileListScrollPane.setPrefHeight(Region.USE_COMPUTED_SIZE); // Dynamic height
-        fileListScrollPane.setMinHeight(400); // Minimum height
+        // Virtualized file list: cells exist only for the rows in view and are reused while scrolling
+        fileListView = new ListView<>(displayedFiles);
+        fileListView.getStyleClass().add("file-list");
+        fileListView.setCellFactory(listView -> new FileCell());
+        fileListView.setFocusTraversable(false);
+        Label noFilesLabel = new Label("No files found.");
+        noFilesLabel.getStyleClass().add("no-files-label");
+        fileListView.setPlaceholder(noFilesLabel);
+        fileListView.setPrefHeight(Region.USE_COMPUTED_SIZE); // Dynamic height
+        fileListView.setMinHeight(400); // Minimum height
         
-        // Make the scroll pane expand to fill available space
-        VBox.setVgrow(fileListScrollPane, Priority.ALWAYS);
+        // Make the list expand to fill available space
+        VBox.setVgrow(fileListView, Priority.ALWAYS);
         
-        centerContent.getChildren().add(fileListScrollPane);
+        centerContent.getChildren().addAll(didYouMeanLabel, fileListView);
         
         // Make the center content expand to fill available space
         VBox.setVgrow(centerContent, Priority.ALWAYS);
@@ -1387,6 +2482,17 @@ public class MainView {
         }
         addFileButton.setOnAction(e -> addFile());
         
+        // Import Folder button
+        Button importFolderButton = new Button("Import Folder");
+        importFolderButton.getStyleClass().add("sidebar-button");
+        importFolderButton.setMaxWidth(Double.MAX_VALUE);
+        ImageView importFolderIcon = createIcon("/Image/file_338043.png", 24);
+        if (importFolderIcon != null) {
+            importFolderButton.setGraphic(importFolderIcon);
+            importFolderButton.setGraphicTextGap(10);
+        }
+        importFolderButton.setOnAction(e -> importFolder());
+        
         // Manage Tags button with icon
         Button manageTagsButton = new Button("Manage Tags");
         manageTagsButton.getStyleClass().add("sidebar-button");
@@ -1400,7 +2506,58 @@ public class MainView {
             showTagManagementWindow();
         });
         
-        sidebar.getChildren().addAll(appTitle, addFileButton, manageTagsButton);
+        // Rules that tag files automatically
+        Button autoTagButton = new Button("Auto-Tag Rules");
+        autoTagButton.getStyleClass().add("sidebar-button");
+        autoTagButton.setMaxWidth(Double.MAX_VALUE);
+        autoTagButton.setOnAction(e -> showAutoTagRulesWindow());
+        
+        // Duplicate files grouped by content hash
+        Button duplicatesButton = new Button("Find Duplicates");
+        duplicatesButton.getStyleClass().add("sidebar-button");
+        duplicatesButton.setMaxWidth(Double.MAX_VALUE);
+        duplicatesButton.setOnAction(e -> showDuplicatesWindow());
+        
+        // Outcome of the last background health check
+        healthStatusLabel = new Label("Checking files...");
+        healthStatusLabel.getStyleClass().add("health-status");
+        healthStatusLabel.setPadding(new Insets(5, 0, 0, 10));
+        
+        // Recently accessed or added files
+        Label recentLabel = new Label("Recent");
+        recentLabel.getStyleClass().add("section-label");
+        
+        ComboBox<String> recentModeBox = new ComboBox<>();
+        recentModeBox.getItems().addAll(RECENT_ACCESSED, RECENT_ADDED);
+        recentModeBox.setValue(recentMode);
+        recentModeBox.getStyleClass().add("combo-box");
+        recentModeBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            recentMode = newValue;
+            updateRecentFiles();
+        });
+        
+        Region recentSpacer = new Region();
+        HBox.setHgrow(recentSpacer, Priority.ALWAYS);
+        HBox recentHeader = new HBox(5, recentLabel, recentSpacer, recentModeBox);
+        recentHeader.setAlignment(Pos.CENTER_LEFT);
+        recentHeader.setPadding(new Insets(20, 0, 5, 10));
+        
+        recentFilesBox = new VBox(2);
+        recentFilesBox.setPadding(new Insets(0, 0, 0, 10));
+        updateRecentFiles();
+        
+        // Tag filter list with live facet counts
+        Label filterByTagLabel = new Label("Filter by Tag");
+        filterByTagLabel.getStyleClass().add("section-label");
+        filterByTagLabel.setPadding(new Insets(20, 0, 5, 10));
+        
+        tagFilterBox = new ListView<>();
+        tagFilterBox.getStyleClass().add("tag-filter-list");
+        VBox.setVgrow(tagFilterBox, Priority.ALWAYS);
+        updateTagFilterBox();
+        
+        sidebar.getChildren().addAll(appTitle, addFileButton, importFolderButton, manageTagsButton, autoTagButton,
+                duplicatesButton, healthStatusLabel, recentHeader, recentFilesBox, filterByTagLabel, tagFilterBox);
         return sidebar;
     }
 }
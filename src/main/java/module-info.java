@@ -8,6 +8,7 @@ module com.example {
     exports com.tagease.model;
     exports com.tagease.controller;
     exports com.tagease.database;
+    exports com.tagease.search;
     
     opens com.tagease to javafx.fxml;
     opens com.tagease.controller to javafx.fxml;
@@ -2,8 +2,14 @@ package com.tagease.controller;
 
 import com.tagease.database.DatabaseConfig;
 import com.tagease.database.TaggedFileDAO;
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.Tag;
 import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+import com.tagease.search.QueryNode;
+import com.tagease.search.TagBitmapIndex;
+import com.tagease.utils.HealthCheck;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,11 +22,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -166,7 +179,359 @@ public class TagControllerTest {
         // Act
         controller.checkForMissingFiles();
         
-        // Assert - The missing file should have the Missing tag added
-        verify(mockFileDAO, times(1)).updateFileTags(any(TaggedFile.class));
+        // Assert - The missing file should have the Missing tag added in one batch
+        verify(mockFileDAO, times(1)).updateMissingTags(
+            Collections.singletonList("/path/to/nonexistent/file.txt"), Collections.emptyList());
+        verify(mockFileDAO, never()).updateFileTags(any(TaggedFile.class));
+        assertTrue(controller.getAllFiles().stream()
+            .anyMatch(f -> f.getFilePath().equals("/path/to/nonexistent/file.txt")
+                && f.getTags().contains(Tag.TAG_MISSING)));
+    }
+    
+    @Test
+    public void testGetAllFilesIsServedFromCache() throws SQLException {
+        // Arrange
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(
+            new TaggedFile("file1.txt", "/path/to/file1.txt")
+        ));
+        
+        // Act
+        controller.getAllFiles();
+        List<TaggedFile> secondRead = controller.getAllFiles();
+        controller.getTagIndex();
+        
+        // Assert
+        assertEquals(1, secondRead.size());
+        verify(mockFileDAO, times(1)).getAllFiles();
+        assertEquals(1, controller.getCacheStats().getMisses());
+        assertEquals(2, controller.getCacheStats().getHits());
+    }
+    
+    @Test
+    public void testMutationsPatchCachedFiles() throws SQLException {
+        // Arrange
+        TaggedFile existing = new TaggedFile("file1.txt", "/path/to/file1.txt");
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(existing));
+        controller.getAllFiles();
+        
+        TaggedFile added = new TaggedFile("file2.txt", "/path/to/file2.txt");
+        added.addTag("work");
+        
+        // Act
+        controller.addFile(added, new HashSet<>(Collections.singletonList("work")));
+        controller.deleteFile("/path/to/file1.txt");
+        List<TaggedFile> files = controller.getAllFiles();
+        
+        // Assert
+        assertEquals(1, files.size());
+        assertEquals("/path/to/file2.txt", files.get(0).getFilePath());
+        assertTrue(files.get(0).getTags().contains("work"));
+        assertNotSame(added, files.get(0));
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+    
+    @Test
+    public void testFileSnapshotIsSharedUntilTheNextMutation() throws SQLException {
+        // Arrange
+        TaggedFile file = new TaggedFile("file1.txt", "/path/to/file1.txt",
+            new HashSet<>(Arrays.asList("work")));
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(file));
+        List<TaggedFile> first = controller.getAllFiles();
+        
+        // Act
+        List<TaggedFile> second = controller.getAllFiles();
+        TaggedFile edited = new TaggedFile("file1.txt", "/path/to/file1.txt",
+            new HashSet<>(Arrays.asList("work", "report")));
+        controller.updateFileTags(edited);
+        List<TaggedFile> third = controller.getAllFiles();
+        
+        // Assert - readers share one snapshot that nobody can change in place
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> first.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> first.get(0).addTag("report"));
+        assertNotSame(first, third);
+        assertEquals(Collections.singleton("work"), first.get(0).getTags());
+        assertEquals(new HashSet<>(Arrays.asList("work", "report")), third.get(0).getTags());
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+    
+    @Test
+    public void testSnapshotIndexIsKeptOnlyWhileTheSnapshotIsCurrent() throws SQLException {
+        // Arrange
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(
+            new TaggedFile("file1.txt", "/path/to/file1.txt", new HashSet<>(Arrays.asList("work")))));
+        List<TaggedFile> snapshot = controller.getAllFiles();
+        
+        // Act
+        TagBitmapIndex index = controller.getTagIndex(snapshot);
+        TagBitmapIndex again = controller.getTagIndex(snapshot);
+        controller.updateFileTags(new TaggedFile("file1.txt", "/path/to/file1.txt",
+            new HashSet<>(Arrays.asList("report"))));
+        TagBitmapIndex stale = controller.getTagIndex(snapshot);
+        
+        // Assert - a stale snapshot is indexed as it was, but does not replace the current index
+        assertSame(index, again);
+        assertNotSame(index, stale);
+        assertEquals(1, stale.collect(stale.all()).size());
+        assertTrue(stale.getFile(0).getTags().contains("work"));
+        assertTrue(controller.getTagIndex().getFile(0).getTags().contains("report"));
+        assertEquals(1, controller.fuzzySearch("file1", 5, controller.getAllFiles()).size());
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+    
+    @Test
+    public void testFailedMutationInvalidatesCache() throws SQLException {
+        // Arrange
+        TaggedFile file = new TaggedFile("file1.txt", "/path/to/file1.txt");
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(file));
+        doThrow(new SQLException("disk I/O error")).when(mockFileDAO).deleteFile("/path/to/file1.txt");
+        controller.getAllFiles();
+        
+        // Act
+        assertThrows(RuntimeException.class, () -> controller.deleteFile("/path/to/file1.txt"));
+        controller.getAllFiles();
+        
+        // Assert
+        verify(mockFileDAO, times(2)).getAllFiles();
+        assertEquals(1, controller.getCacheStats().getInvalidations());
+    }
+    
+    @Test
+    public void testCooccurringFollowsTagEdits() throws SQLException {
+        // Arrange
+        TaggedFile file = new TaggedFile("file1.txt", "/path/to/file1.txt",
+            new HashSet<>(Arrays.asList("work", "urgent")));
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(file));
+        assertEquals(Arrays.asList("urgent"), controller.getCooccurring("work", 5));
+        
+        // Act
+        TaggedFile edited = new TaggedFile("file1.txt", "/path/to/file1.txt",
+            new HashSet<>(Arrays.asList("work", "report")));
+        controller.updateFileTags(edited);
+        
+        // Assert - patched in place, without reloading the catalog
+        assertEquals(Arrays.asList("report"), controller.getCooccurring("work", 5));
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+    
+    @Test
+    public void testDateRangeUsesIndexOnceCatalogIsCached() throws SQLException {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        TaggedFile recent = new TaggedFile("recent.txt", "/path/to/recent.txt");
+        TaggedFile old = new TaggedFile("old.txt", "/path/to/old.txt");
+        old.setCreatedAt(today.minusDays(40).atStartOfDay());
+        when(mockFileDAO.getFilesCreatedBetween(any(), any())).thenReturn(Arrays.asList(recent));
+        
+        // Act - before the catalog is loaded the range goes to the database
+        List<TaggedFile> uncached = controller.getFilesInDateRange(QueryNode.DatePredicate.Field.CREATED,
+            today.minusDays(7), null);
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(recent, old));
+        controller.getAllFiles();
+        List<TaggedFile> cached = controller.getFilesInDateRange(QueryNode.DatePredicate.Field.CREATED,
+            today.minusDays(7), null);
+        
+        // Assert
+        assertEquals(1, uncached.size());
+        assertEquals(1, cached.size());
+        assertEquals("recent.txt", cached.get(0).getFileName());
+        verify(mockFileDAO, times(1)).getFilesCreatedBetween(today.minusDays(7).atStartOfDay(), null);
+    }
+    
+    @Test
+    public void testWatcherEventsUpdateMissingTag() throws SQLException {
+        // Arrange
+        TaggedFile tracked = new TaggedFile("a.txt", "/path/to/a.txt");
+        TaggedFile restored = new TaggedFile("b.txt", "/path/to/b.txt",
+            new HashSet<>(Arrays.asList(Tag.TAG_MISSING)));
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(tracked, restored));
+        
+        // Act
+        boolean changed = controller.fileStatusChanged(Set.of("/path/to/a.txt", "/path/to/unknown.txt"),
+            Set.of("/path/to/b.txt"));
+        boolean changedAgain = controller.fileStatusChanged(Set.of("/path/to/a.txt"), Set.of());
+        
+        // Assert - only real transitions of catalogued files are written
+        assertTrue(changed);
+        assertFalse(changedAgain);
+        verify(mockFileDAO, times(1)).updateMissingTags(List.of("/path/to/a.txt"), List.of("/path/to/b.txt"));
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+
+    @Test
+    public void testDuplicateGroupsShareContentHash() throws SQLException {
+        // Arrange
+        TaggedFile first = new TaggedFile("a.jpg", "/photos/a.jpg");
+        first.setFingerprint(new FileFingerprint(null, 100, 1L, "xxh64:00000000000000aa"));
+        TaggedFile copy = new TaggedFile("a copy.jpg", "/backup/a copy.jpg");
+        copy.setFingerprint(new FileFingerprint(null, 100, 2L, "xxh64:00000000000000aa"));
+        TaggedFile other = new TaggedFile("b.jpg", "/photos/b.jpg");
+        other.setFingerprint(new FileFingerprint(null, 100, 1L, "xxh64:00000000000000bb"));
+        TaggedFile unhashed = new TaggedFile("c.jpg", "/photos/c.jpg");
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(first, copy, other, unhashed));
+
+        // Act
+        List<List<TaggedFile>> groups = controller.getDuplicateGroups();
+
+        // Assert
+        assertEquals(1, groups.size());
+        assertEquals(Arrays.asList(first, copy), groups.get(0));
+    }
+
+    @Test
+    public void testRelinkSkipsMovesThatAreNoLongerValid() throws SQLException {
+        // Arrange
+        TaggedFile moved = new TaggedFile("a.jpg", "/photos/a.jpg", new HashSet<>(List.of(Tag.TAG_MISSING)));
+        TaggedFile found = new TaggedFile("b.jpg", "/photos/b.jpg", new HashSet<>(List.of("work")));
+        TaggedFile blocked = new TaggedFile("c.jpg", "/photos/c.jpg", new HashSet<>(List.of(Tag.TAG_MISSING)));
+        TaggedFile taken = new TaggedFile("c.jpg", "/archive/c.jpg");
+        when(mockFileDAO.getAllFiles()).thenReturn(new ArrayList<>(List.of(moved, found, blocked, taken)));
+        FileFingerprint fingerprint = new FileFingerprint(null, 100, 1L, null);
+        TaggedFileDAO.RelinkTarget valid = new TaggedFileDAO.RelinkTarget("/archive/a.jpg", "a.jpg", fingerprint);
+        Map<String, TaggedFileDAO.RelinkTarget> moves = Map.of(
+                moved.getFilePath(), valid,
+                found.getFilePath(), new TaggedFileDAO.RelinkTarget("/archive/b.jpg", "b.jpg", fingerprint),
+                blocked.getFilePath(), new TaggedFileDAO.RelinkTarget(taken.getFilePath(), "c.jpg", fingerprint),
+                "/photos/deleted.jpg", new TaggedFileDAO.RelinkTarget("/archive/deleted.jpg", "deleted.jpg", fingerprint));
+
+        // Act
+        int relinked = controller.applyRelinks(moves);
+
+        // Assert - only the file that is still missing and has a free target is moved
+        assertEquals(1, relinked);
+        verify(mockFileDAO).relinkFiles(Map.of(moved.getFilePath(), valid));
+    }
+
+    @Test
+    public void testRelinkKeepsCachedMetadata() throws SQLException {
+        // Arrange
+        TaggedFile old = new TaggedFile("a.jpg", "/photos/a.jpg", new HashSet<>(Arrays.asList("work", Tag.TAG_MISSING)));
+        old.setMimeType("image/jpeg");
+        when(mockFileDAO.getAllFiles()).thenReturn(new ArrayList<>(List.of(old)));
+        FileFingerprint found = new FileFingerprint(null, 100, 1L, null);
+
+        // Act
+        controller.applyRelinks(Map.of(old.getFilePath(),
+                new TaggedFileDAO.RelinkTarget("/archive/a.jpg", "a.jpg", found)));
+        List<TaggedFile> files = controller.getAllFiles();
+
+        // Assert - the cached copy matches the relinked database row
+        assertEquals(1, files.size());
+        TaggedFile moved = files.get(0);
+        assertEquals("/archive/a.jpg", moved.getFilePath());
+        assertEquals("image/jpeg", moved.getMimeType());
+        assertEquals(found, moved.getFingerprint());
+        assertEquals(Set.of("work"), moved.getTags());
+        verify(mockFileDAO, times(1)).getAllFiles();
+    }
+
+    @Test
+    public void testAutoTagRulesApplyOnAddAndRetag() throws SQLException {
+        // Arrange
+        when(mockFileDAO.getAutoTagRules()).thenReturn(List.of(
+            new AutoTagRule(1, AutoTagRule.Kind.EXTENSION, "jpg", "photo")));
+        TaggedFile untagged = new TaggedFile("a.jpg", "/photos/a.jpg");
+        TaggedFile tagged = new TaggedFile("c.jpg", "/photos/c.jpg", new HashSet<>(Set.of("photo")));
+        TaggedFile other = new TaggedFile("b.txt", "/photos/b.txt");
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(untagged, tagged, other));
+        TaggedFile added = new TaggedFile("d.jpg", "/photos/d.jpg", Set.of("New"));
+
+        // Act
+        controller.addFile(added, new HashSet<>());
+        int changed = controller.retagAll(Runnable::run, null, new CancellationToken());
+
+        // Assert - only the file that lacked the tag is written, and the cache is patched
+        assertEquals(Set.of("New", "photo"), added.getTags());
+        assertEquals(1, changed);
+        verify(mockFileDAO).addTagsToFiles(Map.of("/photos/a.jpg", Set.of("photo")), 500);
+        assertEquals(2, controller.getAllFiles().stream()
+            .filter(file -> file.getTags().contains("photo")).count());
+        verify(mockFileDAO, times(1)).getAutoTagRules();
+    }
+
+    @Test
+    public void testRetagReadsTheDatabaseOnlyThroughTheWriter() throws Exception {
+        // Arrange
+        List<String> readers = new CopyOnWriteArrayList<>();
+        when(mockFileDAO.getAutoTagRules()).thenAnswer(invocation -> {
+            readers.add(Thread.currentThread().getName());
+            return List.of(new AutoTagRule(1, AutoTagRule.Kind.EXTENSION, "jpg", "photo"));
+        });
+        when(mockFileDAO.getAllFiles()).thenAnswer(invocation -> {
+            readers.add(Thread.currentThread().getName());
+            return Arrays.asList(new TaggedFile("a.jpg", "/photos/a.jpg"));
+        });
+        ExecutorService writer = Executors.newSingleThreadExecutor(task -> new Thread(task, "writer"));
+
+        // Act
+        int changed;
+        try {
+            changed = controller.retagAll(writer, null, new CancellationToken());
+        } finally {
+            writer.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(1, changed);
+        assertEquals(List.of("writer", "writer"), readers);
+    }
+
+    @Test
+    public void testHealthCheckOnlyWritesFilesWhoseStatusStillDiffers() throws SQLException {
+        // Arrange - the check saw both files go missing, but the watcher already tagged one
+        TaggedFile tagged = new TaggedFile("a.txt", "/missing/a.txt", new HashSet<>(Set.of(Tag.TAG_MISSING)));
+        TaggedFile untagged = new TaggedFile("b.txt", "/missing/b.txt");
+        HealthCheck.HealthCheckResult result = new HealthCheck().run(
+            List.of(new TaggedFile("a.txt", "/missing/a.txt"), untagged), null, new CancellationToken());
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(tagged, untagged));
+
+        // Act
+        List<String> changed = controller.applyHealthCheck(result);
+
+        // Assert
+        assertEquals(List.of("/missing/b.txt"), changed);
+        verify(mockFileDAO).updateMissingTags(List.of("/missing/b.txt"), List.of());
+        assertSame(result, controller.getLastHealthCheck());
+    }
+
+    @Test
+    public void testHealthCheckRecordsFingerprintsOfFilesThatStillLackOne() throws SQLException {
+        // Arrange - the check read both files, but one was fingerprinted in the meantime
+        FileFingerprint fingerprint = new FileFingerprint(null, 100, 1L, null);
+        TaggedFile bare = new TaggedFile("a.txt", "/photos/a.txt");
+        TaggedFile fingerprinted = new TaggedFile("b.txt", "/photos/b.txt");
+        fingerprinted.setFingerprint(fingerprint);
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(bare, fingerprinted));
+        HealthCheck.HealthCheckResult result = new HealthCheck.HealthCheckResult();
+        result.getFingerprints().put(bare.getFilePath(), fingerprint);
+        result.getFingerprints().put(fingerprinted.getFilePath(), fingerprint);
+        result.getFingerprints().put("/photos/deleted.txt", fingerprint);
+
+        // Act
+        controller.applyHealthCheck(result);
+
+        // Assert
+        verify(mockFileDAO).updateFingerprints(Map.of(bare.getFilePath(), fingerprint));
+        assertEquals(fingerprint, controller.getAllFiles().get(0).getFingerprint());
+    }
+
+    @Test
+    public void testHealthCheckReadsTheCatalogOnTheOwnerThread() throws SQLException {
+        // Arrange
+        when(mockFileDAO.getAllFiles()).thenReturn(Arrays.asList(new TaggedFile("a.txt", "/missing/a.txt")));
+        List<String> readers = new ArrayList<>();
+        Executor owner = task -> {
+            readers.add("owner");
+            task.run();
+        };
+
+        // Act
+        HealthCheck.HealthCheckResult result = controller.runHealthCheck(new HealthCheck(), owner, null,
+            new CancellationToken());
+
+        // Assert
+        assertEquals(List.of("owner"), readers);
+        assertEquals(1, result.getMissingCount());
+        verify(mockFileDAO, times(1)).getAllFiles();
     }
 }
@@ -1,5 +1,6 @@
 package com.tagease.database;
 
+import com.tagease.model.FileFingerprint;
 import com.tagease.model.Tag;
 import com.tagease.model.TaggedFile;
 import org.junit.jupiter.api.AfterEach;
@@ -12,8 +13,11 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -89,6 +93,7 @@ public class TaggedFileDAOIntegrationTest {
 
             connection.commit();
         }
+        DatabaseConfig.migrateSchema(connection);
         
         // Create the DAO
         dao = new TaggedFileDAO(connection);
@@ -234,4 +239,206 @@ public class TaggedFileDAOIntegrationTest {
         assertEquals(Tag.COLOR_NEW, tagsWithColors.get(Tag.TAG_NEW).getColorHex());
         assertEquals(Tag.COLOR_MISSING, tagsWithColors.get(Tag.TAG_MISSING).getColorHex());
     }
+
+    @Test
+    public void testGetRecentlyAccessedAndAddedFiles() throws SQLException {
+        // Arrange - file i is added on day i and last opened on day 10 - i
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            TaggedFile file = new TaggedFile("file" + i + ".txt", tempDir.resolve("file" + i + ".txt").toString());
+            file.addTag("tag" + i);
+            file.setCreatedAt(base.plusDays(i));
+            file.setLastAccessedAt(base.plusDays(10 - i));
+            dao.addFile(file, new HashSet<>());
+        }
+        
+        // Act
+        List<TaggedFile> accessed = dao.getRecentlyAccessedFiles(2);
+        List<TaggedFile> added = dao.getRecentlyAddedFiles(2);
+        
+        // Assert
+        assertEquals(2, accessed.size());
+        assertEquals("file0.txt", accessed.get(0).getFileName());
+        assertEquals("file1.txt", accessed.get(1).getFileName());
+        assertTrue(accessed.get(0).getTags().contains("tag0"));
+        assertEquals("file4.txt", added.get(0).getFileName());
+        assertEquals("file3.txt", added.get(1).getFileName());
+    }
+
+    @Test
+    public void testGetFilesInTimestampRange() throws SQLException {
+        // Arrange - file i is added on day i and last opened on day 10 - i
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            TaggedFile file = new TaggedFile("file" + i + ".txt", tempDir.resolve("file" + i + ".txt").toString());
+            file.addTag("tag" + i);
+            file.setCreatedAt(base.plusDays(i));
+            file.setLastAccessedAt(base.plusDays(10 - i));
+            dao.addFile(file, new HashSet<>());
+        }
+        
+        // Act
+        List<TaggedFile> created = dao.getFilesCreatedBetween(base.plusDays(1), base.plusDays(3));
+        List<TaggedFile> accessedSince = dao.getFilesAccessedBetween(base.plusDays(9), null);
+        List<TaggedFile> all = dao.getFilesCreatedBetween(null, null);
+        
+        // Assert - lower bound inclusive, upper bound exclusive, oldest first
+        assertEquals(2, created.size());
+        assertEquals("file1.txt", created.get(0).getFileName());
+        assertEquals("file2.txt", created.get(1).getFileName());
+        assertTrue(created.get(0).getTags().contains("tag1"));
+        assertEquals(2, accessedSince.size());
+        assertEquals("file1.txt", accessedSince.get(0).getFileName());
+        assertEquals("file0.txt", accessedSince.get(1).getFileName());
+        assertEquals(5, all.size());
+    }
+
+    @Test
+    public void testAddFilesSkipsCataloguedPaths() throws SQLException {
+        // Arrange
+        TaggedFile existing = new TaggedFile("a.txt", tempDir.resolve("a.txt").toString());
+        dao.addFile(existing, new HashSet<>());
+        TaggedFile again = new TaggedFile("a.txt", existing.getFilePath(), new HashSet<>(Set.of("imported")));
+        TaggedFile fresh = new TaggedFile("b.txt", tempDir.resolve("b.txt").toString(),
+            new HashSet<>(Set.of("imported")));
+        fresh.setFingerprint(new FileFingerprint("(dev=1,ino=3)", 5, 1000, null));
+
+        // Act
+        List<TaggedFile> added = dao.addFiles(List.of(again, fresh), new HashSet<>());
+
+        // Assert
+        assertEquals(List.of(fresh), added);
+        Map<String, TaggedFile> byPath = new HashMap<>();
+        for (TaggedFile file : dao.getAllFiles()) {
+            byPath.put(file.getFilePath(), file);
+        }
+        assertTrue(byPath.get(existing.getFilePath()).getTags().isEmpty());
+        assertEquals(Set.of("imported"), byPath.get(fresh.getFilePath()).getTags());
+        assertEquals(fresh.getFingerprint(), byPath.get(fresh.getFilePath()).getFingerprint());
+    }
+
+    @Test
+    public void testFileMetadataAndDirectoryStatesRoundTrip() throws SQLException {
+        // Arrange
+        TaggedFile file = new TaggedFile("photo.jpg", tempDir.resolve("photo.jpg").toString());
+        file.setMimeType("image/jpeg");
+        dao.addFile(file, new HashSet<>());
+        TaggedFile updated = new TaggedFile("photo.jpg", file.getFilePath());
+        updated.setFingerprint(new FileFingerprint("(dev=1,ino=4)", 2048, 5000, null));
+        updated.setMimeType("image/png");
+
+        // Act
+        String storedType = dao.getAllFiles().get(0).getMimeType();
+        dao.updateFileMetadata(List.of(updated));
+        dao.saveDirectoryStates(Map.of(tempDir.toString(), 1000L));
+        dao.saveDirectoryStates(Map.of(tempDir.toString(), 2000L));
+
+        // Assert
+        assertEquals("image/jpeg", storedType);
+        TaggedFile loaded = dao.getAllFiles().get(0);
+        assertEquals("image/png", loaded.getMimeType());
+        assertEquals(2048, loaded.getFingerprint().getSize());
+        assertEquals(Map.of(tempDir.toString(), 2000L), dao.getDirectoryStates());
+    }
+
+    @Test
+    public void testAddTagsToFilesInBatches() throws SQLException {
+        // Arrange - three files with a batch size of two spans two transactions
+        List<String> paths = List.of(
+            tempDir.resolve("a.txt").toString(),
+            tempDir.resolve("b.txt").toString(),
+            tempDir.resolve("c.txt").toString());
+        for (String path : paths) {
+            TaggedFile file = new TaggedFile(Path.of(path).getFileName().toString(), path);
+            file.addTag("work");
+            dao.addFile(file, new HashSet<>());
+        }
+        Map<String, Set<String>> additions = new HashMap<>();
+        additions.put(paths.get(0), Set.of("work", "shared"));
+        additions.put(paths.get(1), Set.of("shared"));
+        additions.put(paths.get(2), Set.of("remote"));
+
+        // Act
+        dao.addTagsToFiles(additions, 2);
+
+        // Assert
+        Map<String, TaggedFile> byPath = new HashMap<>();
+        for (TaggedFile file : dao.getAllFiles()) {
+            byPath.put(file.getFilePath(), file);
+        }
+        assertEquals(Set.of("work", "shared"), byPath.get(paths.get(0)).getTags());
+        assertEquals(Set.of("work", "shared"), byPath.get(paths.get(1)).getTags());
+        assertEquals(Set.of("work", "remote"), byPath.get(paths.get(2)).getTags());
+        assertTrue(dao.getAllTags().contains("remote"));
+    }
+
+    @Test
+    public void testUpdateMissingTagsInOneBatch() throws SQLException {
+        // Arrange
+        TaggedFile gone = new TaggedFile("gone.txt", tempDir.resolve("gone.txt").toString());
+        gone.addTag("work");
+        TaggedFile back = new TaggedFile("back.txt", tempDir.resolve("back.txt").toString());
+        back.addTag(Tag.TAG_MISSING);
+        LocalDateTime accessed = LocalDateTime.of(2024, 1, 1, 12, 0);
+        gone.setLastAccessedAt(accessed);
+        dao.addFile(gone, new HashSet<>());
+        dao.addFile(back, new HashSet<>());
+        
+        // Act
+        dao.updateMissingTags(List.of(gone.getFilePath()), List.of(back.getFilePath()));
+        
+        // Assert - other tags and access times are left alone
+        Map<String, TaggedFile> byPath = new HashMap<>();
+        for (TaggedFile file : dao.getAllFiles()) {
+            byPath.put(file.getFilePath(), file);
+        }
+        assertEquals(Set.of("work", Tag.TAG_MISSING), byPath.get(gone.getFilePath()).getTags());
+        assertEquals(accessed, byPath.get(gone.getFilePath()).getLastAccessedAt());
+        assertTrue(byPath.get(back.getFilePath()).getTags().isEmpty());
+    }
+
+    @Test
+    public void testRelinkFilesMovesTagsAndRelationships() throws SQLException {
+        // Arrange
+        TaggedFile moved = new TaggedFile("old.txt", tempDir.resolve("old.txt").toString());
+        moved.addTag("work");
+        moved.addTag(Tag.TAG_MISSING);
+        moved.setFingerprint(new FileFingerprint("(dev=1,ino=2)", 10, 1000, null));
+        TaggedFile other = new TaggedFile("other.txt", tempDir.resolve("other.txt").toString());
+        other.addRelatedFile(moved);
+        dao.addFile(moved, new HashSet<>());
+        dao.addFile(other, new HashSet<>());
+        String newPath = tempDir.resolve("sub/new.txt").toString();
+        FileFingerprint found = new FileFingerprint("(dev=1,ino=2)", 10, 1000, "abc");
+        
+        // Act
+        dao.relinkFiles(Map.of(moved.getFilePath(), new TaggedFileDAO.RelinkTarget(newPath, "new.txt", found)));
+        DatabaseConfig.migrateSchema(connection);
+        
+        // Assert - tags follow the file, Missing is dropped and the fingerprint is stored
+        Map<String, TaggedFile> byPath = new HashMap<>();
+        for (TaggedFile file : dao.getAllFiles()) {
+            byPath.put(file.getFilePath(), file);
+        }
+        assertFalse(byPath.containsKey(moved.getFilePath()));
+        assertEquals("new.txt", byPath.get(newPath).getFileName());
+        assertEquals(Set.of("work"), byPath.get(newPath).getTags());
+        assertEquals(found, byPath.get(newPath).getFingerprint());
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT related_file_path FROM file_relationships")) {
+            assertTrue(rs.next());
+            assertEquals(newPath, rs.getString(1));
+        }
+    }
+
+    @Test
+    public void testSettingsRoundTrip() throws SQLException {
+        // Act
+        dao.setSetting("library_roots", "/a");
+        dao.setSetting("library_roots", "/b");
+        
+        // Assert
+        assertEquals("/b", dao.getSetting("library_roots"));
+        assertNull(dao.getSetting("unknown"));
+    }
 }
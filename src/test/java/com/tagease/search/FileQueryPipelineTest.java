@@ -0,0 +1,126 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the FileQueryPipeline class
+ */
+public class FileQueryPipelineTest {
+
+    private ForkJoinPool pool;
+    private FileQueryPipeline pipeline;
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        // A tiny threshold forces deep splitting even on a small catalog
+        pipeline = new FileQueryPipeline(pool, 16);
+
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<TaggedFile> files = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Set<String> tags = new HashSet<>();
+            tags.add("tag" + random.nextInt(10));
+            // Few distinct names and dates so the sort has many ties to keep stable
+            TaggedFile file = new TaggedFile("file" + random.nextInt(50) + ".txt", "/lib/" + i, tags);
+            file.setCreatedAt(base.plusDays(random.nextInt(30)));
+            file.setLastAccessedAt(base.plusDays(random.nextInt(30)));
+            files.add(file);
+        }
+        index = new TagBitmapIndex(files);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testParallelOutputMatchesSequentialPath() {
+        // Arrange
+        Predicate<TaggedFile> filter = file -> file.getTags().contains("tag3") || file.getFileName().contains("7");
+
+        List<TaggedFile> expected = new ArrayList<>();
+        for (TaggedFile file : index.getFiles()) {
+            if (filter.test(file)) {
+                expected.add(file);
+            }
+        }
+
+        for (FileSortOrder order : FileSortOrder.values()) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                List<TaggedFile> sequential = new ArrayList<>(expected);
+                sequential.sort(order.comparator(ascending));
+
+                // Act
+                List<TaggedFile> parallel = pipeline.run(index, index.all(), filter,
+                        order.comparator(ascending), new CancellationToken());
+
+                // Assert - same files in the same order, ties included
+                assertEquals(sequential.size(), parallel.size());
+                for (int i = 0; i < sequential.size(); i++) {
+                    assertSame(sequential.get(i), parallel.get(i), order + " ascending=" + ascending + " at " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFilterOnlyTestsCandidates() {
+        // Arrange
+        BitSet candidates = new BitSet();
+        candidates.set(10, 20);
+
+        // Act
+        BitSet result = pipeline.filter(index, candidates, file -> true, new CancellationToken());
+
+        // Assert
+        assertEquals(candidates, result);
+    }
+
+    @Test
+    public void testCancelledTokenStopsWork() {
+        // Arrange
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        // Act & Assert
+        assertThrows(CancellationException.class,
+                () -> pipeline.filter(index, index.all(), file -> true, token));
+        assertThrows(CancellationException.class,
+                () -> pipeline.sort(index.getFiles(), FileSortOrder.FILE_NAME.comparator(true), token));
+    }
+
+    @Test
+    public void testCancelMidFlight() {
+        // Arrange - the predicate cancels the search once it is under way
+        CancellationToken token = new CancellationToken();
+        Predicate<TaggedFile> cancelling = file -> {
+            token.cancel();
+            return true;
+        };
+
+        // Act & Assert
+        assertThrows(CancellationException.class,
+                () -> pipeline.filter(index, index.all(), cancelling, token));
+    }
+}
@@ -0,0 +1,82 @@
+package com.tagease.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SearchRunner class
+ */
+public class SearchRunnerTest {
+
+    private final SearchRunner runner = new SearchRunner(Runnable::run);
+
+    @AfterEach
+    public void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    public void testBurstWithinDelayRunsOnlyTheLastSearch() throws InterruptedException {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Act - three keystrokes well within the delay
+        for (String term : new String[] {"r", "re", "rep"}) {
+            runner.submit(200, token -> {
+                runs.incrementAndGet();
+                return term;
+            }, result -> {
+                results.add(result);
+                done.countDown();
+            });
+        }
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(List.of("rep"), results);
+    }
+
+    @Test
+    public void testRunningSearchIsCancelledAndItsResultDropped() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> results = new CopyOnWriteArrayList<>();
+        List<Boolean> firstCancelled = new CopyOnWriteArrayList<>();
+        runner.submit(0, token -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            firstCancelled.add(token.isCancelled());
+            return "old";
+        }, results::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act - a newer search arrives while the first one runs
+        runner.submit(0, token -> "new", result -> {
+            results.add(result);
+            done.countDown();
+        });
+        release.countDown();
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(true), firstCancelled);
+        assertEquals(List.of("new"), results);
+    }
+}
@@ -0,0 +1,91 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SearchSession class
+ */
+public class SearchSessionTest {
+
+    private TagBitmapIndex index;
+    private SearchSession session;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TagBitmapIndex(Arrays.asList(
+            new TaggedFile("report.pdf", "/work/report.pdf", new HashSet<>(Arrays.asList("work"))),
+            new TaggedFile("repo-notes.txt", "/work/repo-notes.txt", new HashSet<>()),
+            new TaggedFile("photo.jpg", "/home/photo.jpg", new HashSet<>(Arrays.asList("personal")))
+        ));
+        session = new SearchSession();
+    }
+
+    @Test
+    public void testExtendingTermRefinesPreviousMatches() {
+        // Act
+        BitSet first = session.search(index, SearchSession.Field.FILE_NAME, "rep");
+        BitSet second = session.search(index, SearchSession.Field.FILE_NAME, "Repor");
+
+        // Assert
+        assertEquals(2, first.cardinality());
+        assertEquals(1, second.cardinality());
+        assertTrue(second.get(0));
+        assertEquals(1, session.getFullScans());
+        assertEquals(1, session.getRefinements());
+    }
+
+    @Test
+    public void testDeletionAndFieldChangeRescan() {
+        // Arrange
+        session.search(index, SearchSession.Field.FILE_NAME, "repo");
+
+        // Act
+        BitSet shorter = session.search(index, SearchSession.Field.FILE_NAME, "rep");
+        BitSet byPath = session.search(index, SearchSession.Field.PATH, "rep");
+
+        // Assert
+        assertEquals(2, shorter.cardinality());
+        assertEquals(2, byPath.cardinality());
+        assertEquals(3, session.getFullScans());
+        assertEquals(0, session.getRefinements());
+    }
+
+    @Test
+    public void testNewIndexSnapshotRescans() {
+        // Arrange
+        session.search(index, SearchSession.Field.TAGS, "wo");
+        TagBitmapIndex updated = new TagBitmapIndex(Arrays.asList(
+            new TaggedFile("photo.jpg", "/home/photo.jpg", new HashSet<>(Arrays.asList("work")))
+        ));
+
+        // Act
+        BitSet matches = session.search(updated, SearchSession.Field.TAGS, "wor");
+
+        // Assert
+        assertTrue(matches.get(0));
+        assertEquals(2, session.getFullScans());
+    }
+
+    @Test
+    public void testReturnedBitsCanBeModified() {
+        // Arrange
+        BitSet first = session.search(index, SearchSession.Field.FILE_NAME, "photo");
+
+        // Act
+        first.clear();
+        BitSet again = session.search(index, SearchSession.Field.FILE_NAME, "photo");
+
+        // Assert
+        assertEquals(1, again.cardinality());
+        assertEquals(3, session.search(index, SearchSession.Field.FILE_NAME, "").cardinality());
+    }
+}
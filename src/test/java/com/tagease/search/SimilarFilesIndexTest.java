@@ -0,0 +1,87 @@
+package com.tagease.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SimilarFilesIndex class
+ */
+public class SimilarFilesIndexTest {
+
+    private SimilarFilesIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new SimilarFilesIndex();
+        index.update("/a", Arrays.asList("work", "project-2024", "report"));
+        index.update("/b", Arrays.asList("work", "project-2024", "report"));
+        index.update("/c", Arrays.asList("work", "project-2024", "report", "draft"));
+        index.update("/d", Arrays.asList("holiday", "photos"));
+    }
+
+    @Test
+    public void testFindsFilesWithSimilarTags() {
+        // Act
+        List<SimilarFilesIndex.Match> matches = index.findSimilar("/a", 5);
+
+        // Assert - identical tags first, then the superset; unrelated files never appear
+        assertEquals("/b", matches.get(0).getFilePath());
+        assertEquals(1.0, matches.get(0).getSimilarity(), 1e-9);
+        assertTrue(matches.stream().noneMatch(m -> m.getFilePath().equals("/d")));
+        assertTrue(matches.stream().noneMatch(m -> m.getFilePath().equals("/a")));
+    }
+
+    @Test
+    public void testIncrementalUpdateAndRemove() {
+        // Act
+        index.update("/d", Arrays.asList("work", "project-2024", "report"));
+        index.remove("/b");
+        List<SimilarFilesIndex.Match> matches = index.findSimilar("/a", 5);
+
+        // Assert
+        assertEquals("/d", matches.get(0).getFilePath());
+        assertTrue(matches.stream().noneMatch(m -> m.getFilePath().equals("/b")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testFindsPairsWithHalfTheirTagsInCommon() {
+        // Arrange - each pair shares two of four distinct tags, a Jaccard similarity of 0.5
+        SimilarFilesIndex pairs = new SimilarFilesIndex();
+        for (int i = 0; i < 200; i++) {
+            pairs.update("/first/" + i, Arrays.asList("shared-a-" + i, "shared-b-" + i, "first-" + i));
+            pairs.update("/second/" + i, Arrays.asList("shared-a-" + i, "shared-b-" + i, "second-" + i));
+        }
+
+        // Act
+        int found = 0;
+        for (int i = 0; i < 200; i++) {
+            String partner = "/second/" + i;
+            if (pairs.findSimilar("/first/" + i, 5).stream().anyMatch(m -> m.getFilePath().equals(partner))) {
+                found++;
+            }
+        }
+
+        // Assert
+        assertTrue(found >= 196, "found " + found + " of 200 pairs");
+    }
+
+    @Test
+    public void testIdenticalTagSetsShareSignature() {
+        // Act
+        long[] first = SimilarFilesIndex.signature(new HashSet<>(Arrays.asList("x", "y")));
+        long[] second = SimilarFilesIndex.signature(new HashSet<>(Arrays.asList("y", "x")));
+
+        // Assert
+        assertArrayEquals(first, second);
+        assertEquals(0.5, SimilarFilesIndex.jaccard(new HashSet<>(Arrays.asList("x", "y")),
+                new HashSet<>(Arrays.asList("x"))), 1e-9);
+        assertTrue(index.findSimilar("/missing", 5).isEmpty());
+    }
+}
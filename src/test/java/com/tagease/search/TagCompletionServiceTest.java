@@ -0,0 +1,78 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TagCompletionService class
+ */
+public class TagCompletionServiceTest {
+
+    private TagCompletionService completion;
+
+    @BeforeEach
+    public void setUp() {
+        List<TaggedFile> files = new ArrayList<>();
+        files.add(new TaggedFile("a", "/a", tags("project-2024", "work")));
+        files.add(new TaggedFile("b", "/b", tags("project-2024", "work")));
+        files.add(new TaggedFile("c", "/c", tags("project-2023", "personal")));
+        files.add(new TaggedFile("d", "/d", tags("project-2023", "personal")));
+        files.add(new TaggedFile("e", "/e", tags("project-2023")));
+        files.add(new TaggedFile("f", "/f", tags("In Progress")));
+
+        completion = new TagCompletionService(Arrays.asList("presentation", "In Progress"), new TagBitmapIndex(files));
+    }
+
+    private static Set<String> tags(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void testPrefixSuggestionsRankedByUsage() {
+        // Act
+        List<String> suggestions = completion.suggest("pro", Collections.emptySet(), 5);
+
+        // Assert - full-name prefixes first by usage, then the inner-word match
+        assertEquals(Arrays.asList("project-2023", "project-2024", "In Progress"), suggestions);
+    }
+
+    @Test
+    public void testCooccurrenceWithEnteredTagsBoostsRanking() {
+        // Act - files tagged "work" are all "project-2024"
+        List<String> suggestions = completion.suggest("proj", tags("work"), 5);
+
+        // Assert
+        assertEquals("project-2024", suggestions.get(0));
+    }
+
+    @Test
+    public void testEnteredTagsAreExcludedAndLimitApplies() {
+        // Act
+        List<String> suggestions = completion.suggest("p", tags("project-2023"), 2);
+
+        // Assert
+        assertEquals(2, suggestions.size());
+        assertFalse(suggestions.contains("project-2023"));
+    }
+
+    @Test
+    public void testUnusedVocabularyIsSuggested() {
+        // Act
+        List<String> suggestions = completion.suggest("PRES", Collections.emptySet(), 5);
+
+        // Assert
+        assertEquals(Arrays.asList("presentation"), suggestions);
+        assertEquals(6, completion.size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.tagease.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TagCooccurrenceMatrix class
+ */
+public class TagCooccurrenceMatrixTest {
+
+    private TagCooccurrenceMatrix matrix;
+
+    @BeforeEach
+    public void setUp() {
+        matrix = new TagCooccurrenceMatrix();
+        matrix.add(Arrays.asList("work", "urgent", "report"));
+        matrix.add(Arrays.asList("work", "urgent"));
+        matrix.add(Arrays.asList("work", "draft"));
+    }
+
+    @Test
+    public void testCountsAndRanking() {
+        // Act
+        List<String> cooccurring = matrix.getCooccurring("work", 5);
+
+        // Assert
+        assertEquals(Arrays.asList("urgent", "draft", "report"), cooccurring);
+        assertEquals(2, matrix.count("work", "urgent"));
+        assertEquals(2, matrix.count("urgent", "work"));
+        assertEquals(3, matrix.count("work", "work"));
+        assertEquals(0, matrix.count("draft", "urgent"));
+    }
+
+    @Test
+    public void testReplaceAndRemoveKeepMatrixSparse() {
+        // Act
+        matrix.replace(Arrays.asList("work", "draft"), Arrays.asList("work", "urgent"));
+        matrix.remove(Arrays.asList("work", "urgent", "report"));
+
+        // Assert
+        assertEquals(2, matrix.count("work", "urgent"));
+        assertEquals(0, matrix.count("work", "draft"));
+        assertEquals(Arrays.asList("urgent"), matrix.getCooccurring("work", 5));
+        assertTrue(matrix.getCooccurring("report", 5).isEmpty());
+        assertEquals(2, matrix.nonZeroCount());
+    }
+
+    @Test
+    public void testRemoveTag() {
+        // Act
+        matrix.removeTag("urgent");
+
+        // Assert
+        assertEquals(Arrays.asList("draft", "report"), matrix.getCooccurring("work", 5));
+        assertEquals(0, matrix.count("urgent", "urgent"));
+    }
+}
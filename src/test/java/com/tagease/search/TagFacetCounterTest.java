@@ -0,0 +1,91 @@
+package com.tagease.search;
+
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TagFacetCounter class
+ */
+public class TagFacetCounterTest {
+
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TagBitmapIndex(Arrays.asList(
+            new TaggedFile("a.txt", "/a.txt", tags("work", "urgent")),
+            new TaggedFile("b.txt", "/b.txt", tags("work")),
+            new TaggedFile("c.txt", "/c.txt", tags("personal", "urgent")),
+            new TaggedFile("d.txt", "/d.txt", tags("personal"))
+        ));
+    }
+
+    private static Set<String> tags(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void testCountsWithoutSelection() {
+        // Act
+        Map<String, Integer> counts = TagFacetCounter.compute(index, index.all(), Collections.emptySet());
+
+        // Assert
+        assertEquals(2, counts.get("work"));
+        assertEquals(2, counts.get("urgent"));
+        assertEquals(2, counts.get("personal"));
+    }
+
+    @Test
+    public void testUncheckedTagCountsIncludeCurrentResults() {
+        // Act - "work" is checked, so checking "personal" would show work files plus personal files
+        Map<String, Integer> counts = TagFacetCounter.compute(index, index.all(), tags("work"));
+
+        // Assert
+        assertEquals(2, counts.get("work"));
+        assertEquals(4, counts.get("personal"));
+        assertEquals(3, counts.get("urgent"));
+    }
+
+    @Test
+    public void testCountsRespectSearchMatches() {
+        // Arrange - only a.txt and c.txt match the search term
+        BitSet searchMatches = new BitSet();
+        searchMatches.set(0);
+        searchMatches.set(2);
+
+        // Act
+        Map<String, Integer> counts = TagFacetCounter.compute(index, searchMatches, Collections.emptySet());
+
+        // Assert
+        assertEquals(1, counts.get("work"));
+        assertEquals(2, counts.get("urgent"));
+        assertEquals(1, counts.get("personal"));
+    }
+
+    @Test
+    public void testUpdateReportsOnlyChangedCounts() {
+        // Arrange
+        TagFacetCounter counter = new TagFacetCounter();
+        counter.update(index, index.all(), Collections.emptySet());
+
+        // Act
+        Map<String, Integer> changed = counter.update(index, index.all(), tags("urgent"));
+
+        // Assert - urgent keeps its count of 2; the others now include the urgent files
+        assertFalse(changed.containsKey("urgent"));
+        assertEquals(3, changed.get("work"));
+        assertEquals(3, changed.get("personal"));
+        assertEquals(3, counter.getCount("work"));
+    }
+}
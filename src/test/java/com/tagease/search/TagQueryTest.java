@@ -0,0 +1,215 @@
+package com.tagease.search;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the tag query parser, compiler and plan execution
+ */
+public class TagQueryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TagBitmapIndex(Arrays.asList(
+            file("report.pdf", "/work/report.pdf", 40, "work", "Done"),
+            file("notes.txt", "/work/notes.txt", 2, "work", "archive"),
+            file("plan.pdf", "/projects/plan.pdf", 60, "project-2024"),
+            file("photo.jpg", "/home/photo.jpg", 90, "personal"),
+            file("old.pdf", "/projects/old.pdf", 100, "project-2023", "archive")
+        ));
+    }
+
+    private static TaggedFile file(String name, String path, int accessedDaysAgo, String... tags) {
+        TaggedFile file = new TaggedFile(name, path, new HashSet<>(Arrays.asList(tags)));
+        file.setCreatedAt(NOW.minusDays(accessedDaysAgo + 10));
+        file.setLastAccessedAt(NOW.minusDays(accessedDaysAgo));
+        return file;
+    }
+
+    private List<String> run(String query) {
+        return new QueryCompiler().compile(query).execute(index, NOW).stream()
+                .map(TaggedFile::getFileName)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSingleTagIgnoresCase() {
+        // Act & Assert
+        assertEquals(Arrays.asList("report.pdf", "notes.txt"), run("WORK"));
+        assertEquals(Arrays.asList("report.pdf"), run("done"));
+    }
+
+    @Test
+    public void testBooleanOperatorsAndPrecedence() {
+        // Act & Assert - AND binds tighter than OR, NOT binds tightest
+        assertEquals(Arrays.asList("report.pdf", "plan.pdf"), run("(project-2024 OR work) AND NOT archive"));
+        assertEquals(Arrays.asList("report.pdf", "notes.txt", "plan.pdf"), run("work OR project-2024 AND NOT archive"));
+        assertEquals(Arrays.asList("notes.txt"), run("work archive"));
+    }
+
+    @Test
+    public void testFullExampleQuery() {
+        // Act
+        List<String> result = run("(project-2024 OR work) AND NOT archive AND name:*.pdf AND accessed:>30d");
+
+        // Assert
+        assertEquals(Arrays.asList("report.pdf", "plan.pdf"), result);
+    }
+
+    @Test
+    public void testWildcardTagsAndQuotedValues() {
+        // Act & Assert
+        assertEquals(Arrays.asList("plan.pdf", "old.pdf"), run("project-*"));
+        assertEquals(Arrays.asList("plan.pdf", "old.pdf"), run("path:\"/projects/\""));
+    }
+
+    @Test
+    public void testDatePredicates() {
+        // Act & Assert
+        assertEquals(Arrays.asList("notes.txt"), run("accessed:<7d"));
+        assertEquals(Arrays.asList("photo.jpg", "old.pdf"), run("accessed:>=12w"));
+        assertEquals(Arrays.asList("old.pdf"), run("created:<2024-02-13"));
+    }
+
+    @Test
+    public void testStrictAndInclusiveAgesDifferAtTheCutoff() {
+        // Arrange - accessed exactly 30 days before now
+        TaggedFile edge = new TaggedFile("edge.txt", "/edge.txt", new HashSet<>());
+        edge.setCreatedAt(NOW.minusDays(40));
+        edge.setLastAccessedAt(NOW.minusDays(30));
+        TagBitmapIndex edgeIndex = new TagBitmapIndex(Arrays.asList(edge));
+
+        // Act & Assert - the index lookup and the per-file check agree
+        for (String operator : Arrays.asList(">", ">=", "<", "<=")) {
+            QueryNode.DatePredicate predicate = QueryNode.DatePredicate.relative(
+                    QueryNode.DatePredicate.Field.ACCESSED, operator, 30, 'd');
+            boolean expected = operator.endsWith("=");
+            assertEquals(expected, predicate.matches(edge, NOW), operator);
+            assertEquals(expected, predicate.evaluate(edgeIndex, NOW).get(0), operator);
+        }
+    }
+
+    @Test
+    public void testDateRanges() {
+        // Act & Assert - both ends are inclusive days and either may be left open
+        assertEquals(Arrays.asList("plan.pdf", "photo.jpg", "old.pdf"), run("created:2024-02-12..2024-03-23"));
+        assertEquals(Arrays.asList("report.pdf", "notes.txt"), run("created:2024-04-01.."));
+        assertEquals(Arrays.asList("old.pdf"), run("created:..2024-02-12"));
+        assertEquals(Arrays.asList("report.pdf", "plan.pdf"), run("(work OR project-2024) AND accessed:2024-03-01..2024-04-30"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("created:2024-03-01..2024-02-01"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("created:.."));
+    }
+
+    @Test
+    public void testRangeLookupSkipsFilesWithoutTimestamp() {
+        // Arrange
+        TaggedFile undated = new TaggedFile("new.txt", "/new.txt", new HashSet<>());
+        undated.setCreatedAt(null);
+        undated.setLastAccessedAt(null);
+        TaggedFile first = file("a.txt", "/a.txt", 5);
+        TaggedFile second = file("b.txt", "/b.txt", 5);
+        TagBitmapIndex dated = new TagBitmapIndex(Arrays.asList(undated, first, second));
+        LocalDateTime accessed = first.getLastAccessedAt();
+
+        // Act & Assert - equal timestamps are all found by the lower bound
+        assertEquals(Arrays.asList(1, 2), bits(dated.bitsInRange(QueryNode.DatePredicate.Field.ACCESSED, accessed, null)));
+        assertEquals(Arrays.asList(), bits(dated.bitsInRange(QueryNode.DatePredicate.Field.ACCESSED, null, accessed)));
+        assertEquals(Arrays.asList(1, 2), bits(dated.bitsInRange(QueryNode.DatePredicate.Field.CREATED, null, null)));
+    }
+
+    @Test
+    public void testSizeAndTypePredicatesUseCachedMetadata() {
+        // Arrange
+        TaggedFile photo = file("photo.jpg", "/home/photo.jpg", 1, "personal");
+        photo.setFingerprint(new FileFingerprint(null, 3L << 20, 0, null));
+        photo.setMimeType("image/jpeg");
+        TaggedFile report = file("report.pdf", "/work/report.pdf", 1, "work");
+        report.setFingerprint(new FileFingerprint(null, 200 * 1024, 0, null));
+        report.setMimeType("application/pdf");
+        TaggedFile unknown = file("data.bin", "/work/data.bin", 1, "work");
+        index = new TagBitmapIndex(Arrays.asList(photo, report, unknown));
+
+        // Act & Assert - files without cached metadata never match
+        assertEquals(Arrays.asList("photo.jpg"), run("size:>1mb"));
+        assertEquals(Arrays.asList("report.pdf"), run("size:<=200k"));
+        assertEquals(Arrays.asList("photo.jpg", "report.pdf"), run("size:>=0.1M"));
+        assertEquals(Arrays.asList("photo.jpg"), run("type:image"));
+        assertEquals(Arrays.asList("report.pdf"), run("work AND type:pdf"));
+        assertEquals(Arrays.asList("photo.jpg", "report.pdf"), run("type:image/* OR type:application/pdf"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("size:huge"));
+    }
+
+    private static List<Integer> bits(BitSet bits) {
+        return bits.stream().boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPlanPushesTagAndDatePredicatesToIndex() {
+        // Act
+        QueryPlan plan = new QueryCompiler().compile("name:*.pdf AND accessed:>30d AND work AND NOT (archive OR personal)");
+
+        // Assert - tag and date conjuncts go to the bitmap stage, string matching runs per file
+        assertEquals(3, plan.getIndexedStage().size());
+        assertEquals(1, plan.getRowStage().size());
+        assertEquals(QueryNode.Cost.STRING, plan.getRowStage().get(0).cost());
+    }
+
+    @Test
+    public void testPlansAreCachedByNormalizedText() {
+        // Arrange
+        QueryCompiler compiler = new QueryCompiler();
+
+        // Act
+        QueryPlan first = compiler.compile("work  AND   NOT archive");
+        QueryPlan second = compiler.compile(" WORK and not Archive ");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, compiler.size());
+    }
+
+    @Test
+    public void testCompilerParsesTheTextAsTyped() {
+        // Arrange
+        QueryCompiler compiler = new QueryCompiler();
+        TaggedFile spaced = new TaggedFile("a.txt", "/a.txt", new HashSet<>(Arrays.asList("my  tag")));
+        TagBitmapIndex spacedIndex = new TagBitmapIndex(Arrays.asList(spaced));
+
+        // Act
+        List<TaggedFile> doubleSpace = compiler.compile("\"my  tag\"").execute(spacedIndex, NOW);
+        List<TaggedFile> singleSpace = compiler.compile("\"my tag\"").execute(spacedIndex, NOW);
+        QueryParseException error = assertThrows(QueryParseException.class, () -> compiler.compile("work   AND  color:red"));
+
+        // Assert - quoted spacing is kept and errors point into the original text
+        assertEquals(1, doubleSpace.size());
+        assertEquals(0, singleSpace.size());
+        assertEquals(2, compiler.size());
+        assertEquals(12, error.getPosition());
+    }
+
+    @Test
+    public void testMalformedQueriesAreRejected() {
+        // Act & Assert
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("(work OR"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("color:red"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("accessed:soon"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("\"unterminated"));
+        assertThrows(QueryParseException.class, () -> TagQueryParser.parse("work )"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.tagease.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TopK class
+ */
+public class TopKTest {
+
+    @Test
+    public void testMatchesPrefixOfStableSort() {
+        // Arrange - many equal keys so tie-breaking matters
+        Random random = new Random(7);
+        List<int[]> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new int[] {random.nextInt(20), i});
+        }
+        Comparator<int[]> byKeyDescending = Comparator.comparingInt((int[] item) -> item[0]).reversed();
+        List<int[]> sorted = new ArrayList<>(items);
+        sorted.sort(byKeyDescending);
+
+        // Act
+        List<int[]> top = TopK.select(items, byKeyDescending, 50);
+
+        // Assert
+        assertEquals(50, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertSame(sorted.get(i), top.get(i));
+        }
+    }
+
+    @Test
+    public void testFewerItemsThanK() {
+        // Act
+        List<String> top = TopK.select(Arrays.asList("b", "c", "a"), Comparator.naturalOrder(), 10);
+
+        // Assert
+        assertEquals(Arrays.asList("a", "b", "c"), top);
+        assertTrue(TopK.select(top, Comparator.naturalOrder(), 0).isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.tagease.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the TrigramIndex class
+ */
+public class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TrigramIndex();
+        index.add("/docs/presentation.pptx", "presentation.pptx");
+        index.add("/docs/budget-2024.xlsx", "budget-2024.xlsx");
+        index.add("/photos/holiday/beach.jpg", "beach.jpg");
+        index.add("/music/playlist.m3u", "playlist.m3u");
+    }
+
+    @Test
+    public void testTypoIsTolerated() {
+        // Act - one transposition and one substitution
+        List<TrigramIndex.Match> matches = index.search("presantaiton", 5);
+
+        // Assert
+        assertFalse(matches.isEmpty());
+        assertEquals("/docs/presentation.pptx", matches.get(0).getFilePath());
+        assertTrue(matches.get(0).getDistance() > 0);
+    }
+
+    @Test
+    public void testExactNameMatchRanksFirst() {
+        // Act
+        List<TrigramIndex.Match> matches = index.search("budget", 5);
+
+        // Assert
+        assertEquals("/docs/budget-2024.xlsx", matches.get(0).getFilePath());
+        assertEquals(0, matches.get(0).getDistance());
+        assertTrue(matches.get(0).isNameMatch());
+    }
+
+    @Test
+    public void testDirectoryMatchAndSubsequence() {
+        // Act
+        List<TrigramIndex.Match> byFolder = index.search("holidy", 5);
+        List<TrigramIndex.Match> bySubsequence = index.search("plst", 5);
+
+        // Assert
+        assertEquals("/photos/holiday/beach.jpg", byFolder.get(0).getFilePath());
+        assertFalse(byFolder.get(0).isNameMatch());
+        assertEquals("/music/playlist.m3u", bySubsequence.get(0).getFilePath());
+    }
+
+    @Test
+    public void testShortTypoIsFoundWithoutScanningUnrelatedFiles() {
+        // Arrange - far more near matches than one pass scores, and files sharing no grams
+        for (int i = 0; i < 6000; i++) {
+            index.add("/reports/report-" + i + ".pdf", "report-" + i + ".pdf");
+            index.add("/misc/zzzz-" + i + ".bin", "zzzz-" + i + ".bin");
+        }
+
+        // Act
+        int[] candidates = index.nameCandidates("reprot");
+        List<TrigramIndex.Match> matches = index.search("reprot", 5);
+        List<TrigramIndex.Match> budget = index.search("budgte", 5);
+
+        // Assert
+        assertTrue(candidates.length <= TrigramIndex.MAX_CANDIDATES);
+        assertEquals(5, matches.size());
+        assertTrue(matches.get(0).getFilePath().startsWith("/reports/report-"));
+        assertTrue(matches.get(0).isNameMatch());
+        assertEquals("/docs/budget-2024.xlsx", budget.get(0).getFilePath());
+    }
+
+    @Test
+    public void testIncrementalRemoveAndCompaction() {
+        // Arrange - enough churn to trigger compaction
+        for (int i = 0; i < 200; i++) {
+            index.add("/tmp/scratch-" + i + ".txt", "scratch-" + i + ".txt");
+        }
+        for (int i = 0; i < 200; i++) {
+            index.remove("/tmp/scratch-" + i + ".txt");
+        }
+
+        // Act
+        index.remove("/docs/budget-2024.xlsx");
+        List<TrigramIndex.Match> matches = index.search("budget", 5);
+
+        // Assert
+        assertTrue(matches.isEmpty());
+        assertEquals(3, index.size());
+        assertEquals("/docs/presentation.pptx", index.search("presentation", 1).get(0).getFilePath());
+    }
+
+    @Test
+    public void testSubstringDistance() {
+        // Assert
+        assertEquals(0, TrigramIndex.substringDistance("beach", "holiday-beach.jpg", 2));
+        assertEquals(1, TrigramIndex.substringDistance("beech", "holiday-beach.jpg", 2));
+        assertEquals(3, TrigramIndex.substringDistance("zzzzz", "beach.jpg", 2));
+    }
+}
@@ -0,0 +1,79 @@
+package com.tagease.utils;
+
+import com.tagease.model.AutoTagRule;
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the AutoTagEngine class
+ */
+public class AutoTagEngineTest {
+
+    private static TaggedFile file(String path, long size, LocalDate modified) {
+        TaggedFile file = new TaggedFile(path.substring(path.lastIndexOf('/') + 1), path);
+        long millis = modified.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        file.setFingerprint(new FileFingerprint(null, size, millis, null));
+        return file;
+    }
+
+    @Test
+    public void testPathRulesMatchExtensionFolderAndGlob() {
+        // Arrange
+        AutoTagEngine engine = AutoTagEngine.compile(List.of(
+            new AutoTagRule(AutoTagRule.Kind.EXTENSION, ".JPG", "photo"),
+            new AutoTagRule(AutoTagRule.Kind.PATH_PREFIX, "/home/me/Invoices", "invoice"),
+            new AutoTagRule(AutoTagRule.Kind.PATH_PREFIX, "/home/me/Invoices/2024", "tax-2024"),
+            new AutoTagRule(AutoTagRule.Kind.GLOB, "*draft*", "draft"),
+            new AutoTagRule(AutoTagRule.Kind.GLOB, "/home/me/**/scans/*", "scan")));
+
+        // Act
+        Set<String> invoice = engine.tagsFor(file("/home/me/Invoices/2024/march-draft.pdf", 10, LocalDate.now()));
+        Set<String> photo = engine.tagsFor(file("/home/me/Pictures/scans/IMG_1.jpg", 10, LocalDate.now()));
+        Set<String> sibling = engine.tagsFor(file("/home/me/InvoicesOld/a.pdf", 10, LocalDate.now()));
+
+        // Assert - a folder rule matches whole path segments only
+        assertEquals(Set.of("invoice", "tax-2024", "draft"), invoice);
+        assertEquals(Set.of("photo", "scan"), photo);
+        assertTrue(sibling.isEmpty());
+    }
+
+    @Test
+    public void testRangeRulesAreInclusiveAndMayBeOpen() {
+        // Arrange
+        AutoTagEngine engine = AutoTagEngine.compile(List.of(
+            new AutoTagRule(AutoTagRule.Kind.SIZE, "1mb..", "large"),
+            new AutoTagRule(AutoTagRule.Kind.SIZE, "..10k", "small"),
+            new AutoTagRule(AutoTagRule.Kind.MODIFIED, "2024-01-01..2024-03-31", "q1-2024")));
+
+        // Act
+        Set<String> large = engine.tagsFor(file("/data/a.bin", 1L << 20, LocalDate.of(2024, 3, 31)));
+        Set<String> small = engine.tagsFor(file("/data/b.bin", 10 * 1024, LocalDate.of(2024, 4, 1)));
+        Set<String> unknown = engine.tagsFor(new TaggedFile("c.bin", "/data/c.bin"));
+
+        // Assert - files without a fingerprint only match path rules
+        assertEquals(Set.of("large", "q1-2024"), large);
+        assertEquals(Set.of("small"), small);
+        assertTrue(unknown.isEmpty());
+    }
+
+    @Test
+    public void testInvalidPatternsAreRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> AutoTagEngine.compile(List.of(
+            new AutoTagRule(AutoTagRule.Kind.SIZE, "huge", "large"))));
+        assertThrows(IllegalArgumentException.class, () -> AutoTagEngine.compile(List.of(
+            new AutoTagRule(AutoTagRule.Kind.MODIFIED, "2024-03-01..2024-01-01", "q1"))));
+        assertThrows(IllegalArgumentException.class, () -> AutoTagEngine.compile(List.of(
+            new AutoTagRule(AutoTagRule.Kind.GLOB, "[unclosed", "bad"))));
+        assertTrue(AutoTagEngine.compile(List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package com.tagease.utils;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ContentHasher class
+ */
+public class ContentHasherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testXxh64MatchesReferenceVectors() {
+        // Act & Assert
+        assertEquals(0xEF46DB3751D8E999L, XXHash64.hash(new byte[0]));
+        assertEquals(0xD24EC4F1A98C6E5BL, XXHash64.hash("a".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0x44BC2CF5AD770999L, XXHash64.hash("abc".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testChunkedUpdatesMatchOneShotHash() {
+        // Arrange
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+
+        // Act - odd chunk sizes split the 32-byte stripes at every offset
+        XXHash64 chunked = new XXHash64();
+        for (int offset = 0; offset < data.length; offset += 7) {
+            chunked.update(ByteBuffer.wrap(data, offset, Math.min(7, data.length - offset)));
+        }
+
+        // Assert
+        assertEquals(XXHash64.hash(data), chunked.getValue());
+    }
+
+    @Test
+    public void testMappedAndStreamedReadsAgree() throws Exception {
+        // Arrange - one file above the mapping threshold and a copy of its head below it
+        byte[] data = new byte[ContentHasher.MAP_THRESHOLD + 12345];
+        new Random(7).nextBytes(data);
+        Path large = Files.write(tempDir.resolve("large.bin"), data);
+        byte[] head = new byte[ContentHasher.MAP_THRESHOLD - 1];
+        System.arraycopy(data, 0, head, 0, head.length);
+        Path small = Files.write(tempDir.resolve("small.bin"), head);
+
+        // Act
+        ContentHasher hasher = new ContentHasher();
+        String largeHash = hasher.hash(large);
+        String smallHash = hasher.hash(small);
+
+        // Assert
+        assertEquals(String.format("xxh64:%016x", XXHash64.hash(data)), largeHash);
+        assertEquals(String.format("xxh64:%016x", XXHash64.hash(head)), smallHash);
+    }
+
+    @Test
+    public void testStoredHashIsCheckedWithItsOwnAlgorithm() throws Exception {
+        // Arrange
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        String sha = new ContentHasher(ContentHasher.Algorithm.SHA256, IoBudget.unlimited()).hash(file);
+
+        // Act & Assert
+        assertEquals("sha256:ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", sha);
+        assertTrue(new ContentHasher().matches(file, sha));
+        assertFalse(new ContentHasher().matches(file, "md5:900150983cd24fb0d6963f7d28e17f72"));
+    }
+
+    @Test
+    public void testJobSkipsFilesWithCurrentHash() throws Exception {
+        // Arrange
+        Path unchanged = Files.writeString(tempDir.resolve("unchanged.txt"), "same");
+        Path changed = Files.writeString(tempDir.resolve("changed.txt"), "before");
+        ContentHasher hasher = new ContentHasher();
+        TaggedFile unchangedFile = new TaggedFile("unchanged.txt", unchanged.toString());
+        unchangedFile.setFingerprint(FileFingerprint.read(unchanged).withContentHash(hasher.hash(unchanged)));
+        TaggedFile changedFile = new TaggedFile("changed.txt", changed.toString());
+        changedFile.setFingerprint(FileFingerprint.read(changed).withContentHash(hasher.hash(changed)));
+        Files.writeString(changed, "after, and longer");
+        TaggedFile newFile = new TaggedFile("new.txt", Files.writeString(tempDir.resolve("new.txt"), "new").toString());
+
+        // Act
+        Map<String, FileFingerprint> hashed = new ContentHashJob(hasher, 2)
+            .run(List.of(unchangedFile, changedFile, newFile), null, new CancellationToken());
+
+        // Assert
+        assertEquals(2, hashed.size());
+        assertFalse(hashed.containsKey(unchanged.toString()));
+        assertEquals(hasher.hash(changed), hashed.get(changed.toString()).getContentHash());
+        assertNotNull(hashed.get(newFile.getFilePath()).getContentHash());
+    }
+}
@@ -0,0 +1,93 @@
+package com.tagease.utils;
+
+import com.tagease.database.TaggedFileDAO.RelinkTarget;
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the FileRelinker class
+ */
+public class FileRelinkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaggedFile missingFile(Path path, FileFingerprint fingerprint) {
+        TaggedFile file = new TaggedFile(path.getFileName().toString(), path.toString());
+        file.addTag(Tag.TAG_MISSING);
+        file.setFingerprint(fingerprint);
+        return file;
+    }
+
+    @Test
+    public void testMovedFileIsFoundByFileKey() throws IOException {
+        // Arrange
+        Path original = Files.writeString(tempDir.resolve("report.txt"), "quarterly numbers");
+        FileFingerprint recorded = FileFingerprint.read(original);
+        Path moved = Files.move(original, Files.createDirectories(tempDir.resolve("archive/2024")).resolve("q1.txt"));
+        Files.writeString(tempDir.resolve("decoy.txt"), "something else entirely");
+
+        // Act
+        Map<String, RelinkTarget> moves = new FileRelinker(List.of(tempDir))
+            .findMoves(List.of(missingFile(original, recorded)), Set.of(), new CancellationToken());
+
+        // Assert
+        assertEquals(1, moves.size());
+        assertEquals(moved.toString(), moves.get(original.toString()).getFilePath());
+        assertEquals("q1.txt", moves.get(original.toString()).getFileName());
+    }
+
+    @Test
+    public void testContentHashSettlesAmbiguousCopies() throws Exception {
+        // Arrange - two candidates with equal size and time but different content
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "aaaa");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "bbbb");
+        FileTime time = FileTime.fromMillis(1_700_000_000_000L);
+        Files.setLastModifiedTime(first, time);
+        Files.setLastModifiedTime(second, time);
+        Path gone = tempDir.resolve("gone.txt");
+        FileFingerprint withoutHash = new FileFingerprint(null, 4, time.toMillis(), null);
+        FileFingerprint withHash = withoutHash.withContentHash(new ContentHasher().hash(second));
+
+        // Act
+        FileRelinker relinker = new FileRelinker(List.of(tempDir));
+        Map<String, RelinkTarget> guessed = relinker.findMoves(List.of(missingFile(gone, withoutHash)),
+            Set.of(), new CancellationToken());
+        Map<String, RelinkTarget> matched = relinker.findMoves(List.of(missingFile(gone, withHash)),
+            Set.of(), new CancellationToken());
+
+        // Assert - without a hash the match is ambiguous and left alone
+        assertTrue(guessed.isEmpty());
+        assertEquals(second.toString(), matched.get(gone.toString()).getFilePath());
+    }
+
+    @Test
+    public void testCataloguedFilesAreNotTargets() throws IOException {
+        // Arrange
+        Path existing = Files.writeString(tempDir.resolve("kept.txt"), "data");
+        FileFingerprint recorded = FileFingerprint.read(existing);
+        Path gone = tempDir.resolve("gone.txt");
+
+        // Act
+        Map<String, RelinkTarget> moves = new FileRelinker(List.of(tempDir)).findMoves(
+            List.of(missingFile(gone, recorded)), Set.of(existing.toString()), new CancellationToken());
+
+        // Assert
+        assertTrue(moves.isEmpty());
+    }
+}
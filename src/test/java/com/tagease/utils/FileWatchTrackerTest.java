@@ -0,0 +1,126 @@
+package com.tagease.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the FileWatchTracker class
+ */
+public class FileWatchTrackerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final LinkedBlockingQueue<Map<String, Boolean>> events = new LinkedBlockingQueue<>();
+    private FileWatchTracker tracker;
+
+    @AfterEach
+    public void tearDown() {
+        if (tracker != null) {
+            tracker.close();
+        }
+    }
+
+    private void startTracker(Path... files) throws IOException {
+        tracker = new FileWatchTracker(Runnable::run, (Set<String> missing, Set<String> present) -> {
+            Map<String, Boolean> batch = new HashMap<>();
+            missing.forEach(path -> batch.put(path, false));
+            present.forEach(path -> batch.put(path, true));
+            events.add(batch);
+        });
+        for (Path file : files) {
+            tracker.track(file.toString());
+        }
+        tracker.start();
+    }
+
+    /**
+     * Waits until the tracker reports the given status for the file.
+     */
+    private boolean awaitStatus(Path file, boolean exists) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            Map<String, Boolean> batch = events.poll(100, TimeUnit.MILLISECONDS);
+            if (batch != null && Boolean.valueOf(exists).equals(batch.get(file.toString()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testDeleteAndRecreateAreReported() throws IOException, InterruptedException {
+        // Arrange
+        Path file = Files.createFile(tempDir.resolve("report.txt"));
+        Path other = Files.createFile(tempDir.resolve("untracked.txt"));
+        startTracker(file);
+
+        // Act & Assert
+        Files.delete(other);
+        Files.delete(file);
+        assertTrue(awaitStatus(file, false));
+        Files.createFile(file);
+        assertTrue(awaitStatus(file, true));
+        assertEquals(1, tracker.getWatchedDirectoryCount());
+    }
+
+    @Test
+    public void testDeletedDirectoryIsPickedUpAgain() throws IOException, InterruptedException {
+        // Arrange
+        Path directory = Files.createDirectory(tempDir.resolve("project"));
+        Path file = Files.createFile(directory.resolve("plan.txt"));
+        startTracker(file);
+
+        // Act & Assert
+        Files.delete(file);
+        Files.delete(directory);
+        assertTrue(awaitStatus(file, false));
+        Files.createDirectory(directory);
+        Files.createFile(file);
+        assertTrue(awaitStatus(file, true));
+    }
+
+    @Test
+    public void testAncestorIsReleasedOnceDirectoryIsBack() throws IOException, InterruptedException {
+        // Arrange
+        Path directory = Files.createDirectory(tempDir.resolve("project"));
+        Path file = Files.createFile(directory.resolve("plan.txt"));
+        startTracker(file);
+
+        // Act
+        Files.delete(file);
+        Files.delete(directory);
+        assertTrue(awaitStatus(file, false));
+        Files.createDirectory(directory);
+        Files.createFile(file);
+        assertTrue(awaitStatus(file, true));
+
+        // Assert - only the project directory is still watched
+        assertEquals(1, tracker.getWatchedDirectoryCount());
+    }
+
+    @Test
+    public void testUntrackReleasesDirectory() throws IOException {
+        // Arrange
+        Path file = Files.createFile(tempDir.resolve("notes.txt"));
+        startTracker(file);
+
+        // Act
+        tracker.untrack(file.toString());
+
+        // Assert
+        assertEquals(0, tracker.getWatchedDirectoryCount());
+    }
+}
@@ -0,0 +1,142 @@
+package com.tagease.utils;
+
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the FolderImporter class
+ */
+public class FolderImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+    private Thread.UncaughtExceptionHandler previousHandler;
+
+    @BeforeEach
+    public void setUp() {
+        // Walker threads have no handler of their own, so anything they throw lands here
+        previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Thread.setDefaultUncaughtExceptionHandler(previousHandler);
+        assertEquals(List.of(), uncaught, "Walker threads threw uncaught exceptions");
+    }
+
+    private void createFiles(Path directory, String prefix, int count) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < count; i++) {
+            Files.writeString(directory.resolve(prefix + i + ".txt"), "file " + i);
+        }
+    }
+
+    @Test
+    public void testImportsWholeTreeInBatches() throws IOException {
+        // Arrange
+        createFiles(tempDir, "root", 3);
+        createFiles(tempDir.resolve("a"), "a", 40);
+        createFiles(tempDir.resolve("b/c/d"), "d", 17);
+        List<Integer> batchSizes = new ArrayList<>();
+        Set<String> written = new HashSet<>();
+
+        // Act
+        FolderImporter.Result result = new FolderImporter(3, 8, 10).importFolder(tempDir,
+            FolderImporter.Filter.all(), Set.of("imported"), batch -> {
+                batchSizes.add(batch.size());
+                batch.forEach(file -> written.add(file.getFilePath()));
+                return batch.size();
+            }, null, new CancellationToken());
+
+        // Assert - the small queue forces the walkers to wait for the writer
+        assertEquals(60, result.getDiscovered());
+        assertEquals(60, result.getImported());
+        assertEquals(60, written.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        assertTrue(written.contains(tempDir.resolve("b/c/d/d16.txt").toAbsolutePath().toString()));
+    }
+
+    @Test
+    public void testGlobsFilterFilesAndPruneDirectories() throws IOException {
+        // Arrange
+        createFiles(tempDir.resolve("docs"), "doc", 2);
+        Files.writeString(tempDir.resolve("docs/report.pdf"), "pdf");
+        Files.writeString(tempDir.resolve("notes.pdf"), "pdf");
+        Files.createDirectories(tempDir.resolve("node_modules/pkg"));
+        Files.writeString(tempDir.resolve("node_modules/pkg/readme.pdf"), "pdf");
+        List<TaggedFile> imported = new ArrayList<>();
+
+        // Act
+        new FolderImporter().importFolder(tempDir,
+            new FolderImporter.Filter(List.of("*.pdf"), List.of("node_modules")), Set.of("docs"),
+            batch -> {
+                imported.addAll(batch);
+                return batch.size();
+            }, null, new CancellationToken());
+
+        // Assert
+        Set<String> names = imported.stream().map(TaggedFile::getFileName).collect(Collectors.toSet());
+        assertEquals(Set.of("report.pdf", "notes.pdf"), names);
+        assertEquals(Set.of("docs"), imported.get(0).getTags());
+        assertNotNull(imported.get(0).getFingerprint());
+    }
+
+    @Test
+    public void testSkippedFilesAndCancellation() throws IOException {
+        // Arrange
+        createFiles(tempDir.resolve("a"), "a", 30);
+        CancellationToken token = new CancellationToken();
+        List<FolderImporter.Progress> progress = new ArrayList<>();
+
+        // Act - the sink reports every other file as already catalogued
+        FolderImporter.Result result = new FolderImporter(2, 100, 5).importFolder(tempDir,
+            FolderImporter.Filter.all(), Set.of(), batch -> batch.size() / 2, progress::add, token);
+        token.cancel();
+
+        // Assert
+        assertEquals(30, result.getImported() + result.getSkipped());
+        assertFalse(progress.isEmpty());
+        assertThrows(CancellationException.class, () -> new FolderImporter().importFolder(tempDir,
+            FolderImporter.Filter.all(), Set.of(), List::size, null, token));
+    }
+
+    @Test
+    public void testFailingSinkStopsTheWalkersQuietly() throws IOException {
+        // Arrange - enough subdirectories that the root listing is still scheduling walks
+        for (int i = 0; i < 50; i++) {
+            createFiles(tempDir.resolve("d" + i), "f", 2);
+        }
+        createFiles(tempDir, "root", 1);
+
+        // Act
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> new FolderImporter(2, 100, 1).importFolder(tempDir, FolderImporter.Filter.all(), Set.of(),
+                batch -> {
+                    throw new IllegalStateException("disk full");
+                }, null, new CancellationToken()));
+
+        // Assert - tearDown checks that no walker thread died of an uncaught exception
+        assertEquals("disk full", error.getMessage());
+    }
+}
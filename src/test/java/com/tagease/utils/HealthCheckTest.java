@@ -0,0 +1,83 @@
+package com.tagease.utils;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HealthCheck class
+ */
+public class HealthCheckTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testOneScanReportsMissingFilesAndTagChanges() throws IOException {
+        // Arrange
+        Path present = Files.writeString(tempDir.resolve("present.txt"), "a");
+        Path returned = Files.writeString(tempDir.resolve("returned.txt"), "b");
+        TaggedFile presentFile = new TaggedFile("present.txt", present.toString());
+        TaggedFile returnedFile = new TaggedFile("returned.txt", returned.toString(),
+            new HashSet<>(Set.of(Tag.TAG_MISSING)));
+        TaggedFile goneFile = new TaggedFile("gone.txt", tempDir.resolve("gone.txt").toString());
+        AtomicInteger lastProgress = new AtomicInteger();
+
+        // Act
+        HealthCheck.HealthCheckResult result = new HealthCheck().run(List.of(presentFile, returnedFile, goneFile),
+            (done, total) -> lastProgress.set(done), new CancellationToken());
+
+        // Assert
+        assertEquals(1, result.getMissingCount());
+        assertEquals(List.of(goneFile.getFilePath()), result.getScan().getNewlyMissing());
+        assertEquals(List.of(returnedFile.getFilePath()), result.getScan().getRecovered());
+        assertEquals(goneFile.getFilePath(), result.getFilePathIssues().get("missing").get(0).getFilePath());
+        assertEquals(3, lastProgress.get());
+    }
+
+    @Test
+    public void testCheckReadsFingerprintsOnlyForPresentFilesWithoutOne() throws IOException {
+        // Arrange
+        Path present = Files.writeString(tempDir.resolve("present.txt"), "a");
+        Path known = Files.writeString(tempDir.resolve("known.txt"), "b");
+        TaggedFile knownFile = new TaggedFile("known.txt", known.toString());
+        knownFile.setFingerprint(FileFingerprint.read(known));
+        TaggedFile goneFile = new TaggedFile("gone.txt", tempDir.resolve("gone.txt").toString());
+
+        // Act
+        HealthCheck.HealthCheckResult result = new HealthCheck().run(
+            List.of(new TaggedFile("present.txt", present.toString()), knownFile, goneFile), null,
+            new CancellationToken());
+
+        // Assert
+        assertEquals(Map.of(present.toString(), FileFingerprint.read(present)), result.getFingerprints());
+    }
+
+    @Test
+    public void testCancelledCheckThrows() throws IOException {
+        // Arrange
+        Path present = Files.writeString(tempDir.resolve("present.txt"), "a");
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        // Act & Assert
+        assertThrows(CancellationException.class, () -> new HealthCheck().run(
+            List.of(new TaggedFile("present.txt", present.toString())), null, token));
+    }
+}
@@ -0,0 +1,128 @@
+package com.tagease.utils;
+
+import org.junit.jupiter.api.Test;
+
+import com.tagease.model.TaggedFile;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ListReconciler class
+ */
+public class ListReconcilerTest {
+
+    private static TaggedFile file(String name, String... tags) {
+        return new TaggedFile(name, "/files/" + name, new HashSet<>(Arrays.asList(tags)));
+    }
+
+    private static ListReconciler.Result reconcile(List<TaggedFile> target, List<TaggedFile> next) {
+        return ListReconciler.reconcile(target, next, TaggedFile::getFilePath,
+                (old, now) -> old.getTags().equals(now.getTags()));
+    }
+
+    private static List<String> names(List<TaggedFile> files) {
+        return files.stream().map(TaggedFile::getFileName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOneFileEditReplacesOnlyThatItem() {
+        // Arrange
+        ObservableList<TaggedFile> displayed = FXCollections.observableArrayList(
+                file("a"), file("b"), file("c"), file("d"));
+        List<TaggedFile> before = new ArrayList<>(displayed);
+        List<TaggedFile> next = Arrays.asList(file("a"), file("b", "work"), file("c"), file("d"));
+        List<String> events = new ArrayList<>();
+        displayed.addListener((ListChangeListener<TaggedFile>) change -> {
+            while (change.next()) {
+                events.add(change.wasReplaced() ? "replace " + change.getFrom() : change.toString());
+            }
+        });
+
+        // Act
+        ListReconciler.Result result = reconcile(displayed, next);
+
+        // Assert
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getRemoved() + result.getMoved() + result.getInserted());
+        assertEquals(List.of("replace 1"), events);
+        assertSame(before.get(0), displayed.get(0));
+        assertSame(next.get(1), displayed.get(1));
+        assertSame(before.get(2), displayed.get(2));
+        assertEquals(Set.of("work"), displayed.get(1).getTags());
+    }
+
+    @Test
+    public void testEditedCopyOfADisplayedItemIsUpdated() {
+        // Arrange
+        List<TaggedFile> displayed = new ArrayList<>(List.of(file("a"), file("b", "draft"), file("c")));
+        TaggedFile shown = displayed.get(1);
+
+        // Act - the edit works on a copy, so the displayed item still holds the old tags
+        Set<String> tags = new HashSet<>(shown.getTags());
+        tags.add("work");
+        TaggedFile edited = new TaggedFile(shown.getFileName(), shown.getFilePath(), tags);
+        ListReconciler.Result result = reconcile(displayed, List.of(displayed.get(0), edited, displayed.get(2)));
+
+        // Assert
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getRemoved() + result.getMoved() + result.getInserted());
+        assertSame(edited, displayed.get(1));
+        assertEquals(Set.of("draft"), shown.getTags());
+        assertEquals(Set.of("draft", "work"), displayed.get(1).getTags());
+    }
+
+    @Test
+    public void testRemoveInsertAndMoveUseMinimalOperations() {
+        // Arrange
+        List<TaggedFile> displayed = new ArrayList<>(List.of(file("a"), file("b"), file("c"), file("d"), file("e")));
+        TaggedFile b = displayed.get(1);
+        List<TaggedFile> next = List.of(file("x"), file("b"), file("d"), file("e"), file("a"));
+
+        // Act
+        ListReconciler.Result result = reconcile(displayed, next);
+
+        // Assert - b, d and e stay in place; c goes, x comes and a moves to the end
+        assertEquals(List.of("x", "b", "d", "e", "a"), names(displayed));
+        assertEquals(1, result.getRemoved());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getMoved());
+        assertEquals(0, result.getUpdated());
+        assertSame(b, displayed.get(1));
+        assertTrue(reconcile(displayed, next).isEmpty());
+    }
+
+    @Test
+    public void testReversedOrderIsReplacedOutright() {
+        // Arrange
+        List<TaggedFile> displayed = new ArrayList<>(List.of(file("a"), file("b"), file("c"), file("d"), file("e")));
+        List<TaggedFile> next = List.of(file("e"), file("d"), file("c"), file("b"), file("a"));
+
+        // Act
+        ListReconciler.Result result = reconcile(displayed, next);
+
+        // Assert
+        assertEquals(List.of("e", "d", "c", "b", "a"), names(displayed));
+        assertEquals(4, result.getMoved());
+        assertEquals(0, result.getInserted());
+    }
+
+    @Test
+    public void testLongestIncreasingSubsequenceKeepsTheLongestOrderedRun() {
+        // Act
+        boolean[] stays = ListReconciler.longestIncreasingSubsequence(new int[] {4, 0, 1, 5, 2, 3});
+
+        // Assert - 0, 1, 2, 3 stay
+        assertArrayEquals(new boolean[] {false, true, true, false, true, true}, stays);
+    }
+}
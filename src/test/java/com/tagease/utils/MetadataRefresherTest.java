@@ -0,0 +1,83 @@
+package com.tagease.utils;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the MetadataRefresher class
+ */
+public class MetadataRefresherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaggedFile catalogued(Path path) throws IOException {
+        TaggedFile file = new TaggedFile(path.getFileName().toString(), path.toString());
+        file.setFingerprint(FileFingerprint.read(path).withContentHash("xxh64:0000000000000001"));
+        file.setMimeType("text/plain");
+        return file;
+    }
+
+    @Test
+    public void testOnlyChangedDirectoriesAreRestated() throws IOException {
+        // Arrange - both files grow, but only one directory is known to have changed
+        Path quietDir = Files.createDirectory(tempDir.resolve("quiet"));
+        Path busyDir = Files.createDirectory(tempDir.resolve("busy"));
+        Path quiet = Files.writeString(quietDir.resolve("a.txt"), "a");
+        Path busy = Files.writeString(busyDir.resolve("b.txt"), "b");
+        TaggedFile quietFile = catalogued(quiet);
+        TaggedFile busyFile = catalogued(busy);
+        Files.writeString(quiet, "grown");
+        Files.writeString(busy, "grown");
+        Map<String, Long> known = new HashMap<>();
+        known.put(quietDir.toString(), Files.getLastModifiedTime(quietDir).toMillis());
+        known.put(busyDir.toString(), Files.getLastModifiedTime(busyDir).toMillis() - 1000);
+
+        // Act
+        MetadataRefresher.Result result = new MetadataRefresher().refresh(List.of(quietFile, busyFile), known,
+            new CancellationToken());
+
+        // Assert - the changed size drops the stale content hash
+        assertEquals(1, result.getDirectoriesRescanned());
+        assertEquals(1, result.getChangedFiles().size());
+        TaggedFile changed = result.getChangedFiles().get(0);
+        assertEquals(busy.toString(), changed.getFilePath());
+        assertEquals(5, changed.getFingerprint().getSize());
+        assertNull(changed.getFingerprint().getContentHash());
+        assertEquals(Files.getLastModifiedTime(busyDir).toMillis(), result.getDirectoryStates().get(busyDir.toString()));
+    }
+
+    @Test
+    public void testUnknownDirectoryFillsMissingTypeAndKeepsHash() throws IOException {
+        // Arrange
+        Path file = Files.writeString(tempDir.resolve("notes.txt"), "notes");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_700_000_000_000L));
+        TaggedFile unchanged = catalogued(file);
+        unchanged.setMimeType(null);
+
+        // Act
+        MetadataRefresher.Result result = new MetadataRefresher().refresh(List.of(unchanged), Map.of(),
+            new CancellationToken());
+
+        // Assert
+        assertEquals(1, result.getDirectoriesRescanned());
+        List<TaggedFile> changed = result.getChangedFiles();
+        assertEquals(1, changed.size());
+        assertEquals("xxh64:0000000000000001", changed.get(0).getFingerprint().getContentHash());
+        assertEquals("text/plain", changed.get(0).getMimeType());
+    }
+}
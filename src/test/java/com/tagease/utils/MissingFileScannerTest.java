@@ -0,0 +1,104 @@
+package com.tagease.utils;
+
+import com.tagease.model.Tag;
+import com.tagease.model.TaggedFile;
+import com.tagease.search.CancellationToken;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the MissingFileScanner class
+ */
+public class MissingFileScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaggedFile file(Path path, String... tags) {
+        TaggedFile file = new TaggedFile(path.getFileName().toString(), path.toString());
+        for (String tag : tags) {
+            file.addTag(tag);
+        }
+        return file;
+    }
+
+    @Test
+    public void testFindsMissingAndRecoveredFilesInOnePass() throws IOException {
+        // Arrange - a listed directory, a single-file directory and a deleted directory
+        Path big = Files.createDirectory(tempDir.resolve("big"));
+        List<TaggedFile> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            files.add(file(Files.createFile(big.resolve("f" + i + ".txt"))));
+        }
+        files.add(file(big.resolve("deleted.txt")));
+        files.add(file(Files.createFile(tempDir.resolve("back.txt")), Tag.TAG_MISSING));
+        files.add(file(tempDir.resolve("gone/a.txt"), Tag.TAG_MISSING));
+        for (int i = 0; i < 5; i++) {
+            files.add(file(tempDir.resolve("gone/b" + i + ".txt")));
+        }
+
+        // Act
+        MissingFileScanner.Result result = new MissingFileScanner(2).scan(files);
+
+        // Assert
+        assertEquals(7, result.getMissing().size());
+        assertTrue(result.getMissing().contains(big.resolve("deleted.txt").toString()));
+        assertEquals(6, result.getNewlyMissing().size());
+        assertFalse(result.getNewlyMissing().contains(tempDir.resolve("gone/a.txt").toString()));
+        assertEquals(Arrays.asList(tempDir.resolve("back.txt").toString()), result.getRecovered());
+        assertEquals(files.size(), result.getChecked());
+        assertTrue(result.hasChanges());
+    }
+
+    @Test
+    public void testReportsProgressAndHonoursCancellation() throws IOException {
+        // Arrange
+        List<TaggedFile> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path dir = Files.createDirectory(tempDir.resolve("d" + i));
+            files.add(file(Files.createFile(dir.resolve("f.txt"))));
+        }
+        AtomicInteger lastReported = new AtomicInteger();
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel();
+
+        // Act
+        MissingFileScanner.Result result = new MissingFileScanner(1).scan(files,
+            (checked, total) -> lastReported.accumulateAndGet(checked, Math::max), new CancellationToken());
+
+        // Assert
+        assertFalse(result.hasChanges());
+        assertEquals(3, lastReported.get());
+        assertThrows(CancellationException.class,
+            () -> new MissingFileScanner().scan(files, null, cancelled));
+    }
+
+    @Test
+    public void testScanFillsAndTrustsTheStatusCache() throws IOException {
+        // Arrange
+        Path present = Files.createFile(tempDir.resolve("present.txt"));
+        Path known = Files.createFile(tempDir.resolve("known.txt"));
+        PathStatusCache cache = new PathStatusCache();
+        cache.put(known.toString(), false);
+
+        // Act
+        MissingFileScanner.Result result = new MissingFileScanner(1, cache)
+            .scan(List.of(file(present), file(known)), null, new CancellationToken());
+
+        // Assert - the fresh entry is believed without touching the disk
+        assertEquals(List.of(known.toString()), result.getNewlyMissing());
+        assertEquals(Boolean.TRUE, cache.peek(present.toString()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.tagease.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the PathStatusCache class
+ */
+public class PathStatusCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private PathStatusCache cache(int maxEntries) {
+        return new PathStatusCache(1_000, maxEntries, now::get);
+    }
+
+    @Test
+    public void testRepeatedChecksAreServedUntilTheEntryExpires() throws IOException {
+        // Arrange
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "a");
+        PathStatusCache cache = cache(10);
+
+        // Act - the file is deleted behind the cache's back
+        boolean first = cache.exists(file.toString());
+        Files.delete(file);
+        boolean cached = cache.exists(file.toString());
+        now.addAndGet(1_000_000_001L);
+        boolean expired = cache.exists(file.toString());
+
+        // Assert
+        assertTrue(first);
+        assertTrue(cached);
+        assertFalse(expired);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidationAndListingsUpdateEntries() throws IOException {
+        // Arrange
+        Path file = Files.writeString(tempDir.resolve("b.txt"), "bb");
+        PathStatusCache cache = cache(10);
+        cache.put(file.toString(), false);
+
+        // Act
+        boolean fromListing = cache.exists(file.toString());
+        cache.invalidate(List.of(file.toString()));
+        Boolean afterInvalidate = cache.peek(file.toString());
+
+        // Assert - a listed entry has no attributes, so asking for them reads the file
+        assertFalse(fromListing);
+        assertNull(afterInvalidate);
+        cache.put(file.toString(), true);
+        assertEquals(2, cache.getFingerprint(file.toString()).getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        // Arrange
+        PathStatusCache cache = cache(2);
+        cache.put("/a", true);
+        cache.put("/b", true);
+
+        // Act - reading /a makes /b the eldest
+        cache.peek("/a");
+        cache.put("/c", true);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(Boolean.TRUE, cache.peek("/a"));
+        assertNull(cache.peek("/b"));
+    }
+}
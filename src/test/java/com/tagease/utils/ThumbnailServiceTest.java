@@ -0,0 +1,48 @@
+package com.tagease.utils;
+
+import org.junit.jupiter.api.Test;
+
+import com.tagease.model.FileFingerprint;
+import com.tagease.model.TaggedFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ThumbnailService class
+ */
+public class ThumbnailServiceTest {
+
+    @Test
+    public void testOnlyImageExtensionsAreSupported() {
+        // Assert
+        assertTrue(ThumbnailService.isSupported("holiday.jpg"));
+        assertTrue(ThumbnailService.isSupported("scan.PNG"));
+        assertTrue(ThumbnailService.isSupported("photo.final.jpeg"));
+        assertFalse(ThumbnailService.isSupported("report.pdf"));
+        assertFalse(ThumbnailService.isSupported("jpg"));
+    }
+
+    @Test
+    public void testCacheKeyChangesWhenTheFileIsModified() {
+        // Arrange
+        TaggedFile file = new TaggedFile("a.jpg", "/photos/a.jpg");
+        file.setFingerprint(new FileFingerprint("key", 100, 1_000, null));
+        String original = ThumbnailService.key(file);
+
+        // Act
+        TaggedFile same = new TaggedFile("a.jpg", "/photos/a.jpg");
+        same.setFingerprint(new FileFingerprint("key", 100, 1_000, null));
+        TaggedFile modified = new TaggedFile("a.jpg", "/photos/a.jpg");
+        modified.setFingerprint(new FileFingerprint("key", 100, 2_000, null));
+        TaggedFile resized = new TaggedFile("a.jpg", "/photos/a.jpg");
+        resized.setFingerprint(new FileFingerprint("key", 101, 1_000, null));
+        TaggedFile elsewhere = new TaggedFile("a.jpg", "/archive/a.jpg");
+        elsewhere.setFingerprint(new FileFingerprint("key", 100, 1_000, null));
+
+        // Assert
+        assertEquals(original, ThumbnailService.key(same));
+        assertNotEquals(original, ThumbnailService.key(modified));
+        assertNotEquals(original, ThumbnailService.key(resized));
+        assertNotEquals(original, ThumbnailService.key(elsewhere));
+    }
+}
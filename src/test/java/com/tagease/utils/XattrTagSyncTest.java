@@ -0,0 +1,73 @@
+package com.tagease.utils;
+
+import com.tagease.model.Tag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the XattrTagSync class
+ */
+public class XattrTagSyncTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEncodingIsSortedAndLeavesOutMissing() {
+        // Act
+        String encoded = XattrTagSync.encode(Set.of("work", "archive", Tag.TAG_MISSING));
+
+        // Assert
+        assertEquals("archive,work", encoded);
+        assertEquals(Set.of("archive", "work"), XattrTagSync.decode(" archive, ,work," + Tag.TAG_MISSING));
+    }
+
+    @Test
+    public void testScheduledWritesAreCoalescedPerFile() throws IOException {
+        // Arrange - a long delay keeps the writer thread from flushing during the test
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "a");
+        try (XattrTagSync sync = new XattrTagSync(60_000)) {
+            // Act
+            sync.schedule(file.toString(), Set.of("draft"));
+            sync.schedule(file.toString(), Set.of("draft", "review"));
+            sync.schedule(file.toString(), Set.of("final"));
+
+            // Assert
+            assertEquals(1, sync.getPendingCount());
+            int written = sync.flush();
+            assertEquals(0, sync.getPendingCount());
+            if (XattrTagSync.isSupported(tempDir)) {
+                assertEquals(1, written);
+                assertEquals(Set.of("final"), XattrTagSync.read(file));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteReadAndRemoveAttribute() throws IOException {
+        // Arrange
+        assumeTrue(XattrTagSync.isSupported(tempDir), "File system has no user attributes");
+        Path file = Files.writeString(tempDir.resolve("b.txt"), "b");
+
+        // Act
+        Set<String> before = XattrTagSync.read(file);
+        boolean written = XattrTagSync.write(file, Set.of("work", "shared"));
+        Set<String> stored = XattrTagSync.read(file);
+        XattrTagSync.write(file, Set.of());
+
+        // Assert
+        assertNull(before);
+        assertTrue(written);
+        assertEquals(Set.of("shared", "work"), stored);
+        assertNull(XattrTagSync.read(file));
+    }
+}